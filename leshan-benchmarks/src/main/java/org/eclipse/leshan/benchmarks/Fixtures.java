@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2015 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.leshan.Link;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.model.ResourceModel.Operations;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeEncoder;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Realistic payloads and registrations shared by the benchmarks.
+ * <p>
+ * The fixtures are built once with the Leshan encoders so that they always match the current codecs.
+ */
+public class Fixtures {
+
+    /** Temperature object (IPSO 3303), a typical multi-instance sensor object. */
+    public static final int TEMPERATURE_OBJECT_ID = 3303;
+
+    public static final LwM2mPath DEVICE_PATH = new LwM2mPath(3, 0);
+    public static final LwM2mPath FIRMWARE_PATH = new LwM2mPath(5, 0);
+    public static final LwM2mPath TEMPERATURE_PATH = new LwM2mPath(TEMPERATURE_OBJECT_ID);
+
+    private static final LwM2mModel MODEL = createModel();
+
+    public static LwM2mModel model() {
+        return MODEL;
+    }
+
+    private static LwM2mModel createModel() {
+        List<ObjectModel> objects = ObjectLoader.loadDefault();
+        objects.add(new ObjectModel(TEMPERATURE_OBJECT_ID, "Temperature", "", ObjectModel.DEFAULT_VERSION, true,
+                false,
+                new ResourceModel(5700, "Sensor Value", Operations.R, false, true, Type.FLOAT, null, "Cel", null),
+                new ResourceModel(5701, "Sensor Units", Operations.R, false, false, Type.STRING, null, null, null),
+                new ResourceModel(5601, "Min Measured Value", Operations.R, false, false, Type.FLOAT, null, "Cel",
+                        null),
+                new ResourceModel(5602, "Max Measured Value", Operations.R, false, false, Type.FLOAT, null, "Cel",
+                        null),
+                new ResourceModel(5518, "Timestamp", Operations.R, false, false, Type.TIME, null, null, null)));
+        return new StaticModel(objects);
+    }
+
+    /**
+     * @return an instance of the Device object (3) with all its readable resources.
+     */
+    public static LwM2mObjectInstance deviceInstance() {
+        List<LwM2mResource> resources = new ArrayList<>();
+        resources.add(LwM2mSingleResource.newStringResource(0, "Leshan Demo Device"));
+        resources.add(LwM2mSingleResource.newStringResource(1, "Model 500"));
+        resources.add(LwM2mSingleResource.newStringResource(2, "LT-500-000-0001"));
+        resources.add(LwM2mSingleResource.newStringResource(3, "1.0.0"));
+        resources.add(multipleInteger(6, 1, 5));
+        resources.add(multipleInteger(7, 3800, 5000));
+        resources.add(multipleInteger(8, 125, 900));
+        resources.add(LwM2mSingleResource.newIntegerResource(9, 92));
+        resources.add(LwM2mSingleResource.newIntegerResource(10, 15));
+        resources.add(multipleInteger(11, 0));
+        resources.add(LwM2mSingleResource.newDateResource(13, new Date(1500000000000L)));
+        resources.add(LwM2mSingleResource.newStringResource(14, "+02"));
+        resources.add(LwM2mSingleResource.newStringResource(15, "Europe/Paris"));
+        resources.add(LwM2mSingleResource.newStringResource(16, "UQ"));
+        resources.add(LwM2mSingleResource.newStringResource(17, "Demo"));
+        resources.add(LwM2mSingleResource.newStringResource(18, "1.0.1"));
+        resources.add(LwM2mSingleResource.newStringResource(19, "1.0.2"));
+        resources.add(LwM2mSingleResource.newIntegerResource(20, 2));
+        resources.add(LwM2mSingleResource.newIntegerResource(21, 128));
+        return new LwM2mObjectInstance(0, resources);
+    }
+
+    /**
+     * @return an instance of the Firmware Update object (5) during a download.
+     */
+    public static LwM2mObjectInstance firmwareInstance() {
+        List<LwM2mResource> resources = new ArrayList<>();
+        resources.add(LwM2mSingleResource.newStringResource(1, "coaps://fw.example.com/images/device-1.0.2.bin"));
+        resources.add(LwM2mSingleResource.newIntegerResource(3, 1));
+        resources.add(LwM2mSingleResource.newIntegerResource(5, 0));
+        resources.add(LwM2mSingleResource.newStringResource(6, "device-firmware"));
+        resources.add(LwM2mSingleResource.newStringResource(7, "1.0.2"));
+        resources.add(multipleInteger(8, 0, 1, 2, 3));
+        resources.add(LwM2mSingleResource.newIntegerResource(9, 2));
+        return new LwM2mObjectInstance(0, resources);
+    }
+
+    /**
+     * @param instances the number of sensor instances
+     * @return a Temperature object (3303) with the given number of instances.
+     */
+    public static LwM2mObject temperatureObject(int instances) {
+        List<LwM2mObjectInstance> objectInstances = new ArrayList<>();
+        for (int i = 0; i < instances; i++) {
+            objectInstances.add(new LwM2mObjectInstance(i, LwM2mSingleResource.newFloatResource(5700, 20.5d + i),
+                    LwM2mSingleResource.newStringResource(5701, "Cel"),
+                    LwM2mSingleResource.newFloatResource(5601, 12.25d),
+                    LwM2mSingleResource.newFloatResource(5602, 31.75d + i),
+                    LwM2mSingleResource.newDateResource(5518, new Date(1500000000000L + i * 1000L))));
+        }
+        return new LwM2mObject(TEMPERATURE_OBJECT_ID, objectInstances);
+    }
+
+    private static LwM2mMultipleResource multipleInteger(int id, long... values) {
+        Map<Integer, Long> instances = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            instances.put(i, values[i]);
+        }
+        return LwM2mMultipleResource.newIntegerResource(id, instances);
+    }
+
+    /**
+     * Encode a node with the default Leshan encoder.
+     */
+    public static byte[] encode(LwM2mNode node, ContentFormat format, LwM2mPath path) {
+        return new DefaultLwM2mNodeEncoder().encode(node, format, path, MODEL);
+    }
+
+    /**
+     * @return the object links sent by a device with the given number of temperature sensors.
+     */
+    public static Link[] objectLinks(int sensors) {
+        List<Link> links = new ArrayList<>();
+        Map<String, Object> rootAttributes = new HashMap<>();
+        rootAttributes.put("rt", "oma.lwm2m");
+        rootAttributes.put("ct", 11543);
+        links.add(new Link("/", rootAttributes));
+        links.add(new Link("/1/0"));
+        links.add(new Link("/3/0"));
+        links.add(new Link("/4/0"));
+        links.add(new Link("/5/0"));
+        Map<String, Object> versionAttributes = new HashMap<>();
+        versionAttributes.put("ver", "1.1");
+        links.add(new Link("/6", versionAttributes));
+        for (int i = 0; i < sensors; i++) {
+            links.add(new Link("/" + TEMPERATURE_OBJECT_ID + "/" + i));
+        }
+        return links.toArray(new Link[links.size()]);
+    }
+
+    /**
+     * @return the link-format payload sent by a device with the given number of temperature sensors.
+     */
+    public static byte[] objectLinksPayload(int sensors) {
+        return Link.serialize(objectLinks(sensors)).getBytes();
+    }
+
+    /**
+     * @param index used to build unique registration id, endpoint and address.
+     * @return a registration of a queue mode device with 10 temperature sensors.
+     */
+    public static Registration registration(int index) {
+        InetSocketAddress address = new InetSocketAddress(Inet4Address.getLoopbackAddress(), 10000 + index % 50000);
+        Registration.Builder builder = new Registration.Builder("reg-" + index,
+                "urn:imei:" + (350000000000000L + index), Identity.unsecure(address), new InetSocketAddress(5683));
+
+        Map<String, String> additionalAttributes = new HashMap<>();
+        additionalAttributes.put("apn", "iot.example.com");
+        return builder.lifeTimeInSec(86400L).bindingMode(BindingMode.UQ).lwM2mVersion("1.0").smsNumber("0123456789")
+                .objectLinks(objectLinks(10)).registrationDate(new Date(1500000000000L))
+                .lastUpdate(new Date(1500000000000L)).additionalRegistrationAttributes(additionalAttributes)
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2015 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+
+/**
+ * Compare 2 JMH JSON result files (see {@link BenchmarkRunner}) and print one line per benchmark, sorted by name, so
+ * the output can itself be diffed or archived.
+ * <p>
+ * Usage : <code>ResultComparator baseline.json current.json [threshold in %]</code>
+ * <p>
+ * A benchmark is reported as a regression when its score is worse than the baseline by more than the threshold
+ * (default 10%) and more than the error margin of both measures. The exit code is 1 if at least one regression is
+ * found.
+ */
+public class ResultComparator {
+
+    private static class Score {
+        private final double score;
+        private final double error;
+        private final String unit;
+        private final boolean higherIsBetter;
+
+        private Score(double score, double error, String unit, boolean higherIsBetter) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : ResultComparator baseline.json current.json [threshold in %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10d;
+
+        Map<String, Score> baseline = load(args[0]);
+        Map<String, Score> current = load(args[1]);
+
+        int regressions = 0;
+        System.out.println(String.format("%-90s %14s %14s %9s", "benchmark", "baseline", "current", "change"));
+        for (Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println(String.format("%-90s %14s %14.3f %9s %s", entry.getKey(), "-", now.score, "new",
+                        now.unit));
+                continue;
+            }
+
+            // positive change means worse
+            double change = (now.score - before.score) / before.score * 100d;
+            if (now.higherIsBetter)
+                change = -change;
+            boolean significant = Math.abs(now.score - before.score) > before.error + now.error;
+            String status = "";
+            if (significant && change > threshold) {
+                status = "REGRESSION";
+                regressions++;
+            } else if (significant && change < -threshold) {
+                status = "improvement";
+            }
+            System.out.println(String.format("%-90s %14.3f %14.3f %+8.1f%% %s %s", entry.getKey(), before.score,
+                    now.score, change, now.unit, status));
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name))
+                System.out.println(String.format("%-90s %14.3f %14s %9s", name, baseline.get(name).score, "-",
+                        "removed"));
+        }
+
+        if (regressions > 0) {
+            System.out.println(String.format("%d regression(s) found", regressions));
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> load(String file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            for (JsonValue value : Json.parse(reader).asArray()) {
+                JsonObject result = value.asObject();
+
+                // benchmark name with its parameters, e.g. "...TlvDecoderBenchmark.decodeDevice:sensors=10"
+                StringBuilder name = new StringBuilder(result.getString("benchmark", "?"));
+                JsonValue params = result.get("params");
+                if (params != null && params.isObject()) {
+                    for (Entry<String, JsonValue> param : sorted(params.asObject()).entrySet()) {
+                        name.append(':').append(param.getKey()).append('=').append(param.getValue().asString());
+                    }
+                }
+                String mode = result.getString("mode", "");
+
+                JsonObject metric = result.get("primaryMetric").asObject();
+                JsonValue error = metric.get("scoreError");
+                scores.put(name.toString(), new Score(metric.getDouble("score", 0d),
+                        error != null && error.isNumber() ? error.asDouble() : 0d,
+                        metric.getString("scoreUnit", ""), "thrpt".equals(mode)));
+            }
+        }
+        return scores;
+    }
+
+    private static Map<String, JsonValue> sorted(JsonObject object) {
+        Map<String, JsonValue> map = new TreeMap<>();
+        for (String name : object.names()) {
+            map.put(name, object.get(name));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2015 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.benchmarks.Fixtures;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mNodeDecoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding of LWM2M JSON payloads (the <code>LwM2mNodeJsonDecoder</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDecoderBenchmark {
+
+    @Param({ "10", "100" })
+    public int sensors;
+
+    private LwM2mModel model;
+    private LwM2mNodeDecoder decoder;
+
+    private byte[] device;
+    private byte[] firmware;
+    private byte[] temperature;
+
+    @Setup
+    public void setup() {
+        model = Fixtures.model();
+        decoder = new DefaultLwM2mNodeDecoder();
+        device = Fixtures.encode(Fixtures.deviceInstance(), ContentFormat.JSON, Fixtures.DEVICE_PATH);
+        firmware = Fixtures.encode(Fixtures.firmwareInstance(), ContentFormat.JSON, Fixtures.FIRMWARE_PATH);
+        temperature = Fixtures.encode(Fixtures.temperatureObject(sensors), ContentFormat.JSON,
+                Fixtures.TEMPERATURE_PATH);
+    }
+
+    @Benchmark
+    public LwM2mNode decodeDevice() {
+        return decoder.decode(device, ContentFormat.JSON, Fixtures.DEVICE_PATH, model);
+    }
+
+    @Benchmark
+    public LwM2mNode decodeFirmware() {
+        return decoder.decode(firmware, ContentFormat.JSON, Fixtures.FIRMWARE_PATH, model);
+    }
+
+    @Benchmark
+    public LwM2mNode decodeTemperature() {
+        return decoder.decode(temperature, ContentFormat.JSON, Fixtures.TEMPERATURE_PATH, model);
+    }
+
+    @Benchmark
+    public List<TimestampedLwM2mNode> decodeTimestampedTemperature() {
+        // this is the path used for notifications
+        return decoder.decodeTimestampedData(temperature, ContentFormat.JSON, Fixtures.TEMPERATURE_PATH, model);
+    }
+}
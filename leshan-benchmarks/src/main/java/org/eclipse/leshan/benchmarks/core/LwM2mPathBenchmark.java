@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2015 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of {@link LwM2mPath} : the constructor always creates a new path where <code>valueOf</code> can reuse cached
+ * instances.
+ * <p>
+ * The <code>observation*</code> benchmarks reproduce the lookup of the observations of a notified resource (see
+ * <code>ObservationServiceImpl</code>) and the <code>jsonEntries*</code> ones the resolution of the paths of LWM2M JSON
+ * entries from the base name (see <code>LwM2mNodeJsonDecoder</code>), before and after the change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LwM2mPathBenchmark {
+
+    // not constant to avoid constant folding
+    public String resourcePath = "/3303/12/5700";
+    public LwM2mPath instancePath = new LwM2mPath(3303, 12);
+
+    // observations of a client and names of the entries of a JSON payload of the temperature object
+    private LwM2mPath[] observedPaths;
+    private String baseName;
+    private LwM2mPath baseNamePath;
+    private String[] entryNames;
+
+    @Setup
+    public void setup() {
+        observedPaths = new LwM2mPath[20];
+        for (int i = 0; i < observedPaths.length; i++) {
+            observedPaths[i] = new LwM2mPath(3303, i, 5700);
+        }
+        baseName = "/3303/";
+        baseNamePath = new LwM2mPath(baseName);
+        entryNames = new String[40];
+        for (int i = 0; i < entryNames.length; i += 2) {
+            entryNames[i] = i / 2 + "/5700";
+            entryNames[i + 1] = i / 2 + "/5701";
+        }
+    }
+
+    @Benchmark
+    public LwM2mPath parseWithConstructor() {
+        return new LwM2mPath(resourcePath);
+    }
+
+    @Benchmark
+    public LwM2mPath parseWithValueOf() {
+        return LwM2mPath.valueOf(resourcePath);
+    }
+
+    @Benchmark
+    public LwM2mPath append() {
+        return instancePath.append(5700);
+    }
+
+    @Benchmark
+    public int observationLookupWithConstructor() {
+        return countObservations(new LwM2mPath(resourcePath));
+    }
+
+    @Benchmark
+    public int observationLookupWithValueOf() {
+        return countObservations(LwM2mPath.valueOf(resourcePath));
+    }
+
+    private int countObservations(LwM2mPath notifiedPath) {
+        int count = 0;
+        for (LwM2mPath observedPath : observedPaths) {
+            if (notifiedPath.equals(observedPath)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public void jsonEntriesWithConstructor(Blackhole blackhole) {
+        for (String name : entryNames) {
+            blackhole.consume(new LwM2mPath(baseName + name));
+        }
+    }
+
+    @Benchmark
+    public void jsonEntriesWithAppend(Blackhole blackhole) {
+        for (String name : entryNames) {
+            blackhole.consume(baseNamePath.append(name));
+        }
+    }
+
+    @Benchmark
+    public int hashCodeAndEquals() {
+        LwM2mPath path = LwM2mPath.valueOf(3303, 12, 5700);
+        return path.equals(instancePath) ? 0 : path.hashCode();
+    }
+}
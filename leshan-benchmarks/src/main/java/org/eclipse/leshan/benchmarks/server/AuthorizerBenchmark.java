@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.server;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.UpdateRequest;
+import org.eclipse.leshan.server.impl.InMemorySecurityStore;
+import org.eclipse.leshan.server.redis.serialization.SecurityInfoSerDes;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.security.Authorizer;
+import org.eclipse.leshan.server.security.CachingAuthorizer;
+import org.eclipse.leshan.server.security.DefaultAuthorizer;
+import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Authorization of the updates of a fleet of PSK devices, with and without {@link CachingAuthorizer}.
+ * <p>
+ * Security infos are deserialized on each lookup as the Redis security store does, without the network round trip
+ * which would make the difference even larger.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizerBenchmark {
+
+    @Param({ "10000" })
+    public int devices;
+
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    private Authorizer authorizer;
+    private Registration[] registrations;
+    private UpdateRequest[] updates;
+    private int next;
+
+    @Setup
+    public void setup() throws NonUniqueSecurityInfoException {
+        SerializingSecurityStore store = new SerializingSecurityStore();
+        authorizer = cached ? new CachingAuthorizer(store) : new DefaultAuthorizer(store);
+
+        registrations = new Registration[devices];
+        updates = new UpdateRequest[devices];
+        for (int i = 0; i < devices; i++) {
+            String endpoint = "urn:imei:" + (350000000000000L + i);
+            String pskIdentity = "psk-" + i;
+            store.add(SecurityInfo.newPreSharedKeyInfo(endpoint, pskIdentity, new byte[] { (byte) i, 1, 2, 3 }));
+
+            Identity identity = Identity.psk(
+                    new InetSocketAddress(Inet4Address.getLoopbackAddress(), 10000 + i % 50000), pskIdentity);
+            registrations[i] = new Registration.Builder("reg-" + i, endpoint, identity, new InetSocketAddress(5684))
+                    .build();
+            updates[i] = new UpdateRequest(registrations[i].getId(), null, null, null, null, null);
+        }
+    }
+
+    private int next() {
+        next = next + 1 == devices ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public Registration authorizeUpdate() {
+        int i = next();
+        Registration registration = registrations[i];
+        return authorizer.isAuthorized(updates[i], registration, registration.getIdentity());
+    }
+
+    /**
+     * Keeps security infos serialized as the Redis security store does.
+     */
+    private static class SerializingSecurityStore extends InMemorySecurityStore {
+        private final Map<String, byte[]> serialized = new ConcurrentHashMap<>();
+
+        @Override
+        public SecurityInfo add(SecurityInfo info) throws NonUniqueSecurityInfoException {
+            serialized.put(info.getEndpoint(), SecurityInfoSerDes.serialize(info));
+            return super.add(info);
+        }
+
+        @Override
+        public SecurityInfo getByEndpoint(String endpoint) {
+            byte[] data = serialized.get(endpoint);
+            return data == null ? null : SecurityInfoSerDes.deserialize(data);
+        }
+    }
+}
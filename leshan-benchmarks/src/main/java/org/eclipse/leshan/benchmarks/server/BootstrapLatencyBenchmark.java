@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.server;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.core.request.BootstrapDeleteRequest;
+import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.BootstrapWriteRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.LwM2mRequest;
+import org.eclipse.leshan.core.response.BootstrapDeleteResponse;
+import org.eclipse.leshan.core.response.BootstrapFinishResponse;
+import org.eclipse.leshan.core.response.BootstrapResponse;
+import org.eclipse.leshan.core.response.BootstrapWriteResponse;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.SendableResponse;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.bootstrap.BootstrapFailureCause;
+import org.eclipse.leshan.server.bootstrap.BootstrapHandler;
+import org.eclipse.leshan.server.bootstrap.BootstrapSession;
+import org.eclipse.leshan.server.bootstrap.BootstrapSessionManager;
+import org.eclipse.leshan.server.bootstrap.DefaultBootstrapHandler;
+import org.eclipse.leshan.server.bootstrap.InMemoryBootstrapConfigStore;
+import org.eclipse.leshan.server.bootstrap.InvalidConfigurationException;
+import org.eclipse.leshan.server.bootstrap.LwM2mBootstrapRequestSender;
+import org.eclipse.leshan.server.bootstrap.PipelinedBootstrapHandler;
+import org.eclipse.leshan.server.impl.DefaultBootstrapSession;
+import org.eclipse.leshan.util.NamedThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end latency of a bootstrap session, from the bootstrap request to the end of the session, when each request
+ * sent to the client takes a simulated round trip time.
+ * <p>
+ * The configuration is a typical one: delete of /0 and /1, a bootstrap server and a device management server security
+ * instances and one server instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BootstrapLatencyBenchmark {
+
+    @Param({ "50", "300" })
+    public int rttInMs;
+
+    @Param({ "default", "pipelined" })
+    public String handlerType;
+
+    private ScheduledExecutorService network;
+    private LatchSessionManager sessionManager;
+    private BootstrapHandler handler;
+    private final Identity client = Identity.psk(new InetSocketAddress(4242), "client");
+
+    @Setup
+    public void setup() throws InvalidConfigurationException {
+        network = Executors.newScheduledThreadPool(2, new NamedThreadFactory("Benchmark network"));
+        InMemoryBootstrapConfigStore store = new InMemoryBootstrapConfigStore();
+        store.add("endpoint", config());
+        DelayedSender sender = new DelayedSender(network, rttInMs);
+        sessionManager = new LatchSessionManager();
+        if ("pipelined".equals(handlerType)) {
+            handler = new PipelinedBootstrapHandler(store, sender, sessionManager);
+        } else {
+            handler = new DefaultBootstrapHandler(store, sender, sessionManager);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        network.shutdownNow();
+    }
+
+    @Benchmark
+    public void bootstrap() throws InterruptedException {
+        CountDownLatch done = sessionManager.prepare();
+        SendableResponse<BootstrapResponse> response = handler.bootstrap(client, new BootstrapRequest("endpoint"));
+        response.sent();
+        if (!done.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Bootstrap did not end");
+        }
+    }
+
+    private static BootstrapConfig config() {
+        BootstrapConfig config = new BootstrapConfig();
+        config.toDelete = Arrays.asList("/0", "/1");
+
+        ServerSecurity bootstrapSecurity = new ServerSecurity();
+        bootstrapSecurity.uri = "coaps://bootstrap.example.com:5684";
+        bootstrapSecurity.bootstrapServer = true;
+        bootstrapSecurity.securityMode = SecurityMode.PSK;
+        bootstrapSecurity.publicKeyOrId = "client".getBytes();
+        bootstrapSecurity.secretKey = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+        bootstrapSecurity.serverId = 111;
+        config.security.put(0, bootstrapSecurity);
+
+        ServerSecurity dmSecurity = new ServerSecurity();
+        dmSecurity.uri = "coaps://dm.example.com:5684";
+        dmSecurity.securityMode = SecurityMode.PSK;
+        dmSecurity.publicKeyOrId = "client".getBytes();
+        dmSecurity.secretKey = new byte[] { 8, 7, 6, 5, 4, 3, 2, 1 };
+        dmSecurity.serverId = 123;
+        config.security.put(1, dmSecurity);
+
+        ServerConfig server = new ServerConfig();
+        server.shortId = 123;
+        config.servers.put(0, server);
+        return config;
+    }
+
+    /**
+     * Answers successfully to each request after a round trip time.
+     */
+    private static class DelayedSender implements LwM2mBootstrapRequestSender {
+        private final ScheduledExecutorService network;
+        private final long rttInMs;
+
+        private DelayedSender(ScheduledExecutorService network, long rttInMs) {
+            this.network = network;
+            this.rttInMs = rttInMs;
+        }
+
+        @Override
+        public <T extends LwM2mResponse> T send(String clientEndpoint, Identity client, DownlinkRequest<T> request,
+                long timeout) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(String clientEndpoint, Identity client,
+                final DownlinkRequest<T> request, long timeout, final ResponseCallback<T> responseCallback,
+                ErrorCallback errorCallback) {
+            network.schedule(new Runnable() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public void run() {
+                    LwM2mResponse response;
+                    if (request instanceof BootstrapDeleteRequest) {
+                        response = BootstrapDeleteResponse.success();
+                    } else if (request instanceof BootstrapWriteRequest) {
+                        response = BootstrapWriteResponse.success();
+                    } else {
+                        response = BootstrapFinishResponse.success();
+                    }
+                    responseCallback.onResponse((T) response);
+                }
+            }, rttInMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class LatchSessionManager implements BootstrapSessionManager {
+        private volatile CountDownLatch done;
+
+        private CountDownLatch prepare() {
+            done = new CountDownLatch(1);
+            return done;
+        }
+
+        @Override
+        public BootstrapSession begin(String endpoint, Identity clientIdentity) {
+            return new DefaultBootstrapSession(endpoint, clientIdentity, true);
+        }
+
+        @Override
+        public void onResponseSuccess(BootstrapSession bsSession, LwM2mRequest<? extends LwM2mResponse> request) {
+        }
+
+        @Override
+        public BootstrapPolicy onResponseError(BootstrapSession bsSession,
+                LwM2mRequest<? extends LwM2mResponse> request, LwM2mResponse response) {
+            return BootstrapPolicy.STOP;
+        }
+
+        @Override
+        public BootstrapPolicy onRequestFailure(BootstrapSession bsSession,
+                LwM2mRequest<? extends LwM2mResponse> request, Throwable cause) {
+            return BootstrapPolicy.STOP;
+        }
+
+        @Override
+        public void end(BootstrapSession bsSession) {
+            done.countDown();
+        }
+
+        @Override
+        public void failed(BootstrapSession bsSession, BootstrapFailureCause cause) {
+            throw new IllegalStateException("Bootstrap failed: " + cause);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.bootstrap.InvalidConfigurationException;
+import org.eclipse.leshan.server.bootstrap.JournaledBootstrapConfigStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to provision 100k bootstrap configurations in a {@link JournaledBootstrapConfigStore}, one by one as the
+ * bootstrap REST API does, and time to load them at startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BootstrapProvisioningBenchmark {
+
+    private static final int CONFIG_COUNT = 100000;
+
+    private final BootstrapConfig[] configs = new BootstrapConfig[CONFIG_COUNT];
+    private File dir;
+    private File provisioningFile;
+    private File loadingFile;
+
+    @Setup
+    public void setup() throws IOException, InvalidConfigurationException {
+        for (int i = 0; i < CONFIG_COUNT; i++) {
+            configs[i] = config("client" + i);
+        }
+        dir = Files.createTempDirectory("leshan-benchmark").toFile();
+        provisioningFile = new File(dir, "provisioning.journal");
+        loadingFile = new File(dir, "loading.journal");
+
+        JournaledBootstrapConfigStore store = new JournaledBootstrapConfigStore(loadingFile.getPath());
+        provision(store);
+        store.destroy();
+    }
+
+    @Setup(Level.Iteration)
+    public void deleteProvisioningFile() {
+        provisioningFile.delete();
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public int provisioning() throws InvalidConfigurationException {
+        JournaledBootstrapConfigStore store = new JournaledBootstrapConfigStore(provisioningFile.getPath());
+        provision(store);
+        store.destroy();
+        return store.getJournalRecords();
+    }
+
+    @Benchmark
+    public int loading() {
+        JournaledBootstrapConfigStore store = new JournaledBootstrapConfigStore(loadingFile.getPath());
+        store.destroy();
+        return store.getAll().size();
+    }
+
+    private void provision(JournaledBootstrapConfigStore store) throws InvalidConfigurationException {
+        for (int i = 0; i < CONFIG_COUNT; i++) {
+            store.add("client" + i, configs[i]);
+        }
+    }
+
+    private static BootstrapConfig config(String identity) {
+        BootstrapConfig config = new BootstrapConfig();
+
+        ServerSecurity bootstrapSecurity = new ServerSecurity();
+        bootstrapSecurity.uri = "coaps://bootstrap.example.com:5684";
+        bootstrapSecurity.bootstrapServer = true;
+        bootstrapSecurity.securityMode = SecurityMode.PSK;
+        bootstrapSecurity.publicKeyOrId = identity.getBytes(StandardCharsets.UTF_8);
+        bootstrapSecurity.secretKey = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+        bootstrapSecurity.serverId = 111;
+        config.security.put(0, bootstrapSecurity);
+
+        ServerSecurity dmSecurity = new ServerSecurity();
+        dmSecurity.uri = "coaps://dm.example.com:5684";
+        dmSecurity.securityMode = SecurityMode.PSK;
+        dmSecurity.publicKeyOrId = identity.getBytes(StandardCharsets.UTF_8);
+        dmSecurity.secretKey = new byte[] { 8, 7, 6, 5, 4, 3, 2, 1 };
+        dmSecurity.serverId = 123;
+        config.security.put(1, dmSecurity);
+
+        ServerConfig server = new ServerConfig();
+        server.shortId = 123;
+        config.servers.put(0, server);
+        return config;
+    }
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.benchmarks.Fixtures;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
+import org.eclipse.leshan.server.bulk.BulkOperation;
+import org.eclipse.leshan.server.bulk.BulkOperationEngine;
+import org.eclipse.leshan.server.bulk.BulkOperationListener;
+import org.eclipse.leshan.server.bulk.BulkOperationProgress;
+import org.eclipse.leshan.server.bulk.RegistrationSelector;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationService;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.eclipse.leshan.util.NamedThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Requests per second of a {@link BulkOperationEngine} reading a resource on a fleet of clients. Responses are sent
+ * by a small pool of threads, as the network threads would do, without any network I/O so only the scheduling
+ * overhead of the engine is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkOperationBenchmark {
+
+    private static final int CLIENT_COUNT = 10000;
+
+    @Param({ "10", "100", "1000" })
+    public int maxInFlight;
+
+    private final List<Registration> registrations = new ArrayList<>(CLIENT_COUNT);
+    private ExecutorService responder;
+    private BulkOperationEngine engine;
+    private ReadRequest read;
+    private RegistrationSelector selector;
+    private BulkOperationListener<ReadResponse> listener;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            registrations.add(Fixtures.registration(i));
+        }
+        responder = Executors.newFixedThreadPool(2, new NamedThreadFactory("Benchmark responder"));
+
+        // no presence service: clients are queue mode ones but they are considered awake
+        engine = new BulkOperationEngine(new RespondingSender(responder, ReadResponse.success(13, 0L)),
+                new ListRegistrationService(registrations), null, maxInFlight, 1);
+
+        read = new ReadRequest(3, 0, 13);
+        selector = new RegistrationSelector() {
+            @Override
+            public boolean select(Registration registration) {
+                return true;
+            }
+        };
+        listener = new BulkOperationListener<ReadResponse>() {
+            @Override
+            public void onResponse(Registration registration, ReadResponse response) {
+            }
+
+            @Override
+            public void onError(Registration registration, Exception error) {
+            }
+
+            @Override
+            public void onCompleted(BulkOperationProgress progress) {
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.destroy();
+        responder.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLIENT_COUNT)
+    public BulkOperationProgress readAll() throws InterruptedException {
+        BulkOperation<ReadResponse> operation = engine.execute(selector, read, 5000, listener);
+        if (!operation.awaitTermination(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Bulk operation did not complete: " + operation.getProgress());
+        }
+        return operation.getProgress();
+    }
+
+    private static class ListRegistrationService implements RegistrationService {
+        private final List<Registration> registrations;
+
+        private ListRegistrationService(List<Registration> registrations) {
+            this.registrations = registrations;
+        }
+
+        @Override
+        public Registration getById(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Registration getByEndpoint(String endpoint) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<Registration> getAllRegistrations() {
+            return registrations.iterator();
+        }
+
+        @Override
+        public void addListener(RegistrationListener listener) {
+        }
+
+        @Override
+        public void removeListener(RegistrationListener listener) {
+        }
+    }
+
+    /**
+     * Completes each request from an executor with the same response.
+     */
+    private static class RespondingSender implements LwM2mRequestSender {
+        private final ExecutorService executor;
+        private final LwM2mResponse response;
+
+        private RespondingSender(ExecutorService executor, LwM2mResponse response) {
+            this.executor = executor;
+            this.response = response;
+        }
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request,
+                long timeout) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+                long timeout, ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination,
+                DownlinkRequest<T> request, long timeout) {
+            final ResponseFuture<T> future = new ResponseFuture<>();
+            executor.execute(new Runnable() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public void run() {
+                    future.onResponse((T) response);
+                }
+            });
+            return future;
+        }
+
+        @Override
+        public void cancelPendingRequests(Registration registration) {
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2015 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.leshan.benchmarks.Fixtures;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeEncoder;
+import org.eclipse.leshan.core.node.codec.LwM2mNodeEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.request.WriteRequest.Mode;
+import org.eclipse.leshan.server.californium.impl.CoapRequestBuilder;
+import org.eclipse.leshan.server.californium.impl.RegistrationContext;
+import org.eclipse.leshan.server.registration.Registration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building of CoAP requests from LWM2M requests, as done for each request sent to a device.
+ * <p>
+ * With <code>cachedContext</code>, the {@link RegistrationContext} is computed once as done by the request sender,
+ * else it is computed for each request. Run it with <code>-prof gc</code> to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoapRequestBuilderBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean cachedContext;
+
+    private LwM2mModel model;
+    private LwM2mNodeEncoder encoder;
+    private Registration registration;
+    private RegistrationContext context;
+
+    private ReadRequest read;
+    private ObserveRequest observe;
+    private WriteRequest write;
+
+    @Setup
+    public void setup() {
+        model = Fixtures.model();
+        encoder = new DefaultLwM2mNodeEncoder();
+        registration = Fixtures.registration(1);
+        context = new RegistrationContext(registration, null);
+
+        read = new ReadRequest(3, 0, 13);
+        observe = new ObserveRequest(ContentFormat.JSON, Fixtures.TEMPERATURE_OBJECT_ID, 1, 5700);
+        LwM2mObjectInstance device = Fixtures.deviceInstance();
+        write = new WriteRequest(Mode.REPLACE, ContentFormat.TLV, 3, 0, device.getResources().values());
+    }
+
+    private Request build(DownlinkRequest<?> request) {
+        CoapRequestBuilder builder;
+        if (cachedContext) {
+            builder = new CoapRequestBuilder(context, model, encoder);
+        } else {
+            builder = new CoapRequestBuilder(registration.getIdentity(), registration.getRootPath(),
+                    registration.getId(), registration.getEndpoint(), model, encoder);
+        }
+        request.accept(builder);
+        return builder.getRequest();
+    }
+
+    @Benchmark
+    public Request buildRead() {
+        return build(read);
+    }
+
+    @Benchmark
+    public Request buildObserve() {
+        return build(observe);
+    }
+
+    @Benchmark
+    public Request buildWrite() {
+        return build(write);
+    }
+}
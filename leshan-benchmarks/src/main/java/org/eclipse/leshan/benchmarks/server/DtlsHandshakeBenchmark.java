@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.server;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.RawData;
+import org.eclipse.californium.elements.RawDataChannel;
+import org.eclipse.californium.scandium.DTLSConnector;
+import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.eclipse.californium.scandium.dtls.pskstore.InMemoryPskStore;
+import org.eclipse.californium.scandium.dtls.pskstore.StaticPskStore;
+import org.eclipse.leshan.server.californium.impl.InMemorySessionCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Handshakes per second of a DTLS server, with a full handshake or with a resumption of a previous session.
+ * <p>
+ * Before each handshake, the server forgets its connections, as a server of a cluster which never saw the client: the
+ * session can only be resumed thanks to the {@link InMemorySessionCache}, which plays the role of the local level of a
+ * shared session cache. Client and server run in the same process and communicate through the loopback interface.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtlsHandshakeBenchmark {
+
+    private static final String IDENTITY = "client-identity";
+    private static final byte[] KEY = "secret-key".getBytes();
+    private static final byte[] PAYLOAD = new byte[] { 1 };
+
+    @Param({ "full", "resumed" })
+    public String handshake;
+
+    @Param({ "TLS_PSK_WITH_AES_128_CCM_8", "TLS_ECDHE_PSK_WITH_AES_128_CBC_SHA256" })
+    public String cipherSuite;
+
+    private DTLSConnector server;
+    private DTLSConnector client;
+    private InetSocketAddress serverAddress;
+    private final Semaphore received = new Semaphore(0);
+
+    @Setup
+    public void setup() throws Exception {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        CipherSuite suite = CipherSuite.valueOf(cipherSuite);
+
+        InMemoryPskStore pskStore = new InMemoryPskStore();
+        pskStore.setKey(IDENTITY, KEY);
+        DtlsConnectorConfig.Builder serverConfig = new DtlsConnectorConfig.Builder();
+        serverConfig.setAddress(new InetSocketAddress(loopback, 0));
+        serverConfig.setPskStore(pskStore);
+        serverConfig.setSupportedCipherSuites(suite);
+        server = new DTLSConnector(serverConfig.build(), new InMemorySessionCache());
+        server.setRawDataReceiver(new RawDataChannel() {
+            @Override
+            public void receiveData(RawData raw) {
+                received.release();
+            }
+        });
+        server.start();
+        serverAddress = server.getAddress();
+
+        DtlsConnectorConfig.Builder clientConfig = new DtlsConnectorConfig.Builder();
+        clientConfig.setAddress(new InetSocketAddress(loopback, 0));
+        clientConfig.setClientOnly();
+        clientConfig.setPskStore(new StaticPskStore(IDENTITY, KEY));
+        clientConfig.setSupportedCipherSuites(suite);
+        client = new DTLSConnector(clientConfig.build());
+        client.setRawDataReceiver(new RawDataChannel() {
+            @Override
+            public void receiveData(RawData raw) {
+            }
+        });
+        client.start();
+
+        // the first handshake creates the session to resume
+        sendAndWait();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.destroy();
+        server.destroy();
+    }
+
+    @Benchmark
+    public void handshake() throws InterruptedException {
+        server.clearConnectionState();
+        if ("resumed".equals(handshake)) {
+            client.forceResumeAllSessions();
+        } else {
+            client.clearConnectionState();
+        }
+        sendAndWait();
+    }
+
+    private void sendAndWait() throws InterruptedException {
+        client.send(RawData.outbound(PAYLOAD, new AddressEndpointContext(serverAddress), null, false));
+        if (!received.tryAcquire(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("DTLS handshake did not complete");
+        }
+    }
+}
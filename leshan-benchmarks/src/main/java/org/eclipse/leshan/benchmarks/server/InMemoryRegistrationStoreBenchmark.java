@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2015 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.benchmarks.Fixtures;
+import org.eclipse.leshan.server.californium.impl.InMemoryRegistrationStore;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup, update and registration in a {@link InMemoryRegistrationStore} filled with a fleet of devices.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryRegistrationStoreBenchmark {
+
+    @Param({ "10000" })
+    public int devices;
+
+    private InMemoryRegistrationStore store;
+    private Registration[] registrations;
+    private RegistrationUpdate[] updates;
+    private int next;
+
+    @Setup
+    public void setup() {
+        store = new InMemoryRegistrationStore();
+        registrations = new Registration[devices];
+        updates = new RegistrationUpdate[devices];
+        for (int i = 0; i < devices; i++) {
+            Registration registration = Fixtures.registration(i);
+            registrations[i] = registration;
+            // a simple update as sent periodically by devices : nothing change
+            updates[i] = new RegistrationUpdate(registration.getId(), registration.getIdentity(), null, null, null,
+                    null, null);
+            store.addRegistration(registration);
+        }
+    }
+
+    private int next() {
+        next = next + 1 == devices ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public Registration getRegistrationByEndpoint() {
+        return store.getRegistrationByEndpoint(registrations[next()].getEndpoint());
+    }
+
+    @Benchmark
+    public Registration getRegistration() {
+        return store.getRegistration(registrations[next()].getId());
+    }
+
+    @Benchmark
+    public UpdatedRegistration updateRegistration() {
+        return store.updateRegistration(updates[next()]);
+    }
+
+    @Benchmark
+    public Deregistration addRegistration() {
+        // register again a known device, so the store size stays stable
+        return store.addRegistration(registrations[next()]);
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.leshan.benchmarks.Fixtures;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeEncoder;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.californium.impl.CaliforniumLwM2mRequestSender;
+import org.eclipse.leshan.server.californium.impl.InMemoryRegistrationStore;
+import org.eclipse.leshan.server.californium.impl.ObservationServiceImpl;
+import org.eclipse.leshan.server.model.StaticModelProvider;
+import org.eclipse.leshan.server.registration.Registration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of {@link CaliforniumLwM2mRequestSender#send(Registration, org.eclipse.leshan.core.request.DownlinkRequest,
+ * long, ResponseCallback, ErrorCallback)} without network I/O: endpoints do not send anything and cancel the request,
+ * so the pending request is tracked then removed as for a real exchange.
+ * <p>
+ * Run it with <code>-prof gc</code> to get the allocations per request (<code>gc.alloc.rate.norm</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestSenderBenchmark {
+
+    @Param({ "1", "4" })
+    public int endpointCount;
+
+    private CaliforniumLwM2mRequestSender sender;
+    private Registration registration;
+    private ReadRequest read;
+    private ResponseCallback<ReadResponse> responseCallback;
+    private ErrorCallback errorCallback;
+
+    @Setup
+    public void setup() {
+        registration = Fixtures.registration(1);
+
+        // the endpoint of the client is the last one
+        Set<Endpoint> endpoints = new LinkedHashSet<>();
+        for (int i = endpointCount - 1; i > 0; i--) {
+            endpoints.add(newEndpoint(new InetSocketAddress(
+                    registration.getRegistrationEndpointAddress().getPort() + i)));
+        }
+        endpoints.add(newEndpoint(registration.getRegistrationEndpointAddress()));
+
+        StaticModelProvider modelProvider = new StaticModelProvider(Fixtures.model());
+        DefaultLwM2mNodeDecoder decoder = new DefaultLwM2mNodeDecoder();
+        sender = new CaliforniumLwM2mRequestSender(endpoints,
+                new ObservationServiceImpl(new InMemoryRegistrationStore(), modelProvider, decoder), modelProvider,
+                new DefaultLwM2mNodeEncoder(), decoder);
+
+        read = new ReadRequest(3, 0, 13);
+        responseCallback = new ResponseCallback<ReadResponse>() {
+            @Override
+            public void onResponse(ReadResponse response) {
+            }
+        };
+        errorCallback = new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+            }
+        };
+    }
+
+    @Benchmark
+    public void sendRead() {
+        sender.send(registration, read, 5000, responseCallback, errorCallback);
+    }
+
+    private static Endpoint newEndpoint(final InetSocketAddress address) {
+        // a proxy avoids to depend on all the methods of the Californium Endpoint interface
+        return (Endpoint) Proxy.newProxyInstance(Endpoint.class.getClassLoader(), new Class<?>[] { Endpoint.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                        case "getAddress":
+                            return address;
+                        case "sendRequest":
+                            // no network I/O, end the exchange at once
+                            ((Request) args[0]).cancel();
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "Endpoint " + address;
+                        default:
+                            return null;
+                        }
+                    }
+                });
+    }
+}
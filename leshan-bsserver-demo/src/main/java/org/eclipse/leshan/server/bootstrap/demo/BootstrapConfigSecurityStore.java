@@ -27,6 +27,7 @@ import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfigStore;
 import org.eclipse.leshan.server.bootstrap.EditableBootstrapConfigStore;
+import org.eclipse.leshan.server.bootstrap.IndexedBootstrapSecurityStore;
 import org.eclipse.leshan.server.security.BootstrapSecurityStore;
 import org.eclipse.leshan.server.security.SecurityInfo;
 import org.eclipse.leshan.util.SecurityUtil;
@@ -44,7 +45,11 @@ import org.slf4j.LoggerFactory;
  * <p>
  * <p>
  * WARNING : This store is not production ready.
+ *
+ * @deprecated use {@link IndexedBootstrapSecurityStore} which does not iterate over all the configurations to find a
+ *             PSK identity.
  */
+@Deprecated
 public class BootstrapConfigSecurityStore implements BootstrapSecurityStore {
 
     private static final Logger LOG = LoggerFactory.getLogger(BootstrapConfigSecurityStore.class);
@@ -31,6 +31,7 @@ import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
 import org.eclipse.leshan.server.bootstrap.EditableBootstrapConfigStore;
 import org.eclipse.leshan.server.bootstrap.InMemoryBootstrapConfigStore;
 import org.eclipse.leshan.server.bootstrap.InvalidConfigurationException;
+import org.eclipse.leshan.server.bootstrap.JournaledBootstrapConfigStore;
 import org.eclipse.leshan.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +42,9 @@ import com.google.gson.reflect.TypeToken;
 
 /**
  * A {@link EditableBootstrapConfigStore} which persist configuration in a file using json format.
+ * <p>
+ * The whole file is written at each change, the demos use a {@link JournaledBootstrapConfigStore} and only use this
+ * class to import the file of previous versions (see {@link #importFile(String, EditableBootstrapConfigStore)}).
  */
 public class JSONFileBootstrapStore extends InMemoryBootstrapConfigStore {
 
@@ -113,6 +117,28 @@ public class JSONFileBootstrapStore extends InMemoryBootstrapConfigStore {
         }
     }
 
+    /**
+     * Add the configurations of a JSON file written by this store to an other store. Nothing is done if the file does
+     * not exist.
+     *
+     * @param filename the path of the JSON file
+     * @param store the store receiving the configurations
+     */
+    public static void importFile(String filename, EditableBootstrapConfigStore store) {
+        if (!new File(filename).exists())
+            return;
+
+        Map<String, BootstrapConfig> configs = new JSONFileBootstrapStore(filename).getAll();
+        for (Map.Entry<String, BootstrapConfig> config : configs.entrySet()) {
+            try {
+                store.add(config.getKey(), config.getValue());
+            } catch (InvalidConfigurationException e) {
+                LOG.error("Could not import bootstrap config of {}", config.getKey(), e);
+            }
+        }
+        LOG.info("{} bootstrap configs imported from {}", configs.size(), filename);
+    }
+
     // /////// File persistence
     private void loadFromFile() {
         try {
@@ -16,6 +16,8 @@ import org.eclipse.leshan.core.model.ObjectLoader;
 import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.model.StaticModel;
 import org.eclipse.leshan.server.bootstrap.EditableBootstrapConfigStore;
+import org.eclipse.leshan.server.bootstrap.IndexedBootstrapSecurityStore;
+import org.eclipse.leshan.server.bootstrap.JournaledBootstrapConfigStore;
 import org.eclipse.leshan.server.bootstrap.demo.servlet.BootstrapServlet;
 import org.eclipse.leshan.server.bootstrap.demo.servlet.ServerServlet;
 import org.eclipse.leshan.server.californium.LeshanBootstrapServerBuilder;
@@ -65,11 +67,12 @@ public class SpringbootLeshanBootstrapServerDemo {
         SpringApplication.run(SpringbootLeshanBootstrapServerDemo.class, args);
     }
 
-    private final static String _configFilename = JSONFileBootstrapStore.DEFAULT_FILE;
+    // the store used by the bootstrap server, the journal file must not be opened twice
+    private static JournaledBootstrapConfigStore _bsStore;
 
     @Bean
     public EditableBootstrapConfigStore getBSStore() {
-        return new JSONFileBootstrapStore(_configFilename);
+        return _bsStore;
     }
 
     private static LeshanBootstrapServer _bsServer;
@@ -101,7 +104,11 @@ public class SpringbootLeshanBootstrapServerDemo {
         options.addOption("wp", "webport", true, "Set the HTTP port for web server.\nDefault: 8080.");
         options.addOption("m", "modelsfolder", true, "A folder which contains object models in OMA DDF(.xml) format.");
         options.addOption("cfg", "configfile", true,
-                "Set the filename for the configuration.\nDefault: " + JSONFileBootstrapStore.DEFAULT_FILE + ".");
+                "Set the JSON file of the configuration, imported when the journal is empty.\nDefault: "
+                        + JSONFileBootstrapStore.DEFAULT_FILE + ".");
+        options.addOption("journal", "journalfile", true,
+                "Set the journal file where the configuration is saved.\nDefault: "
+                        + JournaledBootstrapConfigStore.DEFAULT_FILE + ".");
         HelpFormatter formatter = new HelpFormatter();
         formatter.setOptionComparator(null);
 
@@ -165,8 +172,15 @@ public class SpringbootLeshanBootstrapServerDemo {
             configFilename = JSONFileBootstrapStore.DEFAULT_FILE;
         }
 
+        // Get journal file
+        String journalFilename = cl.getOptionValue("journal");
+        if (journalFilename == null) {
+            journalFilename = JournaledBootstrapConfigStore.DEFAULT_FILE;
+        }
+
         try {
-            createAndStartServer(webAddress, webPort, localAddress, localPort, secureLocalAddress, secureLocalPort, modelsFolderPath, configFilename);
+            createAndStartServer(webAddress, webPort, localAddress, localPort, secureLocalAddress, secureLocalPort,
+                    modelsFolderPath, configFilename, journalFilename);
         } catch (BindException e) {
             System.err.println(String.format("Web port %s is already in use, you can change it using the 'webport' option.", webPort));
             formatter.printHelp(USAGE, options);
@@ -176,8 +190,8 @@ public class SpringbootLeshanBootstrapServerDemo {
     }
 
     public static void createAndStartServer(String webAddress, int webPort, String localAddress, int localPort,
-                                            String secureLocalAddress, int secureLocalPort, String modelsFolderPath, String configFilename)
-            throws Exception {
+                                            String secureLocalAddress, int secureLocalPort, String modelsFolderPath,
+                                            String configFilename, String journalFilename) throws Exception {
         // Create Models
         List<ObjectModel> models = ObjectLoader.loadDefault();
         if (modelsFolderPath != null) {
@@ -186,9 +200,14 @@ public class SpringbootLeshanBootstrapServerDemo {
 
         // Prepare and start bootstrap server
         LeshanBootstrapServerBuilder builder = new LeshanBootstrapServerBuilder();
-        JSONFileBootstrapStore bsStore = new JSONFileBootstrapStore(configFilename);
+        JournaledBootstrapConfigStore bsStore = new JournaledBootstrapConfigStore(journalFilename);
+        if (bsStore.getAll().isEmpty()) {
+            // configurations saved by previous versions of the demo
+            JSONFileBootstrapStore.importFile(configFilename, bsStore);
+        }
+        _bsStore = bsStore;
         builder.setConfigStore(bsStore);
-        builder.setSecurityStore(new BootstrapConfigSecurityStore(bsStore));
+        builder.setSecurityStore(new IndexedBootstrapSecurityStore(bsStore));
         builder.setLocalAddress(localAddress, localPort);
         builder.setLocalSecureAddress(secureLocalAddress, secureLocalPort);
         builder.setModel(new StaticModel(models));
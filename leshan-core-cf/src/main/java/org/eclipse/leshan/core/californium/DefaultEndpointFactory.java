@@ -26,6 +26,7 @@ import org.eclipse.californium.elements.EndpointContextMatcher;
 import org.eclipse.californium.elements.UDPConnector;
 import org.eclipse.californium.scandium.DTLSConnector;
 import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+import org.eclipse.californium.scandium.dtls.SessionCache;
 
 /**
  * A default implementation of {@link EndpointFactory}.
@@ -38,8 +39,17 @@ public class DefaultEndpointFactory implements EndpointFactory {
 
     protected EndpointContextMatcher securedContextMatcher;
     protected EndpointContextMatcher unsecuredContextMatcher;
+    protected final SessionCache sessionCache;
 
     public DefaultEndpointFactory() {
+        this(null);
+    }
+
+    /**
+     * @param sessionCache the cache of the DTLS sessions which can be resumed, could be <code>null</code>.
+     */
+    public DefaultEndpointFactory(SessionCache sessionCache) {
+        this.sessionCache = sessionCache;
         securedContextMatcher = createSecuredContextMatcher();
         unsecuredContextMatcher = createUnsecuredContextMatcher();
     }
@@ -128,13 +138,16 @@ public class DefaultEndpointFactory implements EndpointFactory {
     }
 
     /**
-     * By default create a {@link DTLSConnector}.
+     * By default create a {@link DTLSConnector}, using the {@link SessionCache} given at creation if any.
      * <p>
      * This method is intended to be overridden.
      *
      * @return the {@link Connector} used for unsecured {@link CoapEndpoint}
      */
     protected Connector createSecuredConnector(DtlsConnectorConfig dtlsConfig) {
+        if (sessionCache != null) {
+            return new DTLSConnector(dtlsConfig, sessionCache);
+        }
         return new DTLSConnector(dtlsConfig);
     }
 }
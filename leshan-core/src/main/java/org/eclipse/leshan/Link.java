@@ -18,13 +18,12 @@ package org.eclipse.leshan;
 import java.io.Serializable;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.eclipse.leshan.util.StringUtils;
-
 /**
  * A Link as defined in http://tools.ietf.org/html/rfc6690.
  */
@@ -72,6 +71,12 @@ public class Link implements Serializable {
         }
     }
 
+    // attributes must already be an immutable map, used by parser to avoid copy.
+    private Link(Map<String, Object> attributes, String url) {
+        this.url = url;
+        this.attributes = attributes;
+    }
+
     public String getUrl() {
         return url;
     }
@@ -88,6 +93,11 @@ public class Link implements Serializable {
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
+        appendTo(builder);
+        return builder.toString();
+    }
+
+    private void appendTo(StringBuilder builder) {
         builder.append('<');
         builder.append(getUrl());
         builder.append('>');
@@ -107,11 +117,39 @@ public class Link implements Serializable {
                 }
             }
         }
-        return builder.toString();
+    }
+
+    // Identical links are very common (e.g. "</1/0>" or "</>;rt=\"oma.lwm2m\"" are sent by most of the devices) and
+    // links are immutable, so parsed links are kept in a small direct-mapped cache indexed by their raw bytes.
+    private static final int CACHE_SIZE = 512;
+    private static final int MAX_CACHED_LINK_LENGTH = 64;
+    private static final CachedLink[] CACHE = new CachedLink[CACHE_SIZE];
+
+    private static class CachedLink {
+        private final byte[] raw;
+        private final Link link;
+
+        private CachedLink(byte[] raw, Link link) {
+            this.raw = raw;
+            this.link = link;
+        }
+
+        private boolean matches(byte[] content, int start, int end) {
+            if (raw.length != end - start)
+                return false;
+            for (int i = 0; i < raw.length; i++) {
+                if (raw[i] != content[start + i])
+                    return false;
+            }
+            return true;
+        }
     }
 
     /**
      * Parse a byte arrays representation of a {@code String} encoding with UTF_8 {@link Charset}.
+     * <p>
+     * The content is parsed in a single pass at byte level : all the delimiters are ASCII characters so they can not
+     * be part of a multi-byte UTF-8 sequence.
      *
      * @param a byte arrays representing {@code String} encoding with UTF_8 {@link Charset}.
      * @return an array of {@code Link}
@@ -120,43 +158,188 @@ public class Link implements Serializable {
         if (content == null) {
             return new Link[]{};
         }
-        String s = new String(content, StandardCharsets.UTF_8);
-        String[] links = s.split(",");
-        Link[] linksResult = new Link[links.length];
+
+        // like String.split(), trailing empty links are ignored (except if the content is empty)
+        int end = content.length;
+        while (end > 0 && content[end - 1] == ',') {
+            end--;
+        }
+        if (end == 0) {
+            return content.length == 0 ? new Link[] { new Link("") } : new Link[] {};
+        }
+
+        int count = 1;
+        for (int i = 0; i < end; i++) {
+            if (content[i] == ',')
+                count++;
+        }
+
+        Link[] linksResult = new Link[count];
         int index = 0;
-        for (String link : links) {
-            String[] linkParts = link.split(";");
-
-            // clean URL
-            String url = StringUtils.trim(linkParts[0]);
-            url = StringUtils.removeStart(StringUtils.removeEnd(url, ">"), "<");
-
-            // parse attributes
-            Map<String, Object> attributes = new HashMap<>();
-
-            if (linkParts.length > 1) {
-                for (int i = 1; i < linkParts.length; i++) {
-                    String[] attParts = linkParts[i].split("=");
-                    if (attParts.length > 0) {
-                        String key = attParts[0];
-                        Object value = null;
-                        if (attParts.length > 1) {
-                            String rawvalue = attParts[1];
-                            try {
-                                value = Integer.valueOf(rawvalue);
-                            } catch (NumberFormatException e) {
-
-                                value = rawvalue.replaceFirst("^\"(.*)\"$", "$1");
-                            }
-                        }
-                        attributes.put(key, value);
+        int start = 0;
+        for (int i = 0; i <= end; i++) {
+            if (i == end || content[i] == ',') {
+                linksResult[index++] = parseLink(content, start, i);
+                start = i + 1;
+            }
+        }
+        return linksResult;
+    }
+
+    private static Link parseLink(byte[] content, int start, int end) {
+        int length = end - start;
+        if (length > MAX_CACHED_LINK_LENGTH) {
+            return doParseLink(content, start, end);
+        }
+
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + content[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+
+        CachedLink cached = CACHE[slot];
+        if (cached != null && cached.matches(content, start, end)) {
+            return cached.link;
+        }
+        Link link = doParseLink(content, start, end);
+        CACHE[slot] = new CachedLink(Arrays.copyOfRange(content, start, end), link);
+        return link;
+    }
+
+    private static Link doParseLink(byte[] content, int start, int end) {
+        // like String.split(), trailing empty attributes are ignored
+        while (end > start && content[end - 1] == ';') {
+            end--;
+        }
+
+        // clean URL
+        int urlEnd = indexOf(content, (byte) ';', start, end);
+        int urlStart = start;
+        while (urlStart < urlEnd && (content[urlStart] & 0xFF) <= ' ') {
+            urlStart++;
+        }
+        int urlLast = urlEnd;
+        while (urlLast > urlStart && (content[urlLast - 1] & 0xFF) <= ' ') {
+            urlLast--;
+        }
+        if (urlLast > urlStart && content[urlLast - 1] == '>') {
+            urlLast--;
+        }
+        if (urlLast > urlStart && content[urlStart] == '<') {
+            urlStart++;
+        }
+        String url = new String(content, urlStart, urlLast - urlStart, StandardCharsets.UTF_8);
+
+        // parse attributes
+        if (urlEnd == end) {
+            return new Link(Collections.<String, Object> emptyMap(), url);
+        }
+        Map<String, Object> attributes = null;
+        String firstKey = null;
+        Object firstValue = null;
+        int attStart = urlEnd + 1;
+        while (attStart <= end) {
+            int attEnd = indexOf(content, (byte) ';', attStart, end);
+            int keyEnd = indexOf(content, (byte) '=', attStart, attEnd);
+
+            // as String.split("="), ignore attributes which contain only '='
+            if (!containsOnly(content, (byte) '=', attStart, attEnd)) {
+                String key = new String(content, attStart, keyEnd - attStart, StandardCharsets.UTF_8);
+                Object value = parseAttributeValue(content, keyEnd, attEnd);
+                if (firstKey == null) {
+                    firstKey = key;
+                    firstValue = value;
+                } else {
+                    if (attributes == null) {
+                        attributes = new HashMap<>();
+                        attributes.put(firstKey, firstValue);
                     }
+                    attributes.put(key, value);
                 }
             }
-            linksResult[index] = new Link(url, attributes);
-            index++;
+            attStart = attEnd + 1;
         }
-        return linksResult;
+
+        if (attributes != null) {
+            return new Link(Collections.unmodifiableMap(attributes), url);
+        } else if (firstKey != null) {
+            return new Link(Collections.singletonMap(firstKey, firstValue), url);
+        } else {
+            return new Link(Collections.<String, Object> emptyMap(), url);
+        }
+    }
+
+    /**
+     * Parse the value of an attribute as <code>attribute.split("=")[1]</code> would do : the value stops at the next
+     * '=' and there is no value if only '=' follow the key.
+     */
+    private static Object parseAttributeValue(byte[] content, int keyEnd, int attEnd) {
+        if (keyEnd + 1 >= attEnd || containsOnly(content, (byte) '=', keyEnd + 1, attEnd)) {
+            return null;
+        }
+        int valueStart = keyEnd + 1;
+        int valueEnd = indexOf(content, (byte) '=', valueStart, attEnd);
+
+        Integer intValue = parseInteger(content, valueStart, valueEnd);
+        if (intValue != null) {
+            return intValue;
+        }
+        // remove surrounding quotes
+        if (valueEnd - valueStart >= 2 && content[valueStart] == '"' && content[valueEnd - 1] == '"') {
+            valueStart++;
+            valueEnd--;
+        }
+        return new String(content, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse an integer as Integer.valueOf() does.
+     *
+     * @return the integer or <code>null</code> if this is not a valid integer.
+     */
+    private static Integer parseInteger(byte[] content, int start, int end) {
+        if (start == end) {
+            return null;
+        }
+        boolean negative = content[start] == '-';
+        int i = negative || content[start] == '+' ? start + 1 : start;
+        if (i == end) {
+            return null;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            byte b = content[i];
+            if (b < '0' || b > '9')
+                return null;
+            value = value * 10 + (b - '0');
+            if (value > (long) Integer.MAX_VALUE + 1)
+                return null;
+        }
+        if (negative)
+            value = -value;
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE)
+            return null;
+        return Integer.valueOf((int) value);
+    }
+
+    // true if the range is not empty and contains only the given byte
+    private static boolean containsOnly(byte[] content, byte b, int start, int end) {
+        if (start == end)
+            return false;
+        for (int i = start; i < end; i++) {
+            if (content[i] != b)
+                return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] content, byte b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (content[i] == b)
+                return i;
+        }
+        return end;
     }
 
     private static final String TRAILER = ", ";
@@ -172,9 +355,10 @@ public class Link implements Serializable {
     public static String serialize(Link... linkObjects) {
         StringBuilder builder = new StringBuilder();
         if (linkObjects.length != 0) {
-            builder.append(linkObjects[0].toString());
+            linkObjects[0].appendTo(builder);
             for (int i = 1; i < linkObjects.length; i++) {
-                builder.append(TRAILER).append(linkObjects[i].toString());
+                builder.append(TRAILER);
+                linkObjects[i].appendTo(builder);
             }
         }
         return builder.toString();
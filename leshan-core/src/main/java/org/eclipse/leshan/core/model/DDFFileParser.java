@@ -22,29 +22,34 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.eclipse.leshan.core.model.ResourceModel.Operations;
 import org.eclipse.leshan.core.model.ResourceModel.Type;
 import org.eclipse.leshan.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * A parser for Object DDF files.
+ * <p>
+ * Files are read with a streaming (StAX) parser, without building a DOM tree. A parser instance is thread-safe and
+ * can be reused to parse several files.
  */
 public class DDFFileParser {
 
     private static final Logger LOG = LoggerFactory.getLogger(DDFFileParser.class);
 
-    private final DocumentBuilderFactory factory;
+    private final XMLInputFactory factory;
 
     public DDFFileParser() {
-        factory = DocumentBuilderFactory.newInstance();
+        factory = XMLInputFactory.newInstance();
+        // DDF files do not need DTD, avoid to resolve external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
     }
 
     public List<ObjectModel> parse(File ddfFile) {
@@ -57,27 +62,55 @@ public class DDFFileParser {
     }
 
     public List<ObjectModel> parse(InputStream inputStream, String streamName) {
+        try {
+            return parseStrict(inputStream, streamName);
+        } catch (Exception e) {
+            LOG.error("Could not parse the resource definition file " + streamName, e);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Parses a DDF stream like {@link #parse(InputStream, String)}, but reports errors to the caller instead of
+     * logging them and returning an empty list.
+     *
+     * @param inputStream the DDF content, not closed by this method.
+     * @param streamName the name of the stream, used for logging only.
+     * @return the object models defined in the stream.
+     * @throws XMLStreamException if the stream can not be read or is not a well-formed XML document.
+     * @throws NumberFormatException if an object or resource ID is not an integer.
+     * @throws IllegalArgumentException if the operations of a resource are not a known value.
+     */
+    public List<ObjectModel> parseStrict(InputStream inputStream, String streamName) throws XMLStreamException {
         streamName = streamName == null ? "" : streamName;
 
         LOG.debug("Parsing DDF file {}", streamName);
 
+        XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
         try {
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(inputStream);
-
             ArrayList<ObjectModel> objects = new ArrayList<>();
-            NodeList nodeList = document.getDocumentElement().getElementsByTagName("Object");
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                objects.add(parseObject(nodeList.item(i)));
+            // go to the root element, objects are searched in its descendants
+            reader.nextTag();
+            int depth = 1;
+            while (depth > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if ("Object".equals(reader.getLocalName())) {
+                        objects.add(parseObject(reader));
+                    } else {
+                        depth++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
             }
             return objects;
-        } catch (Exception e) {
-            LOG.error("Could not parse the resource definition file " + streamName, e);
+        } finally {
+            reader.close();
         }
-        return Collections.emptyList();
     }
 
-    private ObjectModel parseObject(Node object) {
+    private ObjectModel parseObject(XMLStreamReader object) throws XMLStreamException {
 
         Integer id = null;
         String name = null;
@@ -87,36 +120,39 @@ public class DDFFileParser {
         boolean mandatory = false;
         List<ResourceModel> resources = new ArrayList<>();
 
-        for (int i = 0; i < object.getChildNodes().getLength(); i++) {
-            Node field = object.getChildNodes().item(i);
-            switch (field.getNodeName()) {
+        while (nextChild(object)) {
+            switch (object.getLocalName()) {
                 case "ObjectID":
-                    id = Integer.valueOf(field.getTextContent());
+                    id = Integer.valueOf(readText(object));
                     break;
                 case "Name":
-                    name = field.getTextContent();
+                    name = readText(object);
                     break;
                 case "Description1":
-                    description = field.getTextContent();
+                    description = readText(object);
                     break;
                 case "ObjectVersion":
-                    if (!StringUtils.isEmpty(field.getTextContent()))
-                        version = field.getTextContent();
+                    String objectVersion = readText(object);
+                    if (!StringUtils.isEmpty(objectVersion))
+                        version = objectVersion;
                     break;
                 case "MultipleInstances":
-                    multiple = "Multiple".equals(field.getTextContent());
+                    multiple = "Multiple".equals(readText(object));
                     break;
                 case "Mandatory":
-                    mandatory = "Mandatory".equals(field.getTextContent());
+                    mandatory = "Mandatory".equals(readText(object));
                     break;
                 case "Resources":
-                    for (int j = 0; j < field.getChildNodes().getLength(); j++) {
-                        Node item = field.getChildNodes().item(j);
-                        if (item.getNodeName().equals("Item")) {
-                            resources.add(this.parseResource(item));
+                    while (nextChild(object)) {
+                        if (object.getLocalName().equals("Item")) {
+                            resources.add(this.parseResource(object));
+                        } else {
+                            skip(object);
                         }
                     }
                     break;
+                default:
+                    skip(object);
             }
         }
 
@@ -124,9 +160,9 @@ public class DDFFileParser {
 
     }
 
-    private ResourceModel parseResource(Node item) {
+    private ResourceModel parseResource(XMLStreamReader item) throws XMLStreamException {
 
-        Integer id = Integer.valueOf(item.getAttributes().getNamedItem("ID").getTextContent());
+        Integer id = Integer.valueOf(item.getAttributeValue(null, "ID"));
         String name = null;
         Operations operations = Operations.NONE;
         boolean multiple = false;
@@ -136,26 +172,25 @@ public class DDFFileParser {
         String units = null;
         String description = null;
 
-        for (int i = 0; i < item.getChildNodes().getLength(); i++) {
-            Node field = item.getChildNodes().item(i);
-            switch (field.getNodeName()) {
+        while (nextChild(item)) {
+            switch (item.getLocalName()) {
                 case "Name":
-                    name = field.getTextContent();
+                    name = readText(item);
                     break;
                 case "Operations":
-                    String strOp = field.getTextContent();
+                    String strOp = readText(item);
                     if (strOp != null && !strOp.isEmpty()) {
                         operations = Operations.valueOf(strOp);
                     }
                     break;
                 case "MultipleInstances":
-                    multiple = "Multiple".equals(field.getTextContent());
+                    multiple = "Multiple".equals(readText(item));
                     break;
                 case "Mandatory":
-                    mandatory = "Mandatory".equals(field.getTextContent());
+                    mandatory = "Mandatory".equals(readText(item));
                     break;
                 case "Type":
-                    switch (field.getTextContent()) {
+                    switch (readText(item)) {
                         case "String":
                             type = Type.STRING;
                             break;
@@ -180,14 +215,16 @@ public class DDFFileParser {
                     }
                     break;
                 case "RangeEnumeration":
-                    rangeEnumeration = field.getTextContent();
+                    rangeEnumeration = readText(item);
                     break;
                 case "Units":
-                    units = field.getTextContent();
+                    units = readText(item);
                     break;
                 case "Description":
-                    description = field.getTextContent();
+                    description = readText(item);
                     break;
+                default:
+                    skip(item);
             }
 
         }
@@ -195,4 +232,58 @@ public class DDFFileParser {
         return new ResourceModel(id, name, operations, multiple, mandatory, type, rangeEnumeration, units, description);
     }
 
+    /**
+     * Move to the next child element of the current element.
+     *
+     * @return false if there is no more child, the reader is then on the end of the current element.
+     */
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                return true;
+            if (event == XMLStreamConstants.END_ELEMENT)
+                return false;
+        }
+    }
+
+    /**
+     * Read the text content of the current element and its descendants, the reader is then on the end of the element.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    text.append(reader.getText());
+                    break;
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Skip the current element and its descendants, the reader is then on the end of the element.
+     */
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
 }
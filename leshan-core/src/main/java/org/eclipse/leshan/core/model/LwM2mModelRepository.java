@@ -20,7 +20,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeMap;
 
 import org.eclipse.leshan.util.Validate;
 import org.slf4j.Logger;
@@ -34,8 +33,8 @@ public class LwM2mModelRepository {
     private static final Logger LOG = LoggerFactory.getLogger(LwM2mModelRepository.class);
 
     // This map contains all the object models available. Different version could be used.
-    // This map is indexed by a string composed of objectid and version (objectid##version)
-    private final Map<String, ObjectModel> objects;
+    // This map is indexed by object id and version
+    private final Map<Key, ObjectModel> objects;
 
     public LwM2mModelRepository(ObjectModel... objectModels) {
         this(Arrays.asList(objectModels));
@@ -43,15 +42,11 @@ public class LwM2mModelRepository {
 
     public LwM2mModelRepository(Collection<ObjectModel> objectModels) {
         if (objectModels == null) {
-            objects = new TreeMap<>();
+            objects = Collections.emptyMap();
         } else {
-            Map<String, ObjectModel> map = new HashMap<>();
+            Map<Key, ObjectModel> map = new HashMap<>();
             for (ObjectModel model : objectModels) {
-                String key = getKey(model);
-                if (key == null) {
-                    new IllegalArgumentException(String.format("Model %s is invalid : object id is missing.", model));
-                }
-                ObjectModel old = map.put(key, model);
+                ObjectModel old = map.put(new Key(model.id, model.getVersion()), model);
                 if (old != null) {
                     LOG.debug("Model already exists for object {} in version {}. Overriding it.", model.id,
                             model.getVersion());
@@ -65,17 +60,59 @@ public class LwM2mModelRepository {
         Validate.notNull(objectId, "objectid must not be null");
         Validate.notNull(version, "version must not be null");
 
-        return objects.get(getKey(objectId, version));
+        return objects.get(new Key(objectId, version));
     }
 
-    private String getKey(ObjectModel objectModel) {
-        return getKey(objectModel.id, objectModel.getVersion());
+    /**
+     * @return the object model for the given object id and version, or <code>null</code> if there is no such model.
+     */
+    public ObjectModel getObjectModel(Key key) {
+        Validate.notNull(key, "key must not be null");
+
+        return objects.get(key);
     }
 
-    private String getKey(Integer objectId, String version) {
-        if (objectId == null) {
-            return null;
+    /**
+     * The identifier of an object model: its object id and its version.
+     */
+    public static final class Key {
+        private final int objectId;
+        private final String version;
+        private final int hashCode;
+
+        public Key(int objectId, String version) {
+            Validate.notNull(version, "version must not be null");
+            this.objectId = objectId;
+            this.version = version;
+            this.hashCode = 31 * objectId + version.hashCode();
+        }
+
+        public int getObjectId() {
+            return objectId;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return objectId == other.objectId && version.equals(other.version);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d##%s", objectId, version);
         }
-        return objectId + "##" + version;
     }
 }
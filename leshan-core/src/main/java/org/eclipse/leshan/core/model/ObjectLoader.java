@@ -42,6 +42,9 @@ public class ObjectLoader {
             "LWM2M_Connectivity_Monitoring-v1_0.xml", "LWM2M_Firmware_Update-v1_0.xml",
             "LWM2M_Location-v1_0.xml", "LWM2M_Connectivity_Statistics-v1_0.xml"};
 
+    // the parser is thread-safe, share it to not create a new XML factory for each file
+    private static final DDFFileParser DDF_PARSER = new DDFFileParser();
+
     /**
      * Load the default LWM2M objects
      */
@@ -71,8 +74,7 @@ public class ObjectLoader {
      * @param streamName A name for the stream used for logging only
      */
     public static List<ObjectModel> loadDdfFile(InputStream input, String streamName) {
-        DDFFileParser ddfFileParser = new DDFFileParser();
-        return ddfFileParser.parse(input, streamName);
+        return DDF_PARSER.parse(input, streamName);
     }
 
     /**
@@ -155,29 +157,38 @@ public class ObjectLoader {
         } else {
             // get all files
             for (File file : modelsDir.listFiles()) {
-                if (!file.canRead())
-                    continue;
-
-                if (file.getName().endsWith(".xml")) {
-                    // from DDF file
-                    LOG.debug("Loading object models from DDF file {}", file.getAbsolutePath());
-                    try (FileInputStream input = new FileInputStream(file)) {
-                        models.addAll(loadDdfFile(input, file.getName()));
-                    } catch (IOException e) {
-                        LOG.warn(MessageFormat.format("Unable to load object models for {0}", file.getAbsolutePath()),
-                                e);
-                    }
-
-                } else if (file.getName().endsWith(".json")) {
-                    // from JSON file
-                    LOG.debug("Loading object models from JSON file {}", file.getAbsolutePath());
-                    try (FileInputStream input = new FileInputStream(file)) {
-                        models.addAll(loadJsonStream(input));
-                    } catch (IOException e) {
-                        LOG.warn(MessageFormat.format("Unable to load object models for {0}", file.getAbsolutePath()),
-                                e);
-                    }
-                }
+                models.addAll(loadObjectsFromFile(file));
+            }
+        }
+        return models;
+    }
+
+    /**
+     * Load object definitions from a DDF (.xml) or JSON (.json) file.
+     *
+     * @return the object definitions, empty if the file is not readable or is not a DDF or JSON file.
+     */
+    public static List<ObjectModel> loadObjectsFromFile(File file) {
+        List<ObjectModel> models = new ArrayList<>();
+        if (!file.canRead())
+            return models;
+
+        if (file.getName().endsWith(".xml")) {
+            // from DDF file
+            LOG.debug("Loading object models from DDF file {}", file.getAbsolutePath());
+            try (FileInputStream input = new FileInputStream(file)) {
+                models.addAll(loadDdfFile(input, file.getName()));
+            } catch (IOException e) {
+                LOG.warn(MessageFormat.format("Unable to load object models for {0}", file.getAbsolutePath()), e);
+            }
+
+        } else if (file.getName().endsWith(".json")) {
+            // from JSON file
+            LOG.debug("Loading object models from JSON file {}", file.getAbsolutePath());
+            try (FileInputStream input = new FileInputStream(file)) {
+                models.addAll(loadJsonStream(input));
+            } catch (IOException e) {
+                LOG.warn(MessageFormat.format("Unable to load object models for {0}", file.getAbsolutePath()), e);
             }
         }
         return models;
@@ -48,14 +48,23 @@ public class LwM2mMultipleResource implements LwM2mResource {
         this.type = type;
     }
 
+    /**
+     * Constructor for primitive-backed subclasses which hold their values in their own fields.
+     */
+    LwM2mMultipleResource(int id, Type type) {
+        this.id = id;
+        this.values = null;
+        this.type = type;
+    }
+
     public static LwM2mMultipleResource newResource(int id, Map<Integer, ?> values, Type type) {
         switch (type) {
             case INTEGER:
                 Validate.allElementsOfType(values.values(), Long.class);
-                break;
+                return LwM2mPrimitiveMultipleResource.fromMap(id, values, type);
             case FLOAT:
                 Validate.allElementsOfType(values.values(), Double.class);
-                break;
+                return LwM2mPrimitiveMultipleResource.fromMap(id, values, type);
             case BOOLEAN:
                 Validate.allElementsOfType(values.values(), Boolean.class);
                 break;
@@ -67,7 +76,7 @@ public class LwM2mMultipleResource implements LwM2mResource {
                 break;
             case TIME:
                 Validate.allElementsOfType(values.values(), Date.class);
-                break;
+                return LwM2mPrimitiveMultipleResource.fromMap(id, values, type);
             case OBJLNK:
                 Validate.allElementsOfType(values.values(), ObjectLink.class);
                 break;
@@ -84,7 +93,17 @@ public class LwM2mMultipleResource implements LwM2mResource {
 
     public static LwM2mMultipleResource newIntegerResource(int id, Map<Integer, Long> values) {
         Validate.noNullElements(values.values());
-        return new LwM2mMultipleResource(id, values, Type.INTEGER);
+        return LwM2mPrimitiveMultipleResource.fromMap(id, values, Type.INTEGER);
+    }
+
+    /**
+     * Create an integer multi-instance resource from parallel arrays of resource instance identifiers and values.
+     *
+     * @throws IllegalArgumentException if arrays length does not match or if a resource instance id is duplicated.
+     */
+    public static LwM2mMultipleResource newIntegerResource(int id, int[] instanceIds, long[] values) {
+        Validate.isTrue(instanceIds.length == values.length, "ids and values must have the same length");
+        return LwM2mPrimitiveMultipleResource.fromArrays(id, Type.INTEGER, instanceIds, values.clone());
     }
 
     public static LwM2mMultipleResource newBooleanResource(int id, Map<Integer, Boolean> values) {
@@ -94,12 +113,37 @@ public class LwM2mMultipleResource implements LwM2mResource {
 
     public static LwM2mMultipleResource newFloatResource(int id, Map<Integer, Double> values) {
         Validate.noNullElements(values.values());
-        return new LwM2mMultipleResource(id, values, Type.FLOAT);
+        return LwM2mPrimitiveMultipleResource.fromMap(id, values, Type.FLOAT);
+    }
+
+    /**
+     * Create a float multi-instance resource from parallel arrays of resource instance identifiers and values.
+     *
+     * @throws IllegalArgumentException if arrays length does not match or if a resource instance id is duplicated.
+     */
+    public static LwM2mMultipleResource newFloatResource(int id, int[] instanceIds, double[] values) {
+        Validate.isTrue(instanceIds.length == values.length, "ids and values must have the same length");
+        long[] bits = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bits[i] = Double.doubleToLongBits(values[i]);
+        }
+        return LwM2mPrimitiveMultipleResource.fromArrays(id, Type.FLOAT, instanceIds, bits);
     }
 
     public static LwM2mMultipleResource newDateResource(int id, Map<Integer, Date> values) {
         Validate.noNullElements(values.values());
-        return new LwM2mMultipleResource(id, values, Type.TIME);
+        return LwM2mPrimitiveMultipleResource.fromMap(id, values, Type.TIME);
+    }
+
+    /**
+     * Create a time multi-instance resource from parallel arrays of resource instance identifiers and numbers of
+     * milliseconds since January 1, 1970, 00:00:00 GMT.
+     *
+     * @throws IllegalArgumentException if arrays length does not match or if a resource instance id is duplicated.
+     */
+    public static LwM2mMultipleResource newDateResource(int id, int[] instanceIds, long[] times) {
+        Validate.isTrue(instanceIds.length == times.length, "ids and values must have the same length");
+        return LwM2mPrimitiveMultipleResource.fromArrays(id, Type.TIME, instanceIds, times.clone());
     }
 
     public static LwM2mMultipleResource newObjectLinkResource(int id, Map<Integer, ObjectLink> values) {
@@ -152,6 +196,43 @@ public class LwM2mMultipleResource implements LwM2mResource {
         return values.get(id);
     }
 
+    /**
+     * Get the value of the given instance of an {@link Type#INTEGER} resource or the number of milliseconds since
+     * January 1, 1970, 00:00:00 GMT for a {@link Type#TIME} resource, without boxing for primitive-backed resources.
+     *
+     * @throws IllegalStateException if this resource is not an INTEGER or a TIME resource.
+     * @throws NoSuchElementException if there is no resource instance with this id.
+     */
+    public long getLongValue(int id) {
+        Object value = getValue(id);
+        if (value == null)
+            throw new NoSuchElementException(String.format("No resource instance %d", id));
+        switch (type) {
+            case INTEGER:
+                return (Long) value;
+            case TIME:
+                return ((Date) value).getTime();
+            default:
+                throw new IllegalStateException(String.format("%s resource has no long value", type));
+        }
+    }
+
+    /**
+     * Get the value of the given instance of a {@link Type#FLOAT} resource, without boxing for primitive-backed
+     * resources.
+     *
+     * @throws IllegalStateException if this resource is not a FLOAT resource.
+     * @throws NoSuchElementException if there is no resource instance with this id.
+     */
+    public double getDoubleValue(int id) {
+        if (type != Type.FLOAT)
+            throw new IllegalStateException(String.format("%s resource has no double value", type));
+        Object value = getValue(id);
+        if (value == null)
+            throw new NoSuchElementException(String.format("No resource instance %d", id));
+        return (Double) value;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -171,6 +252,7 @@ public class LwM2mMultipleResource implements LwM2mResource {
         int result = 1;
         result = prime * result + id;
         result = prime * result + ((type == null) ? 0 : type.hashCode());
+        Map<Integer, ?> values = getValues();
         result = prime * result + ((values == null) ? 0 : internalHashCode(values));
         return result;
     }
@@ -209,11 +291,12 @@ public class LwM2mMultipleResource implements LwM2mResource {
             return false;
         if (type != other.type)
             return false;
+        Map<Integer, ?> values = getValues();
         if (values == null) {
-            if (other.values != null)
+            if (other.getValues() != null)
                 return false;
             // Custom equals to handle byte arrays
-        } else if (!internalMapEquals(values, other.values))
+        } else if (!internalMapEquals(values, other.getValues()))
             return false;
         return true;
     }
@@ -254,7 +337,7 @@ public class LwM2mMultipleResource implements LwM2mResource {
 
     @Override
     public String toString() {
-        return String.format("LwM2mMultipleResource [id=%s, values=%s, type=%s]", id, values, type);
+        return String.format("LwM2mMultipleResource [id=%s, values=%s, type=%s]", id, getValues(), type);
     }
 
 }
@@ -19,13 +19,26 @@ import org.eclipse.leshan.util.Validate;
 
 /**
  * A path pointing to a LwM2M node (root, object, object instance, resource or resource instance).
+ * <p>
+ * When all its identifiers are valid LWM2M identifiers (from 0 to 65534), a path can be packed in a single
+ * <code>long</code> (see {@link #toPackedLong()}) which can be used as a hash key. The <code>valueOf</code> factories
+ * use this representation to return shared instances for frequently used paths (e.g. "/3/0") without allocation.
  */
 public class LwM2mPath {
 
+    // 65535 is reserved by the specification, so id+1 always fits in 16 bits and 0 means "no id".
+    private static final int MAX_PACKABLE_ID = 65534;
+    private static final long UNPACKABLE = 0x0000FFFFFFFFFFFFL; // no id at level 0 but ids after : never valid
+
+    // direct-mapped cache, a slot is simply overwritten on collision.
+    private static final int CACHE_BITS = 10;
+    private static final LwM2mPath[] CACHE = new LwM2mPath[1 << CACHE_BITS];
+
     private final Integer objectId;
     private final Integer objectInstanceId;
     private final Integer resourceId;
     private final Integer resourceInstanceId;
+    private final long packed;
 
     public final static LwM2mPath ROOTPATH = new LwM2mPath();
 
@@ -34,6 +47,7 @@ public class LwM2mPath {
         this.objectInstanceId = null;
         this.resourceId = null;
         this.resourceInstanceId = null;
+        this.packed = 0L;
     }
 
     /**
@@ -46,6 +60,7 @@ public class LwM2mPath {
         this.objectInstanceId = null;
         this.resourceId = null;
         this.resourceInstanceId = null;
+        this.packed = pack(1, objectId, 0, 0, 0);
     }
 
     /**
@@ -59,6 +74,7 @@ public class LwM2mPath {
         this.objectInstanceId = objectInstanceId;
         this.resourceId = null;
         this.resourceInstanceId = null;
+        this.packed = pack(2, objectId, objectInstanceId, 0, 0);
     }
 
     /**
@@ -73,6 +89,7 @@ public class LwM2mPath {
         this.objectInstanceId = objectInstanceId;
         this.resourceId = resourceId;
         this.resourceInstanceId = null;
+        this.packed = pack(3, objectId, objectInstanceId, resourceId, 0);
     }
 
     /**
@@ -88,6 +105,7 @@ public class LwM2mPath {
         this.objectInstanceId = objectInstanceId;
         this.resourceId = resourceId;
         this.resourceInstanceId = resourceInstanceId;
+        this.packed = pack(4, objectId, objectInstanceId, resourceId, resourceInstanceId);
     }
 
     /**
@@ -97,6 +115,220 @@ public class LwM2mPath {
      */
     public LwM2mPath(String path) {
         Validate.notNull(path);
+        long p = parse(path);
+        if (p != UNPACKABLE) {
+            this.objectId = segment(p, 0);
+            this.objectInstanceId = segment(p, 1);
+            this.resourceId = segment(p, 2);
+            this.resourceInstanceId = segment(p, 3);
+        } else {
+            // at least one id is out of the LWM2M range, keep it as is.
+            Integer[] ids = parseOutOfRange(path);
+            this.objectId = ids[0];
+            this.objectInstanceId = ids[1];
+            this.resourceId = ids[2];
+            this.resourceInstanceId = ids[3];
+        }
+        this.packed = p;
+    }
+
+    private LwM2mPath(long packed) {
+        this.objectId = segment(packed, 0);
+        this.objectInstanceId = segment(packed, 1);
+        this.resourceId = segment(packed, 2);
+        this.resourceInstanceId = segment(packed, 3);
+        this.packed = packed;
+    }
+
+    /**
+     * Get a path from its string representation, shared instances are returned for frequently used paths.
+     *
+     * @param path the path (e.g. "/3/0/1" or "/3")
+     */
+    public static LwM2mPath valueOf(String path) {
+        Validate.notNull(path);
+        long p = parse(path);
+        if (p == UNPACKABLE)
+            return new LwM2mPath(path);
+        return cached(p);
+    }
+
+    /**
+     * Get a path to an object, shared instances are returned for frequently used paths.
+     */
+    public static LwM2mPath valueOf(int objectId) {
+        return valueOf(pack(1, objectId, 0, 0, 0), objectId, 0, 0, 0, 1);
+    }
+
+    /**
+     * Get a path to an object instance, shared instances are returned for frequently used paths.
+     */
+    public static LwM2mPath valueOf(int objectId, int objectInstanceId) {
+        return valueOf(pack(2, objectId, objectInstanceId, 0, 0), objectId, objectInstanceId, 0, 0, 2);
+    }
+
+    /**
+     * Get a path to a resource, shared instances are returned for frequently used paths.
+     */
+    public static LwM2mPath valueOf(int objectId, int objectInstanceId, int resourceId) {
+        return valueOf(pack(3, objectId, objectInstanceId, resourceId, 0), objectId, objectInstanceId, resourceId, 0,
+                3);
+    }
+
+    /**
+     * Get a path to a resource instance, shared instances are returned for frequently used paths.
+     */
+    public static LwM2mPath valueOf(int objectId, int objectInstanceId, int resourceId, int resourceInstanceId) {
+        return valueOf(pack(4, objectId, objectInstanceId, resourceId, resourceInstanceId), objectId,
+                objectInstanceId, resourceId, resourceInstanceId, 4);
+    }
+
+    private static LwM2mPath valueOf(long packed, int objectId, int objectInstanceId, int resourceId,
+            int resourceInstanceId, int level) {
+        if (packed != UNPACKABLE)
+            return cached(packed);
+        switch (level) {
+        case 1:
+            return new LwM2mPath(objectId);
+        case 2:
+            return new LwM2mPath(objectId, objectInstanceId);
+        case 3:
+            return new LwM2mPath(objectId, objectInstanceId, resourceId);
+        default:
+            return new LwM2mPath(objectId, objectInstanceId, resourceId, resourceInstanceId);
+        }
+    }
+
+    /**
+     * Get a path from its packed representation.
+     *
+     * @param packed a value returned by {@link #toPackedLong()}
+     * @throws IllegalArgumentException if this is not a valid packed path.
+     */
+    public static LwM2mPath fromPackedLong(long packed) {
+        // ids must be contiguous : no id after a missing one
+        boolean missing = false;
+        for (int level = 0; level < 4; level++) {
+            boolean present = segment(packed, level) != null;
+            if (present && missing)
+                throw new IllegalArgumentException("Invalid packed path: " + Long.toHexString(packed));
+            missing = !present;
+        }
+        return cached(packed);
+    }
+
+    private static LwM2mPath cached(long packed) {
+        if (packed == 0L)
+            return ROOTPATH;
+        int index = (int) ((packed * 0x9E3779B97F4A7C15L) >>> (64 - CACHE_BITS));
+        LwM2mPath path = CACHE[index];
+        if (path == null || path.packed != packed) {
+            // LwM2mPath is immutable (final fields) so it can be safely shared without synchronization
+            path = new LwM2mPath(packed);
+            CACHE[index] = path;
+        }
+        return path;
+    }
+
+    private static long pack(int level, int objectId, int objectInstanceId, int resourceId, int resourceInstanceId) {
+        if (!isPackable(objectId) || (level > 1 && !isPackable(objectInstanceId))
+                || (level > 2 && !isPackable(resourceId)) || (level > 3 && !isPackable(resourceInstanceId)))
+            return UNPACKABLE;
+
+        long packed = ((long) objectId + 1) << 48;
+        if (level > 1)
+            packed |= ((long) objectInstanceId + 1) << 32;
+        if (level > 2)
+            packed |= ((long) resourceId + 1) << 16;
+        if (level > 3)
+            packed |= (long) resourceInstanceId + 1;
+        return packed;
+    }
+
+    private static boolean isPackable(int id) {
+        return id >= 0 && id <= MAX_PACKABLE_ID;
+    }
+
+    private static Integer segment(long packed, int level) {
+        int value = (int) ((packed >>> (48 - 16 * level)) & 0xFFFF);
+        return value == 0 ? null : Integer.valueOf(value - 1);
+    }
+
+    private static int levelOf(long packed) {
+        int level = 0;
+        while (level < 4 && ((packed >>> (48 - 16 * level)) & 0xFFFF) != 0) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Parse a path in a single pass without allocation.
+     *
+     * @return the packed path or {@link #UNPACKABLE} if the path is valid but contains an id out of LWM2M range
+     *         (negative or greater than 65534).
+     */
+    private static long parse(String path) {
+        int start = 0;
+        int end = path.length();
+        if (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        if (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (start == end) {
+            return 0L; // root path
+        }
+
+        long packed = 0L;
+        boolean unpackable = false;
+        int level = 0;
+        int i = start;
+        while (true) {
+            if (level == 4) {
+                throw new IllegalArgumentException("Invalid length for path: " + path);
+            }
+            if (i == end || path.charAt(i) == '/') {
+                throw new IllegalArgumentException("Invalid elements in path: " + path);
+            }
+            // a sign is accepted as Integer.valueOf() does (e.g. undefined instance id is -1)
+            boolean negative = path.charAt(i) == '-';
+            if (negative || path.charAt(i) == '+') {
+                i++;
+            }
+            long id = 0;
+            int digits = 0;
+            char c;
+            while (i < end && (c = path.charAt(i)) != '/') {
+                if (c < '0' || c > '9') {
+                    throw new IllegalArgumentException("Invalid elements in path: " + path);
+                }
+                id = id * 10 + (c - '0');
+                if (id > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+                    throw new IllegalArgumentException("Invalid elements in path: " + path);
+                }
+                digits++;
+                i++;
+            }
+            if (digits == 0) {
+                throw new IllegalArgumentException("Invalid elements in path: " + path);
+            }
+            if ((negative && id != 0) || id > MAX_PACKABLE_ID) {
+                unpackable = true;
+            } else {
+                packed |= (id + 1) << (48 - 16 * level);
+            }
+            level++;
+            if (i == end) {
+                break;
+            }
+            i++; // skip '/'
+        }
+        return unpackable ? UNPACKABLE : packed;
+    }
+
+    private static Integer[] parseOutOfRange(String path) {
         if (path.startsWith("/")) {
             path = path.substring(1);
         }
@@ -104,17 +336,11 @@ public class LwM2mPath {
             path = path.substring(0, path.length() - 1);
         }
         String[] p = path.split("/");
-        if (0 > p.length || p.length > 4) {
-            throw new IllegalArgumentException("Invalid length for path: " + path);
-        }
-        try {
-            this.objectId = (p.length >= 1 && !p[0].isEmpty()) ? Integer.valueOf(p[0]) : null;
-            this.objectInstanceId = (p.length >= 2) ? Integer.valueOf(p[1]) : null;
-            this.resourceId = (p.length >= 3) ? Integer.valueOf(p[2]) : null;
-            this.resourceInstanceId = (p.length == 4) ? Integer.valueOf(p[3]) : null;
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid elements in path: " + path, e);
+        Integer[] ids = new Integer[4];
+        for (int i = 0; i < p.length; i++) {
+            ids[i] = Integer.valueOf(p[i]);
         }
+        return ids;
     }
 
     /**
@@ -122,12 +348,15 @@ public class LwM2mPath {
      * @return a new path which is the concatenation of this path and the given one in parameter.
      */
     public LwM2mPath append(String path) {
-        LwM2mPath pathToAdd = new LwM2mPath(path);
+        Validate.notNull(path);
+        long toAdd = parse(path);
         if (isRoot()) {
-            return pathToAdd;
-        } else {
-            return new LwM2mPath(this.toString() + pathToAdd.toString());
+            return toAdd == UNPACKABLE ? new LwM2mPath(path) : cached(toAdd);
         }
+        if (packed == UNPACKABLE || toAdd == UNPACKABLE) {
+            return new LwM2mPath(this.toString() + new LwM2mPath(path).toString());
+        }
+        return concat(toAdd, path);
     }
 
     /**
@@ -135,7 +364,18 @@ public class LwM2mPath {
      * @return a new path which is the concatenation of this path and the given one in parameter.
      */
     public LwM2mPath append(int end) {
-        return append(String.valueOf(end));
+        if (packed == UNPACKABLE || !isPackable(end)) {
+            return append(String.valueOf(end));
+        }
+        return concat(((long) end + 1) << 48, String.valueOf(end));
+    }
+
+    private LwM2mPath concat(long toAdd, Object pathToAdd) {
+        int level = levelOf(packed);
+        if (level + levelOf(toAdd) > 4) {
+            throw new IllegalArgumentException("Invalid length for path: " + this + "/" + pathToAdd);
+        }
+        return cached(level == 4 ? packed : packed | (toAdd >>> (16 * level)));
     }
 
     /**
@@ -175,6 +415,28 @@ public class LwM2mPath {
         return resourceInstanceId;
     }
 
+    /**
+     * @return <code>true</code> if all ids of this path are in the LWM2M range (0 to 65534) and so if this path can
+     *         be packed in a <code>long</code>.
+     */
+    public boolean isPackable() {
+        return packed != UNPACKABLE;
+    }
+
+    /**
+     * Get this path packed in a <code>long</code> : each id + 1 is stored on 16 bits from the most significant bits
+     * (object id) to the least significant ones (resource instance id), 0 meaning no id.
+     *
+     * @return the packed path, 0 for the root path.
+     * @throws IllegalStateException if this path is not packable.
+     * @see #isPackable()
+     */
+    public long toPackedLong() {
+        if (packed == UNPACKABLE)
+            throw new IllegalStateException(String.format("Path %s contains ids out of LWM2M range", this));
+        return packed;
+    }
+
     /**
      * @return <code>true</code> if this is the root path ("/").
      */
@@ -234,9 +496,12 @@ public class LwM2mPath {
 
     @Override
     public int hashCode() {
+        if (packed != UNPACKABLE) {
+            return (int) (packed ^ (packed >>> 32));
+        }
         final int prime = 31;
         int result = 1;
-        result = prime * result + objectId;
+        result = prime * result + ((objectId == null) ? 0 : objectId.hashCode());
         result = prime * result + ((objectInstanceId == null) ? 0 : objectInstanceId.hashCode());
         result = prime * result + ((resourceId == null) ? 0 : resourceId.hashCode());
         result = prime * result + ((resourceInstanceId == null) ? 0 : resourceInstanceId.hashCode());
@@ -255,6 +520,9 @@ public class LwM2mPath {
             return false;
         }
         LwM2mPath other = (LwM2mPath) obj;
+        if (packed != UNPACKABLE || other.packed != UNPACKABLE) {
+            return packed == other.packed;
+        }
         if (objectId == null) {
             if (other.objectId != null) {
                 return false;
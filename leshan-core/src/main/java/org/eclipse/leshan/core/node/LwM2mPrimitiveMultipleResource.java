@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+/**
+ * A multi-instance resource of type {@link Type#INTEGER}, {@link Type#FLOAT} or {@link Type#TIME} which stores its
+ * values in 2 compact arrays : the sorted resource instance identifiers and their primitive <code>long</code> values.
+ * <p>
+ * Use {@link #getLongValue(int)} or {@link #getDoubleValue(int)} to access a value without allocation.
+ * {@link #getValues()} is still available and returns a read-only boxed view of the values.
+ */
+public class LwM2mPrimitiveMultipleResource extends LwM2mMultipleResource {
+
+    // sorted resource instance ids
+    private final int[] ids;
+    // raw values : the long value for INTEGER, the IEEE 754 bits for FLOAT and the time in ms for TIME.
+    private final long[] bits;
+
+    private final Map<Integer, Object> view;
+
+    private LwM2mPrimitiveMultipleResource(int id, Type type, int[] ids, long[] bits) {
+        super(id, type);
+        this.ids = ids;
+        this.bits = bits;
+        this.view = new ValuesView();
+    }
+
+    static LwM2mPrimitiveMultipleResource fromMap(int id, Map<Integer, ?> values, Type type) {
+        int[] ids = new int[values.size()];
+        int i = 0;
+        for (Integer instanceId : values.keySet()) {
+            ids[i++] = instanceId;
+        }
+        Arrays.sort(ids);
+        long[] bits = new long[ids.length];
+        for (i = 0; i < ids.length; i++) {
+            bits[i] = toBits(values.get(ids[i]), type);
+        }
+        return new LwM2mPrimitiveMultipleResource(id, type, ids, bits);
+    }
+
+    /**
+     * Create a resource from arrays, <code>bits</code> is not copied and must not be modified afterwards.
+     */
+    static LwM2mPrimitiveMultipleResource fromArrays(int id, Type type, int[] instanceIds, long[] bits) {
+        int[] ids = instanceIds.clone();
+
+        // sort ids and values together, most of the time ids are already sorted so this is a simple check
+        boolean sorted = true;
+        for (int i = 1; i < ids.length && sorted; i++) {
+            sorted = ids[i - 1] < ids[i];
+        }
+        if (!sorted) {
+            // insertion sort : resource instance arrays are small
+            for (int i = 1; i < ids.length; i++) {
+                int key = ids[i];
+                long value = bits[i];
+                int j = i - 1;
+                while (j >= 0 && ids[j] > key) {
+                    ids[j + 1] = ids[j];
+                    bits[j + 1] = bits[j];
+                    j--;
+                }
+                ids[j + 1] = key;
+                bits[j + 1] = value;
+            }
+            for (int i = 1; i < ids.length; i++) {
+                if (ids[i - 1] == ids[i])
+                    throw new IllegalArgumentException(
+                            String.format("Resource instance id %d is used more than once", ids[i]));
+            }
+        }
+        return new LwM2mPrimitiveMultipleResource(id, type, ids, bits);
+    }
+
+    private static long toBits(Object value, Type type) {
+        switch (type) {
+            case INTEGER:
+                return (Long) value;
+            case FLOAT:
+                return Double.doubleToLongBits((Double) value);
+            case TIME:
+                return ((Date) value).getTime();
+            default:
+                throw new IllegalArgumentException(String.format("Type %s is not a primitive type", type));
+        }
+    }
+
+    private Object toValue(long bits) {
+        switch (getType()) {
+            case INTEGER:
+                return bits;
+            case FLOAT:
+                return Double.longBitsToDouble(bits);
+            case TIME:
+                return new Date(bits);
+            default:
+                throw new IllegalStateException(String.format("Unexpected type %s", getType()));
+        }
+    }
+
+    /**
+     * @return the number of resource instances.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return the resource instance identifier at the given index, identifiers are sorted in ascending order.
+     */
+    public int getInstanceIdAt(int index) {
+        return ids[index];
+    }
+
+    @Override
+    public Map<Integer, ?> getValues() {
+        return view;
+    }
+
+    @Override
+    public Object getValue(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index < 0 ? null : toValue(bits[index]);
+    }
+
+    @Override
+    public long getLongValue(int id) {
+        if (getType() == Type.FLOAT)
+            throw new IllegalStateException(String.format("%s resource has no long value", getType()));
+        return bits[indexOf(id)];
+    }
+
+    @Override
+    public double getDoubleValue(int id) {
+        if (getType() != Type.FLOAT)
+            throw new IllegalStateException(String.format("%s resource has no double value", getType()));
+        return Double.longBitsToDouble(bits[indexOf(id)]);
+    }
+
+    private int indexOf(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0)
+            throw new NoSuchElementException(String.format("No resource instance %d", id));
+        return index;
+    }
+
+    @Override
+    public int hashCode() {
+        // same value than the boxed implementation as Long, Double and Date hash their long representation
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + getId();
+        result = prime * result + getType().hashCode();
+        int h = 0;
+        for (int i = 0; i < ids.length; i++) {
+            h += ids[i] ^ (int) (bits[i] ^ (bits[i] >>> 32));
+        }
+        result = prime * result + h;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        LwM2mPrimitiveMultipleResource other = (LwM2mPrimitiveMultipleResource) obj;
+        return getId() == other.getId() && getType() == other.getType() && Arrays.equals(ids, other.ids)
+                && Arrays.equals(bits, other.bits);
+    }
+
+    /**
+     * A read-only boxed {@link Map} view of the resource instances.
+     */
+    private class ValuesView extends AbstractMap<Integer, Object> {
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && Arrays.binarySearch(ids, (Integer) key) >= 0;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof Integer ? getValue((Integer) key) : null;
+        }
+
+        @Override
+        public Set<Entry<Integer, Object>> entrySet() {
+            return new AbstractSet<Entry<Integer, Object>>() {
+                @Override
+                public int size() {
+                    return ids.length;
+                }
+
+                @Override
+                public Iterator<Entry<Integer, Object>> iterator() {
+                    return new Iterator<Entry<Integer, Object>>() {
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < ids.length;
+                        }
+
+                        @Override
+                        public Entry<Integer, Object> next() {
+                            if (index >= ids.length)
+                                throw new NoSuchElementException();
+                            Entry<Integer, Object> entry = new SimpleImmutableEntry<Integer, Object>(ids[index],
+                                    toValue(bits[index]));
+                            index++;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node;
+
+import java.util.Date;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+/**
+ * A single resource of type {@link Type#INTEGER}, {@link Type#FLOAT} or {@link Type#TIME} which stores its value as a
+ * primitive <code>long</code>.
+ * <p>
+ * Use {@link #getLongValue()} or {@link #getDoubleValue()} to access the value without allocation. {@link #getValue()}
+ * is still available and returns a boxed view of the value.
+ */
+public class LwM2mPrimitiveSingleResource extends LwM2mSingleResource {
+
+    // raw value : the long value for INTEGER, the IEEE 754 bits for FLOAT and the time in ms for TIME.
+    private final long bits;
+
+    LwM2mPrimitiveSingleResource(int id, Type type, long bits) {
+        super(id, type);
+        this.bits = bits;
+    }
+
+    @Override
+    public Object getValue() {
+        switch (getType()) {
+            case INTEGER:
+                return bits;
+            case FLOAT:
+                return Double.longBitsToDouble(bits);
+            case TIME:
+                return new Date(bits);
+            default:
+                throw new IllegalStateException(String.format("Unexpected type %s", getType()));
+        }
+    }
+
+    @Override
+    public long getLongValue() {
+        if (getType() == Type.FLOAT)
+            throw new IllegalStateException(String.format("%s resource has no long value", getType()));
+        return bits;
+    }
+
+    @Override
+    public double getDoubleValue() {
+        if (getType() != Type.FLOAT)
+            throw new IllegalStateException(String.format("%s resource has no double value", getType()));
+        return Double.longBitsToDouble(bits);
+    }
+
+    @Override
+    public int hashCode() {
+        // same value than the boxed implementation as Long, Double and Date hash their long representation
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + getId();
+        result = prime * result + getType().hashCode();
+        result = prime * result + (int) (bits ^ (bits >>> 32));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        LwM2mPrimitiveSingleResource other = (LwM2mPrimitiveSingleResource) obj;
+        return getId() == other.getId() && getType() == other.getType() && bits == other.bits;
+    }
+}
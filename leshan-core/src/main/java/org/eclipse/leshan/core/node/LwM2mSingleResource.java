@@ -41,17 +41,26 @@ public class LwM2mSingleResource implements LwM2mResource {
         this.type = type;
     }
 
+    /**
+     * Constructor for primitive-backed subclasses which hold their value in their own fields.
+     */
+    LwM2mSingleResource(int id, Type type) {
+        this.id = id;
+        this.value = null;
+        this.type = type;
+    }
+
     public static LwM2mSingleResource newResource(int id, Object value, Type type) {
         String doesNotMatchMessage = "Value does not match the given datatype";
         switch (type) {
             case INTEGER:
                 if (!(value instanceof Long))
                     throw new IllegalArgumentException(doesNotMatchMessage);
-                break;
+                return newIntegerResource(id, (Long) value);
             case FLOAT:
                 if (!(value instanceof Double))
                     throw new IllegalArgumentException(doesNotMatchMessage);
-                break;
+                return newFloatResource(id, (Double) value);
             case BOOLEAN:
                 if (!(value instanceof Boolean))
                     throw new IllegalArgumentException(doesNotMatchMessage);
@@ -67,7 +76,7 @@ public class LwM2mSingleResource implements LwM2mResource {
             case TIME:
                 if (!(value instanceof Date))
                     throw new IllegalArgumentException(doesNotMatchMessage);
-                break;
+                return newDateResource(id, (Date) value);
             case OBJLNK:
                 if (!(value instanceof ObjectLink))
                     throw new IllegalArgumentException(doesNotMatchMessage);
@@ -83,7 +92,7 @@ public class LwM2mSingleResource implements LwM2mResource {
     }
 
     public static LwM2mSingleResource newIntegerResource(int id, long value) {
-        return new LwM2mSingleResource(id, value, Type.INTEGER);
+        return new LwM2mPrimitiveSingleResource(id, Type.INTEGER, value);
     }
 
     public static LwM2mSingleResource newObjectLinkResource(int id, ObjectLink objlink) {
@@ -95,11 +104,19 @@ public class LwM2mSingleResource implements LwM2mResource {
     }
 
     public static LwM2mSingleResource newFloatResource(int id, double value) {
-        return new LwM2mSingleResource(id, value, Type.FLOAT);
+        return new LwM2mPrimitiveSingleResource(id, Type.FLOAT, Double.doubleToLongBits(value));
     }
 
     public static LwM2mSingleResource newDateResource(int id, Date value) {
-        return new LwM2mSingleResource(id, value, Type.TIME);
+        Validate.notNull(value);
+        return new LwM2mPrimitiveSingleResource(id, Type.TIME, value.getTime());
+    }
+
+    /**
+     * Create a time resource from a number of milliseconds since January 1, 1970, 00:00:00 GMT.
+     */
+    public static LwM2mSingleResource newDateResource(int id, long time) {
+        return new LwM2mPrimitiveSingleResource(id, Type.TIME, time);
     }
 
     public static LwM2mSingleResource newBinaryResource(int id, byte[] value) {
@@ -130,6 +147,34 @@ public class LwM2mSingleResource implements LwM2mResource {
         return value;
     }
 
+    /**
+     * Get the value of an {@link Type#INTEGER} resource or the number of milliseconds since January 1, 1970, 00:00:00
+     * GMT of a {@link Type#TIME} resource, without boxing for primitive-backed resources.
+     *
+     * @throws IllegalStateException if this resource is not an INTEGER or a TIME resource.
+     */
+    public long getLongValue() {
+        switch (type) {
+            case INTEGER:
+                return (Long) getValue();
+            case TIME:
+                return ((Date) getValue()).getTime();
+            default:
+                throw new IllegalStateException(String.format("%s resource has no long value", type));
+        }
+    }
+
+    /**
+     * Get the value of a {@link Type#FLOAT} resource, without boxing for primitive-backed resources.
+     *
+     * @throws IllegalStateException if this resource is not a FLOAT resource.
+     */
+    public double getDoubleValue() {
+        if (type != Type.FLOAT)
+            throw new IllegalStateException(String.format("%s resource has no double value", type));
+        return (Double) getValue();
+    }
+
     /**
      * @throws NoSuchElementException
      */
@@ -165,6 +210,7 @@ public class LwM2mSingleResource implements LwM2mResource {
         int result = 1;
         result = prime * result + id;
         result = prime * result + ((type == null) ? 0 : type.hashCode());
+        Object value = getValue();
         if (type == Type.OPAQUE) {
             // Custom hashcode to handle byte arrays
             result = prime * result + ((value == null) ? 0 : Arrays.hashCode((byte[]) value));
@@ -187,20 +233,22 @@ public class LwM2mSingleResource implements LwM2mResource {
             return false;
         if (type != other.type)
             return false;
+        Object value = getValue();
+        Object otherValue = other.getValue();
         if (value == null) {
-            if (other.value != null)
+            if (otherValue != null)
                 return false;
         } else {
             // Custom equals to handle byte arrays
-            return type == Type.OPAQUE ? Arrays.equals((byte[]) value, (byte[]) other.value) : value
-                    .equals(other.value);
+            return type == Type.OPAQUE ? Arrays.equals((byte[]) value, (byte[]) otherValue) : value
+                    .equals(otherValue);
         }
         return true;
     }
 
     @Override
     public String toString() {
-        return String.format("LwM2mSingleResource [id=%s, value=%s, type=%s]", id, value, type);
+        return String.format("LwM2mSingleResource [id=%s, value=%s, type=%s]", id, getValue(), type);
     }
 
 }
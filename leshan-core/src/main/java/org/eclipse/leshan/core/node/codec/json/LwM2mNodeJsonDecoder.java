@@ -256,7 +256,7 @@ public class LwM2mNodeJsonDecoder {
             throws CodecException {
         // Check baseName is valid
         if (jsonObject.getBaseName() != null && !jsonObject.getBaseName().isEmpty()) {
-            LwM2mPath bnPath = new LwM2mPath(jsonObject.getBaseName());
+            LwM2mPath bnPath = LwM2mPath.valueOf(jsonObject.getBaseName());
 
             // check returned base name path is under requested path
             if (requestPath.getObjectId() != null && bnPath.getObjectId() != null) {
@@ -301,7 +301,7 @@ public class LwM2mNodeJsonDecoder {
                 // Multi-instance resource
                 // Store multi-instance resource values in a map
                 // we will deal with it later
-                LwM2mPath resourcePath = new LwM2mPath(nodePath.getObjectId(), nodePath.getObjectInstanceId(),
+                LwM2mPath resourcePath = LwM2mPath.valueOf(nodePath.getObjectId(), nodePath.getObjectInstanceId(),
                         nodePath.getResourceId());
                 Map<Integer, JsonArrayEntry> multiResource = multiResourceMap.get(resourcePath);
                 if (multiResource == null) {
@@ -317,8 +317,8 @@ public class LwM2mNodeJsonDecoder {
             } else if (nodePath.isResource()) {
                 // Single resource
                 Type expectedType = getResourceType(nodePath, model, resourceElt);
-                LwM2mResource res = LwM2mSingleResource.newResource(nodePath.getResourceId(),
-                        parseJsonValue(resourceElt.getResourceValue(), expectedType, nodePath), expectedType);
+                LwM2mResource res = parseJsonSingleResource(nodePath.getResourceId(), resourceElt.getResourceValue(),
+                        expectedType, nodePath);
                 LwM2mResource previousRes = lwM2mResourceMap.put(nodePath.getResourceId(), res);
                 if (previousRes != null) {
                     throw new CodecException("2 RESOURCE nodes (%s,%s) with the same identifier %d for path %s",
@@ -338,14 +338,8 @@ public class LwM2mNodeJsonDecoder {
 
             if (jsonEntries != null && !jsonEntries.isEmpty()) {
                 Type expectedType = getResourceType(resourcePath, model, jsonEntries.values().iterator().next());
-                Map<Integer, Object> values = new HashMap<>();
-                for (Entry<Integer, JsonArrayEntry> e : jsonEntries.entrySet()) {
-                    Integer resourceInstanceId = e.getKey();
-                    values.put(resourceInstanceId,
-                            parseJsonValue(e.getValue().getResourceValue(), expectedType, resourcePath));
-                }
-                LwM2mResource resource = LwM2mMultipleResource.newResource(resourcePath.getResourceId(), values,
-                        expectedType);
+                LwM2mResource resource = parseJsonMultipleResource(resourcePath.getResourceId(), jsonEntries,
+                        expectedType, resourcePath);
                 LwM2mResource previousRes = lwM2mResourceMap.put(resourcePath.getResourceId(), resource);
                 if (previousRes != null) {
                     throw new CodecException("2 RESOURCE nodes (%s,%s) with the same identifier %d for path %s",
@@ -368,6 +362,75 @@ public class LwM2mNodeJsonDecoder {
         return lwM2mResourceMap;
     }
 
+    private static LwM2mSingleResource parseJsonSingleResource(int resourceId, Object value, Type expectedType,
+                                                               LwM2mPath path) throws CodecException {
+        // numeric types are decoded straight to primitive-backed resources
+        switch (expectedType) {
+            case INTEGER:
+                return LwM2mSingleResource.newIntegerResource(resourceId, toNumber(value, expectedType, path)
+                        .longValue());
+            case FLOAT:
+                return LwM2mSingleResource.newFloatResource(resourceId, toNumber(value, expectedType, path)
+                        .doubleValue());
+            case TIME:
+                return LwM2mSingleResource.newDateResource(resourceId, toNumber(value, expectedType, path)
+                        .longValue() * 1000L);
+            default:
+                return LwM2mSingleResource.newResource(resourceId, parseJsonValue(value, expectedType, path),
+                        expectedType);
+        }
+    }
+
+    private static LwM2mMultipleResource parseJsonMultipleResource(int resourceId,
+            Map<Integer, JsonArrayEntry> jsonEntries, Type expectedType, LwM2mPath path) throws CodecException {
+        if (expectedType != Type.INTEGER && expectedType != Type.FLOAT && expectedType != Type.TIME) {
+            Map<Integer, Object> values = new HashMap<>();
+            for (Entry<Integer, JsonArrayEntry> e : jsonEntries.entrySet()) {
+                values.put(e.getKey(), parseJsonValue(e.getValue().getResourceValue(), expectedType, path));
+            }
+            return LwM2mMultipleResource.newResource(resourceId, values, expectedType);
+        }
+
+        // numeric types are decoded straight to compact primitive arrays
+        int[] ids = new int[jsonEntries.size()];
+        long[] longValues = expectedType != Type.FLOAT ? new long[ids.length] : null;
+        double[] doubleValues = expectedType == Type.FLOAT ? new double[ids.length] : null;
+        int i = 0;
+        for (Entry<Integer, JsonArrayEntry> e : jsonEntries.entrySet()) {
+            ids[i] = e.getKey();
+            Number value = toNumber(e.getValue().getResourceValue(), expectedType, path);
+            switch (expectedType) {
+                case INTEGER:
+                    longValues[i] = value.longValue();
+                    break;
+                case TIME:
+                    longValues[i] = value.longValue() * 1000L;
+                    break;
+                default:
+                    doubleValues[i] = value.doubleValue();
+                    break;
+            }
+            i++;
+        }
+        switch (expectedType) {
+            case INTEGER:
+                return LwM2mMultipleResource.newIntegerResource(resourceId, ids, longValues);
+            case TIME:
+                return LwM2mMultipleResource.newDateResource(resourceId, ids, longValues);
+            default:
+                return LwM2mMultipleResource.newFloatResource(resourceId, ids, doubleValues);
+        }
+    }
+
+    private static Number toNumber(Object value, Type expectedType, LwM2mPath path) throws CodecException {
+        LOG.trace("JSON value for path {} and expected type {}: {}", path, expectedType, value);
+
+        // JSON format specs said v = integer or float
+        if (!(value instanceof Number))
+            throw new CodecException("Invalid content [%s] for type %s for path %s", value, expectedType, path);
+        return (Number) value;
+    }
+
     private static Object parseJsonValue(Object value, Type expectedType, LwM2mPath path) throws CodecException {
 
         LOG.trace("JSON value for path {} and expected type {}: {}", path, expectedType, value);
@@ -168,7 +168,7 @@ public class LwM2mNodeJsonEncoder {
                     jsonResourceElt.setTime(timestamp);
 
                     // Convert value using expected type
-                    LwM2mPath lwM2mResourceInstancePath = new LwM2mPath(resourceInstancePath);
+                    LwM2mPath lwM2mResourceInstancePath = LwM2mPath.valueOf(resourceInstancePath);
                     Object convertedValue = converter.convertValue(entry.getValue(), resource.getType(), expectedType,
                             lwM2mResourceInstancePath);
                     this.setResourceValue(convertedValue, expectedType, jsonResourceElt, lwM2mResourceInstancePath);
@@ -183,7 +183,7 @@ public class LwM2mNodeJsonEncoder {
                 jsonResourceElt.setTime(timestamp);
 
                 // Convert value using expected type
-                LwM2mPath lwM2mResourcePath = new LwM2mPath(resourcePath);
+                LwM2mPath lwM2mResourcePath = LwM2mPath.valueOf(resourcePath);
                 this.setResourceValue(converter.convertValue(resource.getValue(), resource.getType(), expectedType,
                         lwM2mResourcePath), expectedType, jsonResourceElt, lwM2mResourcePath);
 
@@ -17,7 +17,6 @@ package org.eclipse.leshan.core.node.codec.text;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Date;
 
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.model.ResourceModel;
@@ -42,8 +41,7 @@ public class LwM2mNodeTextDecoder {
 
         String strValue = content != null ? new String(content, StandardCharsets.UTF_8) : "";
         if (rDesc != null && rDesc.type != null) {
-            return LwM2mSingleResource.newResource(path.getResourceId(), parseTextValue(strValue, rDesc.type, path),
-                    rDesc.type);
+            return parseTextResource(path.getResourceId(), strValue, rDesc.type, path);
         } else {
             // unknown resource, returning a default string value
             return LwM2mSingleResource.newStringResource(path.getResourceId(), strValue);
@@ -51,40 +49,49 @@ public class LwM2mNodeTextDecoder {
 
     }
 
-    private static Object parseTextValue(String value, Type type, LwM2mPath path) throws CodecException {
+    private static LwM2mSingleResource parseTextResource(int resourceId, String value, Type type, LwM2mPath path)
+            throws CodecException {
         LOG.trace("TEXT value for path {} and expected type {}: {}", path, type, value);
 
+        // numeric types are decoded straight to primitive-backed resources
         switch (type) {
-            case STRING:
-                return value;
             case INTEGER:
                 try {
-                    return Long.valueOf(value);
+                    return LwM2mSingleResource.newIntegerResource(resourceId, Long.parseLong(value));
                 } catch (NumberFormatException e) {
                     throw new CodecException("Invalid value [%s] for integer resource [%s]", value, path);
                 }
-            case BOOLEAN:
-                switch (value) {
-                    case "0":
-                        return false;
-                    case "1":
-                        return true;
-                    default:
-                        throw new CodecException("Invalid value [%s] for boolean resource [%s]", value, path);
-                }
             case FLOAT:
                 try {
-                    return Double.valueOf(value);
+                    return LwM2mSingleResource.newFloatResource(resourceId, Double.parseDouble(value));
                 } catch (NumberFormatException e) {
                     throw new CodecException("Invalid value [%s] for float resource [%s]", value, path);
                 }
             case TIME:
                 // number of seconds since 1970/1/1
                 try {
-                    return new Date(Long.valueOf(value) * 1000L);
+                    return LwM2mSingleResource.newDateResource(resourceId, Long.parseLong(value) * 1000L);
                 } catch (NumberFormatException e) {
                     throw new CodecException("Invalid value [%s] for date resource [%s]", value, path);
                 }
+            default:
+                return LwM2mSingleResource.newResource(resourceId, parseTextValue(value, type, path), type);
+        }
+    }
+
+    private static Object parseTextValue(String value, Type type, LwM2mPath path) throws CodecException {
+        switch (type) {
+            case STRING:
+                return value;
+            case BOOLEAN:
+                switch (value) {
+                    case "0":
+                        return false;
+                    case "1":
+                        return true;
+                    default:
+                        throw new CodecException("Invalid value [%s] for boolean resource [%s]", value, path);
+                }
             case OBJLNK:
                 String[] intArr = value.split(":");
                 if (intArr.length != 2)
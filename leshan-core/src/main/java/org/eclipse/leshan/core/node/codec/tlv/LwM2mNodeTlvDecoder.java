@@ -155,8 +155,7 @@ public class LwM2mNodeTlvDecoder {
                 return (T) parseResourceTlv(tlv, path, model);
             } else {
                 Type expectedRscType = getResourceType(path, model);
-                return (T) LwM2mMultipleResource.newResource(path.getResourceId(),
-                        parseTlvValues(tlvs, expectedRscType, path), expectedRscType);
+                return (T) parseMultipleResourceTlv(path.getResourceId(), tlvs, expectedRscType, path);
             }
         } else {
             throw new IllegalArgumentException("invalid node class: " + nodeClass);
@@ -169,7 +168,7 @@ public class LwM2mNodeTlvDecoder {
         // read resources
         Map<Integer, LwM2mResource> resources = new HashMap<>(rscTlvs.length);
         for (Tlv rscTlv : rscTlvs) {
-            LwM2mPath resourcePath = new LwM2mPath(objectId, instanceId, rscTlv.getIdentifier());
+            LwM2mPath resourcePath = LwM2mPath.valueOf(objectId, instanceId, rscTlv.getIdentifier());
             LwM2mResource resource = parseResourceTlv(rscTlv, resourcePath, model);
             LwM2mResource previousResource = resources.put(resource.getId(), resource);
             if (previousResource != null) {
@@ -186,16 +185,84 @@ public class LwM2mNodeTlvDecoder {
         Integer resourceId = tlv.getIdentifier();
         switch (tlv.getType()) {
             case MULTIPLE_RESOURCE:
-                return LwM2mMultipleResource.newResource(resourceId,
-                        parseTlvValues(tlv.getChildren(), expectedType, resourcePath), expectedType);
+                return parseMultipleResourceTlv(resourceId, tlv.getChildren(), expectedType, resourcePath);
             case RESOURCE_VALUE:
-                return LwM2mSingleResource.newResource(resourceId,
-                        parseTlvValue(tlv.getValue(), expectedType, resourcePath), expectedType);
+                return parseSingleResourceTlv(resourceId, tlv.getValue(), expectedType, resourcePath);
             default:
                 throw new CodecException("Invalid TLV type %s for resource %s", tlv.getType(), resourcePath);
         }
     }
 
+    private static LwM2mSingleResource parseSingleResourceTlv(int resourceId, byte[] value, Type expectedType,
+                                                              LwM2mPath path) throws CodecException {
+        // numeric types are decoded straight to primitive-backed resources
+        try {
+            switch (expectedType) {
+                case INTEGER:
+                    return LwM2mSingleResource.newIntegerResource(resourceId, TlvDecoder.decodeLong(value));
+                case FLOAT:
+                    return LwM2mSingleResource.newFloatResource(resourceId, TlvDecoder.decodeDouble(value));
+                case TIME:
+                    return LwM2mSingleResource.newDateResource(resourceId, TlvDecoder.decodeTimestamp(value));
+                default:
+                    return LwM2mSingleResource.newResource(resourceId, parseTlvValue(value, expectedType, path),
+                            expectedType);
+            }
+        } catch (TlvException e) {
+            throw new CodecException(e, "Invalid content [%s] for type %s for path %s", Hex.encodeHexString(value),
+                    expectedType, path);
+        }
+    }
+
+    private static LwM2mMultipleResource parseMultipleResourceTlv(int resourceId, Tlv[] tlvs, Type expectedType,
+                                                                  LwM2mPath path) throws CodecException {
+        if (expectedType != Type.INTEGER && expectedType != Type.FLOAT && expectedType != Type.TIME) {
+            return LwM2mMultipleResource.newResource(resourceId, parseTlvValues(tlvs, expectedType, path),
+                    expectedType);
+        }
+
+        // numeric types are decoded straight to compact primitive arrays
+        int[] ids = new int[tlvs.length];
+        long[] longValues = expectedType != Type.FLOAT ? new long[tlvs.length] : null;
+        double[] doubleValues = expectedType == Type.FLOAT ? new double[tlvs.length] : null;
+        for (int i = 0; i < tlvs.length; i++) {
+            Tlv tlvChild = tlvs[i];
+            if (tlvChild.getType() != TlvType.RESOURCE_INSTANCE)
+                throw new CodecException("Expected TLV of type RESOURCE_INSTANCE but was %s for path %s",
+                        tlvChild.getType().name(), path);
+            ids[i] = tlvChild.getIdentifier();
+            try {
+                switch (expectedType) {
+                    case INTEGER:
+                        longValues[i] = TlvDecoder.decodeLong(tlvChild.getValue());
+                        break;
+                    case TIME:
+                        longValues[i] = TlvDecoder.decodeTimestamp(tlvChild.getValue());
+                        break;
+                    default:
+                        doubleValues[i] = TlvDecoder.decodeDouble(tlvChild.getValue());
+                        break;
+                }
+            } catch (TlvException e) {
+                throw new CodecException(e, "Invalid content [%s] for type %s for path %s",
+                        Hex.encodeHexString(tlvChild.getValue()), expectedType, path);
+            }
+        }
+
+        try {
+            switch (expectedType) {
+                case INTEGER:
+                    return LwM2mMultipleResource.newIntegerResource(resourceId, ids, longValues);
+                case TIME:
+                    return LwM2mMultipleResource.newDateResource(resourceId, ids, longValues);
+                default:
+                    return LwM2mMultipleResource.newFloatResource(resourceId, ids, doubleValues);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new CodecException(e, "Invalid RESOURCE_INSTANCE nodes for path %s : %s", path, e.getMessage());
+        }
+    }
+
     private static Map<Integer, Object> parseTlvValues(Tlv[] tlvs, Type expectedType, LwM2mPath path)
             throws CodecException {
         Map<Integer, Object> values = new HashMap<>();
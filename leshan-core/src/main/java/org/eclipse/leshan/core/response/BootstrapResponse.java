@@ -22,12 +22,30 @@ import org.eclipse.leshan.ResponseCode;
  */
 public class BootstrapResponse extends AbstractLwM2mResponse {
 
+    private final Long retryAfter;
+
     public BootstrapResponse(ResponseCode code, String errorMessage) {
         this(code, errorMessage, null);
     }
 
     public BootstrapResponse(ResponseCode code, String errorMessage, Object coapResponse) {
+        this(code, errorMessage, null, coapResponse);
+    }
+
+    /**
+     * @param retryAfter the number of seconds after which the client should retry, could be <code>null</code>.
+     */
+    public BootstrapResponse(ResponseCode code, String errorMessage, Long retryAfter, Object coapResponse) {
         super(code, errorMessage, coapResponse);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the number of seconds after which the client should retry its bootstrap request, or <code>null</code>
+     *         if there is no hint.
+     */
+    public Long getRetryAfter() {
+        return retryAfter;
     }
 
     @Override
@@ -41,6 +59,7 @@ public class BootstrapResponse extends AbstractLwM2mResponse {
             case ResponseCode.CHANGED_CODE:
             case ResponseCode.BAD_REQUEST_CODE:
             case ResponseCode.INTERNAL_SERVER_ERROR_CODE:
+            case ResponseCode.SERVICE_UNAVAILABLE_CODE:
                 return true;
             default:
                 return false;
@@ -49,7 +68,10 @@ public class BootstrapResponse extends AbstractLwM2mResponse {
 
     @Override
     public String toString() {
-        if (errorMessage != null)
+        if (retryAfter != null)
+            return String.format("BootstrapResponse [code=%s, errormessage=%s, retryAfter=%ss]", code, errorMessage,
+                    retryAfter);
+        else if (errorMessage != null)
             return String.format("BootstrapResponse [code=%s, errormessage=%s]", code, errorMessage);
         else
             return String.format("BootstrapResponse [code=%s]", code);
@@ -68,4 +90,8 @@ public class BootstrapResponse extends AbstractLwM2mResponse {
     public static BootstrapResponse internalServerError(String errorMessage) {
         return new BootstrapResponse(ResponseCode.INTERNAL_SERVER_ERROR, errorMessage);
     }
+
+    public static BootstrapResponse serviceUnavailable(String errorMessage, long retryAfter) {
+        return new BootstrapResponse(ResponseCode.SERVICE_UNAVAILABLE, errorMessage, retryAfter, null);
+    }
 }
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.response;
+
+import java.util.List;
+
+import org.eclipse.leshan.ResponseCode;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mNodeDecoder;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.exception.InvalidResponseException;
+
+/**
+ * An {@link ObserveResponse} which keeps the raw notification payload and decodes it only on the first call to
+ * {@link #getContent()} or {@link #getTimestampedLwM2mNode()}.
+ * <p>
+ * Consumers which only forward or store notifications can use {@link #getPayload()} and {@link #getContentFormat()}
+ * without paying the decoding cost.
+ */
+public class LazyObserveResponse extends ObserveResponse {
+
+    private final byte[] payload;
+    private final ContentFormat contentFormat;
+    private final LwM2mModel model;
+    private final LwM2mNodeDecoder decoder;
+
+    // decoding is idempotent, so concurrent first accesses may both decode without harm.
+    private volatile Decoded decoded;
+
+    /**
+     * @param code          the response code (CONTENT or CHANGED)
+     * @param payload       the raw notification payload
+     * @param contentFormat the content format of the payload, could be <code>null</code>
+     * @param observation   the observation concerned by this notification
+     * @param model         the model used to decode the payload
+     * @param decoder       the decoder used to decode the payload
+     * @param coapResponse  the underlying CoAP response
+     */
+    public LazyObserveResponse(ResponseCode code, byte[] payload, ContentFormat contentFormat,
+            Observation observation, LwM2mModel model, LwM2mNodeDecoder decoder, Object coapResponse) {
+        super(code, observation, coapResponse);
+        this.payload = payload;
+        this.contentFormat = contentFormat;
+        this.model = model;
+        this.decoder = decoder;
+    }
+
+    /**
+     * @return the raw notification payload.
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return the content format of the payload, could be <code>null</code> if the notification did not specify it.
+     */
+    public ContentFormat getContentFormat() {
+        return contentFormat;
+    }
+
+    /**
+     * @return <code>true</code> if the payload was already decoded.
+     */
+    public boolean isDecoded() {
+        return decoded != null;
+    }
+
+    /**
+     * Decode the payload if it was not already done.
+     *
+     * @throws InvalidResponseException if the payload is malformed.
+     */
+    public void decode() {
+        decoded();
+    }
+
+    @Override
+    public LwM2mNode getContent() {
+        return decoded().content;
+    }
+
+    @Override
+    public List<TimestampedLwM2mNode> getTimestampedLwM2mNode() {
+        return decoded().timestampedValues;
+    }
+
+    private Decoded decoded() {
+        Decoded d = decoded;
+        if (d == null) {
+            try {
+                List<TimestampedLwM2mNode> timestampedNodes = decoder.decodeTimestampedData(payload, contentFormat,
+                        observation.getPath(), model);
+                if (timestampedNodes.size() == 1 && !timestampedNodes.get(0).isTimestamped()) {
+                    d = new Decoded(timestampedNodes.get(0).getNode(), null);
+                } else {
+                    d = new Decoded(timestampedNodes.isEmpty() ? null : timestampedNodes.get(0).getNode(),
+                            timestampedNodes);
+                }
+            } catch (CodecException e) {
+                throw new InvalidResponseException(e, "Unable to decode notification payload  of observation [%s] ",
+                        observation);
+            }
+            if (d.content == null)
+                throw new InvalidResponseException("Content is mandatory for successful response");
+            decoded = d;
+        }
+        return d;
+    }
+
+    @Override
+    public String toString() {
+        Decoded d = decoded;
+        if (d == null)
+            return String.format("ObserveResponse [code=%s, observation=%s, payload=%d bytes, format=%s]", code,
+                    observation, payload == null ? 0 : payload.length, contentFormat);
+        else if (d.timestampedValues != null)
+            return String.format("ObserveResponse [code=%s, content=%s, observation=%s, timestampedValues= %d nodes]",
+                    code, d.content, observation, d.timestampedValues.size());
+        else
+            return String.format("ObserveResponse [code=%s, content=%s, observation=%s]", code, d.content,
+                    observation);
+    }
+
+    private static class Decoded {
+        private final LwM2mNode content;
+        private final List<TimestampedLwM2mNode> timestampedValues;
+
+        private Decoded(LwM2mNode content, List<TimestampedLwM2mNode> timestampedValues) {
+            this.content = content;
+            this.timestampedValues = timestampedValues;
+        }
+    }
+}
@@ -53,6 +53,16 @@ public class ObserveResponse extends ReadResponse {
         this.timestampedValues = timestampedValues;
     }
 
+    /**
+     * Constructor for subclasses which provide their content lazily by overriding {@link #getContent()} and
+     * {@link #getTimestampedLwM2mNode()}.
+     */
+    protected ObserveResponse(ResponseCode code, Observation observation, Object coapResponse) {
+        super(code, coapResponse);
+        this.observation = observation;
+        this.timestampedValues = null;
+    }
+
     public List<TimestampedLwM2mNode> getTimestampedLwM2mNode() {
         return timestampedValues;
     }
@@ -44,6 +44,14 @@ public class ReadResponse extends AbstractLwM2mResponse {
         this.content = content;
     }
 
+    /**
+     * Constructor for subclasses which provide their content lazily by overriding {@link #getContent()}.
+     */
+    protected ReadResponse(ResponseCode code, Object coapResponse) {
+        super(code, null, coapResponse);
+        this.content = null;
+    }
+
     @Override
     public boolean isSuccess() {
         return getCode() == ResponseCode.CONTENT;
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+
+/**
+ * The pending result of a LWM2M request sent asynchronously.
+ * <p>
+ * Callbacks can be added at any time with {@link #addCallbacks(ResponseCallback, ErrorCallback)}, so no thread needs
+ * to wait for the response. The blocking {@link #get()} methods are still available.
+ * <p>
+ * Cancelling the future runs the cancellation action set by the sender, which cancels the underlying request (e.g.
+ * stop CoAP retransmissions). Error callbacks are then called with a {@link RequestCanceledException}.
+ * <p>
+ * The future completes itself when used as {@link ResponseCallback} or {@link ErrorCallback}. Only the first
+ * completion is taken into account.
+ */
+public class ResponseFuture<T extends LwM2mResponse> implements Future<T>, ResponseCallback<T>, ErrorCallback {
+
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+    // guarded by this
+    private boolean done = false;
+    private boolean cancelled = false;
+    private T response;
+    private Exception error;
+    private Runnable cancellationAction;
+    private List<ResponseCallback<T>> responseCallbacks;
+    private List<ErrorCallback> errorCallbacks;
+
+    /**
+     * Add callbacks to call on completion. If the future is already completed, the right callback is called at once
+     * in the calling thread.
+     */
+    public void addCallbacks(ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+        T response;
+        Exception error;
+        synchronized (this) {
+            if (!done) {
+                if (responseCallbacks == null) {
+                    responseCallbacks = new ArrayList<>(1);
+                    errorCallbacks = new ArrayList<>(1);
+                }
+                responseCallbacks.add(responseCallback);
+                errorCallbacks.add(errorCallback);
+                return;
+            }
+            response = this.response;
+            error = this.error;
+        }
+        if (error == null) {
+            responseCallback.onResponse(response);
+        } else {
+            errorCallback.onError(error);
+        }
+    }
+
+    /**
+     * Set the action to run when this future is cancelled. If the future is already cancelled, the action is run at
+     * once in the calling thread.
+     */
+    public void setCancellationAction(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                cancellationAction = action;
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Complete this future with the given response.
+     */
+    @Override
+    public void onResponse(T response) {
+        complete(response, null, false);
+    }
+
+    /**
+     * Complete this future with the given error.
+     */
+    @Override
+    public void onError(Exception e) {
+        complete(null, e, false);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!complete(null, new RequestCanceledException("Request was canceled by the user"), true)) {
+            return false;
+        }
+        Runnable action;
+        synchronized (this) {
+            action = cancellationAction;
+            cancellationAction = null;
+        }
+        if (action != null) {
+            action.run();
+        }
+        return true;
+    }
+
+    private boolean complete(T response, Exception error, boolean cancel) {
+        List<ResponseCallback<T>> responseCallbacks;
+        List<ErrorCallback> errorCallbacks;
+        synchronized (this) {
+            if (done)
+                return false;
+            done = true;
+            cancelled = cancel;
+            this.response = response;
+            this.error = error;
+            if (!cancel) {
+                cancellationAction = null;
+            }
+            responseCallbacks = this.responseCallbacks;
+            errorCallbacks = this.errorCallbacks;
+            this.responseCallbacks = null;
+            this.errorCallbacks = null;
+        }
+        doneLatch.countDown();
+
+        if (responseCallbacks != null) {
+            if (error == null) {
+                for (ResponseCallback<T> callback : responseCallbacks) {
+                    callback.onResponse(response);
+                }
+            } else {
+                for (ErrorCallback callback : errorCallbacks) {
+                    callback.onError(error);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return the response, which could be <code>null</code> if the timeout of the request expired without response.
+     * @throws ExecutionException if the request failed, the cause is the same exception as the one given to
+     *         {@link ErrorCallback}.
+     */
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        doneLatch.await();
+        return getResult();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, java.util.concurrent.TimeoutException {
+        if (!doneLatch.await(timeout, unit)) {
+            throw new java.util.concurrent.TimeoutException();
+        }
+        return getResult();
+    }
+
+    private synchronized T getResult() throws ExecutionException {
+        if (cancelled)
+            throw new CancellationException();
+        if (error != null)
+            throw new ExecutionException(error);
+        return response;
+    }
+}
@@ -190,6 +190,16 @@ public class TlvDecoder {
         }
     }
 
+    /**
+     * Decodes a byte array into a number of milliseconds since January 1, 1970, 00:00:00 GMT, without allocation.
+     */
+    public static long decodeTimestamp(byte[] value) throws TlvException {
+        if (value.length == 0 || value.length > 8) {
+            throw new TlvException("Invalid length for a time value: " + value.length);
+        }
+        return decodeSignedLong(value) * 1000L;
+    }
+
     /**
      * Decodes a byte array into a objlnk value.
      */
@@ -219,6 +229,41 @@ public class TlvDecoder {
         }
     }
 
+    /**
+     * Decodes a byte array into a primitive long value, without allocation.
+     */
+    public static long decodeLong(byte[] value) throws TlvException {
+        if (value.length == 0 || value.length > 8) {
+            throw new TlvException("Invalid length for an integer value: " + value.length);
+        }
+        return decodeSignedLong(value);
+    }
+
+    /**
+     * Decodes a byte array into a primitive double value, without allocation.
+     */
+    public static double decodeDouble(byte[] value) throws TlvException {
+        if (value.length == 4) {
+            return Float.intBitsToFloat((int) decodeSignedLong(value));
+        } else if (value.length == 8) {
+            return Double.longBitsToDouble(decodeSignedLong(value));
+        } else {
+            throw new TlvException("Invalid length for a float value: " + value.length);
+        }
+    }
+
+    /**
+     * Decodes a big-endian two's complement byte array of at most 8 bytes.
+     */
+    private static long decodeSignedLong(byte[] value) {
+        // first byte carries the sign
+        long result = value[0];
+        for (int i = 1; i < value.length; i++) {
+            result = (result << 8) | (value[i] & 0xFF);
+        }
+        return result;
+    }
+
     /**
      * Decodes a byte array into a float value.
      */
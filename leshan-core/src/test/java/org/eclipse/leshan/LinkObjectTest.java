@@ -138,4 +138,27 @@ public class LinkObjectTest {
         Assert.assertEquals(input, output);
 
     }
+
+    @Test
+    public void parse_identical_links_returns_shared_instances() {
+        Link[] first = Link.parse("</>;rt=\"oma.lwm2m\",</1/0>".getBytes());
+        Link[] second = Link.parse("</1/0>,</>;rt=\"oma.lwm2m\"".getBytes());
+
+        Assert.assertSame(first[0], second[1]);
+        Assert.assertSame(first[1], second[0]);
+    }
+
+    @Test
+    public void parse_with_empty_attribute_values() {
+        Link[] parse = Link.parse("</1>;a==b;c=;=;d;e=-12,</2>,,".getBytes());
+        Assert.assertEquals(2, parse.length);
+
+        Map<String, Object> attResult = new HashMap<>();
+        attResult.put("a", "");
+        attResult.put("c", null);
+        attResult.put("d", null);
+        attResult.put("e", -12);
+        Assert.assertEquals(attResult, parse[0].getAttributes());
+        Assert.assertEquals("/2", parse[1].getUrl());
+    }
 }
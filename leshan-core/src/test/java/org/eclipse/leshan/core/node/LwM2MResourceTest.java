@@ -17,6 +17,7 @@ package org.eclipse.leshan.core.node;
 
 import static org.junit.Assert.*;
 
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -156,4 +157,53 @@ public class LwM2MResourceTest {
         values.put(3, null);
         LwM2mMultipleResource.newResource(0, values, Type.BOOLEAN);
     }
+
+    @Test
+    public void primitive_resources_are_equal_to_generic_ones() {
+        assertEquals(LwM2mSingleResource.newResource(10, 42L, Type.INTEGER),
+                LwM2mSingleResource.newIntegerResource(10, 42L));
+        assertEquals(LwM2mSingleResource.newResource(10, 4.2d, Type.FLOAT),
+                LwM2mSingleResource.newFloatResource(10, 4.2d));
+        assertEquals(LwM2mSingleResource.newResource(10, new Date(1000L), Type.TIME),
+                LwM2mSingleResource.newDateResource(10, 1000L));
+        assertEquals(LwM2mSingleResource.newIntegerResource(10, 42L).hashCode(),
+                LwM2mSingleResource.newResource(10, 42L, Type.INTEGER).hashCode());
+        assertNotEquals(LwM2mSingleResource.newIntegerResource(10, 42L), LwM2mSingleResource.newDateResource(10, 42L));
+    }
+
+    @Test
+    public void primitive_resources_expose_boxed_view() {
+        LwM2mSingleResource resource = LwM2mSingleResource.newFloatResource(10, 4.2d);
+        assertEquals(4.2d, resource.getValue());
+        assertEquals(4.2d, resource.getDoubleValue(), 0);
+        assertEquals(new Date(1000L), LwM2mSingleResource.newDateResource(10, 1000L).getValue());
+        assertEquals(42L, LwM2mSingleResource.newIntegerResource(10, 42L).getLongValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void no_double_value_for_integer_resource() {
+        LwM2mSingleResource.newIntegerResource(10, 42L).getDoubleValue();
+    }
+
+    @Test
+    public void multiple_primitive_resources_from_arrays_and_maps_are_equal() {
+        Map<Integer, Long> values = new HashMap<>();
+        values.put(3, 30L);
+        values.put(1, 10L);
+        LwM2mMultipleResource fromMap = LwM2mMultipleResource.newIntegerResource(10, values);
+        LwM2mMultipleResource fromArrays = LwM2mMultipleResource.newIntegerResource(10, new int[] { 3, 1 },
+                new long[] { 30L, 10L });
+
+        assertEquals(fromMap, fromArrays);
+        assertEquals(fromMap.hashCode(), fromArrays.hashCode());
+        assertEquals(values, fromArrays.getValues());
+        assertEquals(30L, fromArrays.getLongValue(3));
+        assertEquals(10L, fromArrays.getValue(1));
+        assertNull(fromArrays.getValue(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void multiple_primitive_resources_with_duplicate_ids() {
+        LwM2mMultipleResource.newFloatResource(10, new int[] { 1, 1 }, new double[] { 1d, 2d });
+    }
 }
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2015 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LwM2mPathTest {
+
+    @Test
+    public void parse_paths() {
+        assertEquals(new LwM2mPath(3, 0, 1), new LwM2mPath("/3/0/1"));
+        assertEquals(new LwM2mPath(3, 0, 1), new LwM2mPath("3/0/1/"));
+        assertEquals(new LwM2mPath(3, 0, 1, 2), new LwM2mPath("/3/0/1/2"));
+        assertEquals(new LwM2mPath(3), LwM2mPath.valueOf("/3"));
+        assertTrue(new LwM2mPath("/").isRoot());
+        assertTrue(LwM2mPath.valueOf("").isRoot());
+        assertEquals("/3/0/1", LwM2mPath.valueOf("/3/0/1").toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void path_with_too_many_elements() {
+        new LwM2mPath("/3/0/1/2/3");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void path_with_empty_element() {
+        LwM2mPath.valueOf("/3//1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void path_with_invalid_element() {
+        LwM2mPath.valueOf("/3/a/1");
+    }
+
+    @Test
+    public void value_of_returns_shared_instances() {
+        assertSame(LwM2mPath.valueOf("/3/0/1"), LwM2mPath.valueOf(3, 0, 1));
+        assertSame(LwM2mPath.ROOTPATH, LwM2mPath.valueOf("/"));
+    }
+
+    @Test
+    public void pack_and_unpack_paths() {
+        LwM2mPath path = new LwM2mPath(3, 0, 65534, 0);
+        assertTrue(path.isPackable());
+        assertEquals(path, LwM2mPath.fromPackedLong(path.toPackedLong()));
+        assertEquals(0L, LwM2mPath.ROOTPATH.toPackedLong());
+        assertNotEquals(new LwM2mPath(3, 0).toPackedLong(), new LwM2mPath(3, 0, 0).toPackedLong());
+    }
+
+    @Test
+    public void paths_with_ids_out_of_range_are_not_packable() {
+        LwM2mPath path = new LwM2mPath("/3/70000/1");
+        assertFalse(path.isPackable());
+        assertEquals(Integer.valueOf(70000), path.getObjectInstanceId());
+        assertEquals(new LwM2mPath(3, 70000, 1), path);
+        assertEquals(new LwM2mPath(3, 70000, 1).hashCode(), path.hashCode());
+        assertEquals(new LwM2mPath(3, 70000, 1, 2), path.append(2));
+        assertNotEquals(new LwM2mPath(3, 0, 1), path);
+        assertEquals(new LwM2mPath(3, LwM2mObjectInstance.UNDEFINED, 0), LwM2mPath.valueOf("/3/-1/0"));
+    }
+
+    @Test
+    public void append_to_paths() {
+        assertEquals(new LwM2mPath(3, 0, 1), new LwM2mPath(3).append("0/1"));
+        assertEquals(new LwM2mPath(3, 0, 1), new LwM2mPath(3, 0).append(1));
+        assertEquals(new LwM2mPath(3, 0), LwM2mPath.ROOTPATH.append("/3/0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void append_too_many_elements() {
+        new LwM2mPath(3, 0, 1).append("/2/3");
+    }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.response;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.leshan.ResponseCode;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.exception.InvalidResponseException;
+import org.junit.Test;
+
+public class LazyObserveResponseTest {
+
+    private static final LwM2mModel model = new StaticModel(ObjectLoader.loadDefault());
+
+    private LazyObserveResponse newResponse(String payload, String path) {
+        Observation observation = new Observation(new byte[] { 1 }, "regId", new LwM2mPath(path),
+                ContentFormat.TEXT, null);
+        return new LazyObserveResponse(ResponseCode.CONTENT, payload.getBytes(StandardCharsets.UTF_8),
+                ContentFormat.TEXT, observation, model, new DefaultLwM2mNodeDecoder(), null);
+    }
+
+    @Test
+    public void payload_is_decoded_on_first_access() {
+        LazyObserveResponse response = newResponse("Leshan", "/3/0/0");
+        assertFalse(response.isDecoded());
+        assertEquals(ContentFormat.TEXT, response.getContentFormat());
+
+        assertEquals(LwM2mSingleResource.newStringResource(0, "Leshan"), response.getContent());
+        assertTrue(response.isDecoded());
+        assertNull(response.getTimestampedLwM2mNode());
+        assertTrue(response.isSuccess());
+    }
+
+    @Test(expected = InvalidResponseException.class)
+    public void malformed_payload_is_reported_on_access() {
+        LazyObserveResponse response = newResponse("not a number", "/3/0/9");
+        response.getContent();
+    }
+}
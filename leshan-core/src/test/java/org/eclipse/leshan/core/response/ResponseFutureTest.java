@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.response;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.junit.Test;
+
+public class ResponseFutureTest {
+
+    private final List<Object> results = new ArrayList<>();
+
+    @Test
+    public void callbacks_are_called_on_completion() throws Exception {
+        ResponseFuture<ReadResponse> future = new ResponseFuture<>();
+        future.addCallbacks(collect(), collectError());
+
+        ReadResponse response = ReadResponse.notFound();
+        future.onResponse(response);
+        future.onError(new TimeoutException("ignored"));
+
+        assertEquals(1, results.size());
+        assertSame(response, results.get(0));
+        assertSame(response, future.get(0, TimeUnit.MILLISECONDS));
+
+        // callbacks added after completion are called at once
+        future.addCallbacks(collect(), collectError());
+        assertEquals(2, results.size());
+    }
+
+    @Test
+    public void error_is_reported_by_get() throws Exception {
+        ResponseFuture<ReadResponse> future = new ResponseFuture<>();
+        future.addCallbacks(collect(), collectError());
+        TimeoutException error = new TimeoutException("timeout");
+        future.onError(error);
+
+        assertSame(error, results.get(0));
+        try {
+            future.get();
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test(expected = java.util.concurrent.TimeoutException.class)
+    public void get_times_out_without_response() throws Exception {
+        new ResponseFuture<ReadResponse>().get(10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void cancel_runs_cancellation_action() throws Exception {
+        final AtomicInteger cancelled = new AtomicInteger();
+        ResponseFuture<ReadResponse> future = new ResponseFuture<>();
+        future.addCallbacks(collect(), collectError());
+        future.setCancellationAction(new Runnable() {
+            @Override
+            public void run() {
+                cancelled.incrementAndGet();
+            }
+        });
+
+        assertTrue(future.cancel(false));
+        assertFalse(future.cancel(false));
+        future.onResponse(ReadResponse.notFound());
+
+        assertEquals(1, cancelled.get());
+        assertTrue(future.isCancelled());
+        assertEquals(1, results.size());
+        assertTrue(results.get(0) instanceof RequestCanceledException);
+        try {
+            future.get();
+            fail("CancellationException expected");
+        } catch (CancellationException e) {
+        }
+    }
+
+    private ResponseCallback<ReadResponse> collect() {
+        return new ResponseCallback<ReadResponse>() {
+            @Override
+            public void onResponse(ReadResponse response) {
+                results.add(response);
+            }
+        };
+    }
+
+    private ErrorCallback collectError() {
+        return new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                results.add(e);
+            }
+        };
+    }
+}
@@ -77,4 +77,29 @@ public class TlvDecoderTest {
         assertEquals(0xffff, objlnk.getObjectId());
         assertEquals(0xffff, objlnk.getObjectInstanceId());
     }
+
+    @Test
+    public void decode_primitive_long_like_integer() throws TlvException {
+        String[] values = { "7f", "80", "ff", "0102", "ff01", "01020304", "80000000", "0102030405060708",
+                                "ffffffffffffffff" };
+        for (String value : values) {
+            byte[] bytes = Hex.decodeHex(value.toCharArray());
+            assertEquals(TlvDecoder.decodeInteger(bytes).longValue(), TlvDecoder.decodeLong(bytes));
+        }
+    }
+
+    @Test
+    public void decode_primitive_double_like_float() throws TlvException {
+        String[] values = { "3fc00000", "c2f6e979", "3ff8000000000000", "c05edd2f1a9fbe77" };
+        for (String value : values) {
+            byte[] bytes = Hex.decodeHex(value.toCharArray());
+            assertEquals(TlvDecoder.decodeFloat(bytes).doubleValue(), TlvDecoder.decodeDouble(bytes), 0);
+        }
+    }
+
+    @Test
+    public void decode_timestamp_like_date() throws TlvException {
+        byte[] bytes = Hex.decodeHex("5182428f".toCharArray());
+        assertEquals(TlvDecoder.decodeDate(bytes).getTime(), TlvDecoder.decodeTimestamp(bytes));
+    }
 }
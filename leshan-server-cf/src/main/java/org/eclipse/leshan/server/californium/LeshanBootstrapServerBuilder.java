@@ -42,13 +42,16 @@ import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
 import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeEncoder;
 import org.eclipse.leshan.core.node.codec.LwM2mNodeDecoder;
 import org.eclipse.leshan.core.node.codec.LwM2mNodeEncoder;
+import org.eclipse.leshan.server.bootstrap.BootstrapAdmissionController;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfigStore;
 import org.eclipse.leshan.server.bootstrap.BootstrapHandler;
 import org.eclipse.leshan.server.bootstrap.BootstrapHandlerFactory;
 import org.eclipse.leshan.server.bootstrap.BootstrapSessionManager;
+import org.eclipse.leshan.server.bootstrap.BootstrapSessionRegistry;
 import org.eclipse.leshan.server.bootstrap.DefaultBootstrapHandler;
 import org.eclipse.leshan.server.bootstrap.InMemoryBootstrapConfigStore;
+import org.eclipse.leshan.server.bootstrap.InMemoryBootstrapSessionRegistry;
 import org.eclipse.leshan.server.bootstrap.LwM2mBootstrapRequestSender;
 import org.eclipse.leshan.server.californium.impl.LeshanBootstrapServer;
 import org.eclipse.leshan.server.californium.impl.LwM2mBootstrapPskStore;
@@ -72,7 +75,9 @@ public class LeshanBootstrapServerBuilder {
     private BootstrapConfigStore configStore;
     private BootstrapSecurityStore securityStore;
     private BootstrapSessionManager sessionManager;
+    private BootstrapSessionRegistry sessionRegistry;
     private BootstrapHandlerFactory bootstrapHandlerFactory;
+    private BootstrapAdmissionController admissionController;
 
     private LwM2mModel model;
     private NetworkConfig coapConfig;
@@ -262,6 +267,20 @@ public class LeshanBootstrapServerBuilder {
         return this;
     }
 
+    /**
+     * Advanced setter used to define the {@link BootstrapSessionRegistry} keeping track of the sessions in progress.
+     * <p>
+     * By default sessions are kept in memory, use a shared registry when several bootstrap servers handle the same
+     * clients. This registry is only used by the default {@link BootstrapHandlerFactory}.
+     *
+     * @param sessionRegistry the registry of the bootstrap sessions in progress.
+     * @return the builder for fluent Bootstrap Server creation.
+     */
+    public LeshanBootstrapServerBuilder setSessionRegistry(BootstrapSessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+        return this;
+    }
+
     /**
      * Advanced setter used to customize default bootstrap server behavior.
      * <p>
@@ -279,6 +298,21 @@ public class LeshanBootstrapServerBuilder {
         return this;
     }
 
+    /**
+     * Set the {@link BootstrapAdmissionController} limiting the number of bootstrap sessions handled at the same time,
+     * e.g. when a lot of devices are powered on for the first time. It applies to the handlers created by the
+     * {@link BootstrapHandlerFactory}, default or custom one.
+     * <p>
+     * By default, there is no admission control.
+     *
+     * @param admissionController the admission controller to use, could be <code>null</code>.
+     * @return the builder for fluent Bootstrap Server creation.
+     */
+    public LeshanBootstrapServerBuilder setAdmissionController(BootstrapAdmissionController admissionController) {
+        this.admissionController = admissionController;
+        return this;
+    }
+
     /**
      * Advanced setter used to customize default the {@link LwM2mModel}. This model is mainly used for data encoding of
      * Bootstrap write request.
@@ -413,14 +447,19 @@ public class LeshanBootstrapServerBuilder {
 
         if (sessionManager == null)
             sessionManager = new DefaultBootstrapSessionManager(securityStore);
-        if (bootstrapHandlerFactory == null)
+        if (sessionRegistry == null)
+            sessionRegistry = new InMemoryBootstrapSessionRegistry();
+        if (bootstrapHandlerFactory == null) {
+            final BootstrapSessionRegistry registry = sessionRegistry;
             bootstrapHandlerFactory = new BootstrapHandlerFactory() {
                 @Override
                 public BootstrapHandler create(BootstrapConfigStore store, LwM2mBootstrapRequestSender sender,
                                                BootstrapSessionManager sessionManager) {
-                    return new DefaultBootstrapHandler(store, sender, sessionManager);
+                    return new DefaultBootstrapHandler(store, sender, sessionManager, registry,
+                            DefaultBootstrapHandler.DEFAULT_TIMEOUT, DefaultBootstrapHandler.DEFAULT_LIFETIME);
                 }
             };
+        }
         if (model == null)
             model = new StaticModel(ObjectLoader.loadDefault());
         if (coapConfig == null) {
@@ -559,8 +598,12 @@ public class LeshanBootstrapServerBuilder {
                     "All CoAP enpoints are deactivated, at least one endpoint should be activated");
         }
 
+        BootstrapHandlerFactory handlerFactory = bootstrapHandlerFactory;
+        if (admissionController != null)
+            handlerFactory = admissionController.wrap(handlerFactory);
+
         return createBootstrapServer(unsecuredEndpoint, securedEndpoint, configStore, securityStore, sessionManager,
-                bootstrapHandlerFactory, model, coapConfig, encoder, decoder);
+                handlerFactory, model, coapConfig, encoder, decoder);
     }
 
     /**
@@ -24,6 +24,7 @@ import java.security.PublicKey;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 import org.eclipse.californium.core.network.CoapEndpoint;
 import org.eclipse.californium.core.network.config.NetworkConfig;
@@ -32,6 +33,7 @@ import org.eclipse.californium.elements.UDPConnector;
 import org.eclipse.californium.scandium.DTLSConnector;
 import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
 import org.eclipse.californium.scandium.dtls.CertificateType;
+import org.eclipse.californium.scandium.dtls.SessionCache;
 import org.eclipse.leshan.LwM2m;
 import org.eclipse.leshan.core.californium.DefaultEndpointFactory;
 import org.eclipse.leshan.core.californium.EndpointFactory;
@@ -49,13 +51,20 @@ import org.eclipse.leshan.server.californium.impl.LwM2mPskStore;
 import org.eclipse.leshan.server.impl.InMemorySecurityStore;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.StandardModelProvider;
+import org.eclipse.leshan.server.queue.AdaptiveClientAwakeTimeProvider;
 import org.eclipse.leshan.server.queue.ClientAwakeTimeProvider;
+import org.eclipse.leshan.server.queue.InMemoryRequestQueue;
+import org.eclipse.leshan.server.queue.PresenceListener;
+import org.eclipse.leshan.server.queue.PresenceServiceImpl;
+import org.eclipse.leshan.server.queue.RequestQueue;
 import org.eclipse.leshan.server.queue.StaticClientAwakeTimeProvider;
 import org.eclipse.leshan.server.registration.RandomStringRegistrationIdProvider;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationIdProvider;
+import org.eclipse.leshan.server.registration.RegistrationListener;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.eclipse.leshan.server.security.Authorizer;
+import org.eclipse.leshan.server.security.CachingSecurityStore;
 import org.eclipse.leshan.server.security.DefaultAuthorizer;
 import org.eclipse.leshan.server.security.SecurityInfo;
 import org.eclipse.leshan.server.security.SecurityStore;
@@ -73,9 +82,14 @@ public class LeshanServerBuilder {
 
     private CaliforniumRegistrationStore registrationStore;
     private SecurityStore securityStore;
+    private CachingSecurityStore pskStoreCache;
     private LwM2mModelProvider modelProvider;
     private Authorizer authorizer;
     private ClientAwakeTimeProvider awakeTimeProvider;
+    private long presenceTickDuration = PresenceServiceImpl.DEFAULT_TICK_DURATION;
+    private int presenceWheelSize = PresenceServiceImpl.DEFAULT_WHEEL_SIZE;
+    private Executor presenceListenerExecutor;
+    private RequestQueue requestQueue;
     private RegistrationIdProvider registrationIdProvider;
 
     private InetSocketAddress localAddress;
@@ -91,6 +105,7 @@ public class LeshanServerBuilder {
 
     private NetworkConfig coapConfig;
     private DtlsConnectorConfig.Builder dtlsConfigBuilder;
+    private SessionCache dtlsSessionCache;
 
     private EndpointFactory endpointFactory;
 
@@ -186,6 +201,18 @@ public class LeshanServerBuilder {
         return this;
     }
 
+    /**
+     * <p>
+     * Set the cache used by DTLS handshakes to get the pre-shared keys, instead of looking up the {@link SecurityStore}
+     * on each handshake. The cache should wrap the store given to {@link #setSecurityStore(SecurityStore)}.
+     * </p>
+     * By default the security store is used directly.
+     */
+    public LeshanServerBuilder setPskStoreCache(CachingSecurityStore pskStoreCache) {
+        this.pskStoreCache = pskStoreCache;
+        return this;
+    }
+
     /**
      * <p>
      * Set your {@link Authorizer} implementation to define if a device if authorize to register to this server.
@@ -288,6 +315,21 @@ public class LeshanServerBuilder {
         return this;
     }
 
+    /**
+     * Set the Scandium/DTLS {@link SessionCache} used by the secured endpoint to resume sessions, in addition of the
+     * {@link #setDtlsConfig(DtlsConnectorConfig.Builder) DTLS configuration}.
+     * <p>
+     * Use a cache shared between the servers of a cluster (e.g. a Redis one) so a client can resume its session with an
+     * abbreviated handshake whatever the server it reaches. This cache is only used by the default
+     * {@link EndpointFactory}.
+     * <p>
+     * By default, only the sessions of the current connections can be resumed.
+     */
+    public LeshanServerBuilder setDtlsSessionCache(SessionCache sessionCache) {
+        this.dtlsSessionCache = sessionCache;
+        return this;
+    }
+
     /**
      * Advanced setter used to create custom CoAP endpoint.
      * <p>
@@ -335,6 +377,9 @@ public class LeshanServerBuilder {
      * By default a {@link StaticClientAwakeTimeProvider} will be used initialized with the
      * <code>MAX_TRANSMIT_WAIT</code> value available in CoAP {@link NetworkConfig} which should be by default 93s as
      * defined in <a href="https://tools.ietf.org/html/rfc7252#section-4.8.2">RFC7252</a>.
+     * <p>
+     * An {@link AdaptiveClientAwakeTimeProvider} can be used to learn the awake time of each client from its traffic.
+     * If the provider is also a {@link RegistrationListener}, it is added to the registration service.
      *
      * @param awakeTimeProvider the {@link ClientAwakeTimeProvider} to set.
      */
@@ -343,6 +388,44 @@ public class LeshanServerBuilder {
         return this;
     }
 
+    /**
+     * Sets the timing wheel used to put Queue Mode clients to sleep when their awake time expires.
+     * <p>
+     * By default the tick is {@value PresenceServiceImpl#DEFAULT_TICK_DURATION}ms and the wheel has
+     * {@value PresenceServiceImpl#DEFAULT_WHEEL_SIZE} buckets.
+     *
+     * @param tickDurationInMs the precision of the client awake timers in millisecond.
+     * @param wheelSize the number of buckets of the wheel, ideally close to the usual awake time divided by the tick
+     *        duration.
+     */
+    public LeshanServerBuilder setPresenceTimer(long tickDurationInMs, int wheelSize) {
+        this.presenceTickDuration = tickDurationInMs;
+        this.presenceWheelSize = wheelSize;
+        return this;
+    }
+
+    /**
+     * Sets the {@link Executor} used to notify {@link PresenceListener}s when Queue Mode clients go to sleep because
+     * their awake time expired. By default a single thread executor is used.
+     */
+    public LeshanServerBuilder setPresenceListenerExecutor(Executor executor) {
+        this.presenceListenerExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Sets the {@link RequestQueue} used to store asynchronous requests targeting sleeping Queue Mode clients.
+     * <p>
+     * Queued requests are sent as soon as the client wakes up. By default no queue is used and requests to sleeping
+     * clients are rejected with a {@link ClientSleepingException}.
+     *
+     * @param requestQueue the {@link RequestQueue} to set, e.g. an {@link InMemoryRequestQueue}.
+     */
+    public LeshanServerBuilder setRequestQueue(RequestQueue requestQueue) {
+        this.requestQueue = requestQueue;
+        return this;
+    }
+
     /**
      * Sets a new {@link RegistrationIdProvider} object different from the default one (Random string).
      *
@@ -392,7 +475,7 @@ public class LeshanServerBuilder {
         if (registrationIdProvider == null)
             registrationIdProvider = new RandomStringRegistrationIdProvider();
         if (endpointFactory == null) {
-            endpointFactory = new DefaultEndpointFactory();
+            endpointFactory = new DefaultEndpointFactory(dtlsSessionCache);
         }
 
         // handle dtlsConfig
@@ -408,6 +491,8 @@ public class LeshanServerBuilder {
             if (incompleteConfig.getPskStore() != null) {
                 LOG.warn(
                         "PskStore should be automatically set by Leshan. Using a custom implementation is not advised.");
+            } else if (pskStoreCache != null) {
+                dtlsConfigBuilder.setPskStore(new LwM2mPskStore(pskStoreCache, registrationStore));
             } else if (securityStore != null) {
                 dtlsConfigBuilder.setPskStore(new LwM2mPskStore(this.securityStore, registrationStore));
             }
@@ -514,8 +599,14 @@ public class LeshanServerBuilder {
                     "All CoAP enpoints are deactivated, at least one endpoint should be activated");
         }
 
+        PresenceServiceImpl presenceService = null;
+        if (!noQueueMode) {
+            presenceService = new PresenceServiceImpl(awakeTimeProvider, presenceTickDuration, presenceWheelSize,
+                    presenceListenerExecutor);
+        }
+
         return new LeshanServer(unsecuredEndpoint, securedEndpoint, registrationStore, securityStore, authorizer,
-                modelProvider, encoder, decoder, coapConfig, noQueueMode, awakeTimeProvider, registrationIdProvider);
+                modelProvider, encoder, decoder, coapConfig, presenceService, requestQueue, registrationIdProvider);
     }
 
     /**
@@ -19,6 +19,7 @@ import static org.eclipse.leshan.core.californium.ResponseCodeUtil.toCoapRespons
 
 import org.eclipse.californium.core.coap.CoAP.Type;
 import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.server.resources.CoapExchange;
 import org.eclipse.leshan.core.californium.LwM2mCoapResource;
 import org.eclipse.leshan.core.request.BootstrapRequest;
@@ -71,6 +72,12 @@ public class BootstrapResource extends LwM2mCoapResource {
         BootstrapResponse response = sendableResponse.getResponse();
         if (response.isSuccess()) {
             exchange.respond(toCoapResponseCode(response.getCode()));
+        } else if (response.getRetryAfter() != null) {
+            // RFC 7252 section 5.9.3.4: Max-Age indicates the number of seconds after which to retry
+            Response coapResponse = new Response(toCoapResponseCode(response.getCode()));
+            coapResponse.setPayload(response.getErrorMessage());
+            coapResponse.getOptions().setMaxAge(response.getRetryAfter());
+            exchange.respond(coapResponse);
         } else {
             exchange.respond(toCoapResponseCode(response.getCode()), response.getErrorMessage());
         }
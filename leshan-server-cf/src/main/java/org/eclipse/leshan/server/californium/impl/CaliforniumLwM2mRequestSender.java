@@ -17,23 +17,21 @@
 package org.eclipse.leshan.server.californium.impl;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.californium.core.coap.MessageObserver;
 import org.eclipse.californium.core.coap.MessageObserverAdapter;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.network.Endpoint;
-import org.eclipse.californium.elements.EndpointContext;
 import org.eclipse.leshan.core.californium.AsyncRequestObserver;
 import org.eclipse.leshan.core.californium.CoapAsyncRequestObserver;
 import org.eclipse.leshan.core.californium.CoapResponseCallback;
 import org.eclipse.leshan.core.californium.CoapSyncRequestObserver;
-import org.eclipse.leshan.core.californium.EndpointContextUtil;
 import org.eclipse.leshan.core.californium.SyncRequestObserver;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.codec.LwM2mNodeDecoder;
@@ -42,6 +40,7 @@ import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
 import org.eclipse.leshan.server.californium.CoapRequestSender;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.registration.Registration;
@@ -55,9 +54,15 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
     private final LwM2mModelProvider modelProvider;
     private final LwM2mNodeDecoder decoder;
     private final LwM2mNodeEncoder encoder;
-    // A map which contains all pending CoAP requests
+    // Index of the endpoints by address, to avoid to go through all the endpoints for each request
+    private final ConcurrentMap<InetSocketAddress, Endpoint> endpointsByAddress = new ConcurrentHashMap<>();
+    // Endpoint, destination context and root path of each registration with pending requests, to not compute them for
+    // each request. An entry is removed with the last pending request of its registration.
+    private final ConcurrentMap<String/* registrationId */, RegistrationContext> contexts = new ConcurrentHashMap<>();
+    // A map which contains all pending CoAP requests by registration
     // This is mainly used to cancel request and avoid retransmission on de-registration
-    private final ConcurrentNavigableMap<String/* registrationId#requestId */, Request /* pending coap Request */> pendingRequests = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String/* registrationId */, PendingRequests> pendingRequests =
+            new ConcurrentHashMap<>();
 
     /**
      * @param endpoints          the CoAP endpoints to use for sending requests
@@ -84,8 +89,8 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
         final LwM2mModel model = modelProvider.getObjectModel(destination);
 
         // Create the CoAP request from LwM2m request
-        CoapRequestBuilder coapRequestBuilder = new CoapRequestBuilder(destination.getIdentity(),
-                destination.getRootPath(), destination.getId(), destination.getEndpoint(), model, encoder);
+        RegistrationContext context = getContext(destination);
+        CoapRequestBuilder coapRequestBuilder = new CoapRequestBuilder(context, model, encoder);
         request.accept(coapRequestBuilder);
         final Request coapRequest = coapRequestBuilder.getRequest();
 
@@ -106,8 +111,7 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
         addPendingRequest(destination.getId(), coapRequest);
 
         // Send CoAP request asynchronously
-        Endpoint endpoint = getEndpointForClient(destination);
-        endpoint.sendRequest(coapRequest);
+        context.getEndpoint().sendRequest(coapRequest);
 
         // Wait for response, then return it
         return syncMessageObserver.waitForResponse();
@@ -116,12 +120,33 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
     @Override
     public <T extends LwM2mResponse> void send(final Registration destination, final DownlinkRequest<T> request,
                                                long timeout, ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+        sendAsyncRequest(destination, request, timeout, responseCallback, errorCallback);
+    }
+
+    @Override
+    public <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            long timeout) {
+        ResponseFuture<T> future = new ResponseFuture<>();
+        final Request coapRequest = sendAsyncRequest(destination, request, timeout, future, future);
+        // Propagate cancellation to stop retransmissions, the future is completed when the CoAP request is canceled
+        future.setCancellationAction(new Runnable() {
+            @Override
+            public void run() {
+                coapRequest.cancel();
+            }
+        });
+        return future;
+    }
+
+    private <T extends LwM2mResponse> Request sendAsyncRequest(final Registration destination,
+            final DownlinkRequest<T> request, long timeout, ResponseCallback<T> responseCallback,
+            ErrorCallback errorCallback) {
         // Retrieve the objects definition
         final LwM2mModel model = modelProvider.getObjectModel(destination);
 
         // Create the CoAP request from LwM2m request
-        CoapRequestBuilder coapRequestBuilder = new CoapRequestBuilder(destination.getIdentity(),
-                destination.getRootPath(), destination.getId(), destination.getEndpoint(), model, encoder);
+        RegistrationContext context = getContext(destination);
+        CoapRequestBuilder coapRequestBuilder = new CoapRequestBuilder(context, model, encoder);
         request.accept(coapRequestBuilder);
         final Request coapRequest = coapRequestBuilder.getRequest();
 
@@ -142,8 +167,8 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
         addPendingRequest(destination.getId(), coapRequest);
 
         // Send CoAP request asynchronously
-        Endpoint endpoint = getEndpointForClient(destination);
-        endpoint.sendRequest(coapRequest);
+        context.getEndpoint().sendRequest(coapRequest);
+        return coapRequest;
     }
 
     @Override
@@ -151,8 +176,8 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
             throws InterruptedException {
 
         // Define destination
-        EndpointContext context = EndpointContextUtil.extractContext(destination.getIdentity());
-        coapRequest.setDestinationContext(context);
+        RegistrationContext context = getContext(destination);
+        coapRequest.setDestinationContext(context.getDestinationContext());
 
         // Send CoAP request synchronously
         CoapSyncRequestObserver syncMessageObserver = new CoapSyncRequestObserver(coapRequest, timeout);
@@ -162,8 +187,7 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
         addPendingRequest(destination.getId(), coapRequest);
 
         // Send CoAP request asynchronously
-        Endpoint endpoint = getEndpointForClient(destination);
-        endpoint.sendRequest(coapRequest);
+        context.getEndpoint().sendRequest(coapRequest);
 
         // Wait for response, then return it
         return syncMessageObserver.waitForCoapResponse();
@@ -174,8 +198,8 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
                                 CoapResponseCallback responseCallback, ErrorCallback errorCallback) {
 
         // Define destination
-        EndpointContext context = EndpointContextUtil.extractContext(destination.getIdentity());
-        coapRequest.setDestinationContext(context);
+        RegistrationContext context = getContext(destination);
+        coapRequest.setDestinationContext(context.getDestinationContext());
 
         // Add CoAP request callback
         MessageObserver obs = new CoapAsyncRequestObserver(coapRequest, responseCallback, errorCallback, timeout);
@@ -185,74 +209,107 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
         addPendingRequest(destination.getId(), coapRequest);
 
         // Send CoAP request asynchronously
-        Endpoint endpoint = getEndpointForClient(destination);
-        endpoint.sendRequest(coapRequest);
+        context.getEndpoint().sendRequest(coapRequest);
     }
 
     @Override
     public void cancelPendingRequests(Registration registration) {
         Validate.notNull(registration);
-        String registrationId = registration.getId();
-        SortedMap<String, Request> requests = pendingRequests.subMap(getFloorKey(registrationId),
-                getCeilingKey(registrationId));
-        for (Request coapRequest : requests.values()) {
-            coapRequest.cancel();
+        contexts.remove(registration.getId());
+        PendingRequests requests = pendingRequests.remove(registration.getId());
+        if (requests != null) {
+            for (Request coapRequest : requests.close()) {
+                coapRequest.cancel();
+            }
         }
-        requests.clear();
-    }
-
-    private static String getFloorKey(String registrationId) {
-        // The key format is regid#long, So we need a key which is always before this pattern (in natural order).
-        return registrationId + '#';
-    }
-
-    private static String getCeilingKey(String registrationId) {
-        // The key format is regid#long, So we need a key which is always after this pattern (in natural order).
-        return registrationId + "#A";
-    }
-
-    private static String getKey(String registrationId, long requestId) {
-        return registrationId + '#' + requestId;
     }
 
     private void addPendingRequest(String registrationId, Request coapRequest) {
         Validate.notNull(registrationId);
         // Theoretically we should add observer only for CONFIRMABLE request but with transparent block-wise mode, an
         // UNCONFIRMABLE request could be change in several block-wised requests.
-        CleanerMessageObserver observer = new CleanerMessageObserver(registrationId, coapRequest);
-        coapRequest.addMessageObserver(observer);
-        pendingRequests.put(observer.getRequestKey(), coapRequest);
+        coapRequest.addMessageObserver(new CleanerMessageObserver(registrationId, coapRequest));
+        while (true) {
+            PendingRequests requests = pendingRequests.get(registrationId);
+            if (requests == null) {
+                requests = new PendingRequests();
+                PendingRequests previous = pendingRequests.putIfAbsent(registrationId, requests);
+                if (previous != null) {
+                    requests = previous;
+                }
+            }
+            if (requests.add(coapRequest)) {
+                return;
+            }
+            // this list was closed concurrently, retry with a new one
+        }
     }
 
-    private void removePendingRequest(String key, Request coapRequest) {
-        Validate.notNull(key);
-        pendingRequests.remove(key, coapRequest);
+    private void removePendingRequest(String registrationId, Request coapRequest) {
+        PendingRequests requests = pendingRequests.get(registrationId);
+        if (requests != null && requests.remove(coapRequest)) {
+            // no more pending request for this registration
+            pendingRequests.remove(registrationId, requests);
+            contexts.remove(registrationId);
+        }
     }
 
-    private AtomicLong idGenerator = new AtomicLong(0l);
+    /**
+     * The pending requests of a registration. Once closed (because empty or cancelled), no request can be added.
+     */
+    private static class PendingRequests {
+        private final List<Request> requests = new ArrayList<>(2);
+        private boolean closed = false;
+
+        synchronized boolean add(Request coapRequest) {
+            if (closed)
+                return false;
+            requests.add(coapRequest);
+            return true;
+        }
+
+        /**
+         * @return true if the list is empty and so closed after this removal.
+         */
+        synchronized boolean remove(Request coapRequest) {
+            if (closed)
+                return false;
+            for (int i = 0; i < requests.size(); i++) {
+                if (requests.get(i) == coapRequest) {
+                    requests.remove(i);
+                    break;
+                }
+            }
+            closed = requests.isEmpty();
+            return closed;
+        }
+
+        synchronized List<Request> close() {
+            closed = true;
+            List<Request> result = new ArrayList<>(requests);
+            requests.clear();
+            return result;
+        }
+    }
 
     private class CleanerMessageObserver extends MessageObserverAdapter {
 
-        private final String requestKey;
+        private final String registrationId;
         private final Request coapRequest;
 
         public CleanerMessageObserver(String registrationId, Request coapRequest) {
             super();
-            requestKey = getKey(registrationId, idGenerator.incrementAndGet());
+            this.registrationId = registrationId;
             this.coapRequest = coapRequest;
         }
 
-        public String getRequestKey() {
-            return requestKey;
-        }
-
         @Override
         public void onRetransmission() {
         }
 
         @Override
         public void onResponse(Response response) {
-            removePendingRequest(requestKey, coapRequest);
+            removePendingRequest(registrationId, coapRequest);
         }
 
         @Override
@@ -265,13 +322,23 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
 
         @Override
         protected void failed() {
-            removePendingRequest(requestKey, coapRequest);
+            removePendingRequest(registrationId, coapRequest);
         }
 
         @Override
         public void onCancel() {
-            removePendingRequest(requestKey, coapRequest);
+            removePendingRequest(registrationId, coapRequest);
+        }
+    }
+
+    private RegistrationContext getContext(Registration registration) {
+        RegistrationContext context = contexts.get(registration.getId());
+        if (context == null || !context.isValidFor(registration)) {
+            // first request or the registration was updated
+            context = new RegistrationContext(registration, getEndpointForClient(registration));
+            contexts.put(registration.getId(), context);
         }
+        return context;
     }
 
     /**
@@ -283,13 +350,21 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
      * endpoints is returned
      */
     private Endpoint getEndpointForClient(Registration registration) {
+        InetSocketAddress registrationEndpointAddress = registration.getRegistrationEndpointAddress();
+        Endpoint endpoint = endpointsByAddress.get(registrationEndpointAddress);
+        if (endpoint != null) {
+            return endpoint;
+        }
+
+        // endpoint addresses are only known once endpoints are started, so index them lazily
         for (Endpoint ep : endpoints) {
             InetSocketAddress endpointAddress = ep.getAddress();
-            if (endpointAddress.equals(registration.getRegistrationEndpointAddress())) {
+            if (endpointAddress.equals(registrationEndpointAddress)) {
+                endpointsByAddress.put(registrationEndpointAddress, ep);
                 return ep;
             }
         }
         throw new IllegalStateException(
-                "can't find the client endpoint for address : " + registration.getRegistrationEndpointAddress());
+                "can't find the client endpoint for address : " + registrationEndpointAddress);
     }
 }
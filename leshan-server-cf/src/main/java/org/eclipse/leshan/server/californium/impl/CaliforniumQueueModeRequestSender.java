@@ -24,6 +24,7 @@ import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.server.californium.CoapRequestSender;
 import org.eclipse.leshan.server.queue.PresenceServiceImpl;
 import org.eclipse.leshan.server.queue.QueueModeLwM2mRequestSender;
+import org.eclipse.leshan.server.queue.RequestQueue;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.request.LwM2mRequestSender;
 
@@ -33,6 +34,11 @@ public class CaliforniumQueueModeRequestSender extends QueueModeLwM2mRequestSend
         super(presenceService, delegatedSender);
     }
 
+    public CaliforniumQueueModeRequestSender(PresenceServiceImpl presenceService, LwM2mRequestSender delegatedSender,
+            RequestQueue requestQueue) {
+        super(presenceService, delegatedSender, requestQueue);
+    }
+
     @Override
     public Response sendCoapRequest(Registration destination, Request coapRequest, long timeout)
             throws InterruptedException {
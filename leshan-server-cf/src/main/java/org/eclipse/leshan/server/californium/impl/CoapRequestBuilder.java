@@ -20,8 +20,6 @@ package org.eclipse.leshan.server.californium.impl;
 
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
 import org.eclipse.californium.core.coap.Request;
-import org.eclipse.californium.elements.EndpointContext;
-import org.eclipse.leshan.core.californium.EndpointContextUtil;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mObjectInstance;
 import org.eclipse.leshan.core.node.LwM2mPath;
@@ -42,36 +40,31 @@ import org.eclipse.leshan.core.request.ReadRequest;
 import org.eclipse.leshan.core.request.WriteAttributesRequest;
 import org.eclipse.leshan.core.request.WriteRequest;
 import org.eclipse.leshan.server.californium.ObserveUtil;
-import org.eclipse.leshan.util.StringUtils;
 
 public class CoapRequestBuilder implements DownlinkRequestVisitor {
 
     private Request coapRequest;
 
     // client information
-    private final Identity destination;
-    private final String rootPath;
-    private final String registrationId;
-    private final String endpoint;
+    private final RegistrationContext context;
 
     private final LwM2mModel model;
     private final LwM2mNodeEncoder encoder;
 
     public CoapRequestBuilder(Identity destination, LwM2mModel model, LwM2mNodeEncoder encoder) {
-        this.destination = destination;
-        this.rootPath = null;
-        this.registrationId = null;
-        this.endpoint = null;
-        this.model = model;
-        this.encoder = encoder;
+        this(new RegistrationContext(destination, null, null, null, null, null), model, encoder);
     }
 
     public CoapRequestBuilder(Identity destination, String rootPath, String registrationId, String endpoint,
                               LwM2mModel model, LwM2mNodeEncoder encoder) {
-        this.destination = destination;
-        this.rootPath = rootPath;
-        this.endpoint = endpoint;
-        this.registrationId = registrationId;
+        this(new RegistrationContext(destination, rootPath, registrationId, endpoint, null, null), model, encoder);
+    }
+
+    /**
+     * @param context the client information, it could be cached and shared by all the requests sent to a client.
+     */
+    public CoapRequestBuilder(RegistrationContext context, LwM2mModel model, LwM2mNodeEncoder encoder) {
+        this.context = context;
         this.model = model;
         this.encoder = encoder;
     }
@@ -142,7 +135,8 @@ public class CoapRequestBuilder implements DownlinkRequestVisitor {
         setTarget(coapRequest, request.getPath());
 
         // add context info to the observe request
-        coapRequest.setUserContext(ObserveUtil.createCoapObserveRequestContext(endpoint, registrationId, request));
+        coapRequest.setUserContext(ObserveUtil.createCoapObserveRequestContext(context.getEndpointName(),
+                context.getRegistrationId(), request));
     }
 
     @Override
@@ -169,8 +163,7 @@ public class CoapRequestBuilder implements DownlinkRequestVisitor {
     public void visit(BootstrapDeleteRequest request) {
         coapRequest = Request.newDelete();
         coapRequest.setConfirmable(true);
-        EndpointContext context = EndpointContextUtil.extractContext(destination);
-        coapRequest.setDestinationContext(context);
+        coapRequest.setDestinationContext(context.getDestinationContext());
         setTarget(coapRequest, request.getPath());
     }
 
@@ -178,32 +171,22 @@ public class CoapRequestBuilder implements DownlinkRequestVisitor {
     public void visit(BootstrapFinishRequest request) {
         coapRequest = Request.newPost();
         coapRequest.setConfirmable(true);
-        EndpointContext context = EndpointContextUtil.extractContext(destination);
-        coapRequest.setDestinationContext(context);
+        coapRequest.setDestinationContext(context.getDestinationContext());
 
         // root path
-        if (rootPath != null) {
-            for (String rootPathPart : rootPath.split("/")) {
-                if (!StringUtils.isEmpty(rootPathPart)) {
-                    coapRequest.getOptions().addUriPath(rootPathPart);
-                }
-            }
+        for (String rootPathPart : context.getRootPathSegments()) {
+            coapRequest.getOptions().addUriPath(rootPathPart);
         }
 
         coapRequest.getOptions().addUriPath("bs");
     }
 
     private final void setTarget(Request coapRequest, LwM2mPath path) {
-        EndpointContext context = EndpointContextUtil.extractContext(destination);
-        coapRequest.setDestinationContext(context);
+        coapRequest.setDestinationContext(context.getDestinationContext());
 
         // root path
-        if (rootPath != null) {
-            for (String rootPathPart : rootPath.split("/")) {
-                if (!StringUtils.isEmpty(rootPathPart)) {
-                    coapRequest.getOptions().addUriPath(rootPathPart);
-                }
-            }
+        for (String rootPathPart : context.getRootPathSegments()) {
+            coapRequest.getOptions().addUriPath(rootPathPart);
         }
 
         // objectId
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.californium.scandium.dtls.DTLSSession;
+import org.eclipse.californium.scandium.dtls.SessionCache;
+import org.eclipse.californium.scandium.dtls.SessionId;
+import org.eclipse.californium.scandium.dtls.SessionTicket;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A DTLS {@link SessionCache} keeping the tickets of the resumable sessions in memory.
+ * <p>
+ * The DTLS connector only keeps the sessions of its current connections. With this cache, a client can resume its
+ * session (abbreviated handshake) even after its connection was evicted or the server connection state was cleared.
+ * <p>
+ * The cache is bounded: once full, the least recently used tickets are removed. Tickets also expire after a given
+ * time, to limit how long a session can be resumed without a full handshake.
+ */
+public class InMemorySessionCache implements SessionCache {
+
+    /** Default maximum number of cached session tickets. */
+    public static final int DEFAULT_CAPACITY = 150000;
+    /** Default time in milliseconds during which a session can be resumed. */
+    public static final long DEFAULT_TTL = 86400000; // 24h
+
+    private final long ttl;
+    // guarded by this
+    private final Map<SessionId, CachedTicket> tickets;
+
+    public InMemorySessionCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL);
+    }
+
+    /**
+     * @param capacity the maximum number of cached session tickets.
+     * @param ttl time in milliseconds during which a session can be resumed.
+     */
+    public InMemorySessionCache(final int capacity, long ttl) {
+        Validate.isTrue(capacity > 0, "capacity must be greater than 0");
+        Validate.isTrue(ttl > 0, "TTL must be greater than 0");
+        this.ttl = ttl;
+        this.tickets = new LinkedHashMap<SessionId, CachedTicket>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SessionId, CachedTicket> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public void put(DTLSSession session) {
+        SessionId id = session.getSessionIdentifier();
+        if (id != null && id.getBytes().length > 0) {
+            put(id, session.getSessionTicket());
+        }
+    }
+
+    /**
+     * Cache the ticket of a session, e.g. a ticket read from a cache shared with other servers.
+     */
+    public void put(SessionId id, SessionTicket ticket) {
+        put(id, ticket, System.currentTimeMillis() + ttl);
+    }
+
+    /**
+     * Cache the ticket of a session until the given expiration time.
+     */
+    public synchronized void put(SessionId id, SessionTicket ticket, long expiration) {
+        tickets.put(id, new CachedTicket(ticket, expiration));
+    }
+
+    @Override
+    public synchronized SessionTicket get(SessionId id) {
+        CachedTicket cached = tickets.get(id);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.expiration <= System.currentTimeMillis()) {
+            tickets.remove(id);
+            return null;
+        }
+        return cached.ticket;
+    }
+
+    @Override
+    public synchronized void remove(SessionId id) {
+        tickets.remove(id);
+    }
+
+    /**
+     * @return the number of cached session tickets, including the expired ones not yet removed.
+     */
+    public synchronized int size() {
+        return tickets.size();
+    }
+
+    private static class CachedTicket {
+        private final SessionTicket ticket;
+        private final long expiration;
+
+        private CachedTicket(SessionTicket ticket, long expiration) {
+            this.ticket = ticket;
+            this.expiration = expiration;
+        }
+    }
+}
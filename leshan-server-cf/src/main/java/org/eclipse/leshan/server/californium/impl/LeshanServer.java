@@ -42,6 +42,7 @@ import org.eclipse.leshan.core.request.exception.TimeoutException;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
 import org.eclipse.leshan.server.Destroyable;
 import org.eclipse.leshan.server.LwM2mServer;
 import org.eclipse.leshan.server.Startable;
@@ -56,6 +57,8 @@ import org.eclipse.leshan.server.queue.ClientAwakeTimeProvider;
 import org.eclipse.leshan.server.queue.PresenceService;
 import org.eclipse.leshan.server.queue.PresenceServiceImpl;
 import org.eclipse.leshan.server.queue.PresenceStateListener;
+import org.eclipse.leshan.server.queue.RequestQueue;
+import org.eclipse.leshan.server.queue.RequestQueueMetrics;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationHandler;
 import org.eclipse.leshan.server.registration.RegistrationIdProvider;
@@ -109,6 +112,8 @@ public class LeshanServer implements LwM2mServer {
 
     private final PresenceServiceImpl presenceService;
 
+    private final RequestQueueMetrics requestQueueMetrics;
+
     private final CaliforniumRegistrationStore registrationStore;
 
     private final CoapAPI coapApi;
@@ -125,15 +130,17 @@ public class LeshanServer implements LwM2mServer {
      * @param decoder                decoder used to decode response payload.
      * @param encoder                encode used to encode request payload.
      * @param coapConfig             the CoAP {@link NetworkConfig}.
-     * @param noQueueMode            true to disable presenceService.
-     * @param awakeTimeProvider      to set the client awake time if queue mode is used.
+     * @param presenceService        the service tracking the presence of queue mode clients, could be
+     *                               <code>null</code> to disable queue mode support.
+     * @param requestQueue           the queue used to store requests targeting sleeping clients, could be
+     *                               <code>null</code> if requests to sleeping clients should be rejected.
      * @param registrationIdProvider to provide registrationId using for location-path option values on response of
      *                               Register operation.
      */
     public LeshanServer(CoapEndpoint unsecuredEndpoint, CoapEndpoint securedEndpoint,
                         CaliforniumRegistrationStore registrationStore, SecurityStore securityStore, Authorizer authorizer,
                         LwM2mModelProvider modelProvider, LwM2mNodeEncoder encoder, LwM2mNodeDecoder decoder,
-                        NetworkConfig coapConfig, boolean noQueueMode, ClientAwakeTimeProvider awakeTimeProvider,
+                        NetworkConfig coapConfig, PresenceServiceImpl presenceService, RequestQueue requestQueue,
                         RegistrationIdProvider registrationIdProvider) {
 
         Validate.notNull(registrationStore, "registration store cannot be null");
@@ -169,6 +176,10 @@ public class LeshanServer implements LwM2mServer {
                                    Collection<Observation> previousObsersations) {
             }
         });
+        if (modelProvider instanceof RegistrationListener) {
+            // e.g. to forget the models of unregistered clients
+            registrationService.addListener((RegistrationListener) modelProvider);
+        }
 
         // define a set of endpoints
         Set<Endpoint> endpoints = new HashSet<>();
@@ -204,16 +215,27 @@ public class LeshanServer implements LwM2mServer {
 
         // create sender
         // notify applications of LWM2M client coming online/offline
-        if (noQueueMode) {
+        this.presenceService = presenceService;
+        if (presenceService == null) {
             // if no queue mode, create a "simple" sender
             requestSender = new CaliforniumLwM2mRequestSender(endpoints, observationService, modelProvider, encoder,
                     decoder);
-            presenceService = null;
+            requestQueueMetrics = null;
         } else {
-            presenceService = new PresenceServiceImpl(awakeTimeProvider);
-            registrationService.addListener(new PresenceStateListener(presenceService));
-            requestSender = new CaliforniumQueueModeRequestSender(presenceService,
-                    new CaliforniumLwM2mRequestSender(endpoints, observationService, modelProvider, encoder, decoder));
+            ClientAwakeTimeProvider awakeTimeProvider = presenceService.getClientAwakeTimeProvider();
+            PresenceStateListener presenceStateListener = new PresenceStateListener(presenceService);
+            registrationService.addListener(presenceStateListener);
+            // notifications are sent by the client on its own, like updates
+            observationService.addListener(presenceStateListener);
+            if (awakeTimeProvider instanceof RegistrationListener) {
+                // e.g. to forget unregistered clients
+                registrationService.addListener((RegistrationListener) awakeTimeProvider);
+            }
+            CaliforniumQueueModeRequestSender queueModeSender = new CaliforniumQueueModeRequestSender(presenceService,
+                    new CaliforniumLwM2mRequestSender(endpoints, observationService, modelProvider, encoder, decoder),
+                    requestQueue);
+            requestQueueMetrics = queueModeSender.getRequestQueueMetrics();
+            requestSender = queueModeSender;
         }
 
         coapApi = new CoapAPI();
@@ -229,6 +251,9 @@ public class LeshanServer implements LwM2mServer {
         if (securityStore instanceof Startable) {
             ((Startable) securityStore).start();
         }
+        if (modelProvider instanceof Startable) {
+            ((Startable) modelProvider).start();
+        }
 
         // Start server
         coapServer.start();
@@ -252,6 +277,9 @@ public class LeshanServer implements LwM2mServer {
         if (securityStore instanceof Stoppable) {
             ((Stoppable) securityStore).stop();
         }
+        if (modelProvider instanceof Stoppable) {
+            ((Stoppable) modelProvider).stop();
+        }
 
         LOG.info("LWM2M server stopped.");
     }
@@ -274,6 +302,17 @@ public class LeshanServer implements LwM2mServer {
             ((Stoppable) securityStore).stop();
         }
 
+        if (modelProvider instanceof Destroyable) {
+            ((Destroyable) modelProvider).destroy();
+        } else if (modelProvider instanceof Stoppable) {
+            ((Stoppable) modelProvider).stop();
+        }
+
+        // Destroy presence service
+        if (presenceService != null) {
+            presenceService.destroy();
+        }
+
         LOG.info("LWM2M server destroyed.");
     }
 
@@ -292,6 +331,14 @@ public class LeshanServer implements LwM2mServer {
         return this.presenceService;
     }
 
+    /**
+     * @return the metrics of the queue of requests waiting for sleeping clients or <code>null</code> if no request
+     *         queue is used.
+     */
+    public RequestQueueMetrics getRequestQueueMetrics() {
+        return this.requestQueueMetrics;
+    }
+
     @Override
     public SecurityStore getSecurityStore() {
         return this.securityStore;
@@ -326,6 +373,12 @@ public class LeshanServer implements LwM2mServer {
         requestSender.send(destination, request, timeout, responseCallback, errorCallback);
     }
 
+    @Override
+    public <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            long timeout) {
+        return requestSender.sendAsync(destination, request, timeout);
+    }
+
     public InetSocketAddress getUnsecuredAddress() {
         if (unsecuredEndpoint != null) {
             return unsecuredEndpoint.getAddress();
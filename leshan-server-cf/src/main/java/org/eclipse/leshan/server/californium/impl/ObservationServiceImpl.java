@@ -33,17 +33,16 @@ import org.eclipse.californium.core.observe.NotificationListener;
 import org.eclipse.californium.core.observe.ObservationStore;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mPath;
-import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
-import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.node.codec.LwM2mNodeDecoder;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.request.exception.InvalidResponseException;
-import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.core.response.LazyObserveResponse;
 import org.eclipse.leshan.server.californium.CaliforniumRegistrationStore;
 import org.eclipse.leshan.server.californium.ObserveUtil;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.observation.ObservationListener;
+import org.eclipse.leshan.server.observation.PassThroughObservationListener;
 import org.eclipse.leshan.server.observation.ObservationService;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.util.Hex;
@@ -168,7 +167,7 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
             return Collections.emptySet();
 
         Set<Observation> result = new HashSet<>();
-        LwM2mPath lwPath = new LwM2mPath(resourcePath);
+        LwM2mPath lwPath = LwM2mPath.valueOf(resourcePath);
         for (Observation obs : getObservations(registrationId)) {
             if (lwPath.equals(obs.getPath())) {
                 result.add(obs);
@@ -222,38 +221,63 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
             return;
         }
 
+        boolean passThroughNotified = false;
         try {
             // get model for this registration
             LwM2mModel model = modelProvider.getObjectModel(registration);
 
-            // create response
-            ObserveResponse response = createObserveResponse(observation, model, coapResponse);
+            // create response, payload is decoded on demand
+            LazyObserveResponse response = createObserveResponse(observation, model, coapResponse);
 
-            // notify all listeners
+            // notify listeners which don't need decoded content first
+            boolean decodingNeeded = false;
             for (ObservationListener listener : listeners) {
-                listener.onResponse(observation, registration, response);
+                if (listener instanceof PassThroughObservationListener) {
+                    listener.onResponse(observation, registration, response);
+                } else {
+                    decodingNeeded = true;
+                }
+            }
+            passThroughNotified = true;
+
+            if (decodingNeeded) {
+                decode(response, observation, coapResponse);
+
+                // notify all other listeners
+                for (ObservationListener listener : listeners) {
+                    if (!(listener instanceof PassThroughObservationListener)) {
+                        listener.onResponse(observation, registration, response);
+                    }
+                }
             }
         } catch (InvalidResponseException e) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(String.format("Invalid notification for observation [%s]", observation), e);
             }
 
-            for (ObservationListener listener : listeners) {
-                listener.onError(observation, registration, e);
-            }
+            notifyError(observation, registration, e, passThroughNotified);
         } catch (RuntimeException e) {
             if (LOG.isErrorEnabled()) {
                 LOG.error(String.format("Unable to handle notification for observation [%s]", observation), e);
             }
 
-            for (ObservationListener listener : listeners) {
+            notifyError(observation, registration, e, passThroughNotified);
+        }
+
+    }
+
+    private void notifyError(Observation observation, Registration registration, Exception e,
+            boolean passThroughNotified) {
+        for (ObservationListener listener : listeners) {
+            // pass-through listeners already received this notification
+            if (!passThroughNotified || !(listener instanceof PassThroughObservationListener)) {
                 listener.onError(observation, registration, e);
             }
         }
-
     }
 
-    private ObserveResponse createObserveResponse(Observation observation, LwM2mModel model, Response coapResponse) {
+    private LazyObserveResponse createObserveResponse(Observation observation, LwM2mModel model,
+            Response coapResponse) {
         // CHANGED response is supported for backward compatibility with old spec.
         if (coapResponse.getCode() != CoAP.ResponseCode.CHANGED
                 && coapResponse.getCode() != CoAP.ResponseCode.CONTENT) {
@@ -267,27 +291,20 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
             contentFormat = ContentFormat.fromCode(coapResponse.getOptions().getContentFormat());
         }
 
-        // decode response
+        return new LazyObserveResponse(toLwM2mResponseCode(coapResponse.getCode()), coapResponse.getPayload(),
+                contentFormat, observation, model, decoder, coapResponse);
+    }
+
+    private void decode(LazyObserveResponse response, Observation observation, Response coapResponse) {
         try {
-            List<TimestampedLwM2mNode> timestampedNodes = decoder.decodeTimestampedData(coapResponse.getPayload(),
-                    contentFormat, observation.getPath(), model);
-
-            // create lwm2m response
-            if (timestampedNodes.size() == 1 && !timestampedNodes.get(0).isTimestamped()) {
-                return new ObserveResponse(toLwM2mResponseCode(coapResponse.getCode()),
-                        timestampedNodes.get(0).getNode(), null, observation, null, coapResponse);
-            } else {
-                return new ObserveResponse(toLwM2mResponseCode(coapResponse.getCode()), null, timestampedNodes,
-                        observation, null, coapResponse);
-            }
-        } catch (CodecException e) {
+            response.decode();
+        } catch (InvalidResponseException e) {
             if (LOG.isDebugEnabled()) {
                 byte[] payload = coapResponse.getPayload() == null ? new byte[0] : coapResponse.getPayload();
                 LOG.debug(String.format("Unable to decode notification payload [%s] of observation [%s] ",
                         Hex.encodeHexString(payload), observation), e);
             }
-            throw new InvalidResponseException(e, "Unable to decode notification payload  of observation [%s] ",
-                    observation);
+            throw e;
         }
     }
 }
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.impl;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.elements.EndpointContext;
+import org.eclipse.leshan.core.californium.EndpointContextUtil;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.util.StringUtils;
+
+/**
+ * What is needed to send a CoAP request to a registered client, computed once per registration instead of once per
+ * request: the CoAP endpoint to use, the destination {@link EndpointContext} and the segments of the root path.
+ * <p>
+ * This class is immutable, a new context must be created when the registration changes (see
+ * {@link #isValidFor(Registration)}).
+ */
+public class RegistrationContext {
+
+    private static final String[] NO_SEGMENT = new String[0];
+
+    private final String registrationId;
+    private final String endpointName;
+    private final Identity identity;
+    private final String rootPath;
+    private final InetSocketAddress registrationEndpointAddress;
+
+    private final Endpoint endpoint;
+    private final EndpointContext destinationContext;
+    private final String[] rootPathSegments;
+
+    /**
+     * @param identity the identity of the client.
+     * @param rootPath the root path of the LWM2M objects on the client, could be <code>null</code>.
+     * @param registrationId the registration id, could be <code>null</code> for bootstrap requests.
+     * @param endpointName the endpoint name of the client, could be <code>null</code> for bootstrap requests.
+     * @param registrationEndpointAddress the server address used by the client to register, could be
+     *        <code>null</code>.
+     * @param endpoint the CoAP endpoint used to send requests, could be <code>null</code> if it is chosen later.
+     */
+    public RegistrationContext(Identity identity, String rootPath, String registrationId, String endpointName,
+            InetSocketAddress registrationEndpointAddress, Endpoint endpoint) {
+        this.registrationId = registrationId;
+        this.endpointName = endpointName;
+        this.identity = identity;
+        this.rootPath = rootPath;
+        this.registrationEndpointAddress = registrationEndpointAddress;
+        this.endpoint = endpoint;
+        this.destinationContext = EndpointContextUtil.extractContext(identity);
+        this.rootPathSegments = toSegments(rootPath);
+    }
+
+    public RegistrationContext(Registration registration, Endpoint endpoint) {
+        this(registration.getIdentity(), registration.getRootPath(), registration.getId(), registration.getEndpoint(),
+                registration.getRegistrationEndpointAddress(), endpoint);
+    }
+
+    private static String[] toSegments(String rootPath) {
+        if (rootPath == null) {
+            return NO_SEGMENT;
+        }
+        List<String> segments = new ArrayList<>();
+        for (String rootPathPart : rootPath.split("/")) {
+            if (!StringUtils.isEmpty(rootPathPart)) {
+                segments.add(rootPathPart);
+            }
+        }
+        return segments.toArray(new String[segments.size()]);
+    }
+
+    /**
+     * @return true if this context was computed from a registration with the same id, identity, root path and
+     *         registration address than the given one.
+     */
+    public boolean isValidFor(Registration registration) {
+        return equals(registrationId, registration.getId()) && identity.equals(registration.getIdentity())
+                && equals(rootPath, registration.getRootPath())
+                && equals(registrationEndpointAddress, registration.getRegistrationEndpointAddress());
+    }
+
+    private static boolean equals(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    public String getRegistrationId() {
+        return registrationId;
+    }
+
+    public String getEndpointName() {
+        return endpointName;
+    }
+
+    public Identity getIdentity() {
+        return identity;
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return the destination context to set on CoAP requests. {@link EndpointContext} are immutable so the same
+     *         instance can be shared by all requests.
+     */
+    public EndpointContext getDestinationContext() {
+        return destinationContext;
+    }
+
+    /**
+     * @return the non empty segments of the root path, the array must not be modified.
+     */
+    String[] getRootPathSegments() {
+        return rootPathSegments;
+    }
+}
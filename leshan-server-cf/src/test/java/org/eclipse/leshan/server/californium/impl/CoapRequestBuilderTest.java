@@ -118,6 +118,38 @@ public class CoapRequestBuilderTest {
         assertEquals("coap://127.0.0.1:12354/lwm2m/3/0/1", coapRequest.getURI());
     }
 
+    @Test
+    public void build_requests_with_shared_registration_context() throws Exception {
+        Registration reg = newRegistration("/lwm2m/sub");
+        RegistrationContext context = new RegistrationContext(reg, null);
+
+        // test
+        CoapRequestBuilder builder = new CoapRequestBuilder(context, model, encoder);
+        builder.visit(new ReadRequest(3, 0, 1));
+        Request first = builder.getRequest();
+        builder = new CoapRequestBuilder(context, model, encoder);
+        builder.visit(new ReadRequest(4, 0));
+        Request second = builder.getRequest();
+
+        // verify
+        assertEquals("coap://127.0.0.1:12354/lwm2m/sub/3/0/1", first.getURI());
+        assertEquals("coap://127.0.0.1:12354/lwm2m/sub/4/0", second.getURI());
+        assertSame(first.getDestinationContext(), second.getDestinationContext());
+    }
+
+    @Test
+    public void registration_context_is_invalid_after_registration_change() throws Exception {
+        Registration reg = newRegistration("/lwm2m");
+        RegistrationContext context = new RegistrationContext(reg, null);
+
+        assertTrue(context.isValidFor(reg));
+        assertTrue(context.isValidFor(newRegistration("/lwm2m")));
+        assertFalse(context.isValidFor(newRegistration("/other")));
+        assertFalse(context.isValidFor(new Registration.Builder(reg.getId(), reg.getEndpoint(),
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 12355), reg.getRegistrationEndpointAddress())
+                        .objectLinks(reg.getObjectLinks()).build()));
+    }
+
     @Test
     public void build_read_request_with_root_path() throws Exception {
         Registration reg = newRegistration("/");
@@ -17,6 +17,7 @@ package org.eclipse.leshan.server.cluster;
 
 import java.io.File;
 import java.net.URI;
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
@@ -31,10 +32,12 @@ import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
 import org.eclipse.leshan.server.californium.LeshanServerBuilder;
 import org.eclipse.leshan.server.californium.impl.LeshanServer;
+import org.eclipse.leshan.server.model.DirectoryModelProvider;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.StaticModelProvider;
 import org.eclipse.leshan.server.redis.RedisRegistrationStore;
 import org.eclipse.leshan.server.redis.RedisSecurityStore;
+import org.eclipse.leshan.server.redis.RedisSessionCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,6 +80,8 @@ public class LeshanClusterServer {
         options.addOption("m", "modelsfolder", true, "A folder which contains object models in OMA DDF(.xml) format.");
         options.addOption("r", "redis", true,
                 "Sets the location of the Redis database. The URL is in the format of: 'redis://:password@hostname:port/db_number'\n\nDefault: 'redis://localhost:6379'.");
+        options.addOption("rn", "rawnotifications", false,
+                "Forward notifications with their raw payload instead of decoding them.");
         HelpFormatter formatter = new HelpFormatter();
         formatter.setOptionComparator(null);
 
@@ -138,14 +143,15 @@ public class LeshanClusterServer {
 
         try {
             createAndStartServer(clusterInstanceId, localAddress, localPort, secureLocalAddress, secureLocalPort,
-                    modelsFolderPath, redisUrl);
+                    modelsFolderPath, redisUrl, cl.hasOption("rn"));
         } catch (Exception e) {
             LOG.error("Jetty stopped with unexpected error ...", e);
         }
     }
 
     public static void createAndStartServer(String clusterInstanceId, String localAddress, int localPort,
-                                            String secureLocalAddress, int secureLocalPort, String modelsFolderPath, String redisUrl) throws Exception {
+                                            String secureLocalAddress, int secureLocalPort, String modelsFolderPath,
+                                            String redisUrl, boolean rawNotifications) throws Exception {
         // Create Redis connector.
         // TODO: support sentinel pool and make pool configurable
         Pool<Jedis> jedis = new JedisPool(new URI(redisUrl));
@@ -159,10 +165,18 @@ public class LeshanClusterServer {
         builder.setCoapConfig(NetworkConfig.getStandard());
 
         List<ObjectModel> models = ObjectLoader.loadDefault();
+        LwM2mModelProvider modelProvider;
         if (modelsFolderPath != null) {
-            models.addAll(ObjectLoader.loadObjectsFromDir(new File(modelsFolderPath)));
+            // models of the folder are reloaded when it changes, so adding a model does not need a restart
+            modelProvider = new DirectoryModelProvider(new File(modelsFolderPath), models) {
+                @Override
+                protected LwM2mModelProvider createModelProvider(Collection<ObjectModel> models) {
+                    return new StaticModelProvider(models);
+                }
+            };
+        } else {
+            modelProvider = new StaticModelProvider(models);
         }
-        LwM2mModelProvider modelProvider = new StaticModelProvider(models);
         builder.setObjectModelProvider(modelProvider);
 
         RedisRegistrationStore registrationStore = new RedisRegistrationStore(jedis);
@@ -170,6 +184,8 @@ public class LeshanClusterServer {
 
         // TODO add support of public and private server key
         builder.setSecurityStore(new RedisSecurityStore(jedis));
+        // DTLS sessions can be resumed on any instance of the cluster
+        builder.setDtlsSessionCache(new RedisSessionCache(jedis));
 
         // Create and start LWM2M server
         LeshanServer lwServer = builder.build();
@@ -177,7 +193,7 @@ public class LeshanClusterServer {
         // Create Clustering support
         RedisTokenHandler tokenHandler = new RedisTokenHandler(jedis, clusterInstanceId);
         new RedisRequestResponseHandler(jedis, lwServer, lwServer.getRegistrationService(), tokenHandler,
-                lwServer.getObservationService());
+                lwServer.getObservationService(), rawNotifications);
         lwServer.getRegistrationService().addListener(tokenHandler);
         lwServer.getRegistrationService().addListener(new RedisRegistrationEventPublisher(jedis));
 
@@ -26,16 +26,17 @@ import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LazyObserveResponse;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.ObserveResponse;
 import org.eclipse.leshan.core.response.ResponseCallback;
 import org.eclipse.leshan.server.LwM2mServer;
-import org.eclipse.leshan.server.cluster.serialization.DownlinkRequestSerDes;
 import org.eclipse.leshan.server.cluster.serialization.ResponseSerDes;
-import org.eclipse.leshan.server.observation.ObservationListener;
+import org.eclipse.leshan.server.observation.PassThroughObservationListener;
 import org.eclipse.leshan.server.observation.ObservationService;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationService;
+import org.eclipse.leshan.server.redis.serialization.DownlinkRequestSerDes;
 import org.eclipse.leshan.util.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,23 +67,36 @@ public class RedisRequestResponseHandler {
     private final RedisTokenHandler tokenHandler;
     private final ObservationService observationService;
     private final Map<KeyId, String> observatioIdToTicket = new ConcurrentHashMap<>();
+    private final boolean rawNotifications;
 
     public RedisRequestResponseHandler(Pool<Jedis> p, LwM2mServer server, RegistrationService registrationService,
                                        RedisTokenHandler tokenHandler, ObservationService observationService) {
+        this(p, server, registrationService, tokenHandler, observationService, false);
+    }
+
+    /**
+     * @param rawNotifications if <code>true</code>, notifications are forwarded with their raw payload and content
+     *        format (see {@link ResponseSerDes#jSerializeRawNotification(LazyObserveResponse)}) instead of being
+     *        decoded, for consumers which decode them or only store them.
+     */
+    public RedisRequestResponseHandler(Pool<Jedis> p, LwM2mServer server, RegistrationService registrationService,
+                                       RedisTokenHandler tokenHandler, ObservationService observationService,
+                                       boolean rawNotifications) {
         // Listen LWM2M response
         this.server = server;
+        this.rawNotifications = rawNotifications;
         this.registrationService = registrationService;
         this.observationService = observationService;
         this.tokenHandler = tokenHandler;
         this.executorService = Executors.newCachedThreadPool(
                 new NamedThreadFactory(String.format("Redis %s channel writer", RESPONSE_CHANNEL)));
 
-        // Listen LWM2M notification from client
-        this.observationService.addListener(new ObservationListener() {
+        // Listen LWM2M notification from client, payload is decoded by the writer thread
+        this.observationService.addListener(new PassThroughObservationListener() {
 
             @Override
             public void onResponse(Observation observation, Registration registration, ObserveResponse response) {
-                handleNotification(observation, response.getContent());
+                handleNotification(observation, response);
             }
 
             @Override
@@ -147,13 +161,18 @@ public class RedisRequestResponseHandler {
         });
     }
 
-    private void handleNotification(final Observation observation, final LwM2mNode value) {
+    private void handleNotification(final Observation observation, final ObserveResponse response) {
         executorService.submit(new Runnable() {
             @Override
             public void run() {
                 String ticket = observatioIdToTicket.get(new KeyId(observation.getId()));
                 try {
-                    sendNotification(ticket, value);
+                    // the format only depends on the configuration, even if an other listener decoded the payload
+                    if (rawNotifications && response instanceof LazyObserveResponse) {
+                        sendRawNotification(ticket, (LazyObserveResponse) response);
+                    } else {
+                        sendNotification(ticket, response.getContent());
+                    }
                 } catch (RuntimeException t) {
                     LOG.error("Unable to send Notification.", t);
                     sendError(ticket,
@@ -274,6 +293,15 @@ public class RedisRequestResponseHandler {
         }
     }
 
+    private void sendRawNotification(String ticket, LazyObserveResponse response) {
+        try (Jedis j = pool.getResource()) {
+            JsonObject m = Json.object();
+            m.add("ticket", ticket);
+            m.add("rep", ResponseSerDes.jSerializeRawNotification(response));
+            j.publish(RESPONSE_CHANNEL, m.toString());
+        }
+    }
+
     private void sendResponse(String ticket, LwM2mResponse response) {
         if (response instanceof ObserveResponse) {
             Observation observation = ((ObserveResponse) response).getObservation();
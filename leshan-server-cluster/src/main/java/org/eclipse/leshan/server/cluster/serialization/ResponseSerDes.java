@@ -15,18 +15,29 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.cluster.serialization;
 
+import java.util.List;
+
 import org.eclipse.leshan.Link;
 import org.eclipse.leshan.ResponseCode;
+import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mNodeDecoder;
+import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.response.CreateResponse;
 import org.eclipse.leshan.core.response.DeleteResponse;
 import org.eclipse.leshan.core.response.DiscoverResponse;
 import org.eclipse.leshan.core.response.ExecuteResponse;
+import org.eclipse.leshan.core.response.LazyObserveResponse;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.ObserveResponse;
 import org.eclipse.leshan.core.response.ReadResponse;
 import org.eclipse.leshan.core.response.WriteAttributesResponse;
 import org.eclipse.leshan.core.response.WriteResponse;
+import org.eclipse.leshan.server.redis.serialization.LwM2mNodeSerDes;
+import org.eclipse.leshan.util.Base64;
 
 import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonObject;
@@ -70,6 +81,54 @@ public class ResponseSerDes {
         return o;
     }
 
+    /**
+     * Serialize a notification without decoding it: the JSON object contains the raw <code>payload</code> encoded in
+     * Base64 and the <code>contentFormat</code> code instead of the <code>content</code> node.
+     *
+     * @see #deserializeRawNotification(JsonObject, LwM2mPath, LwM2mModel, LwM2mNodeDecoder)
+     */
+    public static JsonObject jSerializeRawNotification(LazyObserveResponse r) {
+        final JsonObject o = Json.object();
+        o.add("code", r.getCode().toString());
+        o.add("kind", "observe");
+        o.add("payload", Base64.encodeBase64String(r.getPayload() == null ? new byte[0] : r.getPayload()));
+        if (r.getContentFormat() != null) {
+            o.add("contentFormat", r.getContentFormat().getCode());
+        }
+        return o;
+    }
+
+    /**
+     * @return <code>true</code> if the given response was serialized by
+     *         {@link #jSerializeRawNotification(LazyObserveResponse)}.
+     */
+    public static boolean isRawNotification(JsonObject o) {
+        return o.get("payload") != null;
+    }
+
+    /**
+     * Deserialize and decode a notification serialized by {@link #jSerializeRawNotification(LazyObserveResponse)}.
+     *
+     * @param path the observed path
+     * @throws CodecException if the payload is malformed
+     */
+    public static ObserveResponse deserializeRawNotification(JsonObject o, LwM2mPath path, LwM2mModel model,
+            LwM2mNodeDecoder decoder) throws CodecException {
+        String sCode = o.getString("code", null);
+        String payload = o.getString("payload", null);
+        if (sCode == null || payload == null)
+            throw new IllegalStateException("Invalid raw notification missing code or payload attribute");
+        int format = o.getInt("contentFormat", -1);
+
+        List<TimestampedLwM2mNode> nodes = decoder.decodeTimestampedData(Base64.decodeBase64(payload),
+                format == -1 ? null : ContentFormat.fromCode(format), path, model);
+        if (nodes.size() == 1 && !nodes.get(0).isTimestamped()) {
+            return new ObserveResponse(ResponseCode.fromName(sCode), nodes.get(0).getNode(), null, null, null);
+        }
+        return new ObserveResponse(ResponseCode.fromName(sCode), nodes.isEmpty() ? null : nodes.get(0).getNode(),
+                nodes, null, null);
+    }
+
     public static String sSerialize(LwM2mResponse r) {
         return jSerialize(r).toString();
     }
@@ -89,6 +148,9 @@ public class ResponseSerDes {
         String kind = o.getString("kind", null);
         switch (kind) {
             case "observe": {
+                if (isRawNotification(o))
+                    throw new IllegalStateException(
+                            "Raw notifications must be decoded, see deserializeRawNotification");
                 // TODO ser Observation
                 LwM2mNode content = LwM2mNodeSerDes.deserialize((JsonObject) o.get("content"));
                 return new ObserveResponse(code, content, null, null, errorMessage);
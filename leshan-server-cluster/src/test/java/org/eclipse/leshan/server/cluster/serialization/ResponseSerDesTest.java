@@ -15,14 +15,27 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.cluster.serialization;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
 
 import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.leshan.Link;
+import org.eclipse.leshan.ResponseCode;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.response.DiscoverResponse;
+import org.eclipse.leshan.core.response.LazyObserveResponse;
 import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
 import org.junit.Test;
 
 import com.eclipsesource.json.JsonObject;
@@ -44,4 +57,23 @@ public class ResponseSerDesTest {
 
         assertEquals(dr.toString(), dr2.toString());
     }
+
+    @Test
+    public void ser_and_des_raw_notification() throws Exception {
+        LwM2mModel model = new StaticModel(ObjectLoader.loadDefault());
+        LwM2mPath path = new LwM2mPath(3, 0, 1);
+        LazyObserveResponse notification = new LazyObserveResponse(ResponseCode.CONTENT,
+                "Leshan".getBytes(StandardCharsets.UTF_8), ContentFormat.TEXT,
+                new Observation(new byte[] { 1 }, "regId", path, ContentFormat.TEXT, null), model,
+                new DefaultLwM2mNodeDecoder(), null);
+
+        JsonObject obj = ResponseSerDes.jSerializeRawNotification(notification);
+        assertFalse(notification.isDecoded());
+        assertTrue(ResponseSerDes.isRawNotification(obj));
+
+        ObserveResponse response = ResponseSerDes.deserializeRawNotification(obj, path, model,
+                new DefaultLwM2mNodeDecoder());
+        assertEquals(ResponseCode.CONTENT, response.getCode());
+        assertEquals("Leshan", ((LwM2mSingleResource) response.getContent()).getValue());
+    }
 }
@@ -25,6 +25,7 @@ import org.eclipse.leshan.core.request.exception.TimeoutException;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.observation.ObservationService;
 import org.eclipse.leshan.server.queue.PresenceListener;
@@ -144,6 +145,22 @@ public interface LwM2mServer {
                                         ResponseCallback<T> responseCallback, ErrorCallback errorCallback)
             throws CodecException, ClientSleepingException;
 
+    /**
+     * Sends a Lightweight M2M request asynchronously, without callback. The returned future can be used to get the
+     * response, to add callbacks or to cancel the request.
+     *
+     * @param destination the remote client
+     * @param request     the request to send to the client
+     * @param timeout     the request timeout in millisecond
+     * @return the future response, completed with the response or with an error as described in
+     *         {@link #send(Registration, DownlinkRequest, long, ResponseCallback, ErrorCallback)}.
+     * @throws CodecException          if request payload can not be encoded.
+     * @throws ClientSleepingException if the client is sleeping and then the request cannot be sent. This exception
+     *                                 will never be raised if Queue Mode support is deactivate.
+     */
+    <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            long timeout) throws CodecException, ClientSleepingException;
+
     /**
      * Get the registration service to access to registered clients. You can use this object for listening client
      * registration lifecycle.
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.LwM2mRequest;
+import org.eclipse.leshan.core.response.BootstrapResponse;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.SendableResponse;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * Limits the load of a bootstrap server when a lot of devices request a bootstrap at the same time (e.g. when a batch
+ * of devices is powered on for the first time).
+ * <p>
+ * Bootstrap requests are admitted at a maximum rate (token bucket). Once admitted, a session starts if less than the
+ * maximum number of concurrent sessions are running, otherwise it is queued: the client gets a successful response
+ * and the server starts to write its configuration when a running session ends.
+ * <p>
+ * Requests above the rate, or which would wait too long in the queue, are rejected with a
+ * {@link BootstrapResponse#serviceUnavailable(String, long) 5.03 Service Unavailable} response indicating when the
+ * client should retry.
+ * <p>
+ * Use {@link #wrap(BootstrapHandlerFactory)} to apply admission control to the handlers created by a factory.
+ */
+public class BootstrapAdmissionController {
+
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
+    public static final long DEFAULT_MAX_QUEUE_WAIT = 60000; // 1min in ms
+    // used to estimate the waiting time before the first session completes
+    private static final long DEFAULT_COMPLETION_TIME = 10000; // 10s in ms
+
+    private final int maxConcurrentSessions;
+    private final double sessionsPerSecond;
+    private final int burst;
+    private final int maxQueueSize;
+    private final long maxQueueWait;
+
+    // guarded by this
+    private int activeSessions;
+    private int reservedQueueSlots;
+    private final Deque<QueuedSession> queue = new ArrayDeque<>();
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    // admitted sessions with their start time in nanoseconds, 0 if they are queued
+    private final Map<BootstrapSession, Long> admittedSessions = new ConcurrentHashMap<>();
+    // the session begun by the bootstrap request handled by the current thread
+    private final ThreadLocal<BootstrapSession> begunSession = new ThreadLocal<>();
+
+    private final BootstrapAdmissionMetrics metrics = new BootstrapAdmissionMetrics(this);
+
+    /**
+     * Create a controller without rate limit.
+     *
+     * @param maxConcurrentSessions the maximum number of sessions running at the same time.
+     */
+    public BootstrapAdmissionController(int maxConcurrentSessions) {
+        this(maxConcurrentSessions, 0, 0, DEFAULT_MAX_QUEUE_SIZE, DEFAULT_MAX_QUEUE_WAIT);
+    }
+
+    /**
+     * @param maxConcurrentSessions the maximum number of sessions running at the same time.
+     * @param sessionsPerSecond the maximum rate of admitted bootstrap requests, 0 for no rate limit.
+     * @param burst the number of bootstrap requests which can be admitted at once above the rate.
+     * @param maxQueueSize the maximum number of sessions waiting to start, 0 to reject requests instead of queuing
+     *        them.
+     * @param maxQueueWait the maximum estimated waiting time in milliseconds of a queued session.
+     */
+    public BootstrapAdmissionController(int maxConcurrentSessions, double sessionsPerSecond, int burst,
+            int maxQueueSize, long maxQueueWait) {
+        Validate.isTrue(maxConcurrentSessions > 0, "maxConcurrentSessions must be greater than 0");
+        Validate.isTrue(sessionsPerSecond >= 0, "sessionsPerSecond must be positive");
+        Validate.isTrue(sessionsPerSecond == 0 || burst > 0, "burst must be greater than 0");
+        Validate.isTrue(maxQueueSize >= 0, "maxQueueSize must be positive");
+        this.maxConcurrentSessions = maxConcurrentSessions;
+        this.sessionsPerSecond = sessionsPerSecond;
+        this.burst = burst;
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueWait = maxQueueWait;
+        this.tokens = burst;
+    }
+
+    /**
+     * @return a factory creating the handlers of the given factory with admission control.
+     */
+    public BootstrapHandlerFactory wrap(final BootstrapHandlerFactory factory) {
+        return new BootstrapHandlerFactory() {
+            @Override
+            public BootstrapHandler create(BootstrapConfigStore store, LwM2mBootstrapRequestSender sender,
+                    BootstrapSessionManager sessionManager) {
+                return new AdmissionHandler(factory.create(store, sender, new AdmissionSessionManager(sessionManager)));
+            }
+        };
+    }
+
+    public BootstrapAdmissionMetrics getMetrics() {
+        return metrics;
+    }
+
+    synchronized int getActiveSessions() {
+        return activeSessions;
+    }
+
+    synchronized int getQueueSize() {
+        return queue.size() + reservedQueueSlots;
+    }
+
+    private enum Admission {
+        START, QUEUE
+    }
+
+    private SendableResponse<BootstrapResponse> bootstrap(BootstrapHandler delegate, Identity sender,
+            BootstrapRequest request) {
+        final Admission admission;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long tokenWait = acquireToken(now);
+            if (tokenWait > 0) {
+                metrics.sessionRejected();
+                return reject("too many bootstrap requests", TimeUnit.NANOSECONDS.toMillis(tokenWait));
+            }
+
+            if (activeSessions < maxConcurrentSessions) {
+                activeSessions++;
+                admission = Admission.START;
+            } else {
+                int position = queue.size() + reservedQueueSlots + 1;
+                long estimatedWait = estimateWait(position);
+                if (position > maxQueueSize || estimatedWait > maxQueueWait) {
+                    metrics.sessionRejected();
+                    return reject("too many bootstrap sessions", estimatedWait);
+                }
+                reservedQueueSlots++;
+                admission = Admission.QUEUE;
+            }
+        }
+
+        final SendableResponse<BootstrapResponse> response;
+        final BootstrapSession session;
+        try {
+            response = delegate.bootstrap(sender, request);
+            session = begunSession.get();
+        } catch (RuntimeException e) {
+            release(admission);
+            throw e;
+        } finally {
+            begunSession.remove();
+        }
+
+        if (!response.getResponse().isSuccess() || session == null) {
+            // the session did not start
+            release(admission);
+            return response;
+        }
+
+        admittedSessions.put(session, 0L);
+        return new SendableResponse<>(response.getResponse(), new Runnable() {
+            @Override
+            public void run() {
+                if (admission == Admission.START) {
+                    start(session, response, System.nanoTime());
+                } else {
+                    enqueue(new QueuedSession(session, response, System.nanoTime()));
+                }
+            }
+        });
+    }
+
+    // must be called with the lock
+    private long acquireToken(long now) {
+        if (sessionsPerSecond == 0) {
+            return 0;
+        }
+        tokens = Math.min(burst, tokens + (now - lastRefill) * sessionsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) ((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / sessionsPerSecond);
+    }
+
+    // must be called with the lock
+    private long estimateWait(int queuePosition) {
+        long completionTime = metrics.getAverageCompletionTime();
+        if (completionTime == 0) {
+            completionTime = DEFAULT_COMPLETION_TIME;
+        }
+        return completionTime * ((queuePosition + maxConcurrentSessions - 1) / maxConcurrentSessions);
+    }
+
+    private static SendableResponse<BootstrapResponse> reject(String message, long retryAfterInMs) {
+        long retryAfter = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfterInMs + 999));
+        return new SendableResponse<>(BootstrapResponse.serviceUnavailable(message, retryAfter));
+    }
+
+    private void release(Admission admission) {
+        QueuedSession next;
+        synchronized (this) {
+            if (admission == Admission.QUEUE) {
+                reservedQueueSlots--;
+                return;
+            }
+            next = queue.poll();
+            if (next == null) {
+                activeSessions--;
+                return;
+            }
+        }
+        // the slot is given to the next queued session
+        long now = System.nanoTime();
+        metrics.sessionDequeued(TimeUnit.NANOSECONDS.toMillis(now - next.queuedTime));
+        start(next.session, next.response, now);
+    }
+
+    private void enqueue(QueuedSession queuedSession) {
+        synchronized (this) {
+            reservedQueueSlots--;
+            if (activeSessions >= maxConcurrentSessions) {
+                queue.add(queuedSession);
+                metrics.sessionQueued();
+                return;
+            }
+            // a session ended meanwhile
+            activeSessions++;
+        }
+        start(queuedSession.session, queuedSession.response, queuedSession.queuedTime);
+    }
+
+    private void start(BootstrapSession session, SendableResponse<BootstrapResponse> response, long startTime) {
+        admittedSessions.put(session, startTime);
+        metrics.sessionStarted();
+        response.sent();
+    }
+
+    private void sessionEnded(BootstrapSession session) {
+        Long startTime = admittedSessions.remove(session);
+        if (startTime == null) {
+            // not admitted by this controller (e.g. rejected by the bootstrap handler)
+            return;
+        }
+        if (startTime != 0) {
+            metrics.sessionCompleted(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
+        release(Admission.START);
+    }
+
+    private static class QueuedSession {
+        private final BootstrapSession session;
+        private final SendableResponse<BootstrapResponse> response;
+        private final long queuedTime;
+
+        private QueuedSession(BootstrapSession session, SendableResponse<BootstrapResponse> response, long queuedTime) {
+            this.session = session;
+            this.response = response;
+            this.queuedTime = queuedTime;
+        }
+    }
+
+    private class AdmissionHandler implements BootstrapHandler {
+        private final BootstrapHandler delegate;
+
+        private AdmissionHandler(BootstrapHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public SendableResponse<BootstrapResponse> bootstrap(Identity sender, BootstrapRequest request) {
+            return BootstrapAdmissionController.this.bootstrap(delegate, sender, request);
+        }
+    }
+
+    /**
+     * A {@link BootstrapSessionManager} releasing the admission of the sessions when they end.
+     */
+    private class AdmissionSessionManager implements BootstrapSessionManager {
+        private final BootstrapSessionManager delegate;
+
+        private AdmissionSessionManager(BootstrapSessionManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public BootstrapSession begin(String endpoint, Identity clientIdentity) {
+            BootstrapSession session = delegate.begin(endpoint, clientIdentity);
+            begunSession.set(session);
+            return session;
+        }
+
+        @Override
+        public void onResponseSuccess(BootstrapSession bsSession, LwM2mRequest<? extends LwM2mResponse> request) {
+            delegate.onResponseSuccess(bsSession, request);
+        }
+
+        @Override
+        public BootstrapPolicy onResponseError(BootstrapSession bsSession,
+                LwM2mRequest<? extends LwM2mResponse> request, LwM2mResponse response) {
+            return delegate.onResponseError(bsSession, request, response);
+        }
+
+        @Override
+        public BootstrapPolicy onRequestFailure(BootstrapSession bsSession,
+                LwM2mRequest<? extends LwM2mResponse> request, Throwable cause) {
+            return delegate.onRequestFailure(bsSession, request, cause);
+        }
+
+        @Override
+        public void end(BootstrapSession bsSession) {
+            try {
+                delegate.end(bsSession);
+            } finally {
+                sessionEnded(bsSession);
+            }
+        }
+
+        @Override
+        public void failed(BootstrapSession bsSession, BootstrapFailureCause cause) {
+            try {
+                delegate.failed(bsSession, cause);
+            } finally {
+                sessionEnded(bsSession);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics about the bootstrap sessions admitted, queued or rejected by a {@link BootstrapAdmissionController}.
+ * <p>
+ * The queue wait is the time spent by a session in the queue, from the moment the bootstrap response is sent to the
+ * moment the server starts to write the configuration. The completion time is the duration of a session, from this
+ * moment to the end of the session.
+ */
+public class BootstrapAdmissionMetrics {
+
+    private final BootstrapAdmissionController controller;
+
+    private final AtomicLong startedSessions = new AtomicLong();
+    private final AtomicLong queuedSessions = new AtomicLong();
+    private final AtomicLong rejectedSessions = new AtomicLong();
+    private final AtomicLong dequeuedSessions = new AtomicLong();
+    private final AtomicLong totalQueueWait = new AtomicLong();
+    private final AtomicLong maxQueueWait = new AtomicLong();
+    private final AtomicLong completedSessions = new AtomicLong();
+    private final AtomicLong totalCompletionTime = new AtomicLong();
+
+    public BootstrapAdmissionMetrics(BootstrapAdmissionController controller) {
+        this.controller = controller;
+    }
+
+    void sessionStarted() {
+        startedSessions.incrementAndGet();
+    }
+
+    void sessionQueued() {
+        queuedSessions.incrementAndGet();
+    }
+
+    void sessionRejected() {
+        rejectedSessions.incrementAndGet();
+    }
+
+    void sessionDequeued(long wait) {
+        dequeuedSessions.incrementAndGet();
+        totalQueueWait.addAndGet(wait);
+        long max = maxQueueWait.get();
+        while (wait > max && !maxQueueWait.compareAndSet(max, wait)) {
+            max = maxQueueWait.get();
+        }
+    }
+
+    void sessionCompleted(long completionTime) {
+        completedSessions.incrementAndGet();
+        totalCompletionTime.addAndGet(completionTime);
+    }
+
+    /**
+     * @return the number of bootstrap sessions currently running.
+     */
+    public int getActiveSessions() {
+        return controller.getActiveSessions();
+    }
+
+    /**
+     * @return the number of bootstrap sessions currently waiting to start.
+     */
+    public int getQueueSize() {
+        return controller.getQueueSize();
+    }
+
+    /**
+     * @return the number of bootstrap sessions started since the server started.
+     */
+    public long getStartedSessions() {
+        return startedSessions.get();
+    }
+
+    /**
+     * @return the number of bootstrap sessions which had to wait before starting.
+     */
+    public long getQueuedSessions() {
+        return queuedSessions.get();
+    }
+
+    /**
+     * @return the number of bootstrap requests rejected with a 5.03 Service Unavailable response.
+     */
+    public long getRejectedSessions() {
+        return rejectedSessions.get();
+    }
+
+    /**
+     * @return the number of bootstrap sessions which ended (successfully or not) after starting.
+     */
+    public long getCompletedSessions() {
+        return completedSessions.get();
+    }
+
+    /**
+     * @return the average time in millisecond spent by the sessions in the queue.
+     */
+    public long getAverageQueueWait() {
+        long dequeued = dequeuedSessions.get();
+        return dequeued == 0 ? 0 : totalQueueWait.get() / dequeued;
+    }
+
+    /**
+     * @return the maximum time in millisecond spent by a session in the queue.
+     */
+    public long getMaxQueueWait() {
+        return maxQueueWait.get();
+    }
+
+    /**
+     * @return the average duration in millisecond of the completed sessions.
+     */
+    public long getAverageCompletionTime() {
+        long completed = completedSessions.get();
+        return completed == 0 ? 0 : totalCompletionTime.get() / completed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "BootstrapAdmissionMetrics [active=%s, queueSize=%s, started=%s, queued=%s, rejected=%s, completed=%s, "
+                        + "avgQueueWait=%sms, maxQueueWait=%sms, avgCompletionTime=%sms]",
+                getActiveSessions(), getQueueSize(), getStartedSessions(), getQueuedSessions(), getRejectedSessions(),
+                getCompletedSessions(), getAverageQueueWait(), getMaxQueueWait(), getAverageCompletionTime());
+    }
+}
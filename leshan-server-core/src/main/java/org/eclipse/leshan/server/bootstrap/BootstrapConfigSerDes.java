@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ACLConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+
+/**
+ * Functions for serializing and deserializing a {@link BootstrapConfig} in a compact binary format.
+ * <p>
+ * This is much faster than Java serialization, which matters when loading a large number of configurations.
+ */
+public class BootstrapConfigSerDes {
+
+    private BootstrapConfigSerDes() {
+    }
+
+    public static byte[] serialize(BootstrapConfig config) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            serialize(config, new DataOutputStream(bytes));
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize bootstrap config", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data is not a valid bootstrap config.
+     */
+    public static BootstrapConfig deserialize(byte[] data) {
+        try {
+            return deserialize(new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid bootstrap config content", e);
+        }
+    }
+
+    public static void serialize(BootstrapConfig config, DataOutput out) throws IOException {
+        if (config.toDelete == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(config.toDelete.size());
+            for (String path : config.toDelete) {
+                writeString(out, path);
+            }
+        }
+
+        writeSize(out, config.servers);
+        if (config.servers != null) {
+            for (Map.Entry<Integer, ServerConfig> e : config.servers.entrySet()) {
+                out.writeInt(e.getKey());
+                ServerConfig server = e.getValue();
+                out.writeInt(server.shortId);
+                out.writeInt(server.lifetime);
+                writeInteger(out, server.defaultMinPeriod);
+                writeInteger(out, server.defaultMaxPeriod);
+                writeInteger(out, server.disableTimeout);
+                out.writeBoolean(server.notifIfDisabled);
+                writeString(out, server.binding == null ? null : server.binding.name());
+            }
+        }
+
+        writeSize(out, config.security);
+        if (config.security != null) {
+            for (Map.Entry<Integer, ServerSecurity> e : config.security.entrySet()) {
+                out.writeInt(e.getKey());
+                ServerSecurity security = e.getValue();
+                writeString(out, security.uri);
+                out.writeBoolean(security.bootstrapServer);
+                writeString(out, security.securityMode == null ? null : security.securityMode.name());
+                writeBytes(out, security.publicKeyOrId);
+                writeBytes(out, security.serverPublicKey);
+                writeBytes(out, security.secretKey);
+                writeString(out, security.smsSecurityMode == null ? null : security.smsSecurityMode.name());
+                writeBytes(out, security.smsBindingKeyParam);
+                writeBytes(out, security.smsBindingKeySecret);
+                writeString(out, security.serverSmsNumber);
+                writeInteger(out, security.serverId);
+                writeInteger(out, security.clientOldOffTime);
+                writeInteger(out, security.bootstrapServerAccountTimeout);
+            }
+        }
+
+        writeSize(out, config.acls);
+        if (config.acls != null) {
+            for (Map.Entry<Integer, ACLConfig> e : config.acls.entrySet()) {
+                out.writeInt(e.getKey());
+                ACLConfig acl = e.getValue();
+                out.writeInt(acl.objectId);
+                out.writeInt(acl.objectInstanceId);
+                writeSize(out, acl.acls);
+                if (acl.acls != null) {
+                    for (Map.Entry<Integer, Long> access : acl.acls.entrySet()) {
+                        out.writeInt(access.getKey());
+                        out.writeLong(access.getValue());
+                    }
+                }
+                writeInteger(out, acl.AccessControlOwner);
+            }
+        }
+    }
+
+    public static BootstrapConfig deserialize(DataInput in) throws IOException {
+        BootstrapConfig config = new BootstrapConfig();
+
+        int size = in.readInt();
+        if (size < 0) {
+            config.toDelete = null;
+        } else {
+            List<String> toDelete = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                toDelete.add(readString(in));
+            }
+            config.toDelete = toDelete;
+        }
+
+        size = in.readInt();
+        config.servers = size < 0 ? null : new HashMap<Integer, ServerConfig>(capacity(size));
+        for (int i = 0; i < size; i++) {
+            int instanceId = in.readInt();
+            ServerConfig server = new ServerConfig();
+            server.shortId = in.readInt();
+            server.lifetime = in.readInt();
+            server.defaultMinPeriod = readInteger(in);
+            server.defaultMaxPeriod = readInteger(in);
+            server.disableTimeout = readInteger(in);
+            server.notifIfDisabled = in.readBoolean();
+            String binding = readString(in);
+            server.binding = binding == null ? null : BindingMode.valueOf(binding);
+            config.servers.put(instanceId, server);
+        }
+
+        size = in.readInt();
+        config.security = size < 0 ? null : new HashMap<Integer, ServerSecurity>(capacity(size));
+        for (int i = 0; i < size; i++) {
+            int instanceId = in.readInt();
+            ServerSecurity security = new ServerSecurity();
+            security.uri = readString(in);
+            security.bootstrapServer = in.readBoolean();
+            String securityMode = readString(in);
+            security.securityMode = securityMode == null ? null : SecurityMode.valueOf(securityMode);
+            security.publicKeyOrId = readBytes(in);
+            security.serverPublicKey = readBytes(in);
+            security.secretKey = readBytes(in);
+            String smsSecurityMode = readString(in);
+            security.smsSecurityMode = smsSecurityMode == null ? null : SmsSecurityMode.valueOf(smsSecurityMode);
+            security.smsBindingKeyParam = readBytes(in);
+            security.smsBindingKeySecret = readBytes(in);
+            security.serverSmsNumber = readString(in);
+            security.serverId = readInteger(in);
+            security.clientOldOffTime = readInteger(in);
+            security.bootstrapServerAccountTimeout = readInteger(in);
+            config.security.put(instanceId, security);
+        }
+
+        size = in.readInt();
+        config.acls = size < 0 ? null : new HashMap<Integer, ACLConfig>(capacity(size));
+        for (int i = 0; i < size; i++) {
+            int instanceId = in.readInt();
+            ACLConfig acl = new ACLConfig();
+            acl.objectId = in.readInt();
+            acl.objectInstanceId = in.readInt();
+            int accessSize = in.readInt();
+            if (accessSize >= 0) {
+                acl.acls = new HashMap<>(capacity(accessSize));
+                for (int j = 0; j < accessSize; j++) {
+                    acl.acls.put(in.readInt(), in.readLong());
+                }
+            }
+            acl.AccessControlOwner = readInteger(in);
+            config.acls.put(instanceId, acl);
+        }
+        return config;
+    }
+
+    private static int capacity(int size) {
+        return size * 4 / 3 + 1;
+    }
+
+    private static void writeSize(DataOutput out, Map<?, ?> map) throws IOException {
+        out.writeInt(map == null ? -1 : map.size());
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInteger(DataOutput out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeBytes(DataOutput out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+}
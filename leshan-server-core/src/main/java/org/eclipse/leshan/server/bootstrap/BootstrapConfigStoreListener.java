@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+/**
+ * Listen for changes of the {@link BootstrapConfig} of an {@link EditableBootstrapConfigStore}.
+ * <p>
+ * Listeners are called synchronously by the thread modifying the store, once the change is done. They should return
+ * quickly.
+ */
+public interface BootstrapConfigStoreListener {
+
+    /**
+     * Called when the bootstrap configuration of an end-point was added, replaced or removed.
+     *
+     * @param endpoint the client end-point.
+     * @param previous the configuration before the change or <code>null</code> if there was none.
+     * @param current the configuration after the change or <code>null</code> if it was removed.
+     */
+    void configChanged(String endpoint, BootstrapConfig previous, BootstrapConfig current);
+}
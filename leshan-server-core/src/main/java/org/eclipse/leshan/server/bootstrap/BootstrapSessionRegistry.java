@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+/**
+ * Keeps track of the bootstrap sessions in progress, so only one session at a time is running for an endpoint.
+ * <p>
+ * Bootstrap servers sharing the same registry also share this guarantee, even if the requests of a client are not
+ * always handled by the same server.
+ */
+public interface BootstrapSessionRegistry {
+
+    /**
+     * Registers a new session in progress. A session older than its lifetime is considered as expired and is replaced.
+     *
+     * @param session the new session.
+     * @param lifetime the maximum lifetime of the session in milliseconds.
+     * @return <code>true</code> if the session is registered, <code>false</code> if an other session is already in
+     *         progress for the same endpoint.
+     */
+    boolean add(BootstrapSession session, long lifetime);
+
+    /**
+     * Unregisters a session which is not in progress anymore.
+     *
+     * @param session the ended session.
+     * @return <code>false</code> if the session was already removed (e.g. replaced after expiration).
+     */
+    boolean remove(BootstrapSession session);
+}
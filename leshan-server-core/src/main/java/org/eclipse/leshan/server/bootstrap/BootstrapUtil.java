@@ -15,6 +15,9 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.bootstrap;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -25,6 +28,8 @@ import org.eclipse.leshan.core.node.LwM2mSingleResource;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ACLConfig;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.eclipse.leshan.util.SecurityUtil;
 
 public class BootstrapUtil {
     public static LwM2mObjectInstance convertToSecurityInstance(int instanceId, ServerSecurity securityConfig) {
@@ -89,4 +94,35 @@ public class BootstrapUtil {
 
         return new LwM2mObjectInstance(instanceId, resources);
     }
+
+    /**
+     * Create the security info of a client for a Security object instance.
+     *
+     * @param endpoint the endpoint name of the client.
+     * @param securityConfig the Security object instance.
+     * @return the security info or <code>null</code> if the security mode does not use credentials.
+     * @throws IllegalArgumentException if the public key of the client can not be decoded.
+     */
+    public static SecurityInfo toSecurityInfo(String endpoint, ServerSecurity securityConfig) {
+        if (securityConfig.securityMode == null) {
+            return null;
+        }
+        switch (securityConfig.securityMode) {
+        case PSK:
+            return SecurityInfo.newPreSharedKeyInfo(endpoint,
+                    new String(securityConfig.publicKeyOrId, StandardCharsets.UTF_8), securityConfig.secretKey);
+        case RPK:
+            try {
+                return SecurityInfo.newRawPublicKeyInfo(endpoint,
+                        SecurityUtil.publicKey.decode(securityConfig.publicKeyOrId));
+            } catch (IOException | GeneralSecurityException e) {
+                throw new IllegalArgumentException(
+                        String.format("Unable to decode Client public key for %s", endpoint), e);
+            }
+        case X509:
+            return SecurityInfo.newX509CertInfo(endpoint);
+        default:
+            return null;
+        }
+    }
 }
@@ -19,7 +19,6 @@ import static org.eclipse.leshan.server.bootstrap.BootstrapFailureCause.*;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.LwM2mPath;
@@ -64,11 +63,11 @@ public class DefaultBootstrapHandler implements BootstrapHandler {
     protected final LwM2mBootstrapRequestSender sender;
     protected final long requestTimeout;
 
-    // Session should be removed from onGoingSession map when it failed or succeed.
+    // Session should be removed from the session registry when it failed or succeed.
     // But in case where we are not able to detect a failure we define a maximum lifetime to avoid to completely block a
     // device
     protected final long sessionLifeTime;
-    protected final ConcurrentHashMap<String, BootstrapSession> onGoingSession = new ConcurrentHashMap<>();
+    protected final BootstrapSessionRegistry sessionRegistry;
     protected final BootstrapSessionManager sessionManager;
 
     public DefaultBootstrapHandler(BootstrapConfigStore store, LwM2mBootstrapRequestSender sender,
@@ -78,9 +77,20 @@ public class DefaultBootstrapHandler implements BootstrapHandler {
 
     public DefaultBootstrapHandler(BootstrapConfigStore store, LwM2mBootstrapRequestSender sender,
                                    BootstrapSessionManager sessionManager, long requestTimeout, long sessionLifetime) {
+        this(store, sender, sessionManager, new InMemoryBootstrapSessionRegistry(), requestTimeout, sessionLifetime);
+    }
+
+    /**
+     * @param sessionRegistry the registry of the sessions in progress, shared with the other bootstrap servers of a
+     *        cluster.
+     */
+    public DefaultBootstrapHandler(BootstrapConfigStore store, LwM2mBootstrapRequestSender sender,
+                                   BootstrapSessionManager sessionManager, BootstrapSessionRegistry sessionRegistry,
+                                   long requestTimeout, long sessionLifetime) {
         this.store = store;
         this.sender = sender;
         this.sessionManager = sessionManager;
+        this.sessionRegistry = sessionRegistry;
         this.requestTimeout = requestTimeout;
         this.sessionLifeTime = sessionLifetime;
     }
@@ -97,22 +107,11 @@ public class DefaultBootstrapHandler implements BootstrapHandler {
             return new SendableResponse<>(BootstrapResponse.badRequest("Unauthorized"));
         }
 
-        // check if there is not an ongoing session.
-        BootstrapSession oldSession;
-        do {
-            oldSession = onGoingSession.putIfAbsent(endpoint, session);
-            if (oldSession != null) {
-                if (System.currentTimeMillis() - oldSession.getCreationTime() >= sessionLifeTime) {
-                    onGoingSession.remove(endpoint, oldSession);
-                    if (LOG.isWarnEnabled())
-                        LOG.warn("{} expired at {}.", oldSession, System.currentTimeMillis());
-                } else {
-                    // Do not start the session if there is already a started one
-                    sessionManager.failed(session, ALREADY_STARTED);
-                    return new SendableResponse<>(BootstrapResponse.badRequest("session already started"));
-                }
-            }
-        } while (oldSession != null);
+        // Do not start the session if there is already a started one
+        if (!sessionRegistry.add(session, sessionLifeTime)) {
+            sessionManager.failed(session, ALREADY_STARTED);
+            return new SendableResponse<>(BootstrapResponse.badRequest("session already started"));
+        }
 
         try {
             // Get the desired bootstrap config for the endpoint
@@ -144,7 +143,7 @@ public class DefaultBootstrapHandler implements BootstrapHandler {
     }
 
     protected void stopSession(BootstrapSession session, BootstrapFailureCause cause) {
-        if (!onGoingSession.remove(session.getEndpoint(), session)) {
+        if (!sessionRegistry.remove(session)) {
             LOG.warn("{} was already removed", session);
         }
         // if there is no cause of failure, this is a success
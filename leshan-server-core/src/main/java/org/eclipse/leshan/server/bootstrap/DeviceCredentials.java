@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * The credentials of a device: for some instances of the Security object, the client identity or public key and the
+ * secret or private key. All the other values of a device configuration come from a template (see
+ * {@link TemplateBootstrapConfigStore}).
+ * <p>
+ * Credentials are kept in arrays to use as little memory as possible for large fleets. This class is immutable.
+ */
+public class DeviceCredentials implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] securityInstanceIds;
+    private final byte[][] publicKeyOrIds;
+    private final byte[][] secretKeys;
+
+    private DeviceCredentials(int[] securityInstanceIds, byte[][] publicKeyOrIds, byte[][] secretKeys) {
+        this.securityInstanceIds = securityInstanceIds;
+        this.publicKeyOrIds = publicKeyOrIds;
+        this.secretKeys = secretKeys;
+    }
+
+    /**
+     * @return the number of Security instances with credentials.
+     */
+    public int size() {
+        return securityInstanceIds.length;
+    }
+
+    public int getSecurityInstanceId(int index) {
+        return securityInstanceIds[index];
+    }
+
+    /**
+     * @return the PSK identity, the public key or the certificate of the client for the Security instance at the
+     *         given index. The array must not be modified.
+     */
+    public byte[] getPublicKeyOrId(int index) {
+        return publicKeyOrIds[index];
+    }
+
+    /**
+     * @return the pre-shared key or the private key of the client for the Security instance at the given index. The
+     *         array must not be modified.
+     */
+    public byte[] getSecretKey(int index) {
+        return secretKeys[index];
+    }
+
+    @Override
+    public String toString() {
+        // Note : secret keys are explicitly excluded from the display for security purposes
+        return String.format("DeviceCredentials [securityInstanceIds=%s]", Arrays.toString(securityInstanceIds));
+    }
+
+    public static class Builder {
+        private int[] securityInstanceIds = new int[0];
+        private byte[][] publicKeyOrIds = new byte[0][];
+        private byte[][] secretKeys = new byte[0][];
+
+        /**
+         * Set the credentials of the client for a Security instance.
+         */
+        public Builder security(int securityInstanceId, byte[] publicKeyOrId, byte[] secretKey) {
+            Validate.notNull(publicKeyOrId);
+            Validate.notNull(secretKey);
+            for (int id : securityInstanceIds) {
+                Validate.isTrue(id != securityInstanceId, "credentials already set for security instance %s",
+                        securityInstanceId);
+            }
+            int size = securityInstanceIds.length;
+            securityInstanceIds = Arrays.copyOf(securityInstanceIds, size + 1);
+            publicKeyOrIds = Arrays.copyOf(publicKeyOrIds, size + 1);
+            secretKeys = Arrays.copyOf(secretKeys, size + 1);
+            securityInstanceIds[size] = securityInstanceId;
+            publicKeyOrIds[size] = publicKeyOrId.clone();
+            secretKeys[size] = secretKey.clone();
+            return this;
+        }
+
+        public DeviceCredentials build() {
+            return new DeviceCredentials(securityInstanceIds, publicKeyOrIds, secretKeys);
+        }
+    }
+}
@@ -45,4 +45,11 @@ public interface EditableBootstrapConfigStore extends BootstrapConfigStore {
      * @return the removed {@link BootstrapConfig} or <code>null</code> if no bootstrap configuration for this client.
      */
     BootstrapConfig remove(String enpoint);
+
+    /**
+     * Add a listener notified of each change done through this store.
+     */
+    void addListener(BootstrapConfigStoreListener listener);
+
+    void removeListener(BootstrapConfigStoreListener listener);
 }
@@ -16,28 +16,36 @@
 package org.eclipse.leshan.server.bootstrap;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.leshan.core.request.Identity;
 
 /**
  * Simple bootstrap store implementation storing bootstrap configuration information in memory.
+ * <p>
+ * Modifications are done with the lock of the store and listeners are notified before releasing it, so they receive
+ * the changes in the order they were applied.
  */
 public class InMemoryBootstrapConfigStore implements EditableBootstrapConfigStore {
 
     protected final ConfigurationChecker configChecker = new ConfigurationChecker();
     protected final Map<String, BootstrapConfig> bootstrapByEndpoint = new ConcurrentHashMap<>();
 
+    private final List<BootstrapConfigStoreListener> listeners = new CopyOnWriteArrayList<>();
+
     @Override
     public BootstrapConfig get(String endpoint, Identity deviceIdentity, BootstrapSession session) {
         return bootstrapByEndpoint.get(endpoint);
     }
 
     @Override
-    public void add(String endpoint, BootstrapConfig config) throws InvalidConfigurationException {
+    public synchronized void add(String endpoint, BootstrapConfig config) throws InvalidConfigurationException {
         checkConfig(endpoint, config);
-        bootstrapByEndpoint.put(endpoint, config);
+        BootstrapConfig previous = bootstrapByEndpoint.put(endpoint, config);
+        notifyListeners(endpoint, previous, config);
     }
 
     protected void checkConfig(String endpoint, BootstrapConfig config) throws InvalidConfigurationException {
@@ -45,13 +53,32 @@ public class InMemoryBootstrapConfigStore implements EditableBootstrapConfigStor
     }
 
     @Override
-    public BootstrapConfig remove(String enpoint) {
-        return bootstrapByEndpoint.remove(enpoint);
-
+    public synchronized BootstrapConfig remove(String enpoint) {
+        BootstrapConfig removed = bootstrapByEndpoint.remove(enpoint);
+        if (removed != null) {
+            notifyListeners(enpoint, removed, null);
+        }
+        return removed;
     }
 
     @Override
     public Map<String, BootstrapConfig> getAll() {
         return Collections.unmodifiableMap(bootstrapByEndpoint);
     }
+
+    @Override
+    public void addListener(BootstrapConfigStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(BootstrapConfigStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    protected void notifyListeners(String endpoint, BootstrapConfig previous, BootstrapConfig current) {
+        for (BootstrapConfigStoreListener listener : listeners) {
+            listener.configChanged(endpoint, previous, current);
+        }
+    }
 }
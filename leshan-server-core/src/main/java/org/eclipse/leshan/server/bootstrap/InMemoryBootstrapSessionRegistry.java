@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BootstrapSessionRegistry} for a single bootstrap server, sessions are kept in memory.
+ */
+public class InMemoryBootstrapSessionRegistry implements BootstrapSessionRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryBootstrapSessionRegistry.class);
+
+    private final ConcurrentHashMap<String, BootstrapSession> onGoingSession = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean add(BootstrapSession session, long lifetime) {
+        String endpoint = session.getEndpoint();
+        BootstrapSession oldSession;
+        do {
+            oldSession = onGoingSession.putIfAbsent(endpoint, session);
+            if (oldSession != null) {
+                if (System.currentTimeMillis() - oldSession.getCreationTime() >= lifetime) {
+                    onGoingSession.remove(endpoint, oldSession);
+                    if (LOG.isWarnEnabled())
+                        LOG.warn("{} expired at {}.", oldSession, System.currentTimeMillis());
+                } else {
+                    return false;
+                }
+            }
+        } while (oldSession != null);
+        return true;
+    }
+
+    @Override
+    public boolean remove(BootstrapSession session) {
+        return onGoingSession.remove(session.getEndpoint(), session);
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import java.nio.ByteBuffer;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.security.BootstrapSecurityStore;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BootstrapSecurityStore} which gets the credentials of the clients from the bootstrap-server security entries
+ * of an {@link EditableBootstrapConfigStore}.
+ * <p>
+ * Security infos are indexed by endpoint, PSK identity and raw public key when a configuration is added or removed, so
+ * the lookups done during DTLS handshakes do not depend on the number of provisioned devices.
+ */
+public class IndexedBootstrapSecurityStore implements BootstrapSecurityStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedBootstrapSecurityStore.class);
+
+    // indexes are only modified with the lock, lookups do not need it
+    private final ConcurrentMap<String, Entry> entriesByEndpoint = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SecurityInfo> infosByPskIdentity = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ByteBuffer, SecurityInfo> infosByRawPublicKey = new ConcurrentHashMap<>();
+
+    /**
+     * Create a store indexing the current and future configurations of the given store.
+     */
+    public IndexedBootstrapSecurityStore(EditableBootstrapConfigStore configStore) {
+        // changes done while the existing configurations are indexed are applied after
+        synchronized (this) {
+            configStore.addListener(new BootstrapConfigStoreListener() {
+                @Override
+                public void configChanged(String endpoint, BootstrapConfig previous, BootstrapConfig current) {
+                    update(endpoint, current);
+                }
+            });
+            for (Map.Entry<String, BootstrapConfig> config : configStore.getAll().entrySet()) {
+                update(config.getKey(), config.getValue());
+            }
+        }
+    }
+
+    @Override
+    public List<SecurityInfo> getAllByEndpoint(String endpoint) {
+        Entry entry = entriesByEndpoint.get(endpoint);
+        return entry == null ? null : entry.endpointInfos;
+    }
+
+    @Override
+    public SecurityInfo getByIdentity(String pskIdentity) {
+        return infosByPskIdentity.get(pskIdentity);
+    }
+
+    /**
+     * Returns the security information for a raw public key.
+     *
+     * @param publicKey the public key of the client
+     * @return the security information of <code>null</code> if not found.
+     */
+    public SecurityInfo getByRawPublicKey(PublicKey publicKey) {
+        return infosByRawPublicKey.get(ByteBuffer.wrap(publicKey.getEncoded()));
+    }
+
+    private synchronized void update(String endpoint, BootstrapConfig config) {
+        Entry entry = config == null ? null : new Entry(endpoint, config);
+        Entry previous = entry == null ? entriesByEndpoint.remove(endpoint) : entriesByEndpoint.put(endpoint, entry);
+
+        // add the new keys before removing the old ones, so unchanged credentials are always found
+        if (entry != null) {
+            infosByPskIdentity.putAll(entry.pskInfos);
+            infosByRawPublicKey.putAll(entry.rpkInfos);
+        }
+        if (previous != null) {
+            removeAll(infosByPskIdentity, previous.pskInfos);
+            removeAll(infosByRawPublicKey, previous.rpkInfos);
+        }
+    }
+
+    // remove the keys only if they are still bound to the removed infos (not replaced by an other endpoint)
+    private static <K> void removeAll(Map<K, SecurityInfo> index, Map<K, SecurityInfo> removed) {
+        for (Map.Entry<K, SecurityInfo> e : removed.entrySet()) {
+            if (index.get(e.getKey()) == e.getValue()) {
+                index.remove(e.getKey());
+            }
+        }
+    }
+
+    /**
+     * The security infos extracted from the configuration of an endpoint.
+     */
+    private static class Entry {
+        // the credentials of the first bootstrap server security entry, null if there is none
+        private List<SecurityInfo> endpointInfos;
+        private final Map<String, SecurityInfo> pskInfos = new HashMap<>();
+        private final Map<ByteBuffer, SecurityInfo> rpkInfos = new HashMap<>();
+
+        private Entry(String endpoint, BootstrapConfig config) {
+            if (config.security == null)
+                return;
+
+            boolean first = true;
+            for (ServerSecurity security : config.security.values()) {
+                if (!security.bootstrapServer)
+                    continue;
+
+                SecurityInfo info;
+                try {
+                    info = BootstrapUtil.toSecurityInfo(endpoint, security);
+                } catch (IllegalArgumentException e) {
+                    // still the first bootstrap entry, even if it is not valid
+                    LOG.error("Unable to decode Client public key for {}", endpoint, e);
+                    info = null;
+                }
+                if (info != null) {
+                    if (info.getIdentity() != null) {
+                        pskInfos.put(info.getIdentity(), info);
+                    } else if (info.getRawPublicKey() != null) {
+                        rpkInfos.put(ByteBuffer.wrap(info.getRawPublicKey().getEncoded()), info);
+                    }
+                } else if (security.securityMode != SecurityMode.RPK) {
+                    // no credentials
+                    continue;
+                }
+
+                if (first) {
+                    endpointInfos = info == null ? null : Collections.singletonList(info);
+                    first = false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.util.NamedThreadFactory;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link EditableBootstrapConfigStore} which persists configurations in an append-only journal file.
+ * <p>
+ * Each change only appends one record to the journal, so adding a configuration does not depend on the number of
+ * configurations already stored. When the journal contains too many obsolete records, it is compacted in background:
+ * the current configurations are written to a temporary file which then atomically replaces the journal.
+ * <p>
+ * At startup, the journal is read record by record. A truncated or corrupted record at the end of the file (e.g. after
+ * a crash during a write) is ignored and removed. A corrupted record followed by other records is not removed, the
+ * store can not be created from this journal.
+ */
+public class JournaledBootstrapConfigStore extends InMemoryBootstrapConfigStore implements Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JournaledBootstrapConfigStore.class);
+
+    // default location for persistence
+    public static final String DEFAULT_FILE = "data/bootstrap.journal";
+
+    /**
+     * Default minimum number of records in the journal before compacting it.
+     */
+    public static final int DEFAULT_MIN_COMPACTION_RECORDS = 1000;
+
+    private static final int MAGIC = 0x4C424A31; // "LBJ1"
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+
+    private final File file;
+    private final int minCompactionRecords;
+    private final ExecutorService compactionExecutor;
+    private final Object compactionLock = new Object();
+
+    // guarded by this
+    private DataOutputStream journal;
+    private int journalRecords;
+    private boolean compacting;
+    private boolean destroyed;
+    // records appended while a compaction is running, null if there is no compaction
+    private List<byte[]> pendingRecords;
+
+    public JournaledBootstrapConfigStore() {
+        this(DEFAULT_FILE);
+    }
+
+    /**
+     * @param filename the path of the journal file
+     */
+    public JournaledBootstrapConfigStore(String filename) {
+        this(filename, DEFAULT_MIN_COMPACTION_RECORDS);
+    }
+
+    /**
+     * @param filename the path of the journal file
+     * @param minCompactionRecords the journal is compacted when it contains more than this number of records and
+     *        more than twice the number of configurations.
+     * @throws IllegalStateException if the file exists but is not a journal or can not be read.
+     */
+    public JournaledBootstrapConfigStore(String filename, int minCompactionRecords) {
+        Validate.notEmpty(filename);
+        this.file = new File(filename);
+        this.minCompactionRecords = minCompactionRecords;
+        this.compactionExecutor = Executors
+                .newSingleThreadExecutor(new NamedThreadFactory("Leshan bootstrap journal compaction"));
+        synchronized (this) {
+            loadFromFile();
+            openJournal();
+        }
+    }
+
+    @Override
+    public synchronized void add(String endpoint, BootstrapConfig config) throws InvalidConfigurationException {
+        super.add(endpoint, config);
+        append(encode(ADD, endpoint, config));
+    }
+
+    @Override
+    public synchronized BootstrapConfig remove(String endpoint) {
+        BootstrapConfig removed = super.remove(endpoint);
+        if (removed != null) {
+            append(encode(REMOVE, endpoint, null));
+        }
+        return removed;
+    }
+
+    // /////// Journal
+
+    private void loadFromFile() {
+        if (!file.exists()) {
+            return;
+        }
+
+        long fileLength = file.length();
+        long validLength = 0;
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (fileLength >= 4) {
+                if (in.readInt() != MAGIC) {
+                    throw new IllegalStateException(
+                            String.format("%s is not a bootstrap journal file", file.getPath()));
+                }
+                validLength = 4;
+            }
+            while (true) {
+                byte[] record = readRecord(in, validLength, fileLength - validLength - 8);
+                if (record == null) {
+                    break;
+                }
+                try {
+                    apply(record);
+                } catch (IOException | RuntimeException e) {
+                    LOG.error("Ignoring invalid record of bootstrap journal {}", file.getPath(), e);
+                }
+                validLength += 8 + record.length;
+                records++;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Could not read bootstrap journal %s", file.getPath()), e);
+        }
+
+        // remove the incomplete record at the end, new records must be appended after a valid one
+        if (validLength < fileLength) {
+            LOG.warn("Ignoring {} bytes at the end of journal {}", fileLength - validLength, file.getPath());
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                LOG.error("Could not truncate journal {}", file.getPath(), e);
+            }
+        }
+        journalRecords = records;
+        LOG.debug("{} bootstrap configs loaded from {} records", bootstrapByEndpoint.size(), records);
+    }
+
+    /**
+     * @param offset the position of the record in the journal
+     * @param maxLength the number of bytes after the record header until the end of the journal
+     * @return the next record or <code>null</code> if the end of the journal or an incomplete record is reached.
+     * @throws IOException if a corrupted record is followed by other records.
+     */
+    private static byte[] readRecord(DataInputStream in, long offset, long maxLength) throws IOException {
+        byte[] record;
+        int crc;
+        try {
+            int length = in.readInt();
+            crc = in.readInt();
+            if (length < 0 || length > maxLength) {
+                return null;
+            }
+            record = new byte[length];
+            in.readFully(record);
+        } catch (EOFException e) {
+            return null;
+        }
+        if (checksum(record) == crc) {
+            return record;
+        } else if (record.length == maxLength) {
+            // last record of the journal, interrupted by a crash
+            return null;
+        }
+        throw new IOException(String.format("Corrupted record at offset %d is followed by other records", offset));
+    }
+
+    private void apply(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        String endpoint = in.readUTF();
+        if (type == ADD) {
+            // configs were checked when added
+            bootstrapByEndpoint.put(endpoint, BootstrapConfigSerDes.deserialize(in));
+        } else {
+            bootstrapByEndpoint.remove(endpoint);
+        }
+    }
+
+    private static byte[] encode(byte type, String endpoint, BootstrapConfig config) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeUTF(endpoint);
+            if (config != null) {
+                BootstrapConfigSerDes.serialize(config, out);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize bootstrap config", e);
+        }
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] record) throws IOException {
+        out.writeInt(record.length);
+        out.writeInt(checksum(record));
+        out.write(record);
+    }
+
+    private void openJournal() {
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            boolean exists = file.length() > 0;
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            if (!exists) {
+                journal.writeInt(MAGIC);
+                journal.flush();
+            }
+        } catch (IOException e) {
+            journal = null;
+            LOG.error("Could not open bootstrap journal {}", file.getPath(), e);
+        }
+    }
+
+    // must be called with the lock
+    private void append(byte[] record) {
+        if (journal == null) {
+            LOG.error("Bootstrap journal {} is not open, change is not persisted", file.getPath());
+            return;
+        }
+        try {
+            writeRecord(journal, record);
+            journal.flush();
+            journalRecords++;
+        } catch (IOException e) {
+            LOG.error("Could not append to bootstrap journal {}", file.getPath(), e);
+        }
+        if (pendingRecords != null) {
+            pendingRecords.add(record);
+        }
+
+        if (!compacting && !destroyed && journalRecords > minCompactionRecords
+                && journalRecords > 2 * bootstrapByEndpoint.size()) {
+            compacting = true;
+            compactionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compact();
+                }
+            });
+        }
+    }
+
+    /**
+     * Rewrite the journal with only the current configurations. Changes are still accepted and persisted during the
+     * compaction.
+     * <p>
+     * If a compaction is running, this method waits for it before compacting again.
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            doCompact();
+        }
+    }
+
+    private void doCompact() {
+        Map<String, BootstrapConfig> snapshot;
+        synchronized (this) {
+            if (destroyed || journal == null) {
+                compacting = false;
+                return;
+            }
+            compacting = true;
+            snapshot = new HashMap<>(bootstrapByEndpoint);
+            pendingRecords = new ArrayList<>();
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            // the snapshot is written without the lock
+            FileOutputStream fileOut = new FileOutputStream(tmp);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                out.writeInt(MAGIC);
+                for (Map.Entry<String, BootstrapConfig> config : snapshot.entrySet()) {
+                    writeRecord(out, encode(ADD, config.getKey(), config.getValue()));
+                }
+
+                synchronized (this) {
+                    for (byte[] record : pendingRecords) {
+                        writeRecord(out, record);
+                    }
+                    out.flush();
+                    fileOut.getFD().sync();
+                    out.close();
+
+                    journal.close();
+                    journal = null;
+                    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    LOG.debug("Bootstrap journal {} compacted from {} to {} records", file.getPath(), journalRecords,
+                            snapshot.size() + pendingRecords.size());
+                    journalRecords = snapshot.size() + pendingRecords.size();
+                    openJournal();
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("Could not compact bootstrap journal {}", file.getPath(), e);
+            tmp.delete();
+            synchronized (this) {
+                // the journal was closed if the move failed
+                if (journal == null) {
+                    openJournal();
+                }
+            }
+        } finally {
+            synchronized (this) {
+                pendingRecords = null;
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * @return the number of records in the journal file.
+     */
+    public synchronized int getJournalRecords() {
+        return journalRecords;
+    }
+
+    /**
+     * Wait for the running compaction and close the journal, changes done after are not persisted.
+     */
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            destroyed = true;
+        }
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    LOG.warn("Could not close bootstrap journal {}", file.getPath(), e);
+                }
+                journal = null;
+            }
+        }
+    }
+}
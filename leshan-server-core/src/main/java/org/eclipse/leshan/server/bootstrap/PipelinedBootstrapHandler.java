@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import static org.eclipse.leshan.server.bootstrap.BootstrapFailureCause.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.request.BootstrapDeleteRequest;
+import org.eclipse.leshan.core.request.BootstrapWriteRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ACLConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.bootstrap.BootstrapSessionManager.BootstrapPolicy;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BootstrapHandler} which needs less round trips than {@link DefaultBootstrapHandler} to bootstrap a client.
+ * <p>
+ * The bootstrap is done in 3 steps: all the deletes, then all the writes, then the bootstrap finish. Requests of a
+ * step are independent, so up to <code>maxInFlight</code> of them are sent without waiting for the previous responses.
+ * When <code>coalesceWrites</code> is set, the instances of the Security, Server and ACL objects are written with one
+ * object level write by object. If the client rejects an object level write, its instances are written one by one.
+ * <p>
+ * The {@link BootstrapSessionManager} is called for each request as with the {@link DefaultBootstrapHandler}, except
+ * for a rejected object level write which is always retried instance by instance. A policy other than
+ * {@link BootstrapPolicy#CONTINUE} or {@link BootstrapPolicy#RETRY} cancels the requests of the current step: the
+ * responses of the requests already sent are then ignored.
+ * <p>
+ * Note that with a <code>maxInFlight</code> greater than 1, more requests are outstanding than the CoAP default
+ * NSTART value (RFC 7252, section 4.7).
+ */
+public class PipelinedBootstrapHandler extends DefaultBootstrapHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PipelinedBootstrapHandler.class);
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private final int maxInFlight;
+    private final boolean coalesceWrites;
+
+    public PipelinedBootstrapHandler(BootstrapConfigStore store, LwM2mBootstrapRequestSender sender,
+            BootstrapSessionManager sessionManager) {
+        this(store, sender, sessionManager, DEFAULT_TIMEOUT, DEFAULT_LIFETIME, DEFAULT_MAX_IN_FLIGHT, true);
+    }
+
+    /**
+     * @param maxInFlight the maximum number of requests sent to a client without waiting for their responses.
+     * @param coalesceWrites true to write all the instances of an object with one request.
+     */
+    public PipelinedBootstrapHandler(BootstrapConfigStore store, LwM2mBootstrapRequestSender sender,
+            BootstrapSessionManager sessionManager, long requestTimeout, long sessionLifetime, int maxInFlight,
+            boolean coalesceWrites) {
+        this(store, sender, sessionManager, new InMemoryBootstrapSessionRegistry(), requestTimeout, sessionLifetime,
+                maxInFlight, coalesceWrites);
+    }
+
+    /**
+     * @param sessionRegistry the registry of the sessions in progress, shared with the other bootstrap servers of a
+     *        cluster.
+     * @param maxInFlight the maximum number of requests sent to a client without waiting for their responses.
+     * @param coalesceWrites true to write all the instances of an object with one request.
+     */
+    public PipelinedBootstrapHandler(BootstrapConfigStore store, LwM2mBootstrapRequestSender sender,
+            BootstrapSessionManager sessionManager, BootstrapSessionRegistry sessionRegistry, long requestTimeout,
+            long sessionLifetime, int maxInFlight, boolean coalesceWrites) {
+        super(store, sender, sessionManager, sessionRegistry, requestTimeout, sessionLifetime);
+        Validate.isTrue(maxInFlight > 0, "maxInFlight must be greater than 0");
+        this.maxInFlight = maxInFlight;
+        this.coalesceWrites = coalesceWrites;
+    }
+
+    @Override
+    protected void startBootstrap(BootstrapSession session, BootstrapConfig cfg) {
+        new Pipeline(session, cfg).start();
+    }
+
+    private List<Item> createDeletes(BootstrapConfig cfg) {
+        List<Item> deletes = new ArrayList<>();
+        for (String path : cfg.toDelete) {
+            deletes.add(new Item(new BootstrapDeleteRequest(path), null));
+        }
+        return deletes;
+    }
+
+    private List<Item> createWrites(BootstrapSession session, BootstrapConfig cfg) {
+        List<BootstrapWriteRequest> securities = new ArrayList<>();
+        for (Map.Entry<Integer, ServerSecurity> security : cfg.security.entrySet()) {
+            securities.add(writeInstance(session, 0,
+                    BootstrapUtil.convertToSecurityInstance(security.getKey(), security.getValue())));
+        }
+        List<BootstrapWriteRequest> servers = new ArrayList<>();
+        for (Map.Entry<Integer, ServerConfig> server : cfg.servers.entrySet()) {
+            servers.add(writeInstance(session, 1,
+                    BootstrapUtil.convertToServerInstance(server.getKey(), server.getValue())));
+        }
+        List<BootstrapWriteRequest> acls = new ArrayList<>();
+        for (Map.Entry<Integer, ACLConfig> acl : cfg.acls.entrySet()) {
+            acls.add(writeInstance(session, 2, BootstrapUtil.convertToAclInstance(acl.getKey(), acl.getValue())));
+        }
+
+        List<Item> writes = new ArrayList<>();
+        addWrites(writes, session, 0, securities);
+        addWrites(writes, session, 1, servers);
+        addWrites(writes, session, 2, acls);
+        return writes;
+    }
+
+    private static BootstrapWriteRequest writeInstance(BootstrapSession session, int objectId,
+            LwM2mObjectInstance instance) {
+        return new BootstrapWriteRequest(new LwM2mPath(objectId, instance.getId()), instance,
+                session.getContentFormat());
+    }
+
+    private void addWrites(List<Item> writes, BootstrapSession session, int objectId,
+            List<BootstrapWriteRequest> instanceWrites) {
+        if (coalesceWrites && instanceWrites.size() > 1) {
+            List<LwM2mObjectInstance> instances = new ArrayList<>(instanceWrites.size());
+            for (BootstrapWriteRequest write : instanceWrites) {
+                instances.add((LwM2mObjectInstance) write.getNode());
+            }
+            BootstrapWriteRequest objectWrite = new BootstrapWriteRequest(new LwM2mPath(objectId),
+                    new LwM2mObject(objectId, instances), session.getContentFormat());
+            writes.add(new Item(objectWrite, instanceWrites));
+        } else {
+            for (BootstrapWriteRequest write : instanceWrites) {
+                writes.add(new Item(write, null));
+            }
+        }
+    }
+
+    private static BootstrapFailureCause failureCause(DownlinkRequest<?> request) {
+        if (request instanceof BootstrapDeleteRequest)
+            return DELETE_FAILED;
+        switch (request.getPath().getObjectId()) {
+            case 0:
+                return WRITE_SECURITY_FAILED;
+            case 1:
+                return WRITE_SERVER_FAILED;
+            default:
+                return WRITE_ACL_FAILED;
+        }
+    }
+
+    /**
+     * A request to send and the requests to send instead if the client rejects it.
+     */
+    private static class Item {
+        private final DownlinkRequest<? extends LwM2mResponse> request;
+        private final List<? extends DownlinkRequest<? extends LwM2mResponse>> fallback;
+
+        private Item(DownlinkRequest<? extends LwM2mResponse> request,
+                List<? extends DownlinkRequest<? extends LwM2mResponse>> fallback) {
+            this.request = request;
+            this.fallback = fallback;
+        }
+    }
+
+    /**
+     * One attempt to bootstrap a client. A new pipeline is created when the session manager asks to retry all.
+     */
+    private class Pipeline {
+        private final BootstrapSession session;
+        private final BootstrapConfig cfg;
+        // set once the steps of this pipeline are over, successfully or not
+        private final AtomicBoolean ended = new AtomicBoolean(false);
+
+        private Pipeline(BootstrapSession session, BootstrapConfig cfg) {
+            this.session = session;
+            this.cfg = cfg;
+        }
+
+        private void start() {
+            new Step(createDeletes(cfg)) {
+                @Override
+                void onCompleted() {
+                    new Step(createWrites(session, cfg)) {
+                        @Override
+                        void onCompleted() {
+                            if (end()) {
+                                bootstrapFinished(session, cfg);
+                            }
+                        }
+                    }.start();
+                }
+            }.start();
+        }
+
+        private boolean end() {
+            return ended.compareAndSet(false, true);
+        }
+
+        /**
+         * Independent requests sent with a bounded window.
+         */
+        private abstract class Step {
+            private final Deque<Item> queue;
+            // guarded by this
+            private int inFlight;
+            private int remaining;
+
+            private Step(List<Item> items) {
+                this.queue = new ArrayDeque<>(items);
+                this.remaining = items.size();
+            }
+
+            abstract void onCompleted();
+
+            void start() {
+                if (queue.isEmpty()) {
+                    onCompleted();
+                } else {
+                    sendNext();
+                }
+            }
+
+            private void sendNext() {
+                while (true) {
+                    Item item;
+                    synchronized (this) {
+                        if (ended.get() || inFlight >= maxInFlight || queue.isEmpty())
+                            return;
+                        item = queue.poll();
+                        inFlight++;
+                    }
+                    send(item, item.request);
+                }
+            }
+
+            private <T extends LwM2mResponse> void send(final Item item, final DownlinkRequest<T> request) {
+                PipelinedBootstrapHandler.this.send(session, request, new SafeResponseCallback<T>(session) {
+                    @Override
+                    public void safeOnResponse(T response) {
+                        if (ended.get())
+                            return;
+                        if (response.isSuccess()) {
+                            LOG.trace("{} receives {} for {}", session, response, request);
+                            sessionManager.onResponseSuccess(session, request);
+                            completed(null);
+                        } else if (item.fallback != null) {
+                            LOG.debug("{} receives {} for {}, instances are written one by one", session, response,
+                                    request);
+                            List<Item> fallback = new ArrayList<>(item.fallback.size());
+                            for (DownlinkRequest<? extends LwM2mResponse> instanceRequest : item.fallback) {
+                                fallback.add(new Item(instanceRequest, null));
+                            }
+                            completed(fallback);
+                        } else {
+                            LOG.debug("{} receives {} for {}", session, response, request);
+                            apply(item, sessionManager.onResponseError(session, request, response));
+                        }
+                    }
+                }, new SafeErrorCallback(session) {
+                    @Override
+                    public void safeOnError(Exception e) {
+                        if (ended.get())
+                            return;
+                        LOG.debug("Error for {} while sending {} ", session, request, e);
+                        apply(item, sessionManager.onRequestFailure(session, request, e));
+                    }
+                });
+            }
+
+            // the request of an item is done, replaced by the given items if any
+            private void completed(List<Item> replacements) {
+                boolean stepCompleted;
+                synchronized (this) {
+                    inFlight--;
+                    remaining--;
+                    if (replacements != null) {
+                        queue.addAll(replacements);
+                        remaining += replacements.size();
+                    }
+                    stepCompleted = remaining == 0;
+                }
+                if (stepCompleted) {
+                    onCompleted();
+                } else {
+                    sendNext();
+                }
+            }
+
+            private void apply(Item item, BootstrapPolicy policy) {
+                switch (policy) {
+                    case CONTINUE:
+                        completed(null);
+                        break;
+                    case RETRY:
+                        send(item, item.request);
+                        break;
+                    case RETRYALL:
+                        if (end())
+                            startBootstrap(session, cfg);
+                        break;
+                    case SEND_FINISHED:
+                        if (end())
+                            bootstrapFinished(session, cfg);
+                        break;
+                    case STOP:
+                        if (end())
+                            stopSession(session, failureCause(item.request));
+                        break;
+                    default:
+                        throw new IllegalStateException("unknown policy :" + policy);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+
+/**
+ * A {@link EditableBootstrapConfigStore} for large fleets of devices sharing the same configuration except their
+ * credentials.
+ * <p>
+ * A template contains the shared part of the configuration (servers, URIs, lifetimes, ACLs...) and each device only
+ * references a template and keeps its own {@link DeviceCredentials}. The configuration of a device is built when
+ * {@link #get(String, Identity, BootstrapSession)} is called: the Security instances with credentials are copied from
+ * the template, everything else is shared by all the configurations built from a template, so they must not be
+ * modified.
+ * <p>
+ * Replacing a template changes the configuration of all the devices using it. Configurations added with
+ * {@link #add(String, BootstrapConfig)} are stored as is.
+ */
+public class TemplateBootstrapConfigStore implements EditableBootstrapConfigStore {
+
+    protected final ConfigurationChecker configChecker = new ConfigurationChecker();
+
+    private final Map<String, BootstrapConfig> templates = new ConcurrentHashMap<>();
+    private final Map<String, Device> devices = new ConcurrentHashMap<>();
+    private final Map<String, BootstrapConfig> configs = new ConcurrentHashMap<>();
+
+    private final List<BootstrapConfigStoreListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public BootstrapConfig get(String endpoint, Identity deviceIdentity, BootstrapSession session) {
+        Device device = devices.get(endpoint);
+        if (device != null) {
+            return device.toConfig();
+        }
+        return configs.get(endpoint);
+    }
+
+    /**
+     * Add or replace a template. The Security instances of the template should not contain credentials, they are set
+     * by the {@link DeviceCredentials} of each device.
+     *
+     * @param templateId the identifier of the template.
+     * @param template the shared configuration, it must not be modified after being added.
+     * @throws InvalidConfigurationException if the template is replaced and the configuration of a device using it is
+     *         not valid anymore.
+     */
+    public synchronized void addTemplate(String templateId, BootstrapConfig template)
+            throws InvalidConfigurationException {
+        BootstrapConfig previous = templates.get(templateId);
+        if (previous == null) {
+            templates.put(templateId, template);
+            return;
+        }
+
+        // check the devices using it first, so a failure does not change anything
+        Map<String, Device> updatedDevices = new HashMap<>();
+        for (Map.Entry<String, Device> device : devices.entrySet()) {
+            if (device.getValue().template == previous) {
+                Device updated = new Device(templateId, template, device.getValue().credentials);
+                checkConfig(device.getKey(), updated.toConfig());
+                updatedDevices.put(device.getKey(), updated);
+            }
+        }
+        templates.put(templateId, template);
+        for (Map.Entry<String, Device> updated : updatedDevices.entrySet()) {
+            Device device = devices.put(updated.getKey(), updated.getValue());
+            notifyListeners(updated.getKey(), device.toConfig(), updated.getValue().toConfig());
+        }
+    }
+
+    /**
+     * Remove a template which is not used anymore.
+     *
+     * @return the removed template or <code>null</code> if there is no template with this identifier.
+     * @throws IllegalStateException if a device still uses this template.
+     */
+    public synchronized BootstrapConfig removeTemplate(String templateId) {
+        BootstrapConfig template = templates.get(templateId);
+        if (template == null) {
+            return null;
+        }
+        for (Device device : devices.values()) {
+            if (device.template == template) {
+                throw new IllegalStateException(String.format("Template %s is still used", templateId));
+            }
+        }
+        return templates.remove(templateId);
+    }
+
+    public BootstrapConfig getTemplate(String templateId) {
+        return templates.get(templateId);
+    }
+
+    /**
+     * Add or replace a device using a template.
+     *
+     * @param endpoint the client endpoint name.
+     * @param templateId the identifier of the template to use.
+     * @param credentials the credentials of the device, each one must match a Security instance of the template.
+     * @throws InvalidConfigurationException if the template does not exist or if the resulting configuration is not
+     *         valid.
+     */
+    public synchronized void addDevice(String endpoint, String templateId, DeviceCredentials credentials)
+            throws InvalidConfigurationException {
+        BootstrapConfig template = templates.get(templateId);
+        if (template == null) {
+            throw new InvalidConfigurationException("Unknown template %s", templateId);
+        }
+        for (int i = 0; i < credentials.size(); i++) {
+            if (!template.security.containsKey(credentials.getSecurityInstanceId(i))) {
+                throw new InvalidConfigurationException("Template %s has no security instance %s", templateId,
+                        credentials.getSecurityInstanceId(i));
+            }
+        }
+        Device device = new Device(templateId, template, credentials);
+        BootstrapConfig config = device.toConfig();
+        checkConfig(endpoint, config);
+
+        BootstrapConfig previous = remove(endpoint, false);
+        devices.put(endpoint, device);
+        notifyListeners(endpoint, previous, config);
+    }
+
+    @Override
+    public synchronized void add(String endpoint, BootstrapConfig config) throws InvalidConfigurationException {
+        checkConfig(endpoint, config);
+        BootstrapConfig previous = remove(endpoint, false);
+        configs.put(endpoint, config);
+        notifyListeners(endpoint, previous, config);
+    }
+
+    protected void checkConfig(String endpoint, BootstrapConfig config) throws InvalidConfigurationException {
+        configChecker.verify(config);
+    }
+
+    @Override
+    public synchronized BootstrapConfig remove(String endpoint) {
+        return remove(endpoint, true);
+    }
+
+    private BootstrapConfig remove(String endpoint, boolean notify) {
+        BootstrapConfig removed;
+        Device device = devices.remove(endpoint);
+        if (device != null) {
+            removed = device.toConfig();
+        } else {
+            removed = configs.remove(endpoint);
+        }
+        if (notify && removed != null) {
+            notifyListeners(endpoint, removed, null);
+        }
+        return removed;
+    }
+
+    /**
+     * @return an unmodifiable view of all the configurations, the configurations of the devices using a template are
+     *         built while iterating.
+     */
+    @Override
+    public Map<String, BootstrapConfig> getAll() {
+        return new AbstractMap<String, BootstrapConfig>() {
+            @Override
+            public BootstrapConfig get(Object endpoint) {
+                return endpoint instanceof String ? TemplateBootstrapConfigStore.this.get((String) endpoint, null, null)
+                        : null;
+            }
+
+            @Override
+            public boolean containsKey(Object endpoint) {
+                return devices.containsKey(endpoint) || configs.containsKey(endpoint);
+            }
+
+            @Override
+            public Set<Map.Entry<String, BootstrapConfig>> entrySet() {
+                return new AbstractSet<Map.Entry<String, BootstrapConfig>>() {
+                    @Override
+                    public int size() {
+                        return devices.size() + configs.size();
+                    }
+
+                    @Override
+                    public Iterator<Map.Entry<String, BootstrapConfig>> iterator() {
+                        final Iterator<Map.Entry<String, Device>> deviceIterator = devices.entrySet().iterator();
+                        final Iterator<Map.Entry<String, BootstrapConfig>> configIterator = configs.entrySet()
+                                .iterator();
+                        return new Iterator<Map.Entry<String, BootstrapConfig>>() {
+                            @Override
+                            public boolean hasNext() {
+                                return deviceIterator.hasNext() || configIterator.hasNext();
+                            }
+
+                            @Override
+                            public Map.Entry<String, BootstrapConfig> next() {
+                                if (deviceIterator.hasNext()) {
+                                    Map.Entry<String, Device> device = deviceIterator.next();
+                                    return new SimpleImmutableEntry<>(device.getKey(), device.getValue().toConfig());
+                                }
+                                return new SimpleImmutableEntry<>(configIterator.next());
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @return the identifier of the template used by this device or <code>null</code> if it does not use a template.
+     */
+    public String getDeviceTemplate(String endpoint) {
+        Device device = devices.get(endpoint);
+        return device == null ? null : device.templateId;
+    }
+
+    /**
+     * @return the number of devices using a template.
+     */
+    public int getDeviceCount() {
+        return devices.size();
+    }
+
+    @Override
+    public void addListener(BootstrapConfigStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(BootstrapConfigStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    protected void notifyListeners(String endpoint, BootstrapConfig previous, BootstrapConfig current) {
+        for (BootstrapConfigStoreListener listener : listeners) {
+            listener.configChanged(endpoint, previous, current);
+        }
+    }
+
+    /**
+     * A device using a template.
+     */
+    private static class Device {
+        private final String templateId;
+        private final BootstrapConfig template;
+        private final DeviceCredentials credentials;
+
+        private Device(String templateId, BootstrapConfig template, DeviceCredentials credentials) {
+            this.templateId = templateId;
+            this.template = template;
+            this.credentials = credentials;
+        }
+
+        private BootstrapConfig toConfig() {
+            BootstrapConfig config = new BootstrapConfig();
+            config.toDelete = template.toDelete;
+            config.servers = template.servers;
+            config.acls = template.acls;
+            config.security = new HashMap<>(template.security);
+            for (int i = 0; i < credentials.size(); i++) {
+                ServerSecurity security = copy(template.security.get(credentials.getSecurityInstanceId(i)));
+                security.publicKeyOrId = credentials.getPublicKeyOrId(i);
+                security.secretKey = credentials.getSecretKey(i);
+                config.security.put(credentials.getSecurityInstanceId(i), security);
+            }
+            return config;
+        }
+    }
+
+    private static ServerSecurity copy(ServerSecurity security) {
+        ServerSecurity copy = new ServerSecurity();
+        copy.uri = security.uri;
+        copy.bootstrapServer = security.bootstrapServer;
+        copy.securityMode = security.securityMode;
+        copy.publicKeyOrId = security.publicKeyOrId;
+        copy.serverPublicKey = security.serverPublicKey;
+        copy.secretKey = security.secretKey;
+        copy.smsSecurityMode = security.smsSecurityMode;
+        copy.smsBindingKeyParam = security.smsBindingKeyParam;
+        copy.smsBindingKeySecret = security.smsBindingKeySecret;
+        copy.serverSmsNumber = security.serverSmsNumber;
+        copy.serverId = security.serverId;
+        copy.clientOldOffTime = security.clientOldOffTime;
+        copy.bootstrapServerAccountTimeout = security.bootstrapServerAccountTimeout;
+        return copy;
+    }
+}
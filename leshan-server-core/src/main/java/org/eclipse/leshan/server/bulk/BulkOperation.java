@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bulk;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * A request sent to a set of clients by a {@link BulkOperationEngine}.
+ * <p>
+ * Results are streamed to the {@link BulkOperationListener} given at creation; this object gives the aggregated
+ * progress and allows to cancel the operation.
+ */
+public class BulkOperation<T extends LwM2mResponse> {
+
+    private final BulkOperationEngine engine;
+    final RegistrationSelector selector;
+    final BulkRequestProvider<T> requestProvider;
+    final long timeout;
+    final BulkOperationListener<T> listener;
+    private final long startTime = System.nanoTime();
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+    // only used by the scheduling thread of the engine
+    private final Iterator<Registration> registrations;
+
+    // guarded by the engine lock
+    boolean selectionDone = false;
+    boolean cancelled = false;
+    boolean done = false;
+    long endTime;
+    int selected;
+    int deferred;
+    int succeeded;
+    int failed;
+    int cancelledCount;
+    final Set<BulkOperationEngine.Task<T>> inFlightTasks = new HashSet<>();
+
+    BulkOperation(BulkOperationEngine engine, Iterator<Registration> registrations, RegistrationSelector selector,
+            BulkRequestProvider<T> requestProvider, long timeout, BulkOperationListener<T> listener) {
+        this.engine = engine;
+        this.registrations = registrations;
+        this.selector = selector;
+        this.requestProvider = requestProvider;
+        this.timeout = timeout;
+        this.listener = listener;
+    }
+
+    /**
+     * Select the next client, must be called by the scheduling thread of the engine, without the engine lock.
+     *
+     * @return the task for the next selected client or <code>null</code> if all registrations were selected.
+     */
+    BulkOperationEngine.Task<T> nextTask() {
+        while (registrations.hasNext()) {
+            Registration registration = registrations.next();
+            if (selector.select(registration)) {
+                return new BulkOperationEngine.Task<>(this, registration);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Must be called with the engine lock.
+     */
+    boolean isCompleted() {
+        return selectionDone && selected == succeeded + failed + cancelledCount;
+    }
+
+    /**
+     * Must be called with the engine lock.
+     */
+    BulkOperationProgress progress() {
+        long end = done ? endTime : System.nanoTime();
+        return new BulkOperationProgress(selected, inFlightTasks.size(), deferred, succeeded, failed, cancelledCount,
+                done, TimeUnit.NANOSECONDS.toMillis(end - startTime));
+    }
+
+    void notifyCompleted(BulkOperationProgress progress) {
+        try {
+            listener.onCompleted(progress);
+        } finally {
+            doneLatch.countDown();
+        }
+    }
+
+    /**
+     * @return the current progress of this operation.
+     */
+    public BulkOperationProgress getProgress() {
+        return engine.getProgress(this);
+    }
+
+    /**
+     * Cancel the operation: requests not sent yet are cancelled and the pending ones are cancelled too.
+     *
+     * @return false if the operation was already done or cancelled.
+     */
+    public boolean cancel() {
+        return engine.cancel(this);
+    }
+
+    public boolean isDone() {
+        return doneLatch.getCount() == 0;
+    }
+
+    /**
+     * Wait until a result is available for all the selected clients.
+     *
+     * @return true if the operation is done, false if the timeout expired before.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return doneLatch.await(timeout, unit);
+    }
+}
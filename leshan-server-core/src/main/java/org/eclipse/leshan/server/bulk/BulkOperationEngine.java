@@ -0,0 +1,536 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bulk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.LwM2mServer;
+import org.eclipse.leshan.server.queue.PresenceListener;
+import org.eclipse.leshan.server.queue.PresenceService;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationService;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends a request to a set of clients, e.g. to read or write a resource on a whole fleet.
+ * <p>
+ * Requests are sent asynchronously, without any thread waiting for responses. The number of requests in flight is
+ * bounded globally and per endpoint, for all the operations of the engine: a new request is sent each time a response
+ * is received. Registrations are selected progressively, so a bulk operation never loads all the registrations in
+ * memory.
+ * <p>
+ * Requests to Queue Mode clients which are sleeping are deferred until the client wakes up, so they do not use the
+ * in-flight window. An operation is done when a result is available for all the selected clients, so an operation
+ * targeting clients which never wake up must be cancelled.
+ */
+public class BulkOperationEngine implements Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkOperationEngine.class);
+
+    /** Default maximum number of requests in flight for the whole engine. */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 100;
+
+    /** Default maximum number of requests in flight for one endpoint. */
+    public static final int DEFAULT_MAX_IN_FLIGHT_PER_ENDPOINT = 1;
+
+    private final AsyncRequestSender sender;
+    private final RegistrationService registrationService;
+    private final PresenceService presenceService;
+    private final PresenceListener presenceListener;
+    private final int maxInFlight;
+    private final int maxInFlightPerEndpoint;
+
+    private final Object lock = new Object();
+    // guarded by lock
+    private int inFlight = 0;
+    private final Map<String, Integer> inFlightByEndpoint = new HashMap<>();
+    private final Deque<Task<?>> readyTasks = new ArrayDeque<>();
+    private final Map<String, Deque<Task<?>>> tasksWaitingForEndpoint = new HashMap<>();
+    private final Map<String, List<Task<?>>> tasksWaitingForWakeUp = new HashMap<>();
+    private final List<BulkOperation<?>> selectingOperations = new ArrayList<>();
+    private final Set<BulkOperation<?>> runningOperations = new LinkedHashSet<>();
+    private int nextOperation = 0;
+
+    // number of scheduling requests, only one thread schedules at a time
+    private final AtomicInteger scheduleRequests = new AtomicInteger();
+
+    public BulkOperationEngine(LwM2mServer server) {
+        this(server, DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT_PER_ENDPOINT);
+    }
+
+    /**
+     * @param server                 the server used to send requests.
+     * @param maxInFlight            the maximum number of requests in flight for the whole engine.
+     * @param maxInFlightPerEndpoint the maximum number of requests in flight for one endpoint.
+     */
+    public BulkOperationEngine(final LwM2mServer server, int maxInFlight, int maxInFlightPerEndpoint) {
+        this(new AsyncRequestSender() {
+            @Override
+            public <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination,
+                    DownlinkRequest<T> request, long timeout) {
+                return server.sendAsync(destination, request, timeout);
+            }
+        }, server.getRegistrationService(), server.getPresenceService(), maxInFlight, maxInFlightPerEndpoint);
+    }
+
+    /**
+     * @param sender                 the sender used to send requests.
+     * @param registrationService    the service used to select registrations.
+     * @param presenceService        the presence service of Queue Mode clients, could be <code>null</code> if queue
+     *                               mode is not supported.
+     * @param maxInFlight            the maximum number of requests in flight for the whole engine.
+     * @param maxInFlightPerEndpoint the maximum number of requests in flight for one endpoint.
+     */
+    public BulkOperationEngine(LwM2mRequestSender sender, RegistrationService registrationService,
+            PresenceService presenceService, int maxInFlight, int maxInFlightPerEndpoint) {
+        this(adapt(sender), registrationService, presenceService, maxInFlight, maxInFlightPerEndpoint);
+    }
+
+    private static AsyncRequestSender adapt(final LwM2mRequestSender sender) {
+        Validate.notNull(sender);
+        return new AsyncRequestSender() {
+            @Override
+            public <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination,
+                    DownlinkRequest<T> request, long timeout) {
+                return sender.sendAsync(destination, request, timeout);
+            }
+        };
+    }
+
+    private BulkOperationEngine(AsyncRequestSender sender, RegistrationService registrationService,
+            PresenceService presenceService, int maxInFlight, int maxInFlightPerEndpoint) {
+        Validate.notNull(registrationService);
+        Validate.isTrue(maxInFlight > 0, "max in flight must be positive");
+        Validate.isTrue(maxInFlightPerEndpoint > 0, "max in flight per endpoint must be positive");
+        this.sender = sender;
+        this.registrationService = registrationService;
+        this.presenceService = presenceService;
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightPerEndpoint = maxInFlightPerEndpoint;
+
+        if (presenceService != null) {
+            presenceListener = new PresenceListener() {
+                @Override
+                public void onAwake(Registration registration) {
+                    clientAwake(registration);
+                }
+
+                @Override
+                public void onSleeping(Registration registration) {
+                }
+            };
+            presenceService.addListener(presenceListener);
+        } else {
+            presenceListener = null;
+        }
+    }
+
+    /**
+     * Send the same request to all the selected clients.
+     *
+     * @see #execute(RegistrationSelector, BulkRequestProvider, long, BulkOperationListener)
+     */
+    public <T extends LwM2mResponse> BulkOperation<T> execute(RegistrationSelector selector,
+            final DownlinkRequest<T> request, long timeout, BulkOperationListener<T> listener) {
+        Validate.notNull(request);
+        return execute(selector, new BulkRequestProvider<T>() {
+            @Override
+            public DownlinkRequest<T> getRequest(Registration registration) {
+                return request;
+            }
+        }, timeout, listener);
+    }
+
+    /**
+     * Start a bulk operation. This method returns once the first requests are sent.
+     *
+     * @param selector        selects the clients targeted by this operation.
+     * @param requestProvider provides the request to send to each selected client.
+     * @param timeout         the timeout in millisecond of each request.
+     * @param listener        the listener which receives the result of each request.
+     * @return the operation, to follow its progress or to cancel it.
+     */
+    public <T extends LwM2mResponse> BulkOperation<T> execute(RegistrationSelector selector,
+            BulkRequestProvider<T> requestProvider, long timeout, BulkOperationListener<T> listener) {
+        Validate.notNull(selector);
+        Validate.notNull(requestProvider);
+        Validate.notNull(listener);
+
+        BulkOperation<T> operation = new BulkOperation<>(this, registrationService.getAllRegistrations(), selector,
+                requestProvider, timeout, listener);
+        synchronized (lock) {
+            selectingOperations.add(operation);
+            runningOperations.add(operation);
+        }
+        schedule();
+        return operation;
+    }
+
+    /**
+     * @return the number of requests in flight for all the operations.
+     */
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    BulkOperationProgress getProgress(BulkOperation<?> operation) {
+        synchronized (lock) {
+            return operation.progress();
+        }
+    }
+
+    <T extends LwM2mResponse> boolean cancel(BulkOperation<T> operation) {
+        List<Task<?>> cancelledTasks = new ArrayList<>();
+        List<Task<T>> inFlightTasks;
+        synchronized (lock) {
+            if (operation.cancelled || operation.done)
+                return false;
+            operation.cancelled = true;
+            operation.selectionDone = true;
+            selectingOperations.remove(operation);
+
+            removeTasks(operation, readyTasks, cancelledTasks);
+            for (Iterator<Deque<Task<?>>> it = tasksWaitingForEndpoint.values().iterator(); it.hasNext();) {
+                Deque<Task<?>> tasks = it.next();
+                removeTasks(operation, tasks, cancelledTasks);
+                if (tasks.isEmpty())
+                    it.remove();
+            }
+            for (Iterator<List<Task<?>>> it = tasksWaitingForWakeUp.values().iterator(); it.hasNext();) {
+                List<Task<?>> tasks = it.next();
+                operation.deferred -= removeTasks(operation, tasks, cancelledTasks);
+                if (tasks.isEmpty())
+                    it.remove();
+            }
+            operation.cancelledCount += cancelledTasks.size();
+            inFlightTasks = new ArrayList<>(operation.inFlightTasks);
+        }
+
+        // requests not sent yet
+        for (Task<?> task : cancelledTasks) {
+            notifyError(operation, task.registration,
+                    new RequestCanceledException("Bulk operation was canceled before sending request"));
+        }
+        // requests in flight, their future completes the task
+        for (Task<T> task : inFlightTasks) {
+            if (task.future != null) {
+                task.future.cancel(false);
+            }
+        }
+        schedule();
+        return true;
+    }
+
+    private static int removeTasks(BulkOperation<?> operation, Iterable<Task<?>> tasks, List<Task<?>> removed) {
+        int count = 0;
+        for (Iterator<Task<?>> it = tasks.iterator(); it.hasNext();) {
+            Task<?> task = it.next();
+            if (task.operation == operation) {
+                it.remove();
+                removed.add(task);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void clientAwake(Registration registration) {
+        synchronized (lock) {
+            List<Task<?>> tasks = tasksWaitingForWakeUp.remove(registration.getEndpoint());
+            if (tasks == null)
+                return;
+            for (Task<?> task : tasks) {
+                // use the up to date registration
+                task.registration = registration;
+                task.operation.deferred--;
+                readyTasks.add(task);
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Send as many requests as the windows allow and notify completed operations. Only one thread schedules at a time,
+     * other threads just ask it to schedule once more.
+     */
+    private void schedule() {
+        if (scheduleRequests.getAndIncrement() != 0)
+            return;
+
+        int requests = 1;
+        while (true) {
+            List<Task<?>> tasksToSend = new ArrayList<>();
+            List<BulkOperation<?>> completedOperations = new ArrayList<>();
+            List<BulkOperationProgress> completedProgress = new ArrayList<>();
+            BulkOperation<?> selectingOperation;
+            synchronized (lock) {
+                selectTasksToSend(tasksToSend);
+                selectingOperation = inFlight < maxInFlight ? nextSelectingOperation() : null;
+                for (Iterator<BulkOperation<?>> it = runningOperations.iterator(); it.hasNext();) {
+                    BulkOperation<?> operation = it.next();
+                    if (operation.isCompleted()) {
+                        it.remove();
+                        operation.done = true;
+                        operation.endTime = System.nanoTime();
+                        completedOperations.add(operation);
+                        completedProgress.add(operation.progress());
+                    }
+                }
+            }
+
+            for (Task<?> task : tasksToSend) {
+                send(task);
+            }
+            for (int i = 0; i < completedOperations.size(); i++) {
+                try {
+                    completedOperations.get(i).notifyCompleted(completedProgress.get(i));
+                } catch (RuntimeException e) {
+                    LOG.warn("Bulk operation listener failed", e);
+                }
+            }
+
+            if (selectingOperation != null) {
+                // there is room for more requests, select one more client and schedule again
+                selectNextTask(selectingOperation);
+                continue;
+            }
+
+            requests = scheduleRequests.addAndGet(-requests);
+            if (requests == 0)
+                return;
+        }
+    }
+
+    // must be called with the lock
+    private void selectTasksToSend(List<Task<?>> tasksToSend) {
+        while (inFlight < maxInFlight) {
+            Task<?> task = readyTasks.poll();
+            if (task == null)
+                return;
+
+            Registration registration = task.registration;
+            String endpoint = registration.getEndpoint();
+            if (presenceService != null && registration.usesQueueMode()
+                    && !presenceService.isClientAwake(registration)) {
+                List<Task<?>> tasks = tasksWaitingForWakeUp.get(endpoint);
+                if (tasks == null) {
+                    tasks = new ArrayList<>(1);
+                    tasksWaitingForWakeUp.put(endpoint, tasks);
+                }
+                tasks.add(task);
+                task.operation.deferred++;
+                continue;
+            }
+
+            Integer endpointInFlight = inFlightByEndpoint.get(endpoint);
+            int count = endpointInFlight == null ? 0 : endpointInFlight;
+            if (count >= maxInFlightPerEndpoint) {
+                Deque<Task<?>> tasks = tasksWaitingForEndpoint.get(endpoint);
+                if (tasks == null) {
+                    tasks = new ArrayDeque<>(2);
+                    tasksWaitingForEndpoint.put(endpoint, tasks);
+                }
+                tasks.add(task);
+                continue;
+            }
+
+            inFlightByEndpoint.put(endpoint, count + 1);
+            inFlight++;
+            task.addInFlight();
+            tasksToSend.add(task);
+        }
+    }
+
+    // must be called with the lock, selects registrations from operations in turn
+    private BulkOperation<?> nextSelectingOperation() {
+        if (selectingOperations.isEmpty())
+            return null;
+        if (nextOperation >= selectingOperations.size()) {
+            nextOperation = 0;
+        }
+        return selectingOperations.get(nextOperation++);
+    }
+
+    // must be called by the scheduling thread, without the lock: registrations are iterated and filtered by the
+    // selector outside of it, so a slow registration store does not block responses and cancellations.
+    private <T extends LwM2mResponse> void selectNextTask(BulkOperation<T> operation) {
+        Task<T> task = operation.nextTask();
+        synchronized (lock) {
+            if (task == null) {
+                operation.selectionDone = true;
+                selectingOperations.remove(operation);
+            } else if (!operation.cancelled) {
+                operation.selected++;
+                readyTasks.add(task);
+            }
+        }
+    }
+
+    private <T extends LwM2mResponse> void send(final Task<T> task) {
+        BulkOperation<T> operation = task.operation;
+        ResponseFuture<T> future;
+        try {
+            DownlinkRequest<T> request = operation.requestProvider.getRequest(task.registration);
+            future = sender.sendAsync(task.registration, request, operation.timeout);
+        } catch (RuntimeException e) {
+            completed(task, null, e);
+            return;
+        }
+
+        boolean cancelled;
+        synchronized (lock) {
+            task.future = future;
+            cancelled = operation.cancelled;
+        }
+        if (cancelled) {
+            future.cancel(false);
+        }
+
+        future.addCallbacks(new ResponseCallback<T>() {
+            @Override
+            public void onResponse(T response) {
+                completed(task, response, null);
+            }
+        }, new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                completed(task, null, e);
+            }
+        });
+    }
+
+    private <T extends LwM2mResponse> void completed(Task<T> task, T response, Exception error) {
+        BulkOperation<T> operation = task.operation;
+        if (response == null && error == null) {
+            error = new TimeoutException("Request timed out");
+        }
+
+        synchronized (lock) {
+            String endpoint = task.registration.getEndpoint();
+            inFlight--;
+            int endpointInFlight = inFlightByEndpoint.get(endpoint) - 1;
+            if (endpointInFlight == 0) {
+                inFlightByEndpoint.remove(endpoint);
+            } else {
+                inFlightByEndpoint.put(endpoint, endpointInFlight);
+            }
+            Deque<Task<?>> waitingTasks = tasksWaitingForEndpoint.get(endpoint);
+            if (waitingTasks != null) {
+                readyTasks.addFirst(waitingTasks.poll());
+                if (waitingTasks.isEmpty()) {
+                    tasksWaitingForEndpoint.remove(endpoint);
+                }
+            }
+
+            operation.inFlightTasks.remove(task);
+            if (error == null) {
+                if (response.isSuccess()) {
+                    operation.succeeded++;
+                } else {
+                    operation.failed++;
+                }
+            } else if (operation.cancelled && error instanceof RequestCanceledException) {
+                operation.cancelledCount++;
+            } else {
+                operation.failed++;
+            }
+        }
+
+        if (error == null) {
+            try {
+                operation.listener.onResponse(task.registration, response);
+            } catch (RuntimeException e) {
+                LOG.warn("Bulk operation listener failed", e);
+            }
+        } else {
+            notifyError(operation, task.registration, error);
+        }
+        schedule();
+    }
+
+    private void notifyError(BulkOperation<?> operation, Registration registration, Exception error) {
+        try {
+            operation.listener.onError(registration, error);
+        } catch (RuntimeException e) {
+            LOG.warn("Bulk operation listener failed", e);
+        }
+    }
+
+    /**
+     * Cancel all the running operations.
+     */
+    @Override
+    public void destroy() {
+        if (presenceService != null) {
+            presenceService.removeListener(presenceListener);
+        }
+        List<BulkOperation<?>> operations;
+        synchronized (lock) {
+            operations = new ArrayList<>(runningOperations);
+        }
+        for (BulkOperation<?> operation : operations) {
+            operation.cancel();
+        }
+    }
+
+    /**
+     * The request to send to one client for one operation.
+     */
+    static class Task<T extends LwM2mResponse> {
+        final BulkOperation<T> operation;
+        Registration registration;
+        ResponseFuture<T> future;
+
+        Task(BulkOperation<T> operation, Registration registration) {
+            this.operation = operation;
+            this.registration = registration;
+        }
+
+        void addInFlight() {
+            operation.inFlightTasks.add(this);
+        }
+    }
+
+    /**
+     * The only part of {@link LwM2mServer} or {@link LwM2mRequestSender} needed by the engine.
+     */
+    private interface AsyncRequestSender {
+        <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+                long timeout);
+    }
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bulk;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Receives the result of each request of a bulk operation, as soon as it is available.
+ * <p>
+ * Methods are called from the threads which complete the requests, so they can be called concurrently and should not
+ * block.
+ */
+public interface BulkOperationListener<T extends LwM2mResponse> {
+
+    /**
+     * Called when a client responds (successful or error response).
+     */
+    void onResponse(Registration registration, T response);
+
+    /**
+     * Called when the request to a client fails: timeout, cancellation, encoding issue...
+     */
+    void onError(Registration registration, Exception error);
+
+    /**
+     * Called once, when a result is available for all the selected clients.
+     */
+    void onCompleted(BulkOperationProgress progress);
+}
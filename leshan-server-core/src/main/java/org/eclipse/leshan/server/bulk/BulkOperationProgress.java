@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bulk;
+
+/**
+ * A snapshot of the progress of a bulk operation.
+ */
+public class BulkOperationProgress {
+
+    private final int selected;
+    private final int inFlight;
+    private final int deferred;
+    private final int succeeded;
+    private final int failed;
+    private final int cancelled;
+    private final boolean done;
+    private final long elapsedTime;
+
+    public BulkOperationProgress(int selected, int inFlight, int deferred, int succeeded, int failed, int cancelled,
+            boolean done, long elapsedTime) {
+        this.selected = selected;
+        this.inFlight = inFlight;
+        this.deferred = deferred;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.cancelled = cancelled;
+        this.done = done;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * @return the number of clients selected so far. Registrations are selected progressively, so this number can
+     *         grow until the operation is done.
+     */
+    public int getSelected() {
+        return selected;
+    }
+
+    /**
+     * @return the number of requests sent and waiting for a response.
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of Queue Mode clients which are sleeping. Their request will be sent when they wake up.
+     */
+    public int getDeferred() {
+        return deferred;
+    }
+
+    /**
+     * @return the number of clients which sent a success response.
+     */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return the number of clients which sent an error response or for which the request failed.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of requests cancelled.
+     */
+    public int getCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the number of clients with a result.
+     */
+    public int getCompleted() {
+        return succeeded + failed + cancelled;
+    }
+
+    /**
+     * @return the number of selected clients without result yet.
+     */
+    public int getPending() {
+        return selected - getCompleted();
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return the time in millisecond since the start of the operation, or its duration if it is done.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * @return the average number of results per second since the start of the operation.
+     */
+    public double getThroughput() {
+        return elapsedTime == 0 ? 0 : getCompleted() * 1000d / elapsedTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "BulkOperationProgress [selected=%s, inFlight=%s, deferred=%s, succeeded=%s, failed=%s, "
+                        + "cancelled=%s, done=%s, elapsedTime=%sms]",
+                selected, inFlight, deferred, succeeded, failed, cancelled, done, elapsedTime);
+    }
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bulk;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Provides the request to send to each client selected by a bulk operation.
+ */
+public interface BulkRequestProvider<T extends LwM2mResponse> {
+    // We should keep this as a 1 method interface to be java 8 lambda compatible.
+
+    /**
+     * Called just before sending the request, so the request can depend on the current state of the client.
+     *
+     * @return the request to send to this client.
+     */
+    DownlinkRequest<T> getRequest(Registration registration);
+}
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bulk;
+
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Selects the registrations targeted by a bulk operation.
+ */
+public interface RegistrationSelector {
+    // We should keep this as a 1 method interface to be java 8 lambda compatible.
+
+    /**
+     * @return true if a request must be sent to this client.
+     */
+    boolean select(Registration registration);
+}
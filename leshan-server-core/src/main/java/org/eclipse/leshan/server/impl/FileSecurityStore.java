@@ -86,6 +86,14 @@ public class FileSecurityStore extends InMemorySecurityStore {
         }
     }
 
+    /**
+     * Writes the file once per batch, before the listeners are notified.
+     */
+    @Override
+    protected void batchApplied() {
+        saveToFile();
+    }
+
     protected void loadFromFile() {
         File file = new File(filename);
         if (!file.exists()) {
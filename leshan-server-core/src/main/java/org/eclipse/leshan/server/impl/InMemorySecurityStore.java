@@ -19,20 +19,25 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import org.eclipse.leshan.server.security.EditableSecurityStore;
+import org.eclipse.leshan.server.security.BulkEditableSecurityStore;
 import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.ObservableSecurityStore;
 import org.eclipse.leshan.server.security.SecurityInfo;
+import org.eclipse.leshan.server.security.SecurityInfoBatch;
 import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.server.security.SecurityStoreListener;
 
 /**
  * A {@link SecurityStore} which store {@link SecurityInfo} in memory.
  */
-public class InMemorySecurityStore implements EditableSecurityStore {
+public class InMemorySecurityStore implements ObservableSecurityStore, BulkEditableSecurityStore {
 
     // lock for the two maps
     protected final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
@@ -45,6 +50,8 @@ public class InMemorySecurityStore implements EditableSecurityStore {
     // by PSK identity
     protected Map<String, SecurityInfo> securityByIdentity = new HashMap<>();
 
+    private final List<SecurityStoreListener> listeners = new CopyOnWriteArrayList<>();
+
     public InMemorySecurityStore() {
     }
 
@@ -86,44 +93,140 @@ public class InMemorySecurityStore implements EditableSecurityStore {
 
     @Override
     public SecurityInfo add(SecurityInfo info) throws NonUniqueSecurityInfoException {
+        SecurityInfo previous;
         writeLock.lock();
         try {
-            String identity = info.getIdentity();
-            if (identity != null) {
-                SecurityInfo infoByIdentity = securityByIdentity.get(info.getIdentity());
-                if (infoByIdentity != null && !info.getEndpoint().equals(infoByIdentity.getEndpoint())) {
-                    throw new NonUniqueSecurityInfoException("PSK Identity " + info.getIdentity() + " is already used");
-                }
+            checkIdentity(info);
+            previous = put(info);
+        } finally {
+            writeLock.unlock();
+        }
+        notifyListeners(info.getEndpoint(), previous, info);
+        return previous;
+    }
 
-                securityByIdentity.put(info.getIdentity(), info);
+    @Override
+    public List<SecurityInfo> addAll(Collection<SecurityInfo> infos) throws NonUniqueSecurityInfoException {
+        Collection<SecurityInfo> batch = SecurityInfoBatch.lastByEndpoint(infos);
+        List<SecurityInfo> previousInfos = new ArrayList<>(batch.size());
+        List<SecurityInfo> previousByInfo = new ArrayList<>(batch.size());
+        writeLock.lock();
+        try {
+            for (SecurityInfo info : batch) {
+                checkIdentity(info);
+            }
+            for (SecurityInfo info : batch) {
+                SecurityInfo previous = put(info);
+                previousByInfo.add(previous);
+                if (previous != null) {
+                    previousInfos.add(previous);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batchApplied();
             }
+        } finally {
+            writeLock.unlock();
+        }
+        int i = 0;
+        for (SecurityInfo info : batch) {
+            notifyListeners(info.getEndpoint(), previousByInfo.get(i++), info);
+        }
+        return previousInfos;
+    }
 
-            SecurityInfo previous = securityByEp.put(info.getEndpoint(), info);
-            String previousIdentity = previous == null ? null : previous.getIdentity();
-            if (previousIdentity != null && !previousIdentity.equals(identity)) {
-                securityByIdentity.remove(previousIdentity);
+    // must be called with the write lock
+    private void checkIdentity(SecurityInfo info) throws NonUniqueSecurityInfoException {
+        if (info.getIdentity() != null) {
+            SecurityInfo infoByIdentity = securityByIdentity.get(info.getIdentity());
+            if (infoByIdentity != null && !info.getEndpoint().equals(infoByIdentity.getEndpoint())) {
+                throw new NonUniqueSecurityInfoException("PSK Identity " + info.getIdentity() + " is already used");
             }
+        }
+    }
+
+    // must be called with the write lock
+    private SecurityInfo put(SecurityInfo info) {
+        String identity = info.getIdentity();
+        if (identity != null) {
+            securityByIdentity.put(identity, info);
+        }
+
+        SecurityInfo previous = securityByEp.put(info.getEndpoint(), info);
+        String previousIdentity = previous == null ? null : previous.getIdentity();
+        if (previousIdentity != null && !previousIdentity.equals(identity)) {
+            securityByIdentity.remove(previousIdentity);
+        }
+        return previous;
+    }
 
-            return previous;
+    @Override
+    public SecurityInfo remove(String endpoint) {
+        SecurityInfo info;
+        writeLock.lock();
+        try {
+            info = delete(endpoint);
         } finally {
             writeLock.unlock();
         }
+        if (info != null) {
+            notifyListeners(endpoint, info, null);
+        }
+        return info;
     }
 
     @Override
-    public SecurityInfo remove(String endpoint) {
+    public List<SecurityInfo> removeAll(Collection<String> endpoints) {
+        List<SecurityInfo> infos = new ArrayList<>();
         writeLock.lock();
         try {
-            SecurityInfo info = securityByEp.get(endpoint);
-            if (info != null) {
-                if (info.getIdentity() != null) {
-                    securityByIdentity.remove(info.getIdentity());
+            for (String endpoint : endpoints) {
+                SecurityInfo info = delete(endpoint);
+                if (info != null) {
+                    infos.add(info);
                 }
-                securityByEp.remove(endpoint);
             }
-            return info;
+            if (!infos.isEmpty()) {
+                batchApplied();
+            }
         } finally {
             writeLock.unlock();
         }
+        for (SecurityInfo info : infos) {
+            notifyListeners(info.getEndpoint(), info, null);
+        }
+        return infos;
+    }
+
+    // must be called with the write lock
+    private SecurityInfo delete(String endpoint) {
+        SecurityInfo info = securityByEp.remove(endpoint);
+        if (info != null && info.getIdentity() != null) {
+            securityByIdentity.remove(info.getIdentity());
+        }
+        return info;
+    }
+
+    /**
+     * Called with the write lock once {@link #addAll(Collection)} or {@link #removeAll(Collection)} changed the store,
+     * before the listeners are notified. Does nothing by default.
+     */
+    protected void batchApplied() {
+    }
+
+    @Override
+    public void addListener(SecurityStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(SecurityStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    protected void notifyListeners(String endpoint, SecurityInfo previous, SecurityInfo current) {
+        for (SecurityStoreListener listener : listeners) {
+            listener.securityInfoChanged(endpoint, previous, current);
+        }
     }
 }
@@ -0,0 +1,1139 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.security.BulkEditableSecurityStore;
+import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.ObservableSecurityStore;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.eclipse.leshan.server.security.SecurityInfoBatch;
+import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.server.security.SecurityStoreListener;
+import org.eclipse.leshan.util.NamedThreadFactory;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SecurityStore} which keeps {@link SecurityInfo} in memory-mapped files instead of the Java heap, for servers
+ * handling millions of clients.
+ * <p>
+ * Security infos are appended as binary records to a data file. An index file contains two open-addressing hash tables
+ * (linear probing) giving the offset of the record of each end-point and of each PSK identity. Both files are mapped in
+ * memory, so a lookup reads the tables and the record in place and only creates the returned {@link SecurityInfo}.
+ * <p>
+ * Adding or removing a security info only appends a record and updates a few slots of the tables. Replaced and removed
+ * records are marked as deleted, the data file is compacted in background when they take more space than the live
+ * records: the live records are copied to new files while lookups and changes still use the current ones, only the
+ * changes done during the copy are applied with the lock, just before the new files replace the current ones.
+ * <p>
+ * When the store is {@link #destroy() destroyed}, the index is marked as clean and is used as is at the next startup,
+ * which then does not depend on the number of security infos (pages are loaded on demand by the OS).
+ * Otherwise (e.g. after a crash), the index is rebuilt by reading the data file; a corrupted record at the end of the
+ * file is ignored. Changes are written to the OS page cache, use {@link #flush()} to write them to the disk.
+ * <p>
+ * The size of each file is limited to 2GB.
+ */
+public class MappedSecurityStore implements ObservableSecurityStore, BulkEditableSecurityStore, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedSecurityStore.class);
+
+    // default location for persistence, the index file has the same name with the ".idx" suffix
+    public static final String DEFAULT_FILE = "data/security.mapped";
+
+    private static final int DATA_MAGIC = 0x4C534D31; // "LSM1"
+    private static final int INDEX_MAGIC = 0x4C534931; // "LSI1"
+
+    // data file: magic, data end, then records
+    private static final int DATA_END_POS = 8;
+    private static final int DATA_START = 16;
+    private static final int MIN_DATA_SIZE = 1 << 20;
+
+    // record: body length, CRC32 of the body, status, body
+    private static final int RECORD_HEADER = 9;
+    private static final int STATUS_POS = 8;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 0;
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    // index file: header, then the end-point table and the PSK identity table
+    private static final int CAPACITY_POS = 4;
+    private static final int CLEAN_POS = 8;
+    private static final int INDEXED_DATA_END_POS = 16;
+    private static final int GARBAGE_POS = 24;
+    private static final int ENTRIES_POS = 32;
+    private static final int USED_SLOTS_POS = 40;
+    private static final int INDEX_HEADER = 48;
+    private static final int SLOT_SIZE = 8; // record offset, hash
+    private static final int EMPTY = 0;
+    private static final int TOMBSTONE = -1;
+    private static final int MIN_CAPACITY = 1024;
+    // the index file must fit in one mapping
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private static final int ENDPOINT_TABLE = 0;
+    private static final int IDENTITY_TABLE = 1;
+
+    private static final long MIN_COMPACTION_GARBAGE = 1 << 20;
+
+    protected final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    protected final Lock readLock = readWriteLock.readLock();
+    protected final Lock writeLock = readWriteLock.writeLock();
+
+    private final File dataFile;
+    private final File indexFile;
+    private final List<SecurityStoreListener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService compactionExecutor;
+    private final Object compactionLock = new Object();
+
+    // guarded by the lock
+    private Storage storage; // null once destroyed
+    private boolean compacting;
+    // end-points removed while a compaction copies the records, null if there is no compaction
+    private Set<String> removedDuringCompaction;
+
+    public MappedSecurityStore() {
+        this(DEFAULT_FILE);
+    }
+
+    public MappedSecurityStore(String file) {
+        this(file, 0);
+    }
+
+    /**
+     * @param file the data file, the index is stored in the same directory with the ".idx" suffix.
+     * @param expectedSize the expected number of security infos, used to size the index of a new store.
+     */
+    public MappedSecurityStore(String file, int expectedSize) {
+        Validate.notEmpty(file);
+        this.dataFile = new File(file);
+        this.indexFile = new File(file + ".idx");
+        File parent = dataFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        storage = new Storage(dataFile, indexFile);
+        try {
+            storage.open(expectedSize);
+        } catch (IOException e) {
+            storage.closeChannels();
+            throw new IllegalStateException(String.format("Unable to open security store %s", file), e);
+        }
+        this.compactionExecutor = Executors
+                .newSingleThreadExecutor(new NamedThreadFactory("Leshan security store compaction"));
+        LOG.debug("{} security infos loaded from {}", storage.entries[ENDPOINT_TABLE], file);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SecurityInfo getByEndpoint(String endpoint) {
+        byte[] key = endpoint.getBytes(StandardCharsets.UTF_8);
+        readLock.lock();
+        try {
+            checkOpen();
+            return storage.find(ENDPOINT_TABLE, key);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SecurityInfo getByIdentity(String identity) {
+        byte[] key = identity.getBytes(StandardCharsets.UTF_8);
+        readLock.lock();
+        try {
+            checkOpen();
+            return storage.find(IDENTITY_TABLE, key);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<SecurityInfo> getAll() {
+        readLock.lock();
+        try {
+            checkOpen();
+            return Collections.unmodifiableCollection(storage.getAll());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of security infos in this store.
+     */
+    public int size() {
+        readLock.lock();
+        try {
+            checkOpen();
+            return storage.entries[ENDPOINT_TABLE];
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public SecurityInfo add(SecurityInfo info) throws NonUniqueSecurityInfoException {
+        byte[] record = encode(info);
+        SecurityInfo previous;
+        writeLock.lock();
+        try {
+            checkOpen();
+            storage.checkIdentity(info);
+            previous = storage.add(record);
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+        notifyListeners(info.getEndpoint(), previous, info);
+        return previous;
+    }
+
+    @Override
+    public List<SecurityInfo> addAll(Collection<SecurityInfo> infos) throws NonUniqueSecurityInfoException {
+        Collection<SecurityInfo> batch = SecurityInfoBatch.lastByEndpoint(infos);
+        List<byte[]> records = new ArrayList<>(batch.size());
+        for (SecurityInfo info : batch) {
+            records.add(encode(info));
+        }
+
+        List<SecurityInfo> previousInfos = new ArrayList<>(batch.size());
+        List<SecurityInfo> previousByInfo = new ArrayList<>(batch.size());
+        writeLock.lock();
+        try {
+            checkOpen();
+            for (SecurityInfo info : batch) {
+                storage.checkIdentity(info);
+            }
+            for (byte[] record : records) {
+                SecurityInfo previous = storage.add(record);
+                previousByInfo.add(previous);
+                if (previous != null) {
+                    previousInfos.add(previous);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+        int i = 0;
+        for (SecurityInfo info : batch) {
+            notifyListeners(info.getEndpoint(), previousByInfo.get(i++), info);
+        }
+        return previousInfos;
+    }
+
+    @Override
+    public SecurityInfo remove(String endpoint) {
+        SecurityInfo info;
+        writeLock.lock();
+        try {
+            checkOpen();
+            info = delete(endpoint);
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+        if (info != null) {
+            notifyListeners(endpoint, info, null);
+        }
+        return info;
+    }
+
+    @Override
+    public List<SecurityInfo> removeAll(Collection<String> endpoints) {
+        List<SecurityInfo> infos = new ArrayList<>();
+        writeLock.lock();
+        try {
+            checkOpen();
+            for (String endpoint : endpoints) {
+                SecurityInfo info = delete(endpoint);
+                if (info != null) {
+                    infos.add(info);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+        for (SecurityInfo info : infos) {
+            notifyListeners(info.getEndpoint(), info, null);
+        }
+        return infos;
+    }
+
+    // must be called with the write lock
+    private SecurityInfo delete(String endpoint) {
+        SecurityInfo info = storage.delete(endpoint);
+        if (info != null && removedDuringCompaction != null) {
+            removedDuringCompaction.add(endpoint);
+        }
+        return info;
+    }
+
+    @Override
+    public void addListener(SecurityStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(SecurityStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    protected void notifyListeners(String endpoint, SecurityInfo previous, SecurityInfo current) {
+        for (SecurityStoreListener listener : listeners) {
+            listener.securityInfoChanged(endpoint, previous, current);
+        }
+    }
+
+    // the space taken by the deleted records, for tests
+    long getGarbage() {
+        readLock.lock();
+        try {
+            checkOpen();
+            return storage.garbage;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Write the changes done since the last flush to the disk.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            checkOpen();
+            storage.data.force();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Rewrite the data file with the live records only. This is done automatically in background when the deleted
+     * records take more space than the live ones.
+     * <p>
+     * Lookups and changes are still possible during the compaction. If a compaction is running, this method waits for
+     * it before compacting again.
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            try {
+                doCompact();
+            } catch (IOException e) {
+                throw new IllegalStateException(String.format("Unable to compact security store %s", dataFile), e);
+            }
+        }
+    }
+
+    /**
+     * Wait for the running compaction, flush the changes and close the files. The index is marked as clean so it is
+     * not rebuilt at the next startup.
+     */
+    @Override
+    public void destroy() {
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            if (storage == null)
+                return;
+            storage.close();
+            storage = null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (storage == null)
+            throw new IllegalStateException("Security store is destroyed");
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // compaction
+
+    // must be called with the write lock
+    private void compactIfNeeded() {
+        if (compacting || compactionExecutor.isShutdown())
+            return;
+        if (storage.garbage > MIN_COMPACTION_GARBAGE && storage.garbage > (storage.dataEnd - DATA_START) / 2) {
+            compacting = true;
+            compactionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        compact();
+                    } catch (RuntimeException e) {
+                        LOG.error("Unable to compact security store {}", dataFile, e);
+                    }
+                }
+            });
+        }
+    }
+
+    private void doCompact() throws IOException {
+        long start = System.currentTimeMillis();
+        Storage source;
+        ByteBuffer sourceData;
+        int sourceEnd;
+        int liveSize;
+        writeLock.lock();
+        try {
+            if (storage == null) {
+                compacting = false;
+                return;
+            }
+            compacting = true;
+            removedDuringCompaction = new HashSet<>();
+            source = storage;
+            sourceData = storage.data;
+            sourceEnd = storage.dataEnd;
+            liveSize = (int) (storage.dataEnd - storage.garbage);
+        } finally {
+            writeLock.unlock();
+        }
+
+        Storage compacted = new Storage(new File(dataFile.getPath() + ".compact"),
+                new File(dataFile.getPath() + ".compact.idx"));
+        boolean replaced = false;
+        try {
+            // records before the end are not modified anymore (except their status), copy them without the lock
+            compacted.create(liveSize, source.capacity);
+            compacted.copy(sourceData, DATA_START, sourceEnd);
+
+            writeLock.lock();
+            try {
+                if (storage != source)
+                    return; // destroyed
+
+                // apply the changes done during the copy: removals then records appended
+                for (String endpoint : removedDuringCompaction) {
+                    if (storage.find(ENDPOINT_TABLE, endpoint.getBytes(StandardCharsets.UTF_8)) == null) {
+                        compacted.delete(endpoint);
+                    }
+                }
+                compacted.copy(storage.data, sourceEnd, storage.dataEnd);
+
+                int previousSize = storage.dataEnd;
+                compacted.replace(storage, dataFile, indexFile);
+                storage = compacted;
+                replaced = true;
+                LOG.debug("Security store {} compacted from {} to {} bytes in {}ms", dataFile, previousSize,
+                        compacted.dataEnd, System.currentTimeMillis() - start);
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            if (!replaced) {
+                compacted.discard();
+            }
+            writeLock.lock();
+            try {
+                removedDuringCompaction = null;
+                compacting = false;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // records
+
+    private static byte[] encode(SecurityInfo info) {
+        byte[] endpoint = info.getEndpoint().getBytes(StandardCharsets.UTF_8);
+        byte[] identity = info.getIdentity() == null ? null : info.getIdentity().getBytes(StandardCharsets.UTF_8);
+        byte[] psk = info.getPreSharedKey();
+        byte[] algorithm = null;
+        byte[] publicKey = null;
+        if (info.getRawPublicKey() != null) {
+            algorithm = info.getRawPublicKey().getAlgorithm().getBytes(StandardCharsets.UTF_8);
+            publicKey = info.getRawPublicKey().getEncoded();
+        }
+
+        int length = 2 + endpoint.length + fieldLength(identity) + fieldLength(psk) + 1 + fieldLength(algorithm)
+                + (algorithm == null ? 0 : fieldLength(publicKey));
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.putInt(length);
+        record.putInt(0); // CRC
+        record.put(LIVE);
+        putField(record, endpoint);
+        putField(record, identity);
+        putField(record, psk);
+        record.put((byte) (info.useX509Cert() ? 1 : 0));
+        putField(record, algorithm);
+        if (algorithm != null) {
+            putField(record, publicKey);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, length);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static int fieldLength(byte[] field) {
+        if (field != null && field.length >= NULL_LENGTH) {
+            throw new IllegalArgumentException("Security info field is too long: " + field.length + " bytes");
+        }
+        return 2 + (field == null ? 0 : field.length);
+    }
+
+    private static void putField(ByteBuffer record, byte[] field) {
+        if (field == null) {
+            record.putShort((short) NULL_LENGTH);
+        } else {
+            record.putShort((short) field.length);
+            record.put(field);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer record) {
+        int length = record.getShort() & 0xFFFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = readBytes(record);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // FNV-1a, computed on the UTF-8 bytes so the index can be rebuilt without decoding strings
+    private static int hash(ByteBuffer key, int position, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash ^= key.get(position + i) & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static long indexSize(int capacity) {
+        return INDEX_HEADER + 2L * capacity * SLOT_SIZE;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity < 4L * expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int slotPosition(int table, int slot, int capacity) {
+        // lower than the index size, which is lower than 2GB
+        return (int) (INDEX_HEADER + ((long) table * capacity + slot) * SLOT_SIZE);
+    }
+
+    /**
+     * A data file and its index. A compaction creates a new storage which then replaces the current one.
+     * <p>
+     * Must be used with the lock of the store, except a storage being created by a compaction.
+     */
+    private class Storage {
+        private File dataFile;
+        private File indexFile;
+
+        private FileChannel dataChannel;
+        private MappedByteBuffer data;
+        private int dataEnd;
+        private long garbage;
+        private FileChannel indexChannel;
+        private MappedByteBuffer index;
+        private int capacity;
+        // number of live entries and of used slots (live or tombstone) of each table
+        private final int[] entries = new int[2];
+        private final int[] usedSlots = new int[2];
+
+        private Storage(File dataFile, File indexFile) {
+            this.dataFile = dataFile;
+            this.indexFile = indexFile;
+        }
+
+        // open the existing files or create them
+        private void open(int expectedSize) throws IOException {
+            openData();
+            if (!openIndex()) {
+                rebuildIndex(capacityFor(expectedSize));
+            }
+            // the index is not clean anymore until it is closed
+            index.putInt(CLEAN_POS, 0);
+            index.force();
+        }
+
+        // create empty files for a compaction
+        private void create(int liveSize, int newCapacity) throws IOException {
+            Files.deleteIfExists(dataFile.toPath());
+            dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            data = dataChannel.map(MapMode.READ_WRITE, 0,
+                    Math.max(MIN_DATA_SIZE, Math.min(Integer.MAX_VALUE, 2L * liveSize)));
+            data.putInt(0, DATA_MAGIC);
+            dataEnd = DATA_START;
+            data.putInt(DATA_END_POS, dataEnd);
+
+            File tmp = tmpIndexFile();
+            useIndex(tmp, createIndex(tmp, newCapacity), newCapacity);
+        }
+
+        private SecurityInfo find(int table, byte[] key) {
+            int slot = findSlot(table, ByteBuffer.wrap(key), 0, key.length);
+            return slot < 0 ? null : readRecord(slotOffset(table, slot));
+        }
+
+        private List<SecurityInfo> getAll() {
+            List<SecurityInfo> infos = new ArrayList<>(entries[ENDPOINT_TABLE]);
+            for (int offset = DATA_START; offset < dataEnd; offset += RECORD_HEADER + data.getInt(offset)) {
+                if (data.get(offset + STATUS_POS) == LIVE) {
+                    infos.add(readRecord(offset));
+                }
+            }
+            return infos;
+        }
+
+        private void checkIdentity(SecurityInfo info) throws NonUniqueSecurityInfoException {
+            if (info.getIdentity() != null) {
+                byte[] identity = info.getIdentity().getBytes(StandardCharsets.UTF_8);
+                int slot = findSlot(IDENTITY_TABLE, ByteBuffer.wrap(identity), 0, identity.length);
+                if (slot >= 0 && !info.getEndpoint().equals(readEndpoint(slotOffset(IDENTITY_TABLE, slot)))) {
+                    throw new NonUniqueSecurityInfoException("PSK Identity " + info.getIdentity() + " is already used");
+                }
+            }
+        }
+
+        /**
+         * @return the replaced security info or <code>null</code>.
+         */
+        private SecurityInfo add(byte[] record) {
+            int previousOffset = index(append(ByteBuffer.wrap(record)));
+            return previousOffset == EMPTY ? null : readRecord(previousOffset);
+        }
+
+        private SecurityInfo delete(String endpoint) {
+            byte[] key = endpoint.getBytes(StandardCharsets.UTF_8);
+            int slot = findSlot(ENDPOINT_TABLE, ByteBuffer.wrap(key), 0, key.length);
+            if (slot < 0) {
+                return null;
+            }
+            int offset = slotOffset(ENDPOINT_TABLE, slot);
+            SecurityInfo info = readRecord(offset);
+            removeSlot(ENDPOINT_TABLE, slot);
+            unindexIdentity(offset);
+            delete(offset);
+            return info;
+        }
+
+        // append and index the live records of the given data between the two offsets
+        private void copy(ByteBuffer source, int from, int to) {
+            for (int offset = from; offset < to; offset += RECORD_HEADER + source.getInt(offset)) {
+                if (source.get(offset + STATUS_POS) == LIVE) {
+                    ByteBuffer record = source.duplicate();
+                    record.limit(offset + RECORD_HEADER + source.getInt(offset)).position(offset);
+                    int copy = append(record);
+                    // the status could be changed during the copy, removals are applied after
+                    data.put(copy + STATUS_POS, LIVE);
+                    index(copy);
+                }
+            }
+        }
+
+        // flush and mark the index as clean
+        private void close() {
+            data.force();
+            writeIndexHeader();
+            index.putInt(CLEAN_POS, 1);
+            index.force();
+            closeChannels();
+        }
+
+        private void writeIndexHeader() {
+            index.putInt(INDEXED_DATA_END_POS, dataEnd);
+            index.putLong(GARBAGE_POS, garbage);
+            for (int table = ENDPOINT_TABLE; table <= IDENTITY_TABLE; table++) {
+                index.putInt(ENTRIES_POS + 4 * table, entries[table]);
+                index.putInt(USED_SLOTS_POS + 4 * table, usedSlots[table]);
+            }
+        }
+
+        // move the files of this storage in place of the ones of the given storage, which is closed
+        private void replace(Storage previous, File newDataFile, File newIndexFile) throws IOException {
+            data.force();
+            writeIndexHeader();
+            index.force();
+            previous.closeChannels(false);
+            closeChannels(false);
+            try {
+                Files.move(dataFile.toPath(), newDataFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // the previous files are unchanged
+                previous.reopenChannels();
+                throw e;
+            }
+            // the old index does not match the new data file, it is rebuilt if this move fails
+            Files.move(indexFile.toPath(), newIndexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            dataFile = newDataFile;
+            indexFile = newIndexFile;
+            reopenChannels();
+        }
+
+        // close and delete the files of an unused compaction
+        private void discard() {
+            closeChannels();
+            try {
+                Files.deleteIfExists(dataFile.toPath());
+                Files.deleteIfExists(indexFile.toPath());
+            } catch (IOException e) {
+                LOG.warn("Unable to delete compaction files of security store {}", dataFile, e);
+            }
+        }
+
+        // ------------------------------------------------------------------------------------------------------------
+        // data file
+
+        private void openData() throws IOException {
+            dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long size = dataChannel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Security store file is too large");
+            }
+            data = dataChannel.map(MapMode.READ_WRITE, 0, Math.max(size, MIN_DATA_SIZE));
+            if (size == 0) {
+                data.putInt(0, DATA_MAGIC);
+                data.putInt(DATA_END_POS, DATA_START);
+            } else if (data.getInt(0) != DATA_MAGIC) {
+                throw new IllegalStateException(String.format("%s is not a security store file", dataFile));
+            }
+            dataEnd = data.getInt(DATA_END_POS);
+        }
+
+        private int append(ByteBuffer record) {
+            int length = record.remaining();
+            if ((long) dataEnd + length > data.capacity()) {
+                growData(length);
+            }
+            int offset = dataEnd;
+            ByteBuffer buffer = data.duplicate();
+            buffer.position(offset);
+            buffer.put(record);
+            dataEnd += length;
+            data.putInt(DATA_END_POS, dataEnd);
+            return offset;
+        }
+
+        private void growData(int needed) {
+            long required = (long) dataEnd + needed;
+            if (required > Integer.MAX_VALUE) {
+                throw new IllegalStateException(String.format("Security store %s is full", dataFile));
+            }
+            long size = Math.min(Integer.MAX_VALUE, Math.max(required, 2L * data.capacity()));
+            try {
+                // the previous mapping is released by the garbage collector
+                data = dataChannel.map(MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                throw new IllegalStateException(String.format("Unable to grow security store %s", dataFile), e);
+            }
+        }
+
+        private void delete(int offset) {
+            data.put(offset + STATUS_POS, DELETED);
+            garbage += RECORD_HEADER + data.getInt(offset);
+        }
+
+        private SecurityInfo readRecord(int offset) {
+            ByteBuffer record = data.duplicate();
+            record.position(offset + RECORD_HEADER);
+            String endpoint = readString(record);
+            String identity = readString(record);
+            byte[] psk = readBytes(record);
+            boolean x509 = record.get() == 1;
+            String algorithm = readString(record);
+
+            if (identity != null) {
+                return SecurityInfo.newPreSharedKeyInfo(endpoint, identity, psk);
+            } else if (algorithm != null) {
+                try {
+                    PublicKey publicKey = KeyFactory.getInstance(algorithm)
+                            .generatePublic(new X509EncodedKeySpec(readBytes(record)));
+                    return SecurityInfo.newRawPublicKeyInfo(endpoint, publicKey);
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(
+                            String.format("Unable to decode the raw public key of %s in %s", endpoint, dataFile), e);
+                }
+            } else if (x509) {
+                return SecurityInfo.newX509CertInfo(endpoint);
+            }
+            throw new IllegalStateException(String.format("Invalid security info for %s in %s", endpoint, dataFile));
+        }
+
+        private String readEndpoint(int offset) {
+            ByteBuffer record = data.duplicate();
+            record.position(offset + RECORD_HEADER);
+            return readString(record);
+        }
+
+        private boolean isValidRecord(int offset) {
+            if (offset + RECORD_HEADER > data.capacity()) {
+                return false;
+            }
+            int length = data.getInt(offset);
+            if (length <= 0 || (long) offset + RECORD_HEADER + length > data.capacity()) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer body = data.duplicate();
+            body.position(offset + RECORD_HEADER);
+            body.limit(offset + RECORD_HEADER + length);
+            byte[] chunk = new byte[Math.min(length, 256)];
+            while (body.hasRemaining()) {
+                int n = Math.min(chunk.length, body.remaining());
+                body.get(chunk, 0, n);
+                crc.update(chunk, 0, n);
+            }
+            return data.getInt(offset + 4) == (int) crc.getValue();
+        }
+
+        // position of the length of the end-point or of the PSK identity of a record
+        private int keyPosition(int table, int offset) {
+            int position = offset + RECORD_HEADER;
+            if (table == IDENTITY_TABLE) {
+                position += 2 + (data.getShort(position) & 0xFFFF);
+            }
+            return position;
+        }
+
+        // ------------------------------------------------------------------------------------------------------------
+        // index file
+
+        private boolean openIndex() throws IOException {
+            if (!indexFile.exists() || indexFile.length() < INDEX_HEADER) {
+                return false;
+            }
+            indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = indexChannel.map(MapMode.READ_WRITE, 0, indexChannel.size());
+            capacity = index.getInt(CAPACITY_POS);
+            if (index.getInt(0) != INDEX_MAGIC || index.getInt(CLEAN_POS) != 1
+                    || index.getInt(INDEXED_DATA_END_POS) != dataEnd || indexChannel.size() != indexSize(capacity)) {
+                LOG.warn("Index of security store {} was not closed properly, it will be rebuilt", dataFile);
+                closeIndex();
+                return false;
+            }
+            garbage = index.getLong(GARBAGE_POS);
+            for (int table = ENDPOINT_TABLE; table <= IDENTITY_TABLE; table++) {
+                entries[table] = index.getInt(ENTRIES_POS + 4 * table);
+                usedSlots[table] = index.getInt(USED_SLOTS_POS + 4 * table);
+            }
+            return true;
+        }
+
+        // create an empty index of the given capacity in a temporary file
+        private MappedByteBuffer createIndex(File file, int newCapacity) throws IOException {
+            Files.deleteIfExists(file.toPath());
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, indexSize(newCapacity));
+                buffer.putInt(0, INDEX_MAGIC);
+                buffer.putInt(CAPACITY_POS, newCapacity);
+                return buffer;
+            }
+        }
+
+        private void useIndex(File file, MappedByteBuffer buffer, int newCapacity) throws IOException {
+            closeIndex();
+            Files.move(file.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = buffer;
+            capacity = newCapacity;
+        }
+
+        private File tmpIndexFile() {
+            return new File(indexFile.getPath() + ".tmp");
+        }
+
+        // read the whole data file to index its live records
+        private void rebuildIndex(int newCapacity) throws IOException {
+            File tmp = tmpIndexFile();
+            useIndex(tmp, createIndex(tmp, newCapacity), newCapacity);
+            entries[ENDPOINT_TABLE] = entries[IDENTITY_TABLE] = 0;
+            usedSlots[ENDPOINT_TABLE] = usedSlots[IDENTITY_TABLE] = 0;
+            garbage = 0;
+
+            int offset = DATA_START;
+            while (isValidRecord(offset)) {
+                int length = RECORD_HEADER + data.getInt(offset);
+                if (data.get(offset + STATUS_POS) == LIVE) {
+                    // an interrupted replacement can leave an older live record for the same end-point, it is deleted
+                    index(offset);
+                } else {
+                    garbage += length;
+                }
+                offset += length;
+            }
+            if (offset != dataEnd) {
+                if (offset < dataEnd) {
+                    LOG.warn("Security store {} was truncated at {} instead of {}", dataFile, offset, dataEnd);
+                }
+                // erase the corrupted record so it can not be mistaken for a valid one later
+                int claimedLength = offset + RECORD_HEADER <= data.capacity() ? Math.max(0, data.getInt(offset)) : 0;
+                long end = Math.min(data.capacity(),
+                        Math.max(dataEnd, (long) offset + RECORD_HEADER + claimedLength));
+                for (int i = offset; i < end; i++) {
+                    data.put(i, (byte) 0);
+                }
+                dataEnd = offset;
+                data.putInt(DATA_END_POS, dataEnd);
+            }
+        }
+
+        private void growIndexIfNeeded() {
+            int maxUsed = Math.max(usedSlots[ENDPOINT_TABLE], usedSlots[IDENTITY_TABLE]);
+            if (2 * (maxUsed + 1) <= capacity) {
+                return;
+            }
+            // tombstones are removed, the capacity is kept if they were the cause
+            int maxEntries = Math.max(entries[ENDPOINT_TABLE], entries[IDENTITY_TABLE]);
+            int newCapacity = Math.max(capacityFor(maxEntries + 1), capacity);
+            if (2 * (maxEntries + 1) > newCapacity) {
+                throw new IllegalStateException(String.format("Index of security store %s is full", dataFile));
+            }
+            try {
+                File tmp = tmpIndexFile();
+                MappedByteBuffer newIndex = createIndex(tmp, newCapacity);
+                for (int table = ENDPOINT_TABLE; table <= IDENTITY_TABLE; table++) {
+                    usedSlots[table] = 0;
+                    for (int slot = 0; slot < capacity; slot++) {
+                        int offset = slotOffset(table, slot);
+                        if (offset != EMPTY && offset != TOMBSTONE) {
+                            int hash = index.getInt(slotPosition(table, slot) + 4);
+                            int newSlot = hash & (newCapacity - 1);
+                            int position = MappedSecurityStore.slotPosition(table, newSlot, newCapacity);
+                            while (newIndex.getInt(position) != EMPTY) {
+                                newSlot = (newSlot + 1) & (newCapacity - 1);
+                                position = MappedSecurityStore.slotPosition(table, newSlot, newCapacity);
+                            }
+                            newIndex.putInt(position, offset);
+                            newIndex.putInt(position + 4, hash);
+                            usedSlots[table]++;
+                        }
+                    }
+                }
+                newIndex.putInt(CLEAN_POS, 0);
+                useIndex(tmp, newIndex, newCapacity);
+            } catch (IOException e) {
+                throw new IllegalStateException(String.format("Unable to grow index of security store %s", dataFile),
+                        e);
+            }
+        }
+
+        /**
+         * Index the record at the given offset, replacing the record of the same end-point.
+         *
+         * @return the offset of the replaced record or {@link #EMPTY}.
+         */
+        private int index(int offset) {
+            growIndexIfNeeded();
+
+            int previous = EMPTY;
+            int keyPosition = keyPosition(ENDPOINT_TABLE, offset);
+            int slot = findSlot(ENDPOINT_TABLE, data, keyPosition + 2, data.getShort(keyPosition) & 0xFFFF);
+            if (slot >= 0) {
+                previous = slotOffset(ENDPOINT_TABLE, slot);
+                index.putInt(slotPosition(ENDPOINT_TABLE, slot), offset);
+                unindexIdentity(previous);
+            } else {
+                putSlot(ENDPOINT_TABLE, -slot - 1, offset,
+                        hash(data, keyPosition + 2, data.getShort(keyPosition) & 0xFFFF));
+            }
+
+            keyPosition = keyPosition(IDENTITY_TABLE, offset);
+            int identityLength = data.getShort(keyPosition) & 0xFFFF;
+            if (identityLength != NULL_LENGTH) {
+                slot = findSlot(IDENTITY_TABLE, data, keyPosition + 2, identityLength);
+                if (slot >= 0) {
+                    // the identity is used by the replaced record
+                    index.putInt(slotPosition(IDENTITY_TABLE, slot), offset);
+                } else {
+                    putSlot(IDENTITY_TABLE, -slot - 1, offset, hash(data, keyPosition + 2, identityLength));
+                }
+            }
+
+            if (previous != EMPTY) {
+                delete(previous);
+            }
+            return previous;
+        }
+
+        // remove the PSK identity of the record at the given offset from the index
+        private void unindexIdentity(int offset) {
+            int keyPosition = keyPosition(IDENTITY_TABLE, offset);
+            int identityLength = data.getShort(keyPosition) & 0xFFFF;
+            if (identityLength == NULL_LENGTH) {
+                return;
+            }
+            int slot = findSlot(IDENTITY_TABLE, data, keyPosition + 2, identityLength);
+            if (slot >= 0 && slotOffset(IDENTITY_TABLE, slot) == offset) {
+                removeSlot(IDENTITY_TABLE, slot);
+            }
+        }
+
+        /**
+         * @return the slot containing the given key or <code>-(insertion slot) - 1</code> if the key is not indexed.
+         */
+        private int findSlot(int table, ByteBuffer key, int keyPosition, int keyLength) {
+            int hash = hash(key, keyPosition, keyLength);
+            int mask = capacity - 1;
+            int firstFree = -1;
+            for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+                int offset = slotOffset(table, slot);
+                if (offset == EMPTY) {
+                    return -(firstFree >= 0 ? firstFree : slot) - 1;
+                } else if (offset == TOMBSTONE) {
+                    if (firstFree < 0)
+                        firstFree = slot;
+                } else if (index.getInt(slotPosition(table, slot) + 4) == hash
+                        && keyEquals(keyPosition(table, offset), key, keyPosition, keyLength)) {
+                    return slot;
+                }
+            }
+        }
+
+        private boolean keyEquals(int recordKeyPosition, ByteBuffer key, int keyPosition, int keyLength) {
+            if ((data.getShort(recordKeyPosition) & 0xFFFF) != keyLength) {
+                return false;
+            }
+            for (int i = 0; i < keyLength; i++) {
+                if (data.get(recordKeyPosition + 2 + i) != key.get(keyPosition + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void putSlot(int table, int slot, int offset, int hash) {
+            int position = slotPosition(table, slot);
+            if (index.getInt(position) == EMPTY) {
+                usedSlots[table]++;
+            }
+            index.putInt(position, offset);
+            index.putInt(position + 4, hash);
+            entries[table]++;
+        }
+
+        private void removeSlot(int table, int slot) {
+            index.putInt(slotPosition(table, slot), TOMBSTONE);
+            entries[table]--;
+        }
+
+        private int slotOffset(int table, int slot) {
+            return index.getInt(slotPosition(table, slot));
+        }
+
+        private int slotPosition(int table, int slot) {
+            return MappedSecurityStore.slotPosition(table, slot, capacity);
+        }
+
+        // ------------------------------------------------------------------------------------------------------------
+        // channels
+
+        private void reopenChannels() throws IOException {
+            dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private void closeIndex() {
+            if (indexChannel != null) {
+                try {
+                    indexChannel.close();
+                } catch (IOException e) {
+                    LOG.warn("Unable to close index of security store {}", dataFile, e);
+                }
+                indexChannel = null;
+            }
+        }
+
+        private void closeChannels() {
+            closeChannels(true);
+        }
+
+        // mappings stay valid after the channels are closed, they are released if they are not used anymore
+        private void closeChannels(boolean releaseMappings) {
+            closeIndex();
+            if (dataChannel != null) {
+                try {
+                    dataChannel.close();
+                } catch (IOException e) {
+                    LOG.warn("Unable to close security store {}", dataFile, e);
+                }
+                dataChannel = null;
+            }
+            if (releaseMappings) {
+                index = null;
+                data = null;
+            }
+        }
+    }
+}
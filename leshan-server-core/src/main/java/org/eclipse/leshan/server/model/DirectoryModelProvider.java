@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.model;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.eclipse.leshan.core.model.DDFFileParser;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.Startable;
+import org.eclipse.leshan.server.Stoppable;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.util.NamedThreadFactory;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A LwM2mModelProvider which loads object definitions (DDF or JSON files) from a directory and reloads them when the
+ * directory content changes, so new object models can be added without restarting the server.
+ * <p>
+ * Once started, the directory is watched and only the modified files are parsed again. Models are then published as
+ * a new immutable snapshot: {@link #getObjectModel(Registration)} only reads a volatile field and never waits for a
+ * reload.
+ * <p>
+ * Models found in the directory override the base models given at creation (e.g. the default ones) with the same id
+ * and version.
+ * <p>
+ * Registration events are forwarded to the current model provider if it is a {@link RegistrationListener}.
+ */
+public class DirectoryModelProvider
+        implements LwM2mModelProvider, RegistrationListener, Startable, Stoppable, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirectoryModelProvider.class);
+
+    /**
+     * Default time in millisecond without change in the directory before reloading models. Copying or saving a file
+     * generally produces several events.
+     */
+    public static final long DEFAULT_SETTLE_DELAY = 500;
+
+    private final File modelsDir;
+    private final List<ObjectModel> baseModels;
+    private final long settleDelay;
+    private final DDFFileParser ddfParser = new DDFFileParser();
+
+    // models of each file of the directory, sorted by file name so overriding is deterministic
+    // guarded by this
+    private final Map<String, List<ObjectModel>> modelsByFile = new TreeMap<>();
+    private volatile LwM2mModelProvider snapshot;
+
+    // guarded by this
+    private WatchService watchService;
+    private ExecutorService executor;
+
+    /**
+     * Create a provider and load the models of the directory, call {@link #start()} to watch the directory.
+     *
+     * @param modelsDir the directory containing the object definition files.
+     * @param baseModels models available in addition of the directory ones, could be <code>null</code>.
+     */
+    public DirectoryModelProvider(File modelsDir, Collection<ObjectModel> baseModels) {
+        this(modelsDir, baseModels, DEFAULT_SETTLE_DELAY);
+    }
+
+    /**
+     * @param modelsDir the directory containing the object definition files.
+     * @param baseModels models available in addition of the directory ones, could be <code>null</code>.
+     * @param settleDelay time in millisecond without change in the directory before reloading models.
+     */
+    public DirectoryModelProvider(File modelsDir, Collection<ObjectModel> baseModels, long settleDelay) {
+        Validate.notNull(modelsDir);
+        this.modelsDir = modelsDir;
+        this.baseModels = baseModels == null ? new ArrayList<ObjectModel>() : new ArrayList<>(baseModels);
+        this.settleDelay = settleDelay;
+        reload();
+    }
+
+    @Override
+    public LwM2mModel getObjectModel(Registration registration) {
+        return snapshot.getObjectModel(registration);
+    }
+
+    @Override
+    public void registered(Registration reg, Registration previousReg, Collection<Observation> previousObsersations) {
+        LwM2mModelProvider provider = snapshot;
+        if (provider instanceof RegistrationListener) {
+            ((RegistrationListener) provider).registered(reg, previousReg, previousObsersations);
+        }
+    }
+
+    @Override
+    public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+        LwM2mModelProvider provider = snapshot;
+        if (provider instanceof RegistrationListener) {
+            ((RegistrationListener) provider).updated(update, updatedReg, previousReg);
+        }
+    }
+
+    @Override
+    public void unregistered(Registration reg, Collection<Observation> observations, boolean expired,
+            Registration newReg) {
+        LwM2mModelProvider provider = snapshot;
+        if (provider instanceof RegistrationListener) {
+            ((RegistrationListener) provider).unregistered(reg, observations, expired, newReg);
+        }
+    }
+
+    /**
+     * Create the model provider for a new set of models. The default implementation returns a
+     * {@link VersionedModelProvider}.
+     * <p>
+     * This method is called by the constructor, so it must not use fields of a subclass.
+     */
+    protected LwM2mModelProvider createModelProvider(Collection<ObjectModel> models) {
+        return new VersionedModelProvider(models);
+    }
+
+    /**
+     * Load again all the files of the directory. The previous models of a file which can not be parsed are kept.
+     */
+    public synchronized void reload() {
+        Map<String, List<ObjectModel>> previousModels = new TreeMap<>(modelsByFile);
+        modelsByFile.clear();
+        File[] files = modelsDir.listFiles();
+        if (files == null) {
+            LOG.error("Models folder {} is not a directory or you are not allowed to list its content",
+                    modelsDir.getPath());
+        } else {
+            for (File file : files) {
+                if (isModelFile(file.getName())) {
+                    List<ObjectModel> models = load(file);
+                    if (models == null) {
+                        models = previousModels.get(file.getName());
+                    }
+                    if (models != null) {
+                        modelsByFile.put(file.getName(), models);
+                    }
+                }
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Load again the given files of the directory, the models of deleted files are removed. The previous models of a
+     * file which can not be parsed are kept.
+     */
+    synchronized void reload(Collection<String> fileNames) {
+        boolean changed = false;
+        for (String fileName : fileNames) {
+            if (!isModelFile(fileName))
+                continue;
+            File file = new File(modelsDir, fileName);
+            if (file.isFile()) {
+                List<ObjectModel> models = load(file);
+                if (models == null)
+                    continue;
+                modelsByFile.put(fileName, models);
+            } else {
+                modelsByFile.remove(fileName);
+            }
+            changed = true;
+        }
+        if (changed) {
+            publish();
+        }
+    }
+
+    /**
+     * @return the models of the file or <code>null</code> if it can not be parsed.
+     */
+    private List<ObjectModel> load(File file) {
+        // ObjectLoader hides parsing errors behind an empty list, so parse here
+        try (InputStream input = new FileInputStream(file)) {
+            List<ObjectModel> models;
+            if (file.getName().endsWith(".xml")) {
+                models = ddfParser.parseStrict(input, file.getName());
+            } else {
+                models = ObjectLoader.loadJsonStream(input);
+                if (models == null) {
+                    throw new IOException("Unable to read " + file.getPath());
+                }
+            }
+            LOG.debug("{} object models loaded from {}", models.size(), file.getPath());
+            return models;
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            LOG.warn("Unable to load object models from {}, previous models are kept", file.getPath(), e);
+            return null;
+        }
+    }
+
+    private static boolean isModelFile(String fileName) {
+        return fileName.endsWith(".xml") || fileName.endsWith(".json");
+    }
+
+    // must be called with the lock
+    private void publish() {
+        List<ObjectModel> models = new ArrayList<>(baseModels);
+        int count = 0;
+        for (List<ObjectModel> fileModels : modelsByFile.values()) {
+            models.addAll(fileModels);
+            count += fileModels.size();
+        }
+        snapshot = createModelProvider(models);
+        LOG.info("{} object models loaded from {} files of {}", count, modelsByFile.size(), modelsDir.getPath());
+    }
+
+    /**
+     * Start to watch the directory. Changes done since the creation of this provider are loaded.
+     */
+    @Override
+    public synchronized void start() {
+        if (executor != null)
+            return;
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            modelsDir.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            closeWatchService();
+            throw new IllegalStateException(String.format("Unable to watch models folder %s", modelsDir.getPath()),
+                    e);
+        }
+        reload();
+
+        final WatchService service = watchService;
+        executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("Leshan model directory watcher"));
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                watch(service);
+            }
+        });
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Set<String> changedFiles = new HashSet<>();
+                boolean overflow = false;
+
+                // wait until the directory is quiet before reloading
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            changedFiles.add(((Path) event.context()).toString());
+                        }
+                    }
+                    if (!key.reset()) {
+                        LOG.warn("Models folder {} can not be watched anymore", modelsDir.getPath());
+                        return;
+                    }
+                    key = service.poll(settleDelay, TimeUnit.MILLISECONDS);
+                }
+
+                try {
+                    if (overflow) {
+                        reload();
+                    } else {
+                        reload(changedFiles);
+                    }
+                } catch (RuntimeException e) {
+                    LOG.error("Unable to reload object models of {}", modelsDir.getPath(), e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor == null)
+            return;
+
+        executor.shutdownNow();
+        executor = null;
+        closeWatchService();
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close watch service of models folder {}", modelsDir.getPath(), e);
+            }
+            watchService = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+}
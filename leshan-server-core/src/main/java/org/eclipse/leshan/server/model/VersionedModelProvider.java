@@ -16,43 +16,180 @@
 package org.eclipse.leshan.server.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.model.LwM2mModelRepository;
 import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.util.Validate;
 
 /**
  * A LwM2mModelProvider which supports object versioning. It returns a LwM2mModel taking into account object version
  * given in registration.
+ * <p>
+ * Models are cached by set of supported objects and versions: registrations which support the same objects in the
+ * same versions, which is generally the case of devices of the same kind, share the same immutable model. The model
+ * of each registered client is remembered, so its supported objects are not hashed again until the registration
+ * changes. This provider should be added as {@link RegistrationListener} to know the registered clients (done by the
+ * <code>LeshanServer</code>), the models of other registrations (e.g. registered on an other server of a cluster) are
+ * not remembered.
  */
-public class VersionedModelProvider implements LwM2mModelProvider {
+public class VersionedModelProvider implements LwM2mModelProvider, RegistrationListener {
 
-    private LwM2mModelRepository repository;
+    /** Default maximum number of distinct sets of supported objects for which a model is cached. */
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    private final LwM2mModelRepository repository;
+    private final int cacheSize;
+    // models by supported objects (objectId => version)
+    private final ConcurrentMap<Map<Integer, String>, LwM2mModel> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String/* registrationId */, RegistrationModel> models = new ConcurrentHashMap<>();
 
     public VersionedModelProvider(Collection<ObjectModel> objectModels) {
-        this.repository = new LwM2mModelRepository(objectModels);
+        this(new LwM2mModelRepository(objectModels));
     }
 
     public VersionedModelProvider(LwM2mModelRepository repository) {
+        this(repository, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param repository the object models available.
+     * @param cacheSize the maximum number of distinct sets of supported objects for which a model is cached. Once
+     *        reached, models of registrations with a new set of supported objects are built at each call.
+     */
+    public VersionedModelProvider(LwM2mModelRepository repository, int cacheSize) {
+        Validate.notNull(repository);
+        Validate.isTrue(cacheSize >= 0, "cache size must be positive");
         this.repository = repository;
+        this.cacheSize = cacheSize;
     }
 
     @Override
     public LwM2mModel getObjectModel(Registration registration) {
-        return new DynamicModel(registration);
+        Map<Integer, String> supportedObjects = registration.getSupportedObject();
+        RegistrationModel registrationModel = models.get(registration.getId());
+        if (registrationModel != null && registrationModel.supportedObjects == supportedObjects) {
+            // same registration instance as the last call, supported objects are computed once per instance
+            return registrationModel.model;
+        }
+
+        LwM2mModel model = getObjectModel(supportedObjects);
+        if (registrationModel != null) {
+            // only registered clients are remembered, not the ones which unregistered meanwhile
+            models.replace(registration.getId(), registrationModel, new RegistrationModel(supportedObjects, model));
+        }
+        return model;
+    }
+
+    private LwM2mModel getObjectModel(Map<Integer, String> supportedObjects) {
+        LwM2mModel model = cache.get(supportedObjects);
+        if (model != null) {
+            return model;
+        }
+
+        model = new IndexedModel(supportedObjects, repository);
+        if (cache.size() < cacheSize) {
+            // copy the key, the map given to the registration builder is not copied
+            LwM2mModel previous = cache.putIfAbsent(new HashMap<>(supportedObjects), model);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return model;
+    }
+
+    /**
+     * @return the number of models in the cache.
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    // the number of registrations whose model is remembered, for tests
+    int getRegistrationCount() {
+        return models.size();
+    }
+
+    private void remember(Registration registration) {
+        Map<Integer, String> supportedObjects = registration.getSupportedObject();
+        models.put(registration.getId(), new RegistrationModel(supportedObjects, getObjectModel(supportedObjects)));
+    }
+
+    @Override
+    public void registered(Registration reg, Registration previousReg, Collection<Observation> previousObsersations) {
+        remember(reg);
+    }
+
+    @Override
+    public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+        remember(updatedReg);
+    }
+
+    @Override
+    public void unregistered(Registration reg, Collection<Observation> observations, boolean expired,
+            Registration newReg) {
+        models.remove(reg.getId());
+    }
+
+    /**
+     * The model found for one instance of a registration.
+     */
+    private static class RegistrationModel {
+        private final Map<Integer, String> supportedObjects;
+        private final LwM2mModel model;
+
+        private RegistrationModel(Map<Integer, String> supportedObjects, LwM2mModel model) {
+            this.supportedObjects = supportedObjects;
+            this.model = model;
+        }
     }
 
-    private class DynamicModel implements LwM2mModel {
+    /**
+     * An immutable model containing one version of each supported objects. Object ids are sorted in an array, so
+     * looking up an object is a binary search without boxing.
+     */
+    private static class IndexedModel implements LwM2mModel {
+
+        private final int[] objectIds;
+        private final ObjectModel[] objectModels;
+        private final List<ObjectModel> objectModelList;
 
-        private final Registration registration;
+        public IndexedModel(Map<Integer, String> supportedObjects, LwM2mModelRepository repository) {
+            List<ObjectModel> models = new ArrayList<>(supportedObjects.size());
+            for (Entry<Integer, String> supportedObject : supportedObjects.entrySet()) {
+                ObjectModel objectModel = repository.getObjectModel(
+                        new LwM2mModelRepository.Key(supportedObject.getKey(), supportedObject.getValue()));
+                if (objectModel != null)
+                    models.add(objectModel);
+            }
 
-        public DynamicModel(Registration registration) {
-            this.registration = registration;
+            objectModels = models.toArray(new ObjectModel[models.size()]);
+            Arrays.sort(objectModels, new Comparator<ObjectModel>() {
+                @Override
+                public int compare(ObjectModel o1, ObjectModel o2) {
+                    return Integer.compare(o1.id, o2.id);
+                }
+            });
+            objectIds = new int[objectModels.length];
+            for (int i = 0; i < objectModels.length; i++) {
+                objectIds[i] = objectModels[i].id;
+            }
+            objectModelList = Collections.unmodifiableList(Arrays.asList(objectModels));
         }
 
         @Override
@@ -66,24 +203,13 @@ public class VersionedModelProvider implements LwM2mModelProvider {
 
         @Override
         public ObjectModel getObjectModel(int objectId) {
-            String version = registration.getSupportedVersion(objectId);
-            if (version != null) {
-                return repository.getObjectModel(objectId, version);
-            }
-            return null;
+            int index = Arrays.binarySearch(objectIds, objectId);
+            return index >= 0 ? objectModels[index] : null;
         }
 
         @Override
         public Collection<ObjectModel> getObjectModels() {
-            Map<Integer, String> supportedObjects = registration.getSupportedObject();
-            Collection<ObjectModel> result = new ArrayList<>(supportedObjects.size());
-            for (Entry<Integer, String> supportedObject : supportedObjects.entrySet()) {
-                ObjectModel objectModel = repository.getObjectModel(supportedObject.getKey(),
-                        supportedObject.getValue());
-                if (objectModel != null)
-                    result.add(objectModel);
-            }
-            return result;
+            return objectModelList;
         }
     }
-}
\ No newline at end of file
+}
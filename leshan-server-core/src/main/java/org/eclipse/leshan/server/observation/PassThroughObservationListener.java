@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.response.LazyObserveResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * An {@link ObservationListener} which does not need notifications to be decoded before being called.
+ * <p>
+ * The {@link ObserveResponse} given to
+ * {@link #onResponse(Observation, Registration, ObserveResponse) onResponse} may be a {@link LazyObserveResponse}
+ * which decodes its payload only when its content is accessed. So a malformed payload is not reported through
+ * {@link #onError(Observation, Registration, Exception) onError} but by an <code>InvalidResponseException</code>
+ * raised when the content is accessed.
+ */
+public interface PassThroughObservationListener extends ObservationListener {
+}
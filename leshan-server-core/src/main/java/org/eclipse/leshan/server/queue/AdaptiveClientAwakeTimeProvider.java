@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A {@link ClientAwakeTimeProvider} which learns the awake time of each client from the timing of its messages.
+ * <p>
+ * {@link PresenceServiceImpl} calls {@link #messageReceived(Registration)} each time a client sends a message on its
+ * own (register, update or notification). The gaps between consecutive messages of the same awake period are recorded,
+ * and the awake time of the client is the biggest of its last recorded gaps, increased by a safety margin. Until a gap
+ * is recorded, the default awake time is used.
+ * <p>
+ * A gap is considered to be part of an awake period if it is shorter than twice the current awake time of the client:
+ * longer gaps are sleep periods. So the learned value can grow when the client stays awake longer, but sleep periods
+ * do not inflate it. To not get stuck on a value learned from a burst of messages, the awake time is at most halved by
+ * each recorded gap, and each sleep period moves an awake time lower than the default one halfway back to the default.
+ * <p>
+ * State is kept in a compact open addressing table of primitive arrays, split in segments to limit contention. This
+ * provider should be added as {@link RegistrationListener} to forget unregistered clients (done by the
+ * <code>LeshanServer</code>).
+ */
+public class AdaptiveClientAwakeTimeProvider implements LearningClientAwakeTimeProvider, RegistrationListener {
+
+    /** Default number of gaps kept for each client. */
+    public static final int DEFAULT_HISTORY_SIZE = 8;
+
+    private static final int SEGMENT_COUNT = 16; // must be a power of 2
+    private static final int INITIAL_SEGMENT_CAPACITY = 16; // must be a power of 2
+
+    private final int defaultAwakeTime;
+    private final int minAwakeTime;
+    private final int maxAwakeTime;
+    private final int historySize;
+    private final Segment[] segments;
+
+    /**
+     * Create a provider which learns awake times between 1s and 93s (the default CoAP MAX_TRANSMIT_WAIT value) and
+     * uses 93s for unknown clients.
+     */
+    public AdaptiveClientAwakeTimeProvider() {
+        this(93000, 1000, 93000, DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * Create a provider.
+     * <p>
+     * The learned awake time can grow above the default one only if <code>maxAwakeTime</code> is greater than
+     * <code>defaultAwakeTime</code>. When both are equal (as with the default constructor), learning can only shorten
+     * the awake time of a client.
+     *
+     * @param defaultAwakeTime the awake time in millisecond used while nothing is learned about a client.
+     * @param minAwakeTime     the minimum awake time in millisecond.
+     * @param maxAwakeTime     the maximum awake time in millisecond.
+     * @param historySize      the number of gaps between messages kept for each client.
+     */
+    public AdaptiveClientAwakeTimeProvider(int defaultAwakeTime, int minAwakeTime, int maxAwakeTime,
+            int historySize) {
+        Validate.isTrue(minAwakeTime > 0, "min awake time must be positive");
+        Validate.isTrue(minAwakeTime <= maxAwakeTime, "min awake time must not be greater than max awake time");
+        Validate.isTrue(defaultAwakeTime >= minAwakeTime && defaultAwakeTime <= maxAwakeTime,
+                "default awake time must be between min and max awake time");
+        Validate.isTrue(historySize > 0 && historySize <= Byte.MAX_VALUE, "history size must be between 1 and 127");
+        this.defaultAwakeTime = defaultAwakeTime;
+        this.minAwakeTime = minAwakeTime;
+        this.maxAwakeTime = maxAwakeTime;
+        this.historySize = historySize;
+
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public int getClientAwakeTime(Registration reg) {
+        return getLearnedAwakeTime(reg.getEndpoint());
+    }
+
+    @Override
+    public void messageReceived(Registration reg) {
+        messageReceived(reg.getEndpoint(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    /**
+     * Record a message received at <code>now</code> from the given client and return its awake time.
+     */
+    int messageReceived(String endpoint, long now) {
+        int hash = hash(endpoint);
+        return segmentFor(hash).messageReceived(endpoint, hash, now);
+    }
+
+    /**
+     * @return the awake time learned for this client, without recording any message.
+     */
+    public int getLearnedAwakeTime(String endpoint) {
+        int hash = hash(endpoint);
+        return segmentFor(hash).getAwakeTime(endpoint, hash);
+    }
+
+    /**
+     * Forget all what was learned about this client.
+     */
+    public void remove(String endpoint) {
+        int hash = hash(endpoint);
+        segmentFor(hash).remove(endpoint, hash);
+    }
+
+    /**
+     * @return the number of clients known by this provider.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void registered(Registration reg, Registration previousReg, Collection<Observation> previousObsersations) {
+    }
+
+    @Override
+    public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+    }
+
+    @Override
+    public void unregistered(Registration reg, Collection<Observation> observations, boolean expired,
+            Registration newReg) {
+        // a new registration replacing the old one is the same device, keep what we learned
+        if (newReg == null || !reg.getEndpoint().equals(newReg.getEndpoint())) {
+            remove(reg.getEndpoint());
+        }
+    }
+
+    private static int hash(String endpoint) {
+        int h = endpoint.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 24) & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * An open addressing table (linear probing) storing for each client: the time of its last message, its current
+     * awake time and a ring buffer of its last gaps.
+     */
+    private class Segment {
+        private int size;
+        private int[] hashes;
+        private String[] endpoints;
+        private long[] lastMessages;
+        private int[] awakeTimes;
+        private int[] gaps; // historySize gaps per slot
+        private byte[] gapCounts;
+        private byte[] nextGaps;
+
+        private Segment() {
+            allocate(INITIAL_SEGMENT_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            hashes = new int[capacity];
+            endpoints = new String[capacity];
+            lastMessages = new long[capacity];
+            awakeTimes = new int[capacity];
+            gaps = new int[capacity * historySize];
+            gapCounts = new byte[capacity];
+            nextGaps = new byte[capacity];
+        }
+
+        synchronized int messageReceived(String endpoint, int hash, long now) {
+            int slot = find(endpoint, hash);
+            if (slot < 0) {
+                if ((size + 1) * 2 > endpoints.length) {
+                    resize(endpoints.length * 2);
+                }
+                slot = insert(endpoint, hash);
+                lastMessages[slot] = now;
+                awakeTimes[slot] = defaultAwakeTime;
+                return defaultAwakeTime;
+            }
+
+            long gap = now - lastMessages[slot];
+            lastMessages[slot] = now;
+            if (gap >= 0 && gap <= 2L * awakeTimes[slot] && gap <= maxAwakeTime) {
+                addGap(slot, (int) gap);
+            } else if (gap > 0 && awakeTimes[slot] < defaultAwakeTime) {
+                // a sleep period: move back toward the default value, the learned one could come from a burst
+                awakeTimes[slot] += (defaultAwakeTime - awakeTimes[slot] + 1) / 2;
+            }
+            return awakeTimes[slot];
+        }
+
+        synchronized int getAwakeTime(String endpoint, int hash) {
+            int slot = find(endpoint, hash);
+            return slot < 0 ? defaultAwakeTime : awakeTimes[slot];
+        }
+
+        synchronized void remove(String endpoint, int hash) {
+            int slot = find(endpoint, hash);
+            if (slot < 0)
+                return;
+
+            // backward shift deletion, so probe sequences stay without hole
+            int mask = endpoints.length - 1;
+            int hole = slot;
+            int i = slot;
+            while (true) {
+                i = (i + 1) & mask;
+                if (endpoints[i] == null)
+                    break;
+                int ideal = hashes[i] & mask;
+                // move the entry if its ideal slot is not between the hole and its current slot
+                if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                    move(i, hole);
+                    hole = i;
+                }
+            }
+            endpoints[hole] = null;
+            size--;
+        }
+
+        private void addGap(int slot, int gap) {
+            int base = slot * historySize;
+            gaps[base + nextGaps[slot]] = gap;
+            nextGaps[slot] = (byte) ((nextGaps[slot] + 1) % historySize);
+            if (gapCounts[slot] < historySize) {
+                gapCounts[slot]++;
+            }
+
+            int maxGap = 0;
+            for (int i = 0; i < gapCounts[slot]; i++) {
+                maxGap = Math.max(maxGap, gaps[base + i]);
+            }
+            // add a 50% margin for network latency and client processing
+            long awakeTime = maxGap + maxGap / 2L;
+            // shrink progressively, a few close messages should not be enough to reach the minimum
+            awakeTime = Math.max(awakeTime, awakeTimes[slot] / 2);
+            awakeTimes[slot] = (int) Math.max(minAwakeTime, Math.min(maxAwakeTime, awakeTime));
+        }
+
+        private int find(String endpoint, int hash) {
+            int mask = endpoints.length - 1;
+            for (int i = hash & mask;; i = (i + 1) & mask) {
+                String e = endpoints[i];
+                if (e == null)
+                    return -1;
+                if (hashes[i] == hash && e.equals(endpoint))
+                    return i;
+            }
+        }
+
+        private int insert(String endpoint, int hash) {
+            int mask = endpoints.length - 1;
+            int i = hash & mask;
+            while (endpoints[i] != null) {
+                i = (i + 1) & mask;
+            }
+            hashes[i] = hash;
+            endpoints[i] = endpoint;
+            gapCounts[i] = 0;
+            nextGaps[i] = 0;
+            size++;
+            return i;
+        }
+
+        private void move(int from, int to) {
+            hashes[to] = hashes[from];
+            endpoints[to] = endpoints[from];
+            lastMessages[to] = lastMessages[from];
+            awakeTimes[to] = awakeTimes[from];
+            System.arraycopy(gaps, from * historySize, gaps, to * historySize, historySize);
+            gapCounts[to] = gapCounts[from];
+            nextGaps[to] = nextGaps[from];
+        }
+
+        private void resize(int capacity) {
+            int[] oldHashes = hashes;
+            String[] oldEndpoints = endpoints;
+            long[] oldLastMessages = lastMessages;
+            int[] oldAwakeTimes = awakeTimes;
+            int[] oldGaps = gaps;
+            byte[] oldGapCounts = gapCounts;
+            byte[] oldNextGaps = nextGaps;
+
+            allocate(capacity);
+            size = 0;
+            for (int i = 0; i < oldEndpoints.length; i++) {
+                if (oldEndpoints[i] != null) {
+                    int slot = insert(oldEndpoints[i], oldHashes[i]);
+                    lastMessages[slot] = oldLastMessages[i];
+                    awakeTimes[slot] = oldAwakeTimes[i];
+                    System.arraycopy(oldGaps, i * historySize, gaps, slot * historySize, historySize);
+                    gapCounts[slot] = oldGapCounts[i];
+                    nextGaps[slot] = oldNextGaps[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A {@link RequestQueue} which keeps requests in memory.
+ * <p>
+ * Requests are lost on server restart. Use a persistent implementation if requests must survive it.
+ */
+public class InMemoryRequestQueue implements RequestQueue {
+
+    /** Default maximum number of requests queued per endpoint. */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final ConcurrentMap<String, EndpointQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    public InMemoryRequestQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of requests queued per endpoint.
+     */
+    public InMemoryRequestQueue(int capacity) {
+        Validate.isTrue(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(String endpoint, QueuedRequest<?> request) {
+        while (true) {
+            EndpointQueue queue = queues.get(endpoint);
+            if (queue == null) {
+                queue = new EndpointQueue();
+                EndpointQueue previous = queues.putIfAbsent(endpoint, queue);
+                if (previous != null) {
+                    queue = previous;
+                }
+            }
+            synchronized (queue) {
+                // this queue was drained and removed concurrently, retry with a new one
+                if (queue.removed)
+                    continue;
+
+                if (queue.size() >= capacity)
+                    return false;
+
+                queue.add(request);
+                size.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public List<QueuedRequest<?>> drain(String endpoint) {
+        EndpointQueue queue = queues.get(endpoint);
+        if (queue == null)
+            return Collections.emptyList();
+
+        List<QueuedRequest<?>> requests;
+        synchronized (queue) {
+            queue.removed = true;
+            queues.remove(endpoint, queue);
+            requests = new ArrayList<>(queue);
+        }
+        size.addAndGet(-requests.size());
+        return requests;
+    }
+
+    @Override
+    public int size(String endpoint) {
+        EndpointQueue queue = queues.get(endpoint);
+        if (queue == null)
+            return 0;
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public long getOldestQueuedTime(String endpoint) {
+        EndpointQueue queue = queues.get(endpoint);
+        if (queue == null)
+            return -1;
+        synchronized (queue) {
+            QueuedRequest<?> oldest = queue.peek();
+            return oldest == null ? -1 : oldest.getQueuedTime();
+        }
+    }
+
+    private static class EndpointQueue extends ArrayDeque<QueuedRequest<?>> {
+        private static final long serialVersionUID = 1L;
+
+        private boolean removed = false;
+    }
+}
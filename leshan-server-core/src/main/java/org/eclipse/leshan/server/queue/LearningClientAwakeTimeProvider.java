@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * A {@link ClientAwakeTimeProvider} which learns from the traffic of the clients.
+ * <p>
+ * {@link PresenceServiceImpl} calls {@link #messageReceived(Registration)} each time a Queue Mode client sends a
+ * message on its own (register, update or notification), before asking for its awake time. Responses to the requests
+ * of the server are not recorded: when queued requests are sent, they arrive one round trip apart.
+ */
+public interface LearningClientAwakeTimeProvider extends ClientAwakeTimeProvider {
+
+    /**
+     * Record a message received from the given client.
+     *
+     * @param reg the client's registration object
+     */
+    void messageReceived(Registration reg);
+}
@@ -20,29 +20,76 @@ import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.eclipse.leshan.server.Destroyable;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Tracks the status of each LWM2M client registered with Queue mode binding. Also ensures that the
  * {@link PresenceListener} are notified on state changes only for those LWM2M clients registered using Queue mode
  * binding.
+ * <p>
+ * Client awake timers are handled by a hashed timing wheel, so restarting the timer of a client on each message is a
+ * constant time operation. Clients whose timer expires are put to sleep by batch, and {@link PresenceListener}s are
+ * notified about it through an {@link Executor}, not from the timer thread.
  *
  * @see Presence
  */
-public final class PresenceServiceImpl implements PresenceService {
+public final class PresenceServiceImpl implements PresenceService, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PresenceServiceImpl.class);
+
+    /** Default precision of the client awake timers in millisecond. */
+    public static final long DEFAULT_TICK_DURATION = 100;
+
+    /** Default number of buckets of the timing wheel. */
+    public static final int DEFAULT_WHEEL_SIZE = 1024;
 
     private final ConcurrentMap<String, PresenceStatus> clientStatusList = new ConcurrentHashMap<>();
     private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
     private final ClientAwakeTimeProvider awakeTimeProvider;
-    private final ScheduledExecutorService clientTimersExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final PresenceTimerWheel timerWheel;
+    private final Executor listenerExecutor;
+    private final ExecutorService defaultListenerExecutor;
 
     public PresenceServiceImpl(ClientAwakeTimeProvider awakeTimeProvider) {
+        this(awakeTimeProvider, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE, null);
+    }
+
+    /**
+     * @param awakeTimeProvider the provider of the time a client stays awake after its last message.
+     * @param tickDurationInMs  the precision of the client awake timers in millisecond.
+     * @param wheelSize         the number of buckets of the timing wheel. Using a size close to the usual awake time
+     *                          divided by the tick duration avoids to handle timers several times.
+     * @param listenerExecutor  the executor used to notify listeners when client awake timers expire. If
+     *                          <code>null</code>, a single thread executor is created and shut down on
+     *                          {@link #destroy()}.
+     */
+    public PresenceServiceImpl(ClientAwakeTimeProvider awakeTimeProvider, long tickDurationInMs, int wheelSize,
+            Executor listenerExecutor) {
         this.awakeTimeProvider = awakeTimeProvider;
+        this.timerWheel = new PresenceTimerWheel(tickDurationInMs, wheelSize,
+                new PresenceTimerWheel.ExpirationHandler() {
+                    @Override
+                    public void expired(List<PresenceStatus> statuses) {
+                        notifySleeping(statuses);
+                    }
+                });
+        if (listenerExecutor == null) {
+            this.defaultListenerExecutor = Executors
+                    .newSingleThreadExecutor(new NamedThreadFactory("PresenceService listeners %d"));
+            this.listenerExecutor = defaultListenerExecutor;
+        } else {
+            this.defaultListenerExecutor = null;
+            this.listenerExecutor = listenerExecutor;
+        }
     }
 
     @Override
@@ -65,6 +112,13 @@ public final class PresenceServiceImpl implements PresenceService {
 
     }
 
+    /**
+     * @return the provider of the time a client stays awake after its last message.
+     */
+    public ClientAwakeTimeProvider getClientAwakeTimeProvider() {
+        return awakeTimeProvider;
+    }
+
     /**
      * Set the state of the client identified by registration as {@link Presence#AWAKE}
      *
@@ -72,20 +126,19 @@ public final class PresenceServiceImpl implements PresenceService {
      */
     public void setAwake(Registration reg) {
         if (reg.usesQueueMode()) {
-            PresenceStatus status = new PresenceStatus();
-            PresenceStatus previous = clientStatusList.putIfAbsent(reg.getEndpoint(), status);
-            if (previous != null) {
-                // We already have a status for this reg.
-                status = previous;
+            PresenceStatus status = clientStatusList.get(reg.getEndpoint());
+            if (status == null) {
+                status = new PresenceStatus();
+                PresenceStatus previous = clientStatusList.putIfAbsent(reg.getEndpoint(), status);
+                if (previous != null) {
+                    // We already have a status for this reg.
+                    status = previous;
+                }
             }
+            status.setRegistration(reg);
 
-            boolean stateChanged = false;
-            synchronized (status) {
-
-                // Every time we set the clientAwakeTime, in case it changes dynamically
-                stateChanged = status.setAwake();
-                startClientAwakeTimer(reg, status, awakeTimeProvider.getClientAwakeTime(reg));
-            }
+            // Every time we set the clientAwakeTime, in case it changes dynamically
+            boolean stateChanged = startClientAwakeTimer(reg, status, awakeTimeProvider.getClientAwakeTime(reg));
 
             if (stateChanged) {
                 for (PresenceListener listener : listeners) {
@@ -95,6 +148,20 @@ public final class PresenceServiceImpl implements PresenceService {
         }
     }
 
+    /**
+     * Set the state of the client as {@link Presence#AWAKE} after a message it sent on its own (register, update or
+     * notification). Unlike the responses to the requests of the server, these messages are recorded by a
+     * {@link LearningClientAwakeTimeProvider}.
+     *
+     * @param reg the client's registration object
+     */
+    public void clientMessageReceived(Registration reg) {
+        if (reg.usesQueueMode() && awakeTimeProvider instanceof LearningClientAwakeTimeProvider) {
+            ((LearningClientAwakeTimeProvider) awakeTimeProvider).messageReceived(reg);
+        }
+        setAwake(reg);
+    }
+
     /**
      * Notify the listeners that the client state changed to {@link Presence#SLEEPING}. The state changes is produced
      * inside {@link PresenceStatus} when the timer expires or when the client doesn't respond to a request.
@@ -105,16 +172,9 @@ public final class PresenceServiceImpl implements PresenceService {
         if (reg.usesQueueMode()) {
             PresenceStatus status = clientStatusList.get(reg.getEndpoint());
 
-            if (status != null) {
-                boolean stateChanged = false;
-                synchronized (status) {
-                    stateChanged = status.setSleeping();
-                    stopClientAwakeTimer(reg);
-                }
-                if (stateChanged) {
-                    for (PresenceListener listener : listeners) {
-                        listener.onSleeping(reg);
-                    }
+            if (status != null && status.setSleeping()) {
+                for (PresenceListener listener : listeners) {
+                    listener.onSleeping(reg);
                 }
             }
         }
@@ -126,64 +186,77 @@ public final class PresenceServiceImpl implements PresenceService {
      * @param reg the client's registration object.
      */
     public void removePresenceStatusObject(Registration reg) {
-        clientStatusList.remove(reg.getEndpoint());
+        PresenceStatus status = clientStatusList.remove(reg.getEndpoint());
+        if (status != null) {
+            // stop the timer without notifying listeners
+            status.setSleeping();
+        }
     }
 
     /**
-     * Returns the {@link PresenceStatus} object associated with the given endpoint name.
+     * Set the client awake and start or restart (if already started) the timer that handles the client wait before
+     * sleep time.
      *
-     * @param reg The client's registration object.
-     * @return The {@link PresenceStatus} object.
+     * @param reg                  the client's registration object.
+     * @param clientPresenceStatus the status of the client.
+     * @param clientAwakeTime      the time in millisecond the client stays awake, <code>0</code> to keep it awake until
+     *                             it does not respond.
+     * @return true if the state was changed (previous state was {@link Presence#SLEEPING}
      */
-    private PresenceStatus getPresenceStatusObject(Registration reg) {
-        return clientStatusList.get(reg.getEndpoint());
+    public boolean startClientAwakeTimer(Registration reg, PresenceStatus clientPresenceStatus, int clientAwakeTime) {
+        if (clientAwakeTime == 0) {
+            return clientPresenceStatus.setAwakeUntil(PresenceStatus.AWAKE_WITHOUT_DEADLINE);
+        }
+        boolean stateChanged = clientPresenceStatus.setAwakeUntil(timerWheel.deadlineIn(clientAwakeTime));
+        timerWheel.schedule(clientPresenceStatus);
+        return stateChanged;
     }
 
     /**
-     * Start or restart (if already started) the timer that handles the client wait before sleep time.
-     *
-     * @param status
+     * Called when the client doesn't respond to a request, for changing its state to SLEEPING
      */
-    public void startClientAwakeTimer(final Registration reg, PresenceStatus clientPresenceStatus,
-                                      int clientAwakeTime) {
-
-        ScheduledFuture<?> clientScheduledFuture = clientPresenceStatus.getClientScheduledFuture();
-
-        if (clientAwakeTime != 0) {
-            if (clientScheduledFuture != null) {
-                clientScheduledFuture.cancel(true);
-            }
-            clientScheduledFuture = clientTimersExecutor.schedule(new Runnable() {
+    public void clientNotResponding(Registration reg) {
+        if (isClientAwake(reg)) {
+            setSleeping(reg);
+        }
+    }
 
+    private void notifySleeping(final List<PresenceStatus> statuses) {
+        if (listeners.isEmpty())
+            return;
+        try {
+            listenerExecutor.execute(new Runnable() {
                 @Override
                 public void run() {
-                    if (isClientAwake(reg)) {
-                        setSleeping(reg);
+                    for (PresenceStatus status : statuses) {
+                        Registration reg = status.getRegistration();
+                        for (PresenceListener listener : listeners) {
+                            // the client may have woken up (and listeners been notified synchronously) or been
+                            // removed since its timer expired: do not send an outdated sleeping notification
+                            if (status.isClientAwake() || clientStatusList.get(reg.getEndpoint()) != status)
+                                break;
+                            try {
+                                listener.onSleeping(reg);
+                            } catch (RuntimeException e) {
+                                LOG.warn("Presence listener failed for {}", reg.getEndpoint(), e);
+                            }
+                        }
                     }
                 }
-            }, clientAwakeTime, TimeUnit.MILLISECONDS);
-            clientPresenceStatus.setClientExecutorFuture(clientScheduledFuture);
-        }
-
-    }
-
-    /**
-     * Stop the timer that handles the client wait before sleep time.
-     */
-    private void stopClientAwakeTimer(Registration reg) {
-        PresenceStatus clientPresenceStatus = getPresenceStatusObject(reg);
-        ScheduledFuture<?> clientScheduledFuture = clientPresenceStatus.getClientScheduledFuture();
-        if (clientScheduledFuture != null) {
-            clientScheduledFuture.cancel(false);
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Presence listeners executor is shut down, {} sleeping notification(s) dropped", statuses.size());
         }
     }
 
     /**
-     * Called when the client doesn't respond to a request, for changing its state to SLEEPING
+     * Stop the client awake timers.
      */
-    public void clientNotResponding(Registration reg) {
-        if (isClientAwake(reg)) {
-            setSleeping(reg);
+    @Override
+    public void destroy() {
+        timerWheel.stop();
+        if (defaultListenerExecutor != null) {
+            defaultListenerExecutor.shutdownNow();
         }
     }
 }
@@ -18,6 +18,8 @@ package org.eclipse.leshan.server.queue;
 import java.util.Collection;
 
 import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.observation.ObservationListener;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationListener;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
@@ -26,9 +28,12 @@ import org.eclipse.leshan.server.registration.RegistrationUpdate;
  * Listener that controls the state of the client (awake/sleeping) It is in charge of sending all the queued messages
  * when the client is awake (has sent an update message), and controlling the time the client is awake before going to
  * sleep.
+ * <p>
+ * Registrations, updates and notifications are the messages sent by the client on its own, it should also be added as
+ * {@link ObservationListener} (done by the <code>LeshanServer</code>).
  */
 
-public class PresenceStateListener implements RegistrationListener {
+public class PresenceStateListener implements RegistrationListener, ObservationListener {
 
     PresenceServiceImpl presenceService;
 
@@ -39,7 +44,7 @@ public class PresenceStateListener implements RegistrationListener {
     @Override
     public void registered(Registration reg, Registration previousReg, Collection<Observation> previousObsersations) {
         if (reg.usesQueueMode()) {
-            presenceService.setAwake(reg);
+            presenceService.clientMessageReceived(reg);
         }
     }
 
@@ -47,7 +52,7 @@ public class PresenceStateListener implements RegistrationListener {
     public void updated(RegistrationUpdate update, Registration updatedRegistration,
                         Registration previousRegistration) {
         if (updatedRegistration.usesQueueMode()) {
-            presenceService.setAwake(updatedRegistration);
+            presenceService.clientMessageReceived(updatedRegistration);
         }
 
     }
@@ -57,4 +62,23 @@ public class PresenceStateListener implements RegistrationListener {
                              Registration newReg) {
         presenceService.removePresenceStatusObject(reg);
     }
+
+    @Override
+    public void newObservation(Observation observation, Registration registration) {
+    }
+
+    @Override
+    public void cancelled(Observation observation) {
+    }
+
+    @Override
+    public void onResponse(Observation observation, Registration registration, ObserveResponse response) {
+        if (registration.usesQueueMode()) {
+            presenceService.clientMessageReceived(registration);
+        }
+    }
+
+    @Override
+    public void onError(Observation observation, Registration registration, Exception error) {
+    }
 }
@@ -15,88 +15,92 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.queue;
 
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.server.registration.Registration;
 
 /**
  * Class that contains all the necessary elements to handle the queue mode. Every registration object that uses Queue
  * Mode has a PresenceStatus object linked to it for handling this mode.
+ * <p>
+ * The state is held by a single atomic deadline, so state changes do not need any lock: <code>0</code> means the
+ * client is sleeping, {@link Long#MAX_VALUE} means the client is awake without time limit and any other value is the
+ * time (in the clock of the {@link PresenceTimerWheel}) when the client will go to sleep.
  */
 
 public class PresenceStatus {
 
-    /* The state of the client: Awake or Sleeping */
-    private Presence state;
+    static final long SLEEPING = 0;
+    static final long AWAKE_WITHOUT_DEADLINE = Long.MAX_VALUE;
+    static final long NOT_SCHEDULED = Long.MAX_VALUE;
 
-    private ScheduledFuture<?> clientScheduledFuture;
+    /* The state of the client: sleeping, awake or awake until a deadline */
+    private final AtomicLong deadline = new AtomicLong(SLEEPING);
 
-    public PresenceStatus() {
-        this.state = Presence.SLEEPING;
-    }
+    /* The tick of the timer wheel in which this status is scheduled */
+    final AtomicLong scheduledTick = new AtomicLong(NOT_SCHEDULED);
+
+    /* The last registration of the client, used to notify listeners */
+    private volatile Registration registration;
 
     /* Client State Control */
 
     /**
-     * Set the client state to awake. This should be called when an update message is received from the server. It
-     * starts the client awake timer.
+     * Set the client state to awake, without time limit. The client stays awake until
+     * {@link #setSleeping()} is called.
      *
      * @return true if the state was changed (previous state was {@link Presence#SLEEPING}
      */
     public boolean setAwake() {
-        if (state == Presence.SLEEPING) {
-            state = Presence.AWAKE;
-            return true;
-        }
-        return false;
+        return setAwakeUntil(AWAKE_WITHOUT_DEADLINE);
     }
 
     /**
-     * Set the client state to sleeping. This should be called when the the time the client waits before going to sleep
-     * expires, or when the client is not responding. It also notifies the listeners inside the {@link PresenceService}.
-     * It stops the client awake timer.
+     * Set the client state to awake until the given deadline.
+     *
+     * @return true if the state was changed (previous state was {@link Presence#SLEEPING}
      */
+    boolean setAwakeUntil(long deadline) {
+        return this.deadline.getAndSet(deadline) == SLEEPING;
+    }
 
     /**
      * Set the client state to sleeping. This should be called when the the time the client waits before going to sleep
-     * expires, or when the client is not responding. It also notifies the listeners inside the {@link PresenceService}.
-     * It stops the client awake timer.
+     * expires, or when the client is not responding.
      *
      * @return true if the state was changed (previous state was {@link Presence#AWAKE}
      */
     public boolean setSleeping() {
-        if (state == Presence.AWAKE) {
-            state = Presence.SLEEPING;
-            return true;
-        }
-        return false;
+        return deadline.getAndSet(SLEEPING) != SLEEPING;
     }
 
     /**
-     * Tells if the client is awake or not
+     * Set the client state to sleeping only if its deadline did not change.
      *
-     * @return true if the status is {@link Presence#Awake}
+     * @return true if the state was changed
      */
-    public boolean isClientAwake() {
-        return state == Presence.AWAKE;
+    boolean setSleeping(long expectedDeadline) {
+        return expectedDeadline != SLEEPING && deadline.compareAndSet(expectedDeadline, SLEEPING);
     }
 
-    /* Control of the time the client waits before going to sleep */
-
     /**
-     * Sets the client scheduled task future, in order to cancel it.
+     * Tells if the client is awake or not
      *
-     * @param clientScheduledFuture the scheduled future of the task.
+     * @return true if the status is {@link Presence#Awake}
      */
-    public void setClientExecutorFuture(ScheduledFuture<?> clientScheduledFuture) {
-        this.clientScheduledFuture = clientScheduledFuture;
+    public boolean isClientAwake() {
+        return deadline.get() != SLEEPING;
     }
 
-    /**
-     * Gets the client scheduled task future, in order to cancel it.
-     *
-     * @return the client scheduled task future.
-     */
-    public ScheduledFuture<?> getClientScheduledFuture() {
-        return this.clientScheduledFuture;
+    long getDeadline() {
+        return deadline.get();
     }
 
+    Registration getRegistration() {
+        return registration;
+    }
+
+    void setRegistration(Registration registration) {
+        this.registration = registration;
+    }
 }
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timing wheel which puts {@link PresenceStatus} to sleep when their deadline expires.
+ * <p>
+ * Time is divided in ticks and each tick is mapped to a bucket of the wheel. Re-arming an already scheduled status only
+ * updates its deadline: the status is moved to the right bucket when its current bucket is processed. So a client
+ * which is awake and exchanging messages costs a single atomic write per exchange, whatever the number of clients.
+ * <p>
+ * All statuses expiring in the same tick are put to sleep together and given to the {@link ExpirationHandler} as one
+ * batch.
+ */
+class PresenceTimerWheel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PresenceTimerWheel.class);
+
+    interface ExpirationHandler {
+        /**
+         * Called from the timer thread with the statuses which just went to sleep.
+         */
+        void expired(List<PresenceStatus> statuses);
+    }
+
+    private final long tickDuration; // in nanoseconds
+    private final int mask;
+    private final ConcurrentLinkedQueue<Entry>[] buckets;
+    private final ExpirationHandler handler;
+    private final long startTime = System.nanoTime();
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile boolean stopped = false;
+    private volatile long processedTick = 0;
+    private Thread worker;
+
+    /**
+     * @param tickDurationInMs the duration of a tick in millisecond, which is the precision of the timer
+     * @param wheelSize        the number of buckets, rounded up to a power of 2
+     * @param handler          the handler called when statuses expire
+     */
+    @SuppressWarnings("unchecked")
+    PresenceTimerWheel(long tickDurationInMs, int wheelSize, ExpirationHandler handler) {
+        Validate.isTrue(tickDurationInMs > 0, "tick duration must be positive");
+        Validate.isTrue(wheelSize > 0 && wheelSize <= 1 << 20, "wheel size must be between 1 and 2^20");
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize)
+            size <<= 1;
+
+        this.tickDuration = TimeUnit.MILLISECONDS.toNanos(tickDurationInMs);
+        this.mask = size - 1;
+        this.buckets = new ConcurrentLinkedQueue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.handler = handler;
+    }
+
+    /**
+     * @return the deadline, in the clock of this wheel, for a timeout starting now.
+     */
+    long deadlineIn(long timeoutInMs) {
+        return System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(timeoutInMs);
+    }
+
+    /**
+     * Ensure the status will be checked at its deadline. Nothing is done if it is already scheduled earlier.
+     */
+    void schedule(PresenceStatus status) {
+        long deadline = status.getDeadline();
+        if (deadline == PresenceStatus.SLEEPING || deadline == PresenceStatus.AWAKE_WITHOUT_DEADLINE)
+            return;
+
+        if (!started.get() && started.compareAndSet(false, true)) {
+            start();
+        }
+
+        long tick = Math.max(tickOf(deadline), processedTick + 1);
+        while (true) {
+            long current = status.scheduledTick.get();
+            if (current <= tick)
+                // an earlier entry exists, it will be moved to the right tick when processed
+                return;
+            if (status.scheduledTick.compareAndSet(current, tick))
+                break;
+        }
+        buckets[(int) (tick & mask)].add(new Entry(status, tick));
+
+        // the timer thread may have processed this tick while we were adding the entry, in this case add it to the
+        // next tick. The stale entry will be ignored.
+        long processed;
+        while ((processed = processedTick) >= tick) {
+            long next = processed + 1;
+            if (!status.scheduledTick.compareAndSet(tick, next))
+                return;
+            tick = next;
+            buckets[(int) (tick & mask)].add(new Entry(status, tick));
+        }
+    }
+
+    private long tickOf(long deadline) {
+        // round up, so a status never expires before its deadline
+        return (deadline + tickDuration - 1) / tickDuration;
+    }
+
+    private void start() {
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!stopped) {
+                    try {
+                        long tick = processedTick + 1;
+                        long sleepTime = tick * tickDuration - (System.nanoTime() - startTime);
+                        if (sleepTime > 0) {
+                            TimeUnit.NANOSECONDS.sleep(sleepTime);
+                        }
+                        processedTick = tick;
+                        processTick(tick);
+                    } catch (InterruptedException e) {
+                        // stop requested
+                    } catch (RuntimeException e) {
+                        LOG.error("Unexpected error in presence timer", e);
+                    }
+                }
+            }
+        }, "PresenceService timer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void processTick(long tick) {
+        ConcurrentLinkedQueue<Entry> bucket = buckets[(int) (tick & mask)];
+
+        // entries of next rounds, even the ones moved in this bucket while processing it, are added back at the end
+        List<Entry> nextRounds = null;
+        List<PresenceStatus> expired = null;
+        Entry entry;
+        while ((entry = bucket.poll()) != null) {
+            if (entry.tick > tick) {
+                if (nextRounds == null)
+                    nextRounds = new ArrayList<>();
+                nextRounds.add(entry);
+                continue;
+            }
+
+            PresenceStatus status = entry.status;
+            if (status.scheduledTick.get() != entry.tick) {
+                // stale entry, the status was re-scheduled in another tick
+                continue;
+            }
+
+            long deadline = status.getDeadline();
+            if (deadline == PresenceStatus.SLEEPING || deadline == PresenceStatus.AWAKE_WITHOUT_DEADLINE) {
+                status.scheduledTick.compareAndSet(entry.tick, PresenceStatus.NOT_SCHEDULED);
+            } else if (tickOf(deadline) > tick) {
+                // deadline was pushed back, move to the right bucket
+                long newTick = tickOf(deadline);
+                if (status.scheduledTick.compareAndSet(entry.tick, newTick)) {
+                    buckets[(int) (newTick & mask)].add(new Entry(status, newTick));
+                }
+            } else if (status.scheduledTick.compareAndSet(entry.tick, PresenceStatus.NOT_SCHEDULED)) {
+                if (status.setSleeping(deadline)) {
+                    if (expired == null)
+                        expired = new ArrayList<>();
+                    expired.add(status);
+                } else {
+                    // client was set awake concurrently
+                    schedule(status);
+                }
+            }
+        }
+
+        if (nextRounds != null) {
+            bucket.addAll(nextRounds);
+        }
+        if (expired != null) {
+            handler.expired(expired);
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private static class Entry {
+        private final PresenceStatus status;
+        private final long tick;
+
+        private Entry(PresenceStatus status, long tick) {
+            this.status = status;
+            this.tick = tick;
+        }
+    }
+}
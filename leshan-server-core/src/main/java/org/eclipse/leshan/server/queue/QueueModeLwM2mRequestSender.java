@@ -15,20 +15,39 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.queue;
 
+import java.util.List;
+
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
 import org.eclipse.leshan.core.request.exception.TimeoutException;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.request.LwM2mRequestSender;
 import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * A {@link LwM2mRequestSender} which handles Queue Mode clients.
+ * <p>
+ * When a {@link RequestQueue} is given, asynchronous requests targeting a sleeping client are queued instead of being
+ * rejected, and they are all sent in a burst as soon as the client is awake again (on registration, registration
+ * update or any response). This also applies to requests sent with {@link #sendAsync(Registration, DownlinkRequest,
+ * long)}: the returned future is completed once the queued request is sent and answered. Synchronous requests
+ * targeting a sleeping client are still rejected with a {@link ClientSleepingException}.
+ */
 public class QueueModeLwM2mRequestSender implements LwM2mRequestSender {
 
+    private static final Logger LOG = LoggerFactory.getLogger(QueueModeLwM2mRequestSender.class);
+
     protected PresenceServiceImpl presenceService;
     protected LwM2mRequestSender delegatedSender;
+    protected RequestQueue requestQueue;
+    protected RequestQueueMetrics requestQueueMetrics;
 
     /**
      * @param presenceService the presence service object for setting the client into {@link Presence#SLEEPING} when
@@ -36,11 +55,46 @@ public class QueueModeLwM2mRequestSender implements LwM2mRequestSender {
      * @param delegatedSender internal sender that it is used for sending the requests, using delegation.
      */
     public QueueModeLwM2mRequestSender(PresenceServiceImpl presenceService, LwM2mRequestSender delegatedSender) {
+        this(presenceService, delegatedSender, null);
+    }
+
+    /**
+     * @param presenceService the presence service object for setting the client into {@link Presence#SLEEPING} when
+     *                        request Timeout expires and into {@link Presence#Awake} when a response arrives.
+     * @param delegatedSender internal sender that it is used for sending the requests, using delegation.
+     * @param requestQueue    the queue used to store requests targeting sleeping clients, could be <code>null</code>
+     *                        to reject those requests with a {@link ClientSleepingException}.
+     */
+    public QueueModeLwM2mRequestSender(PresenceServiceImpl presenceService, LwM2mRequestSender delegatedSender,
+            RequestQueue requestQueue) {
         Validate.notNull(presenceService);
         Validate.notNull(delegatedSender);
 
         this.presenceService = presenceService;
         this.delegatedSender = delegatedSender;
+        this.requestQueue = requestQueue;
+
+        if (requestQueue != null) {
+            this.requestQueueMetrics = new RequestQueueMetrics(requestQueue);
+            // send queued requests as soon as the client wakes up
+            presenceService.addListener(new PresenceListener() {
+                @Override
+                public void onAwake(Registration registration) {
+                    drainRequestQueue(registration);
+                }
+
+                @Override
+                public void onSleeping(Registration registration) {
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the metrics of the request queue or <code>null</code> if no request queue is used.
+     */
+    public RequestQueueMetrics getRequestQueueMetrics() {
+        return requestQueueMetrics;
     }
 
     @Override
@@ -86,12 +140,48 @@ public class QueueModeLwM2mRequestSender implements LwM2mRequestSender {
 
         // If the client uses Q-Mode...
 
-        // If the client is sleeping, warn the user and return
+        // If the client is sleeping, queue the request or warn the user and return
         if (!presenceService.isClientAwake(destination)) {
-            throw new ClientSleepingException("The destination client is sleeping, request cannot be sent.");
+            if (requestQueue == null) {
+                throw new ClientSleepingException("The destination client is sleeping, request cannot be sent.");
+            }
+            queueRequest(destination, new QueuedRequest<>(request, timeout, responseCallback, errorCallback));
+            return;
+        }
+
+        sendAndUpdatePresence(destination, request, timeout, responseCallback, errorCallback);
+    }
+
+    @Override
+    public <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            long timeout) {
+
+        // If the client does not use Q-Mode, just send
+        if (!destination.usesQueueMode()) {
+            return delegatedSender.sendAsync(destination, request, timeout);
         }
 
-        // Use delegation to send the request, with specific callbacks to perform Queue Mode operation
+        // If the client uses Q-Mode...
+
+        // If the client is sleeping, queue the request or warn the user and return
+        if (!presenceService.isClientAwake(destination)) {
+            if (requestQueue == null) {
+                throw new ClientSleepingException("The destination client is sleeping, request cannot be sent.");
+            }
+            ResponseFuture<T> future = new ResponseFuture<>();
+            queueRequest(destination, new QueuedRequest<>(request, timeout, future, future));
+            return future;
+        }
+
+        return sendAsyncAndUpdatePresence(destination, request, timeout);
+    }
+
+    /**
+     * Use delegation to send the request, with specific callbacks to perform Queue Mode operation
+     */
+    protected <T extends LwM2mResponse> void sendAndUpdatePresence(final Registration destination,
+            DownlinkRequest<T> request, long timeout, final ResponseCallback<T> responseCallback,
+            final ErrorCallback errorCallback) {
         delegatedSender.send(destination, request, timeout, new ResponseCallback<T>() {
             @Override
             public void onResponse(T response) {
@@ -113,11 +203,105 @@ public class QueueModeLwM2mRequestSender implements LwM2mRequestSender {
                 errorCallback.onError(e);
             }
         });
+    }
+
+    /**
+     * Use delegation to send the request, and update the presence of the client on completion
+     */
+    protected <T extends LwM2mResponse> ResponseFuture<T> sendAsyncAndUpdatePresence(final Registration destination,
+            DownlinkRequest<T> request, long timeout) {
+        ResponseFuture<T> future = delegatedSender.sendAsync(destination, request, timeout);
+        future.addCallbacks(new ResponseCallback<T>() {
+            @Override
+            public void onResponse(T response) {
+                // Set the client awake. This will restart the timer.
+                presenceService.setAwake(destination);
+            }
+        }, new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                if (e instanceof TimeoutException) {
+                    // If the timeout expires, this means the client does not respond.
+                    presenceService.clientNotResponding(destination);
+                }
+            }
+        });
+        return future;
+    }
+
+    private void queueRequest(Registration destination, QueuedRequest<?> queuedRequest) {
+        if (!requestQueue.offer(destination.getEndpoint(), queuedRequest)) {
+            requestQueueMetrics.requestRejected();
+            throw new ClientSleepingException(
+                    "The destination client is sleeping and its request queue is full, request cannot be sent.");
+        }
+        requestQueueMetrics.requestQueued();
 
+        // The client may have woken up while we were queuing the request, in this case the queue may have been
+        // already drained.
+        if (presenceService.isClientAwake(destination)) {
+            drainRequestQueue(destination);
+        }
+    }
+
+    /**
+     * Send all the requests queued for the given client without waiting for the responses, in order to use its awake
+     * time as much as possible.
+     *
+     * @param destination the registration of the client which is awake.
+     */
+    protected void drainRequestQueue(Registration destination) {
+        List<QueuedRequest<?>> requests = requestQueue.drain(destination.getEndpoint());
+        if (requests.isEmpty())
+            return;
+
+        LOG.debug("Client {} is awake, sending {} queued request(s)", destination.getEndpoint(), requests.size());
+        long now = System.currentTimeMillis();
+        for (QueuedRequest<?> queuedRequest : requests) {
+            requestQueueMetrics.requestDrained(now - queuedRequest.getQueuedTime());
+            sendQueuedRequest(destination, queuedRequest);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends LwM2mResponse> void sendQueuedRequest(Registration destination,
+            QueuedRequest<T> queuedRequest) {
+        try {
+            if (queuedRequest.getResponseCallback() instanceof ResponseFuture) {
+                // request queued by sendAsync, cancelling its future must cancel the request sent now
+                final ResponseFuture<T> queuedFuture = (ResponseFuture<T>) queuedRequest.getResponseCallback();
+                if (queuedFuture.isCancelled())
+                    return;
+
+                final ResponseFuture<T> future = sendAsyncAndUpdatePresence(destination, queuedRequest.getRequest(),
+                        queuedRequest.getTimeout());
+                future.addCallbacks(queuedFuture, queuedFuture);
+                queuedFuture.setCancellationAction(new Runnable() {
+                    @Override
+                    public void run() {
+                        future.cancel(false);
+                    }
+                });
+            } else {
+                sendAndUpdatePresence(destination, queuedRequest.getRequest(), queuedRequest.getTimeout(),
+                        queuedRequest.getResponseCallback(), queuedRequest.getErrorCallback());
+            }
+        } catch (RuntimeException e) {
+            // do not prevent the other queued requests to be sent
+            queuedRequest.getErrorCallback().onError(e);
+        }
     }
 
     @Override
     public void cancelPendingRequests(Registration registration) {
         delegatedSender.cancelPendingRequests(registration);
+
+        if (requestQueue != null) {
+            for (QueuedRequest<?> queuedRequest : requestQueue.drain(registration.getEndpoint())) {
+                queuedRequest.getErrorCallback()
+                        .onError(new RequestCanceledException("Queued request %s was canceled for %s",
+                                queuedRequest.getRequest(), registration.getEndpoint()));
+            }
+        }
     }
 }
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.util.RandomStringUtils;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A downlink request waiting in a {@link RequestQueue} for its destination client to wake up.
+ *
+ * @param <T> the type of the expected response.
+ */
+public class QueuedRequest<T extends LwM2mResponse> {
+
+    private final String id;
+    private final DownlinkRequest<T> request;
+    private final long timeout;
+    private final long queuedTime;
+    private final ResponseCallback<T> responseCallback;
+    private final ErrorCallback errorCallback;
+
+    /**
+     * Create a new queued request with a random identifier, queued now.
+     *
+     * @param request          the request to send when the client wakes up
+     * @param timeout          the request timeout in millisecond, counted from the moment the request is sent
+     * @param responseCallback a callback called when a response is received
+     * @param errorCallback    a callback called when an error occurred or when the request is dropped from the queue
+     */
+    public QueuedRequest(DownlinkRequest<T> request, long timeout, ResponseCallback<T> responseCallback,
+            ErrorCallback errorCallback) {
+        this(RandomStringUtils.random(10, true, true), request, timeout, System.currentTimeMillis(),
+                responseCallback, errorCallback);
+    }
+
+    /**
+     * @param id               the identifier of this request in the queue
+     * @param request          the request to send when the client wakes up
+     * @param timeout          the request timeout in millisecond, counted from the moment the request is sent
+     * @param queuedTime       the time in millisecond when the request was queued
+     * @param responseCallback a callback called when a response is received
+     * @param errorCallback    a callback called when an error occurred or when the request is dropped from the queue
+     */
+    public QueuedRequest(String id, DownlinkRequest<T> request, long timeout, long queuedTime,
+            ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+        Validate.notNull(id);
+        Validate.notNull(request);
+        Validate.notNull(responseCallback);
+        Validate.notNull(errorCallback);
+
+        this.id = id;
+        this.request = request;
+        this.timeout = timeout;
+        this.queuedTime = queuedTime;
+        this.responseCallback = responseCallback;
+        this.errorCallback = errorCallback;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public DownlinkRequest<T> getRequest() {
+        return request;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return the time in millisecond when the request was queued.
+     */
+    public long getQueuedTime() {
+        return queuedTime;
+    }
+
+    public ResponseCallback<T> getResponseCallback() {
+        return responseCallback;
+    }
+
+    public ErrorCallback getErrorCallback() {
+        return errorCallback;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueuedRequest [id=%s, request=%s, timeout=%s, queuedTime=%s]", id, request, timeout,
+                queuedTime);
+    }
+}
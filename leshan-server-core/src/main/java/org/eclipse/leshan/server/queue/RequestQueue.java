@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.List;
+
+/**
+ * A bounded store of downlink requests waiting for Queue Mode clients to wake up.
+ * <p>
+ * Requests are kept in a FIFO queue per endpoint. The {@link QueueModeLwM2mRequestSender} adds requests targeting a
+ * sleeping client and drains the queue of this client as soon as it is awake again.
+ */
+public interface RequestQueue {
+
+    /**
+     * Add a request at the end of the queue of the given endpoint.
+     *
+     * @param endpoint the endpoint name of the destination client
+     * @param request  the request to queue
+     * @return <code>false</code> if the queue of this endpoint is full and so the request was not queued.
+     */
+    boolean offer(String endpoint, QueuedRequest<?> request);
+
+    /**
+     * Remove all the requests queued for the given endpoint.
+     *
+     * @param endpoint the endpoint name of the client
+     * @return the removed requests in the order they were queued, an empty list if there is no queued request.
+     */
+    List<QueuedRequest<?>> drain(String endpoint);
+
+    /**
+     * @param endpoint the endpoint name of the client
+     * @return the number of requests queued for the given endpoint.
+     */
+    int size(String endpoint);
+
+    /**
+     * @return the number of requests queued for all the endpoints.
+     */
+    int size();
+
+    /**
+     * @param endpoint the endpoint name of the client
+     * @return the time in millisecond when the oldest request of the given endpoint was queued or <code>-1</code> if
+     *         there is no queued request.
+     */
+    long getOldestQueuedTime(String endpoint);
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics about the downlink requests queued by a {@link QueueModeLwM2mRequestSender}.
+ * <p>
+ * The drain latency is the time spent by a request in the queue, from the moment it is queued to the moment it is
+ * sent to the client.
+ */
+public class RequestQueueMetrics {
+
+    private final RequestQueue queue;
+
+    private final AtomicLong queuedRequests = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private final AtomicLong drainedRequests = new AtomicLong();
+    private final AtomicLong totalDrainLatency = new AtomicLong();
+    private final AtomicLong maxDrainLatency = new AtomicLong();
+
+    public RequestQueueMetrics(RequestQueue queue) {
+        this.queue = queue;
+    }
+
+    void requestQueued() {
+        queuedRequests.incrementAndGet();
+    }
+
+    void requestRejected() {
+        rejectedRequests.incrementAndGet();
+    }
+
+    void requestDrained(long latency) {
+        drainedRequests.incrementAndGet();
+        totalDrainLatency.addAndGet(latency);
+        long max = maxDrainLatency.get();
+        while (latency > max && !maxDrainLatency.compareAndSet(max, latency)) {
+            max = maxDrainLatency.get();
+        }
+    }
+
+    /**
+     * @return the number of requests currently queued for all endpoints.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @param endpoint the endpoint name of the client
+     * @return the number of requests currently queued for the given endpoint.
+     */
+    public int getQueueDepth(String endpoint) {
+        return queue.size(endpoint);
+    }
+
+    /**
+     * @param endpoint the endpoint name of the client
+     * @return the age in millisecond of the oldest request queued for the given endpoint, <code>0</code> if there is
+     *         no queued request.
+     */
+    public long getOldestRequestAge(String endpoint) {
+        long queuedTime = queue.getOldestQueuedTime(endpoint);
+        if (queuedTime < 0)
+            return 0;
+        return Math.max(0, System.currentTimeMillis() - queuedTime);
+    }
+
+    /**
+     * @return the number of requests queued since the server started.
+     */
+    public long getQueuedRequests() {
+        return queuedRequests.get();
+    }
+
+    /**
+     * @return the number of requests rejected because the queue of their endpoint was full.
+     */
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    /**
+     * @return the number of queued requests which were sent to their client.
+     */
+    public long getDrainedRequests() {
+        return drainedRequests.get();
+    }
+
+    /**
+     * @return the average time in millisecond spent by the drained requests in the queue.
+     */
+    public long getAverageDrainLatency() {
+        long drained = drainedRequests.get();
+        return drained == 0 ? 0 : totalDrainLatency.get() / drained;
+    }
+
+    /**
+     * @return the maximum time in millisecond spent by a drained request in the queue.
+     */
+    public long getMaxDrainLatency() {
+        return maxDrainLatency.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "RequestQueueMetrics [depth=%s, queued=%s, rejected=%s, drained=%s, avgDrainLatency=%sms, "
+                        + "maxDrainLatency=%sms]",
+                getQueueDepth(), getQueuedRequests(), getRejectedRequests(), getDrainedRequests(),
+                getAverageDrainLatency(), getMaxDrainLatency());
+    }
+}
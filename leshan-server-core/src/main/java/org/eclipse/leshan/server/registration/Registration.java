@@ -26,8 +26,6 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.eclipse.leshan.Link;
 import org.eclipse.leshan.core.attributes.Attribute;
@@ -378,32 +376,25 @@ public class Registration implements Serializable {
         Map<Integer, String> objects = new HashMap<>();
         for (Link link : objectLinks) {
             if (link != null) {
-                Pattern p = Pattern.compile("^\\Q" + rootPath + "\\E(\\d+)(?:/\\d+)*$");
-                Matcher m = p.matcher(link.getUrl());
-                if (m.matches()) {
-                    try {
-                        // extract object id and version
-                        int objectId = Integer.parseInt(m.group(1));
-                        Object version = link.getAttributes().get(Attribute.OBJECT_VERSION);
-                        String currentVersion = objects.get(objectId);
-
-                        // store it in map
-                        if (currentVersion == null) {
-                            // we never find version for this object add it
-                            if (version instanceof String) {
-                                objects.put(objectId, (String) version);
-                            } else {
-                                objects.put(objectId, ObjectModel.DEFAULT_VERSION);
-                            }
+                // extract object id and version
+                int objectId = getObjectId(rootPath, link.getUrl());
+                if (objectId >= 0) {
+                    Object version = link.getAttributes().get(Attribute.OBJECT_VERSION);
+                    String currentVersion = objects.get(objectId);
+
+                    // store it in map
+                    if (currentVersion == null) {
+                        // we never find version for this object add it
+                        if (version instanceof String) {
+                            objects.put(objectId, (String) version);
                         } else {
-                            // if version is already set, we override it only if new version is not DEFAULT_VERSION
-                            if (version instanceof String && !version.equals(ObjectModel.DEFAULT_VERSION)) {
-                                objects.put(objectId, (String) version);
-                            }
+                            objects.put(objectId, ObjectModel.DEFAULT_VERSION);
+                        }
+                    } else {
+                        // if version is already set, we override it only if new version is not DEFAULT_VERSION
+                        if (version instanceof String && !version.equals(ObjectModel.DEFAULT_VERSION)) {
+                            objects.put(objectId, (String) version);
                         }
-                    } catch (NumberFormatException e) {
-                        // This should not happened except maybe if the number in url is too long...
-                        // In this case we just ignore it because this is not an object id.
                     }
                 }
             }
@@ -411,6 +402,37 @@ public class Registration implements Serializable {
         return objects;
     }
 
+    /**
+     * Extract the object id of an url matching "{rootPath}{objectId}(/{id})*".
+     *
+     * @return the object id or -1 if the url does not match or if the object id is too long.
+     */
+    private static int getObjectId(String rootPath, String url) {
+        if (url == null || !url.startsWith(rootPath))
+            return -1;
+
+        long objectId = 0;
+        boolean firstSegment = true;
+        int segmentLength = 0;
+        for (int i = rootPath.length(); i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (firstSegment) {
+                    objectId = objectId * 10 + (c - '0');
+                    if (objectId > Integer.MAX_VALUE)
+                        return -1;
+                }
+                segmentLength++;
+            } else if (c == '/' && segmentLength > 0) {
+                firstSegment = false;
+                segmentLength = 0;
+            } else {
+                return -1;
+            }
+        }
+        return segmentLength > 0 ? (int) objectId : -1;
+    }
+
     public static class Builder {
         private final String registrationId;
         private final String endpoint;
@@ -481,6 +503,12 @@ public class Registration implements Serializable {
             return this;
         }
 
+        // reuse the supported objects of an other registration, they are already unmodifiable
+        Builder sharedSupportedObjects(Map<Integer, String> supportedObjects) {
+            this.supportedObjects = supportedObjects;
+            return this;
+        }
+
         public Builder additionalRegistrationAttributes(Map<String, String> additionalRegistrationAttributes) {
             this.additionalRegistrationAttributes = additionalRegistrationAttributes;
             return this;
@@ -66,7 +66,10 @@ public class RegistrationUpdate {
      */
     public Registration update(Registration registration) {
         Identity identity = this.identity != null ? this.identity : registration.getIdentity();
-        Link[] linkObject = this.objectLinks != null ? this.objectLinks : registration.getObjectLinks();
+        // when object links did not change, reuse the previous ones and the supported objects built from them
+        boolean sameObjectLinks = this.objectLinks == null
+                || Arrays.equals(this.objectLinks, registration.getObjectLinks());
+        Link[] linkObject = sameObjectLinks ? registration.getObjectLinks() : this.objectLinks;
         long lifeTimeInSec = this.lifeTimeInSec != null ? this.lifeTimeInSec : registration.getLifeTimeInSec();
         BindingMode bindingMode = this.bindingMode != null ? this.bindingMode : registration.getBindingMode();
         String smsNumber = this.smsNumber != null ? this.smsNumber : registration.getSmsNumber();
@@ -85,6 +88,9 @@ public class RegistrationUpdate {
         builder.lwM2mVersion(registration.getLwM2mVersion()).lifeTimeInSec(lifeTimeInSec).smsNumber(smsNumber)
                 .bindingMode(bindingMode).objectLinks(linkObject).registrationDate(registration.getRegistrationDate())
                 .lastUpdate(lastUpdate).additionalRegistrationAttributes(additionalAttributes);
+        if (sameObjectLinks && linkObject != null) {
+            builder.sharedSupportedObjects(registration.getSupportedObject());
+        }
 
         return builder.build();
 
@@ -22,6 +22,7 @@ import org.eclipse.leshan.core.request.exception.RequestCanceledException;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
 import org.eclipse.leshan.server.registration.Registration;
 
 public interface LwM2mRequestSender {
@@ -52,6 +53,20 @@ public interface LwM2mRequestSender {
     <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request, long timeout,
                                         ResponseCallback<T> responseCallback, ErrorCallback errorCallback);
 
+    /**
+     * Sends a Lightweight M2M request asynchronously and returns its pending response. Cancelling the returned future
+     * cancels the request.
+     *
+     * @param destination the remote client
+     * @param request     the request to send to the client
+     * @param timeout     the request timeout in millisecond
+     * @return the future response, completed with the same response or error than the callbacks of
+     *         {@link #send(Registration, DownlinkRequest, long, ResponseCallback, ErrorCallback)}.
+     * @throws CodecException if request payload can not be encoded.
+     */
+    <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            long timeout);
+
     /**
      * cancel all pending messages for a LWM2M client identified by the registration identifier. In case a client
      * de-registers, the consumer can use this method to cancel all messages pending for the given client.
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An {@link EditableSecurityStore} which can add or remove the security information of many end-points at once, e.g.
+ * to provision many devices without one lock, one file write or one remote call per device.
+ */
+public interface BulkEditableSecurityStore extends EditableSecurityStore {
+
+    /**
+     * Registers the security information of several client end-points at once. This is equivalent to call
+     * {@link #add(SecurityInfo)} for each of them, but stores can persist the whole batch in one operation.
+     * <p>
+     * All the infos are checked before the first one is added: if a PSK identity is already used by an other end-point
+     * (in the store or in the batch), nothing is added. If an end-point appears several times, only its last security
+     * information is added.
+     *
+     * @param infos the new security information
+     * @return the {@link SecurityInfo} previously stored for the end-points which already had one.
+     * @throws NonUniqueSecurityInfoException if some identifiers (PSK identity, RPK public key...) are not unique among
+     *                                        all end-points.
+     */
+    List<SecurityInfo> addAll(Collection<SecurityInfo> infos) throws NonUniqueSecurityInfoException;
+
+    /**
+     * Removes the security information of several end-points at once.
+     *
+     * @param endpoints the client end-points
+     * @return the removed {@link SecurityInfo}, end-points without security information are ignored.
+     */
+    List<SecurityInfo> removeAll(Collection<String> endpoints);
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A {@link DefaultAuthorizer} which remembers the granted decisions, so the periodic updates of a client do not need a
+ * {@link SecurityStore} lookup nor a new {@link SecurityChecker} verification.
+ * <p>
+ * A decision is reused when the same endpoint sends a request with the same credentials (PSK identity, raw public key
+ * or certificate common name), whatever its address. Decisions of an endpoint are forgotten as soon as its
+ * {@link SecurityInfo} is changed in the {@link ObservableSecurityStore}. Refused requests are not cached so unknown
+ * clients can not fill the cache.
+ * <p>
+ * The store must notify all its changes: this authorizer must not be used if the security information can be modified
+ * by another process (e.g. several servers sharing a Redis database).
+ */
+public class CachingAuthorizer extends DefaultAuthorizer {
+
+    /** Default maximum number of endpoints for which a decision is cached. */
+    public static final int DEFAULT_CACHE_SIZE = 100000;
+
+    private final int cacheSize;
+    // credentials granted by endpoint
+    private final ConcurrentMap<String, Identity> grants = new ConcurrentHashMap<>();
+    // incremented on each change of the store, before the grants are removed
+    private final AtomicLong changes = new AtomicLong();
+
+    public CachingAuthorizer(EditableSecurityStore store) {
+        this(store, new SecurityChecker());
+    }
+
+    public CachingAuthorizer(EditableSecurityStore store, SecurityChecker checker) {
+        this(store, checker, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param store the security store, it must not be <code>null</code> and must be an
+     *        {@link ObservableSecurityStore}.
+     * @param checker the checker used when no decision is cached.
+     * @param cacheSize the maximum number of endpoints for which a decision is cached. Once reached, new decisions are
+     *        not cached anymore until some security information changes.
+     */
+    public CachingAuthorizer(EditableSecurityStore store, SecurityChecker checker, int cacheSize) {
+        super(store, checker);
+        Validate.notNull(store);
+        Validate.isTrue(store instanceof ObservableSecurityStore, "security store must notify its changes");
+        Validate.isTrue(cacheSize >= 0, "cache size must be positive");
+        this.cacheSize = cacheSize;
+        ((ObservableSecurityStore) store).addListener(new SecurityStoreListener() {
+            @Override
+            public void securityInfoChanged(String endpoint, SecurityInfo previous, SecurityInfo current) {
+                changes.incrementAndGet();
+                grants.remove(endpoint);
+            }
+        });
+    }
+
+    @Override
+    protected boolean checkSecurity(String endpoint, Identity senderIdentity) {
+        Identity granted = grants.get(endpoint);
+        if (granted != null && sameCredentials(granted, senderIdentity)) {
+            return true;
+        }
+
+        long changeCount = changes.get();
+        boolean authorized = super.checkSecurity(endpoint, senderIdentity);
+        if (authorized && grants.size() < cacheSize) {
+            grants.put(endpoint, senderIdentity);
+            // the store changed during the check, the decision could be based on outdated security information
+            if (changes.get() != changeCount) {
+                grants.remove(endpoint, senderIdentity);
+            }
+        }
+        return authorized;
+    }
+
+    private static boolean sameCredentials(Identity granted, Identity identity) {
+        if (granted.isPSK()) {
+            return identity.isPSK() && granted.getPskIdentity().equals(identity.getPskIdentity());
+        } else if (granted.isRPK()) {
+            return identity.isRPK() && granted.getRawPublicKey().equals(identity.getRawPublicKey());
+        } else if (granted.isX509()) {
+            return identity.isX509() && granted.getX509CommonName().equals(identity.getX509CommonName());
+        } else {
+            return !identity.isSecure();
+        }
+    }
+
+    /**
+     * @return the number of endpoints for which a decision is cached.
+     */
+    public int getCacheSize() {
+        return grants.size();
+    }
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A {@link SecurityStore} caching the security information of an other store, to avoid a remote lookup (e.g. with a
+ * Redis store) on each DTLS handshake.
+ * <p>
+ * Security information is cached during a limited time, unknown PSK identities and endpoints are cached as well
+ * (generally during a shorter time) so a client retrying with wrong credentials does not reach the store each time.
+ * When the wrapped store is an {@link ObservableSecurityStore}, its changes are applied to the cache immediately.
+ * Changes done by an other process (e.g. several servers sharing a Redis database) are only visible once the cached
+ * entry expired.
+ * <p>
+ * The number of cached entries is bounded: once reached, a few cached entries are sampled to make room, the expired
+ * ones are removed or else the one expiring first. The work done on a cache miss does not depend on the cache size.
+ */
+public class CachingSecurityStore implements SecurityStore {
+
+    /** Default time in milliseconds during which a security information is cached. */
+    public static final long DEFAULT_CACHE_TTL = 60000;
+    /** Default time in milliseconds during which an unknown PSK identity or endpoint is cached. */
+    public static final long DEFAULT_NEGATIVE_CACHE_TTL = 5000;
+    /** Default maximum number of cached PSK identities and of cached endpoints. */
+    public static final int DEFAULT_CACHE_SIZE = 100000;
+
+    // number of cached entries examined to make room for a new one
+    private static final int EVICTION_SAMPLES = 16;
+
+    private final SecurityStore store;
+    private final long cacheTtl;
+    private final long negativeCacheTtl;
+    private final int cacheSize;
+
+    private final ConcurrentMap<String, CachedInfo> byIdentity = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CachedInfo> byEndpoint = new ConcurrentHashMap<>();
+    // incremented on each change of the store, before the cached entries are removed
+    private final AtomicLong changes = new AtomicLong();
+
+    private final SecurityLookupMetrics metrics = new SecurityLookupMetrics(this);
+
+    public CachingSecurityStore(SecurityStore store) {
+        this(store, DEFAULT_CACHE_TTL, DEFAULT_NEGATIVE_CACHE_TTL, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param store the cached security store.
+     * @param cacheTtl time in milliseconds during which a security information is cached.
+     * @param negativeCacheTtl time in milliseconds during which an unknown PSK identity or endpoint is cached, 0 to
+     *        not cache them.
+     * @param cacheSize the maximum number of cached PSK identities and of cached endpoints.
+     */
+    public CachingSecurityStore(SecurityStore store, long cacheTtl, long negativeCacheTtl, int cacheSize) {
+        Validate.notNull(store);
+        Validate.isTrue(cacheTtl >= 0, "cache TTL must be positive");
+        Validate.isTrue(negativeCacheTtl >= 0, "negative cache TTL must be positive");
+        Validate.isTrue(cacheSize >= 0, "cache size must be positive");
+        this.store = store;
+        this.cacheTtl = cacheTtl;
+        this.negativeCacheTtl = negativeCacheTtl;
+        this.cacheSize = cacheSize;
+
+        if (store instanceof ObservableSecurityStore) {
+            ((ObservableSecurityStore) store).addListener(new SecurityStoreListener() {
+                @Override
+                public void securityInfoChanged(String endpoint, SecurityInfo previous, SecurityInfo current) {
+                    changes.incrementAndGet();
+                    byEndpoint.remove(endpoint);
+                    if (previous != null && previous.getIdentity() != null) {
+                        byIdentity.remove(previous.getIdentity());
+                    }
+                    if (current != null && current.getIdentity() != null) {
+                        byIdentity.remove(current.getIdentity());
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public SecurityInfo getByEndpoint(String endpoint) {
+        return lookup(byEndpoint, endpoint, false);
+    }
+
+    @Override
+    public SecurityInfo getByIdentity(String pskIdentity) {
+        return lookup(byIdentity, pskIdentity, true);
+    }
+
+    private SecurityInfo lookup(ConcurrentMap<String, CachedInfo> cache, String key, boolean isIdentity) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        CachedInfo cached = cache.get(key);
+        if (cached != null && cached.expiration > now) {
+            metrics.cacheHit(cached.info == null, System.nanoTime() - start);
+            return cached.info;
+        }
+
+        long changeCount = changes.get();
+        long storeStart = System.nanoTime();
+        SecurityInfo info = isIdentity ? store.getByIdentity(key) : store.getByEndpoint(key);
+        long end = System.nanoTime();
+        metrics.cacheMiss(end - storeStart, end - start);
+
+        long ttl = info == null ? negativeCacheTtl : cacheTtl;
+        if (ttl > 0 && changes.get() == changeCount) {
+            CachedInfo entry = new CachedInfo(info, now + ttl);
+            if (cached != null ? cache.replace(key, cached, entry) : put(cache, key, entry, now)) {
+                // the store changed meanwhile, the information could be outdated
+                if (changes.get() != changeCount) {
+                    cache.remove(key, entry);
+                }
+            }
+        }
+        return info;
+    }
+
+    private boolean put(ConcurrentMap<String, CachedInfo> cache, String key, CachedInfo entry, long now) {
+        if (cacheSize == 0) {
+            return false;
+        }
+        if (cache.size() >= cacheSize) {
+            evict(cache, now);
+        }
+        return cache.putIfAbsent(key, entry) == null;
+    }
+
+    // remove the expired entries among a few ones, or else the one expiring first
+    private static void evict(ConcurrentMap<String, CachedInfo> cache, long now) {
+        Map.Entry<String, CachedInfo> first = null;
+        boolean removed = false;
+        Iterator<Map.Entry<String, CachedInfo>> it = cache.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLES && it.hasNext(); i++) {
+            Map.Entry<String, CachedInfo> sample = it.next();
+            if (sample.getValue().expiration <= now) {
+                it.remove();
+                removed = true;
+            } else if (first == null || sample.getValue().expiration < first.getValue().expiration) {
+                first = sample;
+            }
+        }
+        if (!removed && first != null) {
+            cache.remove(first.getKey(), first.getValue());
+        }
+    }
+
+    /**
+     * Removes all the cached entries, e.g. after a bulk update done by an other process.
+     */
+    public void clearCache() {
+        changes.incrementAndGet();
+        byIdentity.clear();
+        byEndpoint.clear();
+    }
+
+    /**
+     * @return the number of cached PSK identities and endpoints, including the unknown ones.
+     */
+    public int getCacheSize() {
+        return byIdentity.size() + byEndpoint.size();
+    }
+
+    public SecurityLookupMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static class CachedInfo {
+        // null for an unknown PSK identity or endpoint
+        private final SecurityInfo info;
+        private final long expiration;
+
+        private CachedInfo(SecurityInfo info, long expiration) {
+            this.info = info;
+            this.expiration = expiration;
+        }
+    }
+}
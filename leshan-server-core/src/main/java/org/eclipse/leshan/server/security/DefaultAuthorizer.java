@@ -42,15 +42,25 @@ public class DefaultAuthorizer implements Authorizer {
 
     @Override
     public Registration isAuthorized(UplinkRequest<?> request, Registration registration, Identity senderIdentity) {
-
-        // do we have security information for this client?
-        SecurityInfo expectedSecurityInfo = null;
-        if (securityStore != null)
-            expectedSecurityInfo = securityStore.getByEndpoint(registration.getEndpoint());
-        if (securityChecker.checkSecurityInfo(registration.getEndpoint(), senderIdentity, expectedSecurityInfo)) {
+        if (checkSecurity(registration.getEndpoint(), senderIdentity)) {
             return registration;
         } else {
             return null;
         }
     }
+
+    /**
+     * Check the sender identity matches the security information of the endpoint.
+     *
+     * @param endpoint the client endpoint name.
+     * @param senderIdentity the {@link Identity} used to send the request.
+     * @return true if the client is correctly authenticated.
+     */
+    protected boolean checkSecurity(String endpoint, Identity senderIdentity) {
+        // do we have security information for this client?
+        SecurityInfo expectedSecurityInfo = null;
+        if (securityStore != null)
+            expectedSecurityInfo = securityStore.getByEndpoint(endpoint);
+        return securityChecker.checkSecurityInfo(endpoint, senderIdentity, expectedSecurityInfo);
+    }
 }
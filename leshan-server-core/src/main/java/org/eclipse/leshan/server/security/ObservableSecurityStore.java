@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+/**
+ * An {@link EditableSecurityStore} which notifies {@link SecurityStoreListener}s of the changes done through it, e.g.
+ * to invalidate the caches of {@link CachingSecurityStore} or {@link CachingAuthorizer}.
+ */
+public interface ObservableSecurityStore extends EditableSecurityStore {
+
+    /**
+     * Add a listener notified of each change done through this store.
+     */
+    void addListener(SecurityStoreListener listener);
+
+    void removeListener(SecurityStoreListener listener);
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Utility methods for the implementations of {@link BulkEditableSecurityStore#addAll(Collection)}.
+ */
+public class SecurityInfoBatch {
+
+    private SecurityInfoBatch() {
+    }
+
+    /**
+     * Keeps the last security information of each end-point of a batch and checks that a PSK identity is not used by
+     * several end-points of the batch.
+     *
+     * @return the security information to add, in the order of the batch.
+     * @throws NonUniqueSecurityInfoException if a PSK identity is used by several end-points.
+     */
+    public static Collection<SecurityInfo> lastByEndpoint(Collection<SecurityInfo> infos)
+            throws NonUniqueSecurityInfoException {
+        Map<String, SecurityInfo> byEndpoint = new LinkedHashMap<>();
+        for (SecurityInfo info : infos) {
+            // re-insert so the order is the one of the last occurrence
+            byEndpoint.remove(info.getEndpoint());
+            byEndpoint.put(info.getEndpoint(), info);
+        }
+
+        Map<String, String> endpointByIdentity = new HashMap<>();
+        for (SecurityInfo info : byEndpoint.values()) {
+            if (info.getIdentity() != null) {
+                String endpoint = endpointByIdentity.put(info.getIdentity(), info.getEndpoint());
+                if (endpoint != null) {
+                    throw new NonUniqueSecurityInfoException("PSK Identity " + info.getIdentity() + " is used by "
+                            + endpoint + " and " + info.getEndpoint());
+                }
+            }
+        }
+        return byEndpoint.values();
+    }
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics about the lookups done through a {@link CachingSecurityStore}, e.g. by the DTLS handshakes.
+ * <p>
+ * The lookup latency is the time spent to get a security information, from the cache or from the store. The store
+ * latency only concerns the lookups which were not answered by the cache. Latencies are in microseconds.
+ */
+public class SecurityLookupMetrics {
+
+    private final CachingSecurityStore store;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong totalLookupLatency = new AtomicLong();
+    private final AtomicLong maxLookupLatency = new AtomicLong();
+    private final AtomicLong totalStoreLatency = new AtomicLong();
+    private final AtomicLong maxStoreLatency = new AtomicLong();
+
+    public SecurityLookupMetrics(CachingSecurityStore store) {
+        this.store = store;
+    }
+
+    void cacheHit(boolean negative, long latencyInNanos) {
+        hits.incrementAndGet();
+        if (negative) {
+            negativeHits.incrementAndGet();
+        }
+        lookupDone(latencyInNanos);
+    }
+
+    void cacheMiss(long storeLatencyInNanos, long latencyInNanos) {
+        misses.incrementAndGet();
+        long storeLatency = TimeUnit.NANOSECONDS.toMicros(storeLatencyInNanos);
+        totalStoreLatency.addAndGet(storeLatency);
+        updateMax(maxStoreLatency, storeLatency);
+        lookupDone(latencyInNanos);
+    }
+
+    private void lookupDone(long latencyInNanos) {
+        long latency = TimeUnit.NANOSECONDS.toMicros(latencyInNanos);
+        totalLookupLatency.addAndGet(latency);
+        updateMax(maxLookupLatency, latency);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return the number of cached PSK identities and endpoints, including the unknown ones.
+     */
+    public int getCacheSize() {
+        return store.getCacheSize();
+    }
+
+    /**
+     * @return the number of lookups answered by the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups of an unknown PSK identity or endpoint answered by the cache.
+     */
+    public long getNegativeHits() {
+        return negativeHits.get();
+    }
+
+    /**
+     * @return the number of lookups which needed to read the store.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the ratio of lookups answered by the cache, between 0 and 1.
+     */
+    public double getHitRatio() {
+        long lookups = hits.get() + misses.get();
+        return lookups == 0 ? 0 : (double) hits.get() / lookups;
+    }
+
+    /**
+     * @return the average time in microseconds of a lookup.
+     */
+    public long getAverageLookupLatency() {
+        long lookups = hits.get() + misses.get();
+        return lookups == 0 ? 0 : totalLookupLatency.get() / lookups;
+    }
+
+    /**
+     * @return the maximum time in microseconds of a lookup.
+     */
+    public long getMaxLookupLatency() {
+        return maxLookupLatency.get();
+    }
+
+    /**
+     * @return the average time in microseconds of a lookup in the store.
+     */
+    public long getAverageStoreLatency() {
+        long missCount = misses.get();
+        return missCount == 0 ? 0 : totalStoreLatency.get() / missCount;
+    }
+
+    /**
+     * @return the maximum time in microseconds of a lookup in the store.
+     */
+    public long getMaxStoreLatency() {
+        return maxStoreLatency.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "SecurityLookupMetrics [cacheSize=%s, hits=%s, negativeHits=%s, misses=%s, avgLookupLatency=%sus, "
+                        + "maxLookupLatency=%sus, avgStoreLatency=%sus, maxStoreLatency=%sus]",
+                getCacheSize(), getHits(), getNegativeHits(), getMisses(), getAverageLookupLatency(),
+                getMaxLookupLatency(), getAverageStoreLatency(), getMaxStoreLatency());
+    }
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.ResponseCode;
+import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.LwM2mRequest;
+import org.eclipse.leshan.core.response.BootstrapResponse;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.SendableResponse;
+import org.eclipse.leshan.server.impl.DefaultBootstrapSession;
+import org.junit.Test;
+
+public class BootstrapAdmissionControllerTest {
+
+    private final Identity identity = Identity.unsecure(new InetSocketAddress(5683));
+    private final List<BootstrapSession> startedSessions = new ArrayList<>();
+    private BootstrapSessionManager sessionManager;
+
+    @Test
+    public void sessions_above_limit_are_queued() {
+        BootstrapAdmissionController controller = new BootstrapAdmissionController(2);
+        BootstrapHandler handler = controller.wrap(new StartingHandlerFactory()).create(null, null,
+                new NoopSessionManager());
+
+        for (int i = 0; i < 3; i++) {
+            SendableResponse<BootstrapResponse> response = handler.bootstrap(identity, new BootstrapRequest("ep" + i));
+            assertTrue(response.getResponse().isSuccess());
+            response.sent();
+        }
+
+        assertEquals(2, startedSessions.size());
+        assertEquals(2, controller.getMetrics().getActiveSessions());
+        assertEquals(1, controller.getMetrics().getQueueSize());
+
+        // the end of a session starts the queued one
+        sessionManager.end(startedSessions.get(0));
+        assertEquals(3, startedSessions.size());
+        assertEquals("ep2", startedSessions.get(2).getEndpoint());
+        assertEquals(0, controller.getMetrics().getQueueSize());
+        assertEquals(2, controller.getMetrics().getActiveSessions());
+
+        sessionManager.failed(startedSessions.get(1), BootstrapFailureCause.WRITE_SERVER_FAILED);
+        sessionManager.end(startedSessions.get(2));
+        assertEquals(0, controller.getMetrics().getActiveSessions());
+        assertEquals(3, controller.getMetrics().getCompletedSessions());
+        assertEquals(1, controller.getMetrics().getQueuedSessions());
+    }
+
+    @Test
+    public void sessions_above_queue_size_are_rejected() {
+        BootstrapAdmissionController controller = new BootstrapAdmissionController(1, 0, 0, 1, 60000);
+        BootstrapHandler handler = controller.wrap(new StartingHandlerFactory()).create(null, null,
+                new NoopSessionManager());
+
+        handler.bootstrap(identity, new BootstrapRequest("ep1")).sent();
+        handler.bootstrap(identity, new BootstrapRequest("ep2")).sent();
+        BootstrapResponse response = handler.bootstrap(identity, new BootstrapRequest("ep3")).getResponse();
+
+        assertEquals(ResponseCode.SERVICE_UNAVAILABLE, response.getCode());
+        assertTrue(response.getRetryAfter() > 0);
+        assertEquals(1, controller.getMetrics().getRejectedSessions());
+        assertEquals(1, startedSessions.size());
+    }
+
+    @Test
+    public void requests_above_rate_are_rejected() {
+        BootstrapAdmissionController controller = new BootstrapAdmissionController(10, 0.1, 2, 10, 60000);
+        BootstrapHandler handler = controller.wrap(new StartingHandlerFactory()).create(null, null,
+                new NoopSessionManager());
+
+        assertTrue(handler.bootstrap(identity, new BootstrapRequest("ep1")).getResponse().isSuccess());
+        assertTrue(handler.bootstrap(identity, new BootstrapRequest("ep2")).getResponse().isSuccess());
+        BootstrapResponse response = handler.bootstrap(identity, new BootstrapRequest("ep3")).getResponse();
+
+        assertEquals(ResponseCode.SERVICE_UNAVAILABLE, response.getCode());
+        // one token every 10s
+        assertTrue(response.getRetryAfter() > 0 && response.getRetryAfter() <= 10);
+    }
+
+    @Test
+    public void failed_bootstrap_releases_slot() {
+        BootstrapAdmissionController controller = new BootstrapAdmissionController(1);
+        BootstrapHandler handler = controller.wrap(new StartingHandlerFactory()).create(null, null,
+                new NoopSessionManager());
+
+        BootstrapResponse response = handler.bootstrap(identity, new BootstrapRequest("unknown")).getResponse();
+        assertEquals(ResponseCode.BAD_REQUEST, response.getCode());
+        assertEquals(0, controller.getMetrics().getActiveSessions());
+
+        handler.bootstrap(identity, new BootstrapRequest("ep1")).sent();
+        assertEquals(1, startedSessions.size());
+    }
+
+    /**
+     * Creates handlers starting a session for each endpoint except "unknown", sessions end when the test calls
+     * {@link BootstrapSessionManager#end(BootstrapSession)}.
+     */
+    private class StartingHandlerFactory implements BootstrapHandlerFactory {
+        @Override
+        public BootstrapHandler create(BootstrapConfigStore store, LwM2mBootstrapRequestSender sender,
+                final BootstrapSessionManager manager) {
+            sessionManager = manager;
+            return new BootstrapHandler() {
+                @Override
+                public SendableResponse<BootstrapResponse> bootstrap(Identity sender, BootstrapRequest request) {
+                    final BootstrapSession session = manager.begin(request.getEndpointName(), sender);
+                    if (request.getEndpointName().equals("unknown")) {
+                        manager.failed(session, BootstrapFailureCause.UNAUTHORIZED);
+                        return new SendableResponse<>(BootstrapResponse.badRequest("Unauthorized"));
+                    }
+                    return new SendableResponse<>(BootstrapResponse.success(), new Runnable() {
+                        @Override
+                        public void run() {
+                            startedSessions.add(session);
+                        }
+                    });
+                }
+            };
+        }
+    }
+
+    private static class NoopSessionManager implements BootstrapSessionManager {
+        @Override
+        public BootstrapSession begin(String endpoint, Identity clientIdentity) {
+            return new DefaultBootstrapSession(endpoint, clientIdentity, true, ContentFormat.TLV,
+                    System.currentTimeMillis());
+        }
+
+        @Override
+        public void onResponseSuccess(BootstrapSession bsSession, LwM2mRequest<? extends LwM2mResponse> request) {
+        }
+
+        @Override
+        public BootstrapPolicy onResponseError(BootstrapSession bsSession,
+                LwM2mRequest<? extends LwM2mResponse> request, LwM2mResponse response) {
+            return null;
+        }
+
+        @Override
+        public BootstrapPolicy onRequestFailure(BootstrapSession bsSession,
+                LwM2mRequest<? extends LwM2mResponse> request, Throwable cause) {
+            return null;
+        }
+
+        @Override
+        public void end(BootstrapSession bsSession) {
+        }
+
+        @Override
+        public void failed(BootstrapSession bsSession, BootstrapFailureCause cause) {
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.impl.DefaultBootstrapSession;
+import org.junit.Test;
+
+public class InMemoryBootstrapSessionRegistryTest {
+
+    private final InMemoryBootstrapSessionRegistry registry = new InMemoryBootstrapSessionRegistry();
+
+    @Test
+    public void only_one_session_per_endpoint() {
+        BootstrapSession session1 = session("ep1", System.currentTimeMillis());
+        BootstrapSession session2 = session("ep1", System.currentTimeMillis());
+
+        assertTrue(registry.add(session1, 60000));
+        assertFalse(registry.add(session2, 60000));
+        assertTrue(registry.add(session("ep2", System.currentTimeMillis()), 60000));
+
+        assertFalse(registry.remove(session2));
+        assertTrue(registry.remove(session1));
+        assertTrue(registry.add(session2, 60000));
+    }
+
+    @Test
+    public void expired_session_is_replaced() {
+        BootstrapSession expired = session("ep1", System.currentTimeMillis() - 120000);
+        BootstrapSession session = session("ep1", System.currentTimeMillis());
+
+        assertTrue(registry.add(expired, 60000));
+        assertTrue(registry.add(session, 60000));
+        assertFalse(registry.remove(expired));
+        assertTrue(registry.remove(session));
+    }
+
+    private static BootstrapSession session(String endpoint, long creationTime) {
+        return new DefaultBootstrapSession(endpoint, Identity.unsecure(new InetSocketAddress(5683)), true,
+                ContentFormat.TLV, creationTime);
+    }
+}
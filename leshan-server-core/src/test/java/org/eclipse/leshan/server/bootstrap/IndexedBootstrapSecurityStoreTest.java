@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.junit.Test;
+
+public class IndexedBootstrapSecurityStoreTest {
+
+    private final InMemoryBootstrapConfigStore configStore = new InMemoryBootstrapConfigStore();
+
+    @Test
+    public void index_existing_and_added_configs() throws InvalidConfigurationException {
+        configStore.add("ep1", pskConfig("identity1"));
+        IndexedBootstrapSecurityStore store = new IndexedBootstrapSecurityStore(configStore);
+        configStore.add("ep2", pskConfig("identity2"));
+
+        assertEquals("ep1", store.getByIdentity("identity1").getEndpoint());
+        assertEquals("ep2", store.getByIdentity("identity2").getEndpoint());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, store.getByIdentity("identity2").getPreSharedKey());
+        List<SecurityInfo> infos = store.getAllByEndpoint("ep2");
+        assertEquals(1, infos.size());
+        assertEquals("identity2", infos.get(0).getIdentity());
+
+        assertNull(store.getByIdentity("unknown"));
+        assertNull(store.getAllByEndpoint("unknown"));
+    }
+
+    @Test
+    public void replaced_and_removed_credentials_are_not_found() throws InvalidConfigurationException {
+        IndexedBootstrapSecurityStore store = new IndexedBootstrapSecurityStore(configStore);
+        configStore.add("ep1", pskConfig("identity1"));
+        configStore.add("ep1", pskConfig("identity2"));
+
+        assertNull(store.getByIdentity("identity1"));
+        assertEquals("ep1", store.getByIdentity("identity2").getEndpoint());
+
+        configStore.remove("ep1");
+        assertNull(store.getByIdentity("identity2"));
+        assertNull(store.getAllByEndpoint("ep1"));
+    }
+
+    @Test
+    public void identity_moved_to_other_endpoint_is_kept() throws InvalidConfigurationException {
+        IndexedBootstrapSecurityStore store = new IndexedBootstrapSecurityStore(configStore);
+        configStore.add("ep1", pskConfig("identity"));
+        configStore.add("ep2", pskConfig("identity"));
+
+        configStore.remove("ep1");
+        assertEquals("ep2", store.getByIdentity("identity").getEndpoint());
+    }
+
+    @Test
+    public void concurrent_changes_are_indexed_in_order() throws Exception {
+        final CountDownLatch secondAddDone = new CountDownLatch(1);
+        // delay the notification of the first change until the second one is done (or for 200ms if it can not)
+        configStore.addListener(new BootstrapConfigStoreListener() {
+            @Override
+            public void configChanged(String endpoint, BootstrapConfig previous, BootstrapConfig current) {
+                if (previous == null) {
+                    try {
+                        secondAddDone.await(200, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        IndexedBootstrapSecurityStore store = new IndexedBootstrapSecurityStore(configStore);
+
+        Thread firstAdd = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    configStore.add("ep", pskConfig("identity1"));
+                } catch (InvalidConfigurationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        firstAdd.start();
+        while (configStore.getAll().get("ep") == null) {
+            Thread.sleep(1);
+        }
+        configStore.add("ep", pskConfig("identity2"));
+        secondAddDone.countDown();
+        firstAdd.join();
+
+        assertEquals("identity2", store.getAllByEndpoint("ep").get(0).getIdentity());
+        assertNull(store.getByIdentity("identity1"));
+    }
+
+    @Test
+    public void index_raw_public_key() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        BootstrapConfig config = new BootstrapConfig();
+        ServerSecurity security = new ServerSecurity();
+        security.uri = "coaps://localhost:5684";
+        security.bootstrapServer = true;
+        security.securityMode = SecurityMode.RPK;
+        security.publicKeyOrId = keyPair.getPublic().getEncoded();
+        security.serverPublicKey = keyPair.getPublic().getEncoded();
+        security.secretKey = keyPair.getPrivate().getEncoded();
+        config.security.put(0, security);
+
+        IndexedBootstrapSecurityStore store = new IndexedBootstrapSecurityStore(configStore);
+        configStore.add("ep1", config);
+
+        PublicKey publicKey = keyPair.getPublic();
+        assertEquals("ep1", store.getByRawPublicKey(publicKey).getEndpoint());
+        assertEquals(publicKey, store.getAllByEndpoint("ep1").get(0).getRawPublicKey());
+
+        configStore.remove("ep1");
+        assertNull(store.getByRawPublicKey(publicKey));
+    }
+
+    private static BootstrapConfig pskConfig(String identity) {
+        BootstrapConfig config = new BootstrapConfig();
+        ServerSecurity security = new ServerSecurity();
+        security.uri = "coaps://localhost:5684";
+        security.bootstrapServer = true;
+        security.securityMode = SecurityMode.PSK;
+        security.publicKeyOrId = identity.getBytes(StandardCharsets.UTF_8);
+        security.secretKey = new byte[] { 1, 2, 3 };
+        config.security.put(0, security);
+        return config;
+    }
+}
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ACLConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JournaledBootstrapConfigStoreTest {
+
+    private File dir;
+    private String filename;
+    private JournaledBootstrapConfigStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("leshan-bootstrap").toFile();
+        filename = new File(dir, "bootstrap.journal").getPath();
+    }
+
+    @After
+    public void tearDown() {
+        if (store != null) {
+            store.destroy();
+        }
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void changes_are_reloaded() throws InvalidConfigurationException {
+        store = new JournaledBootstrapConfigStore(filename);
+        store.add("ep1", config("coaps://server1:5684"));
+        store.add("ep2", config("coaps://server1:5684"));
+        store.add("ep1", config("coaps://server2:5684"));
+        store.remove("ep2");
+        store.destroy();
+
+        store = new JournaledBootstrapConfigStore(filename);
+        assertEquals(1, store.getAll().size());
+        assertEquals("coaps://server2:5684", store.get("ep1", null, null).security.get(0).uri);
+        assertEquals(4, store.getJournalRecords());
+    }
+
+    @Test
+    public void all_fields_are_persisted() throws InvalidConfigurationException {
+        BootstrapConfig config = config("coaps://server1:5684");
+        config.toDelete = Arrays.asList("/0", "/1");
+        config.security.get(0).smsBindingKeyParam = new byte[] { 1, 2 };
+        config.security.get(0).serverSmsNumber = null;
+        ServerSecurity dmSecurity = new ServerSecurity();
+        dmSecurity.uri = "coap://server2:5683";
+        dmSecurity.securityMode = SecurityMode.NO_SEC;
+        dmSecurity.serverId = 123;
+        config.security.put(1, dmSecurity);
+        ServerConfig server = new ServerConfig();
+        server.shortId = 123;
+        server.defaultMaxPeriod = 60;
+        server.binding = BindingMode.UQ;
+        config.servers.put(0, server);
+        ACLConfig acl = new ACLConfig();
+        acl.objectId = 3;
+        acl.acls = new HashMap<>();
+        acl.acls.put(123, 15L);
+        config.acls.put(0, acl);
+
+        store = new JournaledBootstrapConfigStore(filename);
+        store.add("ep1", config);
+        store.destroy();
+
+        store = new JournaledBootstrapConfigStore(filename);
+        assertEquals(config.toString(), store.get("ep1", null, null).toString());
+        assertEquals(Arrays.asList("/0", "/1"), store.get("ep1", null, null).toDelete);
+        assertArrayEquals(new byte[] { 1, 2 }, store.get("ep1", null, null).security.get(0).smsBindingKeyParam);
+    }
+
+    @Test
+    public void incomplete_record_is_ignored() throws Exception {
+        store = new JournaledBootstrapConfigStore(filename);
+        store.add("ep1", config("coaps://server1:5684"));
+        store.destroy();
+
+        // a record interrupted by a crash
+        try (FileOutputStream out = new FileOutputStream(filename, true)) {
+            out.write(new byte[] { 0, 0, 1, 0, 12, 34 });
+        }
+
+        store = new JournaledBootstrapConfigStore(filename);
+        assertEquals(1, store.getAll().size());
+        store.add("ep2", config("coaps://server1:5684"));
+        store.destroy();
+
+        store = new JournaledBootstrapConfigStore(filename);
+        assertEquals(2, store.getAll().size());
+        assertNotNull(store.get("ep2", null, null));
+    }
+
+    @Test
+    public void corrupted_record_before_valid_ones_is_not_removed() throws Exception {
+        store = new JournaledBootstrapConfigStore(filename);
+        store.add("ep1", config("coaps://server1:5684"));
+        store.add("ep2", config("coaps://server1:5684"));
+        store.destroy();
+        store = null;
+
+        // corrupt the body of the first record
+        File file = new File(filename);
+        long length = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(14);
+            raf.write(raf.read() ^ 0xFF);
+        }
+
+        try {
+            new JournaledBootstrapConfigStore(filename);
+            fail("a corrupted record before valid ones must not be ignored");
+        } catch (IllegalStateException e) {
+        }
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    public void journal_is_compacted() throws Exception {
+        store = new JournaledBootstrapConfigStore(filename, 10);
+        for (int i = 0; i < 50; i++) {
+            store.add("ep" + (i % 3), config("coaps://server" + i + ":5684"));
+        }
+        store.compact();
+
+        assertTrue(store.getJournalRecords() < 10);
+        assertFalse(new File(filename + ".tmp").exists());
+        store.add("ep3", config("coaps://server3:5684"));
+        store.destroy();
+
+        store = new JournaledBootstrapConfigStore(filename);
+        assertEquals(4, store.getAll().size());
+        assertEquals("coaps://server48:5684", store.get("ep0", null, null).security.get(0).uri);
+        assertEquals("coaps://server49:5684", store.get("ep1", null, null).security.get(0).uri);
+        assertEquals("coaps://server3:5684", store.get("ep3", null, null).security.get(0).uri);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void other_file_is_not_overwritten() throws IOException {
+        Files.write(new File(filename).toPath(), "{\"ep1\":{}}".getBytes());
+        store = new JournaledBootstrapConfigStore(filename);
+    }
+
+    private static BootstrapConfig config(String uri) {
+        BootstrapConfig config = new BootstrapConfig();
+        ServerSecurity security = new ServerSecurity();
+        security.uri = uri;
+        security.bootstrapServer = true;
+        security.securityMode = SecurityMode.NO_SEC;
+        security.serverId = 111;
+        config.security.put(0, security);
+        return config;
+    }
+}
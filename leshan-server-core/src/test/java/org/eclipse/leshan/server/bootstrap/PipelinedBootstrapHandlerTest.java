@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.core.request.BootstrapDeleteRequest;
+import org.eclipse.leshan.core.request.BootstrapFinishRequest;
+import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.BootstrapWriteRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.LwM2mRequest;
+import org.eclipse.leshan.core.response.BootstrapDeleteResponse;
+import org.eclipse.leshan.core.response.BootstrapFinishResponse;
+import org.eclipse.leshan.core.response.BootstrapResponse;
+import org.eclipse.leshan.core.response.BootstrapWriteResponse;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.SendableResponse;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.impl.DefaultBootstrapSession;
+import org.junit.Test;
+
+public class PipelinedBootstrapHandlerTest {
+
+    private final InMemoryBootstrapConfigStore store = new InMemoryBootstrapConfigStore();
+    private final RecordingSender sender = new RecordingSender();
+    private final RecordingSessionManager sessionManager = new RecordingSessionManager();
+
+    @Test
+    public void bootstrap_with_coalesced_writes() throws InvalidConfigurationException {
+        store.add("endpoint", config("/0", "/1"));
+
+        bootstrap(new PipelinedBootstrapHandler(store, sender, sessionManager));
+
+        assertEquals(Arrays.asList("delete /0", "delete /1", "write /0", "write /1/0", "finish"), sender.sent);
+        assertTrue(sessionManager.ended);
+        assertNull(sessionManager.failureCause);
+    }
+
+    @Test
+    public void requests_are_sent_in_a_bounded_window() throws InvalidConfigurationException {
+        store.add("endpoint", config("/0", "/1", "/2", "/3"));
+        sender.autoRespond = false;
+
+        bootstrap(new PipelinedBootstrapHandler(store, sender, sessionManager, 10000, 10000, 2, true));
+        assertEquals(Arrays.asList("delete /0", "delete /1"), sender.sent);
+
+        sender.respond(0);
+        assertEquals(Arrays.asList("delete /0", "delete /1", "delete /2"), sender.sent);
+
+        // the writes wait for all the deletes
+        sender.respond(1);
+        sender.respond(2);
+        assertEquals(4, sender.sent.size());
+        sender.respond(3);
+        assertEquals(Arrays.asList("write /0", "write /1/0"), sender.sent.subList(4, 6));
+
+        sender.respond(4);
+        sender.respond(5);
+        assertEquals("finish", sender.sent.get(6));
+        sender.respond(6);
+        assertTrue(sessionManager.ended);
+    }
+
+    @Test
+    public void rejected_object_write_is_done_by_instance() throws InvalidConfigurationException {
+        store.add("endpoint", config());
+        sender.rejectedRequests.add("write /0");
+
+        bootstrap(new PipelinedBootstrapHandler(store, sender, sessionManager));
+
+        assertEquals(Arrays.asList("write /0", "write /1/0", "write /0/0", "write /0/1", "finish"), sender.sent);
+        assertTrue(sessionManager.ended);
+    }
+
+    @Test
+    public void failure_stops_the_bootstrap() throws InvalidConfigurationException {
+        store.add("endpoint", config());
+        sender.rejectedRequests.add("write /1/0");
+
+        bootstrap(new PipelinedBootstrapHandler(store, sender, sessionManager));
+
+        assertFalse(sessionManager.ended);
+        assertEquals(BootstrapFailureCause.WRITE_SERVER_FAILED, sessionManager.failureCause);
+        assertFalse(sender.sent.contains("finish"));
+    }
+
+    private void bootstrap(BootstrapHandler handler) {
+        SendableResponse<BootstrapResponse> response = handler
+                .bootstrap(Identity.psk(new InetSocketAddress(4242), "pskdentity"), new BootstrapRequest("endpoint"));
+        assertTrue(response.getResponse().isSuccess());
+        response.sent();
+    }
+
+    private static BootstrapConfig config(String... toDelete) {
+        BootstrapConfig config = new BootstrapConfig();
+        config.toDelete = Arrays.asList(toDelete);
+
+        ServerSecurity bootstrapSecurity = new ServerSecurity();
+        bootstrapSecurity.uri = "coap://localhost:5683";
+        bootstrapSecurity.bootstrapServer = true;
+        bootstrapSecurity.securityMode = SecurityMode.NO_SEC;
+        bootstrapSecurity.serverId = 111;
+        config.security.put(0, bootstrapSecurity);
+
+        ServerSecurity dmSecurity = new ServerSecurity();
+        dmSecurity.uri = "coap://localhost:5783";
+        dmSecurity.securityMode = SecurityMode.NO_SEC;
+        dmSecurity.serverId = 123;
+        config.security.put(1, dmSecurity);
+
+        ServerConfig server = new ServerConfig();
+        server.shortId = 123;
+        config.servers.put(0, server);
+        return config;
+    }
+
+    /**
+     * Records the sent requests and answers them with success, except the rejected ones.
+     */
+    private static class RecordingSender implements LwM2mBootstrapRequestSender {
+        private final List<String> sent = new ArrayList<>();
+        private final List<Runnable> responses = new ArrayList<>();
+        private final Set<String> rejectedRequests = new HashSet<>();
+        private boolean autoRespond = true;
+
+        @Override
+        public <T extends LwM2mResponse> T send(String clientEndpoint, Identity client, DownlinkRequest<T> request,
+                long timeout) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(String clientEndpoint, Identity client,
+                final DownlinkRequest<T> request, long timeout, final ResponseCallback<T> responseCallback,
+                ErrorCallback errorCallback) {
+            final String description;
+            if (request instanceof BootstrapDeleteRequest) {
+                description = "delete " + request.getPath();
+            } else if (request instanceof BootstrapWriteRequest) {
+                description = "write " + request.getPath();
+            } else {
+                description = "finish";
+            }
+            sent.add(description);
+
+            Runnable response = new Runnable() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public void run() {
+                    boolean success = !rejectedRequests.contains(description);
+                    LwM2mResponse response;
+                    if (request instanceof BootstrapDeleteRequest) {
+                        response = success ? BootstrapDeleteResponse.success()
+                                : BootstrapDeleteResponse.badRequest("rejected");
+                    } else if (request instanceof BootstrapWriteRequest) {
+                        response = success ? BootstrapWriteResponse.success()
+                                : BootstrapWriteResponse.badRequest("rejected");
+                    } else {
+                        response = success ? BootstrapFinishResponse.success()
+                                : BootstrapFinishResponse.badRequest("rejected");
+                    }
+                    responseCallback.onResponse((T) response);
+                }
+            };
+            responses.add(response);
+            if (autoRespond) {
+                response.run();
+            }
+        }
+
+        private void respond(int index) {
+            responses.get(index).run();
+        }
+    }
+
+    private static class RecordingSessionManager implements BootstrapSessionManager {
+        private boolean ended;
+        private BootstrapFailureCause failureCause;
+
+        @Override
+        public BootstrapSession begin(String endpoint, Identity clientIdentity) {
+            return new DefaultBootstrapSession(endpoint, clientIdentity, true);
+        }
+
+        @Override
+        public void onResponseSuccess(BootstrapSession bsSession, LwM2mRequest<? extends LwM2mResponse> request) {
+        }
+
+        @Override
+        public BootstrapPolicy onResponseError(BootstrapSession bsSession,
+                LwM2mRequest<? extends LwM2mResponse> request, LwM2mResponse response) {
+            return BootstrapPolicy.STOP;
+        }
+
+        @Override
+        public BootstrapPolicy onRequestFailure(BootstrapSession bsSession,
+                LwM2mRequest<? extends LwM2mResponse> request, Throwable cause) {
+            return BootstrapPolicy.STOP;
+        }
+
+        @Override
+        public void end(BootstrapSession bsSession) {
+            ended = true;
+        }
+
+        @Override
+        public void failed(BootstrapSession bsSession, BootstrapFailureCause cause) {
+            failureCause = cause;
+        }
+    }
+}
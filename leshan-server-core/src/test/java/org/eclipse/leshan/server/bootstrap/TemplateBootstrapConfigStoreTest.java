@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.junit.Test;
+
+public class TemplateBootstrapConfigStoreTest {
+
+    private final TemplateBootstrapConfigStore store = new TemplateBootstrapConfigStore();
+
+    @Test
+    public void device_config_is_built_from_template() throws InvalidConfigurationException {
+        BootstrapConfig template = template("coaps://server1:5684");
+        store.addTemplate("t1", template);
+        store.addDevice("ep1", "t1", credentials("identity1"));
+        store.addDevice("ep2", "t1", credentials("identity2"));
+
+        BootstrapConfig config1 = store.get("ep1", null, null);
+        BootstrapConfig config2 = store.get("ep2", null, null);
+        assertArrayEquals("identity1".getBytes(StandardCharsets.UTF_8), config1.security.get(1).publicKeyOrId);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, config1.security.get(1).secretKey);
+        assertArrayEquals("identity2".getBytes(StandardCharsets.UTF_8), config2.security.get(1).publicKeyOrId);
+        assertEquals("coaps://server1:5684", config2.security.get(1).uri);
+        assertEquals(Integer.valueOf(123), config2.security.get(1).serverId);
+        assertArrayEquals("bs-identity1".getBytes(StandardCharsets.UTF_8), config1.security.get(0).publicKeyOrId);
+        // servers and ACLs are shared
+        assertSame(template.servers, config2.servers);
+        assertSame(template.acls, config2.acls);
+        // the template is not modified
+        assertEquals(0, template.security.get(1).publicKeyOrId.length);
+
+        assertEquals(2, store.getAll().size());
+        assertEquals("t1", store.getDeviceTemplate("ep1"));
+        assertNull(store.get("unknown", null, null));
+    }
+
+    @Test
+    public void invalid_devices_are_rejected() throws InvalidConfigurationException {
+        store.addTemplate("t1", template("coaps://server1:5684"));
+
+        try {
+            store.addDevice("ep1", "unknown", credentials("identity1"));
+            fail("unknown template must be rejected");
+        } catch (InvalidConfigurationException e) {
+            // expected
+        }
+        try {
+            store.addDevice("ep1", "t1", new DeviceCredentials.Builder().security(2, new byte[] { 1 }, new byte[] { 2 })
+                    .build());
+            fail("unknown security instance must be rejected");
+        } catch (InvalidConfigurationException e) {
+            // expected
+        }
+        assertEquals(0, store.getDeviceCount());
+    }
+
+    @Test
+    public void replacing_template_updates_devices() throws InvalidConfigurationException {
+        final List<String> changes = new ArrayList<>();
+        store.addListener(new BootstrapConfigStoreListener() {
+            @Override
+            public void configChanged(String endpoint, BootstrapConfig previous, BootstrapConfig current) {
+                changes.add(endpoint + " " + (previous == null ? null : previous.security.get(1).uri) + " "
+                        + (current == null ? null : current.security.get(1).uri));
+            }
+        });
+        store.addTemplate("t1", template("coaps://server1:5684"));
+        store.addDevice("ep1", "t1", credentials("identity1"));
+        store.addTemplate("t1", template("coaps://server2:5684"));
+
+        assertEquals("coaps://server2:5684", store.get("ep1", null, null).security.get(1).uri);
+        assertArrayEquals("identity1".getBytes(StandardCharsets.UTF_8),
+                store.get("ep1", null, null).security.get(1).publicKeyOrId);
+
+        try {
+            store.removeTemplate("t1");
+            fail("used template must not be removed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertNotNull(store.remove("ep1"));
+        assertNotNull(store.removeTemplate("t1"));
+
+        assertEquals(3, changes.size());
+        assertEquals("ep1 null coaps://server1:5684", changes.get(0));
+        assertEquals("ep1 coaps://server1:5684 coaps://server2:5684", changes.get(1));
+        assertEquals("ep1 coaps://server2:5684 null", changes.get(2));
+    }
+
+    @Test
+    public void credentials_are_indexed_by_security_store() throws InvalidConfigurationException {
+        store.addTemplate("t1", template("coaps://server1:5684"));
+        store.addDevice("ep1", "t1", credentials("identity1"));
+        IndexedBootstrapSecurityStore securityStore = new IndexedBootstrapSecurityStore(store);
+        store.addDevice("ep2", "t1", credentials("identity2"));
+
+        assertEquals("ep1", securityStore.getByIdentity("bs-identity1").getEndpoint());
+        assertEquals("ep2", securityStore.getByIdentity("bs-identity2").getEndpoint());
+        assertArrayEquals(new byte[] { 4, 5, 6 }, securityStore.getByIdentity("bs-identity2").getPreSharedKey());
+
+        store.remove("ep2");
+        assertNull(securityStore.getByIdentity("bs-identity2"));
+    }
+
+    private static DeviceCredentials credentials(String identity) {
+        return new DeviceCredentials.Builder()
+                .security(0, ("bs-" + identity).getBytes(StandardCharsets.UTF_8), new byte[] { 4, 5, 6 })
+                .security(1, identity.getBytes(StandardCharsets.UTF_8), new byte[] { 1, 2, 3 }).build();
+    }
+
+    private static BootstrapConfig template(String serverUri) {
+        BootstrapConfig config = new BootstrapConfig();
+
+        ServerSecurity bootstrapSecurity = new ServerSecurity();
+        bootstrapSecurity.uri = "coaps://localhost:5684";
+        bootstrapSecurity.bootstrapServer = true;
+        bootstrapSecurity.securityMode = SecurityMode.PSK;
+        bootstrapSecurity.serverId = 111;
+        config.security.put(0, bootstrapSecurity);
+
+        ServerSecurity security = new ServerSecurity();
+        security.uri = serverUri;
+        security.securityMode = SecurityMode.PSK;
+        security.serverId = 123;
+        config.security.put(1, security);
+
+        ServerConfig server = new ServerConfig();
+        server.shortId = 123;
+        config.servers.put(0, server);
+        return config;
+    }
+}
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bulk;
+
+import static org.junit.Assert.*;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
+import org.eclipse.leshan.server.queue.PresenceServiceImpl;
+import org.eclipse.leshan.server.queue.StaticClientAwakeTimeProvider;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationService;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkOperationEngineTest {
+
+    private final List<Registration> registrations = new ArrayList<>();
+    private PresenceServiceImpl presenceService;
+    private PendingSender sender;
+    private RecordingListener listener;
+    private BulkOperationEngine engine;
+
+    @Before
+    public void setUp() {
+        presenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider());
+        sender = new PendingSender();
+        listener = new RecordingListener();
+    }
+
+    @After
+    public void tearDown() {
+        engine.destroy();
+        presenceService.destroy();
+    }
+
+    @Test
+    public void in_flight_requests_are_bounded() {
+        for (int i = 0; i < 10; i++) {
+            addRegistration("urn:client" + i, false);
+        }
+        engine = new BulkOperationEngine(sender, new ListRegistrationService(), presenceService, 3, 1);
+
+        BulkOperation<ReadResponse> operation = engine.execute(all(), new ReadRequest(3, 0, 1), 1000, listener);
+
+        assertEquals(3, sender.pending.size());
+        assertEquals(3, operation.getProgress().getInFlight());
+
+        // each response lets a new request be sent
+        sender.respond(0, ReadResponse.success(1, "value"));
+        assertEquals(3, engine.getInFlight());
+        assertEquals(4, sender.sent.size());
+
+        while (!sender.pending.isEmpty()) {
+            sender.respond(0, ReadResponse.notFound());
+        }
+
+        assertTrue(operation.isDone());
+        BulkOperationProgress progress = operation.getProgress();
+        assertEquals(10, progress.getSelected());
+        assertEquals(1, progress.getSucceeded());
+        assertEquals(9, progress.getFailed());
+        assertEquals(0, progress.getPending());
+        assertEquals(10, listener.responses.size());
+        assertEquals(progress.getSelected(), listener.completed.getSelected());
+        assertEquals(0, engine.getInFlight());
+    }
+
+    @Test
+    public void in_flight_requests_per_endpoint_are_bounded() {
+        addRegistration("urn:client", false);
+        engine = new BulkOperationEngine(sender, new ListRegistrationService(), presenceService, 10, 1);
+
+        engine.execute(all(), new ReadRequest(3, 0, 1), 1000, listener);
+        engine.execute(all(), new ReadRequest(3, 0, 2), 1000, listener);
+
+        assertEquals(1, sender.pending.size());
+        sender.respond(0, ReadResponse.notFound());
+        assertEquals(1, sender.pending.size());
+        assertEquals(new ReadRequest(3, 0, 2).getPath(), sender.sent.get(1).getPath());
+    }
+
+    @Test
+    public void only_selected_clients_are_targeted() {
+        addRegistration("urn:selected", false);
+        addRegistration("urn:ignored", false);
+        engine = new BulkOperationEngine(sender, new ListRegistrationService(), presenceService, 10, 1);
+
+        BulkOperation<ReadResponse> operation = engine.execute(new RegistrationSelector() {
+            @Override
+            public boolean select(Registration registration) {
+                return registration.getEndpoint().equals("urn:selected");
+            }
+        }, new ReadRequest(3, 0, 1), 1000, listener);
+
+        assertEquals(1, sender.pending.size());
+        assertEquals("urn:selected", sender.destinations.get(0).getEndpoint());
+        assertEquals(1, operation.getProgress().getSelected());
+    }
+
+    @Test
+    public void requests_to_sleeping_clients_are_deferred_until_wake_up() {
+        addRegistration("urn:awake", false);
+        Registration sleeping = addRegistration("urn:sleeping", true);
+        engine = new BulkOperationEngine(sender, new ListRegistrationService(), presenceService, 1, 1);
+
+        BulkOperation<ReadResponse> operation = engine.execute(all(), new ReadRequest(3, 0, 1), 1000, listener);
+        sender.respond(0, ReadResponse.notFound());
+
+        // the sleeping client does not use the in-flight window
+        assertTrue(sender.pending.isEmpty());
+        assertEquals(1, operation.getProgress().getDeferred());
+        assertFalse(operation.isDone());
+
+        presenceService.setAwake(sleeping);
+
+        assertEquals(1, sender.pending.size());
+        assertEquals("urn:sleeping", sender.destinations.get(1).getEndpoint());
+        assertEquals(0, operation.getProgress().getDeferred());
+        sender.respond(0, ReadResponse.notFound());
+        assertTrue(operation.isDone());
+    }
+
+    @Test
+    public void cancel_operation() {
+        for (int i = 0; i < 5; i++) {
+            addRegistration("urn:client" + i, false);
+        }
+        addRegistration("urn:sleeping", true);
+        engine = new BulkOperationEngine(sender, new ListRegistrationService(), presenceService, 2, 1);
+
+        BulkOperation<ReadResponse> operation = engine.execute(all(), new ReadRequest(3, 0, 1), 1000, listener);
+        sender.respond(0, ReadResponse.success(1, "value"));
+
+        assertTrue(operation.cancel());
+        assertFalse(operation.cancel());
+
+        assertTrue(operation.isDone());
+        assertTrue(sender.pending.isEmpty());
+        BulkOperationProgress progress = operation.getProgress();
+        assertEquals(1, progress.getSucceeded());
+        assertEquals(2, progress.getCancelled());
+        assertEquals(3, progress.getSelected());
+        assertEquals(2, listener.errors.size());
+        assertTrue(listener.errors.get(0) instanceof RequestCanceledException);
+        assertEquals(0, engine.getInFlight());
+    }
+
+    private RegistrationSelector all() {
+        return new RegistrationSelector() {
+            @Override
+            public boolean select(Registration registration) {
+                return true;
+            }
+        };
+    }
+
+    private Registration addRegistration(String endpoint, boolean queueMode) {
+        Registration registration = new Registration.Builder(endpoint + "-id", endpoint,
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 10000 + registrations.size()),
+                new InetSocketAddress(5683)).bindingMode(queueMode ? BindingMode.UQ : BindingMode.U).build();
+        registrations.add(registration);
+        return registration;
+    }
+
+    private class ListRegistrationService implements RegistrationService {
+
+        @Override
+        public Registration getById(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Registration getByEndpoint(String endpoint) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<Registration> getAllRegistrations() {
+            return registrations.iterator();
+        }
+
+        @Override
+        public void addListener(RegistrationListener listener) {
+        }
+
+        @Override
+        public void removeListener(RegistrationListener listener) {
+        }
+    }
+
+    private static class RecordingListener implements BulkOperationListener<ReadResponse> {
+        private final List<ReadResponse> responses = new ArrayList<>();
+        private final List<Exception> errors = new ArrayList<>();
+        private BulkOperationProgress completed;
+
+        @Override
+        public void onResponse(Registration registration, ReadResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onError(Registration registration, Exception error) {
+            errors.add(error);
+        }
+
+        @Override
+        public void onCompleted(BulkOperationProgress progress) {
+            assertNull(completed);
+            completed = progress;
+        }
+    }
+
+    /**
+     * Keeps futures pending until the test responds.
+     */
+    private static class PendingSender implements LwM2mRequestSender {
+        private final List<DownlinkRequest<?>> sent = new ArrayList<>();
+        private final List<Registration> destinations = new ArrayList<>();
+        private final List<ResponseFuture<?>> pending = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        void respond(int index, LwM2mResponse response) {
+            ((ResponseFuture<LwM2mResponse>) pending.remove(index)).onResponse(response);
+        }
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request,
+                long timeout) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+                long timeout, ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination,
+                DownlinkRequest<T> request, long timeout) {
+            final ResponseFuture<T> future = new ResponseFuture<>();
+            future.setCancellationAction(new Runnable() {
+                @Override
+                public void run() {
+                    pending.remove(future);
+                }
+            });
+            sent.add(request);
+            destinations.add(destination);
+            pending.add(future);
+            return future;
+        }
+
+        @Override
+        public void cancelPendingRequests(Registration registration) {
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.eclipse.leshan.server.security.SecurityStoreListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSecurityStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("leshan-security", ".data").toFile();
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void listeners_are_notified_once_batch_is_saved() throws Exception {
+        final FileSecurityStore store = new FileSecurityStore(file.getPath());
+        final List<String> savedEndpoints = new ArrayList<>();
+        store.addListener(new SecurityStoreListener() {
+            @Override
+            public void securityInfoChanged(String endpoint, SecurityInfo previous, SecurityInfo current) {
+                assertFalse(((ReentrantReadWriteLock) store.readWriteLock).isWriteLocked());
+                FileSecurityStore saved = new FileSecurityStore(file.getPath());
+                if (saved.getByEndpoint(endpoint) != null) {
+                    savedEndpoints.add(endpoint);
+                }
+            }
+        });
+
+        store.addAll(Arrays.asList(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1 }),
+                SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 })));
+        assertEquals(Arrays.asList("ep1", "ep2"), savedEndpoints);
+
+        store.removeAll(Arrays.asList("ep1"));
+        assertEquals(Arrays.asList("ep1", "ep2"), savedEndpoints);
+        assertNull(new FileSecurityStore(file.getPath()).getByEndpoint("ep1"));
+        assertEquals("ep2", new FileSecurityStore(file.getPath()).getByIdentity("id2").getEndpoint());
+    }
+}
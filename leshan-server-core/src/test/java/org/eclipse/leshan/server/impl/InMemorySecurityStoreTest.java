@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.eclipse.leshan.server.security.SecurityStoreListener;
+import org.junit.Test;
+
+public class InMemorySecurityStoreTest {
+
+    @Test
+    public void add_and_remove_batch() throws Exception {
+        InMemorySecurityStore store = new InMemorySecurityStore();
+        final List<String> changes = new ArrayList<>();
+        store.addListener(new SecurityStoreListener() {
+            @Override
+            public void securityInfoChanged(String endpoint, SecurityInfo previous, SecurityInfo current) {
+                changes.add(endpoint + ":" + (previous == null ? null : previous.getIdentity()) + "->"
+                        + (current == null ? null : current.getIdentity()));
+            }
+        });
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1 }));
+
+        List<SecurityInfo> previous = store.addAll(Arrays.asList(
+                SecurityInfo.newPreSharedKeyInfo("ep1", "id1bis", new byte[] { 1 }),
+                SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 }),
+                // the last info of an endpoint wins
+                SecurityInfo.newPreSharedKeyInfo("ep2", "id2bis", new byte[] { 2 })));
+
+        assertEquals(1, previous.size());
+        assertEquals("id1", previous.get(0).getIdentity());
+        assertNull(store.getByIdentity("id1"));
+        assertNull(store.getByIdentity("id2"));
+        assertEquals("ep2", store.getByIdentity("id2bis").getEndpoint());
+        assertEquals(2, store.getAll().size());
+
+        List<SecurityInfo> removed = store.removeAll(Arrays.asList("ep1", "ep3"));
+        assertEquals(1, removed.size());
+        assertNull(store.getByIdentity("id1bis"));
+        assertEquals(1, store.getAll().size());
+
+        assertEquals(Arrays.asList("ep1:null->id1", "ep1:id1->id1bis", "ep2:null->id2bis", "ep1:id1bis->null"),
+                changes);
+    }
+
+    @Test
+    public void nothing_is_added_when_an_identity_is_not_unique() throws Exception {
+        InMemorySecurityStore store = new InMemorySecurityStore();
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1 }));
+
+        try {
+            store.addAll(Arrays.asList(SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 }),
+                    SecurityInfo.newPreSharedKeyInfo("ep3", "id1", new byte[] { 3 })));
+            fail("PSK identity must be unique");
+        } catch (NonUniqueSecurityInfoException e) {
+        }
+        try {
+            // the same identity twice in the batch
+            store.addAll(Arrays.asList(SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 }),
+                    SecurityInfo.newPreSharedKeyInfo("ep3", "id2", new byte[] { 3 })));
+            fail("PSK identity must be unique");
+        } catch (NonUniqueSecurityInfoException e) {
+        }
+
+        assertNull(store.getByEndpoint("ep2"));
+        assertEquals(1, store.getAll().size());
+    }
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedSecurityStoreTest {
+
+    private File dir;
+    private String file;
+    private MappedSecurityStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("leshan-security").toFile();
+        file = new File(dir, "security.mapped").getPath();
+    }
+
+    @After
+    public void tearDown() {
+        if (store != null) {
+            store.destroy();
+        }
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void add_replace_and_remove() throws Exception {
+        store = new MappedSecurityStore(file);
+        PublicKey publicKey = KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic();
+
+        assertNull(store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1, 2 })));
+        assertNull(store.add(SecurityInfo.newRawPublicKeyInfo("ep2", publicKey)));
+        assertNull(store.add(SecurityInfo.newX509CertInfo("ep3")));
+
+        assertEquals(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1, 2 }), store.getByIdentity("id1"));
+        assertEquals(SecurityInfo.newRawPublicKeyInfo("ep2", publicKey), store.getByEndpoint("ep2"));
+        assertTrue(store.getByEndpoint("ep3").useX509Cert());
+        assertNull(store.getByEndpoint("ep4"));
+        assertEquals(3, store.getAll().size());
+
+        try {
+            store.add(SecurityInfo.newPreSharedKeyInfo("ep2", "id1", new byte[] { 3 }));
+            fail("PSK identity must be unique");
+        } catch (NonUniqueSecurityInfoException e) {
+        }
+
+        // the PSK identity changes
+        SecurityInfo previous = store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1bis", new byte[] { 3 }));
+        assertEquals("id1", previous.getIdentity());
+        assertNull(store.getByIdentity("id1"));
+        assertArrayEquals(new byte[] { 3 }, store.getByIdentity("id1bis").getPreSharedKey());
+
+        assertEquals("ep1", store.remove("ep1").getEndpoint());
+        assertNull(store.remove("ep1"));
+        assertNull(store.getByIdentity("id1bis"));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void add_and_remove_batch() throws Exception {
+        store = new MappedSecurityStore(file);
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1 }));
+
+        try {
+            store.addAll(Arrays.asList(SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 }),
+                    SecurityInfo.newPreSharedKeyInfo("ep3", "id1", new byte[] { 3 })));
+            fail("PSK identity must be unique");
+        } catch (NonUniqueSecurityInfoException e) {
+        }
+        assertEquals(1, store.size());
+
+        List<SecurityInfo> previous = store.addAll(Arrays.asList(
+                SecurityInfo.newPreSharedKeyInfo("ep1", "id1bis", new byte[] { 1 }),
+                SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 })));
+        assertEquals("id1", previous.get(0).getIdentity());
+        assertNull(store.getByIdentity("id1"));
+        assertEquals("ep2", store.getByIdentity("id2").getEndpoint());
+
+        assertEquals(2, store.removeAll(Arrays.asList("ep1", "ep2", "ep3")).size());
+        assertEquals(0, store.size());
+        assertNull(store.getByIdentity("id2"));
+    }
+
+    @Test
+    public void reload_destroyed_store() throws Exception {
+        store = new MappedSecurityStore(file);
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1 }));
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 }));
+        store.remove("ep1");
+        store.destroy();
+
+        store = new MappedSecurityStore(file);
+        assertEquals(1, store.size());
+        assertNull(store.getByEndpoint("ep1"));
+        assertEquals("ep2", store.getByIdentity("id2").getEndpoint());
+    }
+
+    @Test
+    public void rebuild_index_after_crash() throws Exception {
+        store = new MappedSecurityStore(file);
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1 }));
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 }));
+        store.flush();
+        long end = new File(file).length();
+
+        // not destroyed, the last record is corrupted
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8);
+            int dataEnd = raf.readInt();
+            raf.seek(dataEnd - 1);
+            raf.write(42);
+        }
+        MappedSecurityStore reloaded = new MappedSecurityStore(file);
+        try {
+            assertEquals(1, reloaded.size());
+            assertEquals("ep1", reloaded.getByIdentity("id1").getEndpoint());
+            assertNull(reloaded.getByEndpoint("ep2"));
+
+            reloaded.add(SecurityInfo.newPreSharedKeyInfo("ep3", "id3", new byte[] { 3 }));
+            assertEquals("ep3", reloaded.getByIdentity("id3").getEndpoint());
+            assertEquals(end, new File(file).length());
+        } finally {
+            reloaded.destroy();
+        }
+    }
+
+    @Test
+    public void rebuild_index_after_interrupted_replacement() throws Exception {
+        store = new MappedSecurityStore(file);
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1 }));
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 }));
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1bis", new byte[] { 3 }));
+        store.flush();
+        long garbage = store.getGarbage();
+        assertTrue(garbage > 0);
+
+        // not destroyed, the replaced record of ep1 (the first one) is still live
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(16 + 8);
+            raf.write(1);
+        }
+        MappedSecurityStore reloaded = new MappedSecurityStore(file);
+        try {
+            assertEquals(2, reloaded.size());
+            assertEquals(garbage, reloaded.getGarbage());
+            assertNull(reloaded.getByIdentity("id1"));
+            assertEquals("ep1", reloaded.getByIdentity("id1bis").getEndpoint());
+        } finally {
+            reloaded.destroy();
+        }
+    }
+
+    @Test
+    public void grow_and_compact() throws Exception {
+        store = new MappedSecurityStore(file);
+        for (int i = 0; i < 5000; i++) {
+            store.add(SecurityInfo.newPreSharedKeyInfo("ep" + i, "id" + i, new byte[] { (byte) i }));
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            store.remove("ep" + i);
+        }
+        for (int i = 1; i < 5000; i += 2) {
+            store.add(SecurityInfo.newPreSharedKeyInfo("ep" + i, "new" + i, new byte[] { (byte) i }));
+        }
+        store.compact();
+
+        assertEquals(2500, store.size());
+        assertEquals(2500, store.getAll().size());
+        for (int i = 0; i < 5000; i++) {
+            if (i % 2 == 0) {
+                assertNull(store.getByEndpoint("ep" + i));
+            } else {
+                assertNull(store.getByIdentity("id" + i));
+                assertEquals("ep" + i, store.getByIdentity("new" + i).getEndpoint());
+            }
+        }
+
+        store.destroy();
+        store = new MappedSecurityStore(file);
+        assertEquals("ep4999", store.getByIdentity("new4999").getEndpoint());
+        assertEquals(2500, store.size());
+    }
+
+    @Test
+    public void change_during_background_compaction() throws Exception {
+        store = new MappedSecurityStore(file);
+        // each replacement creates 60KB of garbage, so compactions run in background while the store is modified
+        byte[] psk = new byte[60000];
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 10; i++) {
+                psk[0] = (byte) round;
+                store.add(SecurityInfo.newPreSharedKeyInfo("ep" + i, "id" + i + "-" + round, psk));
+            }
+            store.remove("ep" + (round % 10));
+            assertNull(store.getByEndpoint("ep" + (round % 10)));
+            assertEquals(round, store.getByIdentity("id" + ((round + 1) % 10) + "-" + round).getPreSharedKey()[0]);
+        }
+        store.compact();
+
+        assertEquals(9, store.size());
+        assertNull(store.getByEndpoint("ep9"));
+        assertNull(store.getByIdentity("id0-98"));
+        assertEquals("ep0", store.getByIdentity("id0-99").getEndpoint());
+
+        store.destroy();
+        store = new MappedSecurityStore(file);
+        assertEquals(9, store.size());
+        assertEquals(9, store.getAll().size());
+        assertNull(store.getByEndpoint("ep9"));
+        assertEquals(99, store.getByIdentity("id8-99").getPreSharedKey()[0]);
+    }
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.model;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DirectoryModelProviderTest {
+
+    private File modelsDir;
+    private DirectoryModelProvider provider;
+    private final Registration registration = registration();
+
+    @Before
+    public void setUp() throws IOException {
+        modelsDir = Files.createTempDirectory("leshan-models").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        if (provider != null) {
+            provider.destroy();
+        }
+        for (File file : modelsDir.listFiles()) {
+            file.delete();
+        }
+        modelsDir.delete();
+    }
+
+    @Test
+    public void load_models_of_directory() throws IOException {
+        writeDdf("vendor.xml", 10241, "1.0", "Vendor Object");
+
+        provider = new DirectoryModelProvider(modelsDir,
+                Arrays.asList(new ObjectModel(3, "Device", "", "1.0", false, true)));
+
+        LwM2mModel model = provider.getObjectModel(registration);
+        assertEquals("Device", model.getObjectModel(3).name);
+        assertEquals("Vendor Object", model.getObjectModel(10241).name);
+        assertEquals("Resource 0", model.getResourceModel(10241, 0).name);
+    }
+
+    @Test
+    public void reload_changed_files() throws IOException {
+        writeDdf("vendor.xml", 10241, "1.0", "Vendor Object");
+        provider = new DirectoryModelProvider(modelsDir, null);
+
+        writeDdf("vendor.xml", 10241, "1.0", "Renamed Object");
+        writeDdf("other.xml", 10242, "1.0", "Other Object");
+        provider.reload(Arrays.asList("vendor.xml", "other.xml", "ignored.txt"));
+
+        LwM2mModel model = provider.getObjectModel(registration);
+        assertEquals("Renamed Object", model.getObjectModel(10241).name);
+        assertEquals("Other Object", model.getObjectModel(10242).name);
+
+        assertTrue(new File(modelsDir, "other.xml").delete());
+        provider.reload(Arrays.asList("other.xml"));
+
+        assertNull(provider.getObjectModel(registration).getObjectModel(10242));
+        // the previous snapshot is not modified
+        assertEquals("Other Object", model.getObjectModel(10242).name);
+    }
+
+    @Test
+    public void models_of_a_corrupted_file_are_kept() throws IOException {
+        writeDdf("vendor.xml", 10241, "1.0", "Vendor Object");
+        writeDdf("other.xml", 10242, "1.0", "Other Object");
+        provider = new DirectoryModelProvider(modelsDir, null);
+
+        // a file saved while it is edited
+        Files.write(new File(modelsDir, "vendor.xml").toPath(),
+                "<?xml version=\"1.0\"?><LWM2M><Object><Name>Vend".getBytes(StandardCharsets.UTF_8));
+        provider.reload(Arrays.asList("vendor.xml"));
+        assertEquals("Vendor Object", provider.getObjectModel(registration).getObjectModel(10241).name);
+
+        provider.reload();
+        assertEquals("Vendor Object", provider.getObjectModel(registration).getObjectModel(10241).name);
+        assertEquals("Other Object", provider.getObjectModel(registration).getObjectModel(10242).name);
+
+        // fixed file is loaded again
+        writeDdf("vendor.xml", 10241, "1.0", "Fixed Object");
+        provider.reload(Arrays.asList("vendor.xml"));
+        assertEquals("Fixed Object", provider.getObjectModel(registration).getObjectModel(10241).name);
+    }
+
+    @Test
+    public void new_file_is_loaded_while_watching() throws Exception {
+        provider = new DirectoryModelProvider(modelsDir, null, 50);
+        provider.start();
+        assertNull(provider.getObjectModel(registration).getObjectModel(10241));
+
+        writeDdf("vendor.xml", 10241, "1.0", "Vendor Object");
+
+        long end = System.currentTimeMillis() + 10000;
+        while (provider.getObjectModel(registration).getObjectModel(10241) == null
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        assertNotNull(provider.getObjectModel(registration).getObjectModel(10241));
+        provider.stop();
+    }
+
+    private void writeDdf(String fileName, int objectId, String version, String name) throws IOException {
+        String ddf = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" //
+                + "<LWM2M xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n" //
+                + "  <Object ObjectType=\"MODefinition\">\n" //
+                + "    <Name>" + name + "</Name>\n" //
+                + "    <Description1><![CDATA[A test object]]></Description1>\n" //
+                + "    <ObjectID>" + objectId + "</ObjectID>\n" //
+                + "    <ObjectURN>urn:oma:lwm2m:x:" + objectId + "</ObjectURN>\n" //
+                + "    <ObjectVersion>" + version + "</ObjectVersion>\n" //
+                + "    <MultipleInstances>Single</MultipleInstances>\n" //
+                + "    <Mandatory>Optional</Mandatory>\n" //
+                + "    <Resources>\n" //
+                + "      <Item ID=\"0\">\n" //
+                + "        <Name>Resource 0</Name>\n" //
+                + "        <Operations>R</Operations>\n" //
+                + "        <MultipleInstances>Single</MultipleInstances>\n" //
+                + "        <Mandatory>Mandatory</Mandatory>\n" //
+                + "        <Type>Integer</Type>\n" //
+                + "        <RangeEnumeration></RangeEnumeration>\n" //
+                + "        <Units></Units>\n" //
+                + "        <Description>A resource</Description>\n" //
+                + "      </Item>\n" //
+                + "    </Resources>\n" //
+                + "    <Description2></Description2>\n" //
+                + "  </Object>\n" //
+                + "</LWM2M>\n";
+        Files.write(new File(modelsDir, fileName).toPath(), ddf.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Registration registration() {
+        Map<Integer, String> objects = new HashMap<>();
+        objects.put(3, "1.0");
+        objects.put(10241, "1.0");
+        objects.put(10242, "1.0");
+        return new Registration.Builder("id", "urn:client", Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354),
+                new InetSocketAddress(5683)).supportedObjects(objects).build();
+    }
+}
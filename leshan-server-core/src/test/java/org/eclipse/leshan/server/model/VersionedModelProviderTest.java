@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.model;
+
+import static org.junit.Assert.*;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.LwM2mModelRepository;
+import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.model.ResourceModel.Operations;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Test;
+
+public class VersionedModelProviderTest {
+
+    private final LwM2mModelRepository repository = new LwM2mModelRepository(objectModel(3, "1.0"),
+            objectModel(3, "1.1"), objectModel(5, "1.0"), objectModel(3303, "1.0"));
+
+    @Test
+    public void model_contains_supported_versions() {
+        VersionedModelProvider provider = new VersionedModelProvider(repository);
+
+        LwM2mModel model = provider.getObjectModel(registration("1", 3303, "1.0", 3, "1.1", 42, "1.0"));
+
+        assertEquals("1.1", model.getObjectModel(3).getVersion());
+        assertEquals("1.0", model.getObjectModel(3303).getVersion());
+        assertNotNull(model.getResourceModel(3303, 0));
+        assertNull(model.getResourceModel(3303, 1));
+        // not in the repository
+        assertNull(model.getObjectModel(42));
+        // not supported
+        assertNull(model.getObjectModel(5));
+        assertEquals(2, model.getObjectModels().size());
+    }
+
+    @Test
+    public void registrations_with_same_supported_objects_share_model() {
+        VersionedModelProvider provider = new VersionedModelProvider(repository);
+
+        LwM2mModel model1 = provider.getObjectModel(registration("1", 3, "1.0", 5, "1.0"));
+        LwM2mModel model2 = provider.getObjectModel(registration("2", 5, "1.0", 3, "1.0"));
+        LwM2mModel model3 = provider.getObjectModel(registration("3", 3, "1.1", 5, "1.0"));
+
+        assertSame(model1, model2);
+        assertNotSame(model1, model3);
+        assertEquals("1.1", model3.getObjectModel(3).getVersion());
+        assertEquals(2, provider.getCacheSize());
+    }
+
+    @Test
+    public void cache_is_bounded() {
+        VersionedModelProvider provider = new VersionedModelProvider(repository, 1);
+
+        provider.getObjectModel(registration("1", 3, "1.0"));
+        LwM2mModel model = provider.getObjectModel(registration("2", 3, "1.1"));
+
+        assertEquals("1.1", model.getObjectModel(3).getVersion());
+        assertEquals(1, provider.getCacheSize());
+    }
+
+    @Test
+    public void model_is_found_again_when_registration_changes() {
+        VersionedModelProvider provider = new VersionedModelProvider(repository);
+        Registration registration = registration("1", 3, "1.0");
+        provider.registered(registration, null, null);
+        LwM2mModel model = provider.getObjectModel(registration);
+        assertSame(model, provider.getObjectModel(registration));
+
+        // registration updated with new supported objects
+        Registration updatedRegistration = registration("1", 3, "1.1");
+        assertEquals("1.1", provider.getObjectModel(updatedRegistration).getObjectModel(3).getVersion());
+
+        provider.unregistered(updatedRegistration, null, false, null);
+        assertSame(model, provider.getObjectModel(registration));
+    }
+
+    @Test
+    public void unknown_registrations_are_not_remembered() {
+        VersionedModelProvider provider = new VersionedModelProvider(repository);
+        Registration registration = registration("1", 3, "1.0");
+        provider.registered(registration, null, null);
+        assertEquals(1, provider.getRegistrationCount());
+
+        provider.unregistered(registration, null, false, null);
+        // e.g. a late notification
+        assertEquals("1.0", provider.getObjectModel(registration).getObjectModel(3).getVersion());
+        // e.g. a client registered on an other server of the cluster
+        provider.getObjectModel(registration("2", 3, "1.1"));
+        assertEquals(0, provider.getRegistrationCount());
+    }
+
+    @Test
+    public void repository_key() {
+        assertEquals(new LwM2mModelRepository.Key(3, "1.0"), new LwM2mModelRepository.Key(3, "1.0"));
+        assertEquals(new LwM2mModelRepository.Key(3, "1.0").hashCode(),
+                new LwM2mModelRepository.Key(3, "1.0").hashCode());
+        assertNotEquals(new LwM2mModelRepository.Key(3, "1.0"), new LwM2mModelRepository.Key(3, "1.1"));
+        assertEquals("1.1", repository.getObjectModel(new LwM2mModelRepository.Key(3, "1.1")).getVersion());
+        assertEquals("1.1", repository.getObjectModel(3, "1.1").getVersion());
+    }
+
+    private static ObjectModel objectModel(int id, String version) {
+        return new ObjectModel(id, "object " + id, "", version, false, false,
+                new ResourceModel(0, "resource", Operations.R, false, false, Type.STRING, null, null, null));
+    }
+
+    private static Registration registration(String id, Object... supportedObjects) {
+        Map<Integer, String> objects = new HashMap<>();
+        for (int i = 0; i < supportedObjects.length; i += 2) {
+            objects.put((Integer) supportedObjects[i], (String) supportedObjects[i + 1]);
+        }
+        return new Registration.Builder(id, "urn:client" + id,
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354), new InetSocketAddress(5683))
+                        .supportedObjects(objects).build();
+    }
+}
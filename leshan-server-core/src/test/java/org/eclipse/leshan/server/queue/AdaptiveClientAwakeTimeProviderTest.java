@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AdaptiveClientAwakeTimeProviderTest {
+
+    private AdaptiveClientAwakeTimeProvider provider = new AdaptiveClientAwakeTimeProvider(30000, 1000, 60000, 4);
+
+    @Test
+    public void unknown_client_uses_default_awake_time() {
+        assertEquals(30000, provider.getLearnedAwakeTime("urn:client"));
+        assertEquals(0, provider.size());
+        assertEquals(30000, provider.messageReceived("urn:client", 0));
+        assertEquals(30000, provider.getLearnedAwakeTime("urn:client"));
+    }
+
+    @Test
+    public void awake_time_is_learned_from_gaps_between_messages() {
+        provider.messageReceived("urn:client", 0);
+        // shrink is limited to half of the previous value
+        assertEquals(15000, provider.messageReceived("urn:client", 2000));
+        assertEquals(7500, provider.messageReceived("urn:client", 6000));
+        assertEquals(6000, provider.messageReceived("urn:client", 10000));
+        assertEquals(6000, provider.getLearnedAwakeTime("urn:client"));
+
+        // learned value is bounded
+        long time = 0;
+        provider.messageReceived("urn:other", time);
+        for (int i = 0; i < 5; i++) {
+            provider.messageReceived("urn:other", time += 100);
+        }
+        assertEquals(1000, provider.getLearnedAwakeTime("urn:other"));
+    }
+
+    @Test
+    public void awake_time_can_grow_above_default() {
+        provider.messageReceived("urn:client", 0);
+        assertEquals(60000, provider.messageReceived("urn:client", 40000));
+
+        // a sleep period is not considered as a gap
+        assertEquals(60000, provider.messageReceived("urn:client", 3_600_000));
+    }
+
+    @Test
+    public void awake_time_recovers_after_a_burst() {
+        long time = 0;
+        provider.messageReceived("urn:client", time);
+        assertEquals(15000, provider.messageReceived("urn:client", time += 10000));
+
+        // a burst of messages
+        for (int i = 0; i < 4; i++) {
+            provider.messageReceived("urn:client", time += 10);
+        }
+        assertEquals(7500, provider.getLearnedAwakeTime("urn:client"));
+        for (int i = 0; i < 4; i++) {
+            provider.messageReceived("urn:client", time += 10);
+        }
+        assertEquals(1000, provider.getLearnedAwakeTime("urn:client"));
+
+        // the usual gap looks like a sleep period, we move back toward the default
+        assertEquals(15500, provider.messageReceived("urn:client", time += 10000));
+        // then it is learned again
+        assertEquals(15000, provider.messageReceived("urn:client", time += 10000));
+    }
+
+    @Test
+    public void only_last_gaps_are_used() {
+        long time = 0;
+        provider.messageReceived("urn:client", time);
+        provider.messageReceived("urn:client", time += 10000);
+        assertEquals(15000, provider.getLearnedAwakeTime("urn:client"));
+
+        for (int i = 0; i < 3; i++) {
+            provider.messageReceived("urn:client", time += 2000);
+        }
+        assertEquals(15000, provider.getLearnedAwakeTime("urn:client"));
+
+        provider.messageReceived("urn:client", time += 2000);
+        assertEquals(7500, provider.getLearnedAwakeTime("urn:client"));
+    }
+
+    @Test
+    public void many_clients_can_be_added_and_removed() {
+        for (int i = 0; i < 1000; i++) {
+            provider.messageReceived("urn:client:" + i, 0);
+            provider.messageReceived("urn:client:" + i, i + 20000);
+        }
+        assertEquals(1000, provider.size());
+
+        for (int i = 0; i < 1000; i += 2) {
+            provider.remove("urn:client:" + i);
+        }
+        assertEquals(500, provider.size());
+        for (int i = 0; i < 1000; i++) {
+            int expected = i % 2 == 0 ? 30000 : (i + 20000) * 3 / 2;
+            assertEquals(expected, provider.getLearnedAwakeTime("urn:client:" + i));
+        }
+    }
+}
@@ -20,6 +20,15 @@ import static org.junit.Assert.*;
 import java.net.Inet4Address;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.leshan.core.request.BindingMode;
 import org.eclipse.leshan.core.request.Identity;
@@ -60,6 +69,123 @@ public class PresenceServiceTest {
         assertFalse(presenceService.isClientAwake(queueModeRegistration));
     }
 
+    @Test
+    public void testClientGoesToSleepWhenAwakeTimeExpires() throws Exception {
+        final CountDownLatch sleeping = new CountDownLatch(1);
+        final Thread[] listenerThread = new Thread[1];
+        final Thread[] notifiedThread = new Thread[1];
+        presenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider(100), 10, 64, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                Thread thread = new Thread(command, "listener");
+                listenerThread[0] = thread;
+                thread.start();
+            }
+        });
+        presenceService.addListener(new PresenceListener() {
+            @Override
+            public void onAwake(Registration registration) {
+            }
+
+            @Override
+            public void onSleeping(Registration registration) {
+                notifiedThread[0] = Thread.currentThread();
+                sleeping.countDown();
+            }
+        });
+
+        Registration queueModeRegistration = givenASimpleClientWithQueueMode();
+        long start = System.nanoTime();
+        assertTrue(presenceService.isClientAwake(queueModeRegistration));
+
+        // restarting the timer delays the sleep
+        Thread.sleep(60);
+        presenceService.setAwake(queueModeRegistration);
+        assertTrue(presenceService.isClientAwake(queueModeRegistration));
+
+        assertTrue(sleeping.await(2, TimeUnit.SECONDS));
+        assertSame(listenerThread[0], notifiedThread[0]);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 160);
+        assertFalse(presenceService.isClientAwake(queueModeRegistration));
+        presenceService.destroy();
+    }
+
+    @Test
+    public void testRemovedClientDoesNotNotifySleeping() throws Exception {
+        final AtomicBoolean notified = new AtomicBoolean(false);
+        presenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider(20), 10, 64, null);
+        presenceService.addListener(new PresenceListener() {
+            @Override
+            public void onAwake(Registration registration) {
+            }
+
+            @Override
+            public void onSleeping(Registration registration) {
+                notified.set(true);
+            }
+        });
+
+        Registration queueModeRegistration = givenASimpleClientWithQueueMode();
+        presenceService.removePresenceStatusObject(queueModeRegistration);
+        Thread.sleep(100);
+        assertFalse(notified.get());
+        assertFalse(presenceService.isClientAwake(queueModeRegistration));
+        presenceService.destroy();
+    }
+
+    @Test
+    public void testOutdatedSleepingNotificationIsNotSent() throws Exception {
+        final BlockingQueue<Runnable> notifications = new LinkedBlockingQueue<>();
+        final List<String> events = new ArrayList<>();
+        presenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider(20), 10, 64, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                notifications.add(command);
+            }
+        });
+        presenceService.addListener(new PresenceListener() {
+            @Override
+            public void onAwake(Registration registration) {
+                events.add("awake");
+            }
+
+            @Override
+            public void onSleeping(Registration registration) {
+                events.add("sleeping");
+            }
+        });
+
+        Registration queueModeRegistration = givenASimpleClientWithQueueMode();
+        Runnable notification = notifications.poll(2, TimeUnit.SECONDS);
+        assertNotNull(notification);
+
+        // the client wakes up before the sleeping notification is sent
+        presenceService.setAwake(queueModeRegistration);
+        notification.run();
+
+        assertEquals(Arrays.asList("awake", "awake"), events);
+        presenceService.destroy();
+    }
+
+    @Test
+    public void responses_to_queued_requests_are_not_learned() throws Exception {
+        AdaptiveClientAwakeTimeProvider provider = new AdaptiveClientAwakeTimeProvider(30000, 1000, 60000, 4);
+        presenceService = new PresenceServiceImpl(provider);
+        Registration queueModeRegistration = givenASimpleClientWithQueueMode();
+        presenceService.clientMessageReceived(queueModeRegistration);
+
+        // the queued requests are sent, their responses arrive one round trip apart
+        for (int i = 0; i < 20; i++) {
+            presenceService.setAwake(queueModeRegistration);
+        }
+        assertEquals(30000, provider.getClientAwakeTime(queueModeRegistration));
+
+        // an update sent by the client is learned
+        presenceService.clientMessageReceived(queueModeRegistration);
+        assertTrue(provider.getClientAwakeTime(queueModeRegistration) < 30000);
+        presenceService.destroy();
+    }
+
     private Registration givenASimpleClient() throws UnknownHostException {
         InetSocketAddress address = InetSocketAddress.createUnresolved("localhost", 5683);
         Registration.Builder builder = new Registration.Builder("ID", "urn:client",
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import static org.junit.Assert.*;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * tests the request queue of {@link QueueModeLwM2mRequestSender}
+ */
+public class QueueModeLwM2mRequestSenderTest {
+
+    private PresenceServiceImpl presenceService;
+    private RecordingSender delegatedSender;
+    private InMemoryRequestQueue requestQueue;
+    private QueueModeLwM2mRequestSender sender;
+    private Registration registration;
+
+    @Before
+    public void setUp() {
+        presenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider());
+        delegatedSender = new RecordingSender();
+        requestQueue = new InMemoryRequestQueue(2);
+        sender = new QueueModeLwM2mRequestSender(presenceService, delegatedSender, requestQueue);
+
+        registration = new Registration.Builder("ID", "urn:client",
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354), new InetSocketAddress(5683))
+                        .bindingMode(BindingMode.UQ).build();
+    }
+
+    @Test
+    public void requests_to_sleeping_client_are_queued_then_sent_on_wake_up() {
+        List<ReadResponse> responses = new ArrayList<>();
+        sender.send(registration, new ReadRequest(3, 0, 1), 1000, collect(responses), failOnError());
+        sender.send(registration, new ReadRequest(3, 0, 2), 1000, collect(responses), failOnError());
+
+        assertTrue(delegatedSender.sent.isEmpty());
+        assertEquals(2, sender.getRequestQueueMetrics().getQueueDepth());
+        assertEquals(2, sender.getRequestQueueMetrics().getQueueDepth("urn:client"));
+
+        presenceService.setAwake(registration);
+
+        assertEquals(2, delegatedSender.sent.size());
+        assertEquals(new ReadRequest(3, 0, 1).getPath(), delegatedSender.sent.get(0).getPath());
+        assertEquals(new ReadRequest(3, 0, 2).getPath(), delegatedSender.sent.get(1).getPath());
+        assertEquals(2, responses.size());
+        assertEquals(0, sender.getRequestQueueMetrics().getQueueDepth());
+        assertEquals(2, sender.getRequestQueueMetrics().getDrainedRequests());
+    }
+
+    @Test(expected = ClientSleepingException.class)
+    public void requests_to_sleeping_client_are_rejected_when_queue_is_full() {
+        for (int i = 0; i < 3; i++) {
+            sender.send(registration, new ReadRequest(3, 0, i), 1000, collect(new ArrayList<ReadResponse>()),
+                    failOnError());
+        }
+    }
+
+    @Test
+    public void requests_to_awake_client_are_sent_immediately() {
+        presenceService.setAwake(registration);
+        sender.send(registration, new ReadRequest(3, 0, 1), 1000, collect(new ArrayList<ReadResponse>()),
+                failOnError());
+
+        assertEquals(1, delegatedSender.sent.size());
+        assertEquals(0, sender.getRequestQueueMetrics().getQueuedRequests());
+    }
+
+    @Test
+    public void queued_requests_are_canceled_with_registration() {
+        final List<Exception> errors = new ArrayList<>();
+        sender.send(registration, new ReadRequest(3, 0, 1), 1000, collect(new ArrayList<ReadResponse>()),
+                new ErrorCallback() {
+                    @Override
+                    public void onError(Exception e) {
+                        errors.add(e);
+                    }
+                });
+
+        sender.cancelPendingRequests(registration);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof RequestCanceledException);
+        assertEquals(0, requestQueue.size());
+    }
+
+    @Test
+    public void future_of_queued_request_is_completed_on_wake_up() throws Exception {
+        ResponseFuture<ReadResponse> future = sender.sendAsync(registration, new ReadRequest(3, 0, 1), 1000);
+        assertFalse(future.isDone());
+
+        presenceService.setAwake(registration);
+
+        assertEquals(1, delegatedSender.sent.size());
+        assertTrue(future.isDone());
+        assertNull(future.get());
+    }
+
+    @Test
+    public void cancelled_queued_request_is_not_sent() {
+        ResponseFuture<ReadResponse> future = sender.sendAsync(registration, new ReadRequest(3, 0, 1), 1000);
+        final List<Exception> errors = new ArrayList<>();
+        future.addCallbacks(collect(new ArrayList<ReadResponse>()), new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                errors.add(e);
+            }
+        });
+
+        assertTrue(future.cancel(false));
+        presenceService.setAwake(registration);
+
+        assertTrue(delegatedSender.sent.isEmpty());
+        assertTrue(future.isCancelled());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof RequestCanceledException);
+    }
+
+    private ResponseCallback<ReadResponse> collect(final List<ReadResponse> responses) {
+        return new ResponseCallback<ReadResponse>() {
+            @Override
+            public void onResponse(ReadResponse response) {
+                responses.add(response);
+            }
+        };
+    }
+
+    private ErrorCallback failOnError() {
+        return new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                fail("Unexpected error " + e);
+            }
+        };
+    }
+
+    private static class RecordingSender implements LwM2mRequestSender {
+        private final List<DownlinkRequest<?>> sent = new ArrayList<>();
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request,
+                long timeout) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+                long timeout, ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+            sent.add(request);
+            responseCallback.onResponse(null);
+        }
+
+        @Override
+        public <T extends LwM2mResponse> ResponseFuture<T> sendAsync(Registration destination,
+                DownlinkRequest<T> request, long timeout) {
+            ResponseFuture<T> future = new ResponseFuture<>();
+            send(destination, request, timeout, future, future);
+            return future;
+        }
+
+        @Override
+        public void cancelPendingRequests(Registration registration) {
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.net.InetSocketAddress;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.eclipse.leshan.Link;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.server.queue.PresenceService;
 import org.junit.Assert;
@@ -63,4 +64,35 @@ public class RegistrationUpdateTest {
         Assert.assertEquals("hello", updatedAdditionalAttributes.get("h"));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testUnchangedObjectLinksUpdate() throws Exception {
+        byte[] payload = "</>;rt=\"oma.lwm2m\", </1/0>, </3/0>;ver=\"1.1\"".getBytes();
+        Registration.Builder builder = new Registration.Builder("registrationId", "endpoint",
+                Identity.unsecure(Inet4Address.getLocalHost(), 1), new InetSocketAddress(212));
+        Registration r = builder.objectLinks(Link.parse(payload)).build();
+
+        RegistrationUpdate updateReg = new RegistrationUpdate(r.getId(), r.getIdentity(), null, null, null,
+                Link.parse(payload), null);
+        Registration updated = updateReg.update(r);
+
+        Assert.assertSame(r.getObjectLinks(), updated.getObjectLinks());
+        Assert.assertEquals("1.1", updated.getSupportedObject().get(3));
+        Assert.assertEquals(r.getSupportedObject(), updated.getSupportedObject());
+    }
+
+    @Test
+    public void supported_objects_are_shared_by_updates() throws Exception {
+        byte[] payload = "</1/0>, </3/0>".getBytes();
+        Registration r = new Registration.Builder("registrationId", "endpoint",
+                Identity.unsecure(Inet4Address.getLocalHost(), 1), new InetSocketAddress(212))
+                        .objectLinks(Link.parse(payload)).build();
+        Map<Integer, String> supportedObjects = r.getSupportedObject();
+
+        for (int i = 0; i < 100000; i++) {
+            r = new RegistrationUpdate(r.getId(), r.getIdentity(), null, null, null, null, null).update(r);
+        }
+        Assert.assertSame(supportedObjects, r.getSupportedObject());
+        Assert.assertTrue(r.getSupportedObject().containsKey(3));
+    }
+}
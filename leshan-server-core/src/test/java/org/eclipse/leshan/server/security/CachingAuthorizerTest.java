@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+import static org.junit.Assert.*;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.UpdateRequest;
+import org.eclipse.leshan.server.impl.InMemorySecurityStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingAuthorizerTest {
+
+    private static final String ENDPOINT = "urn:client";
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final InMemorySecurityStore store = new InMemorySecurityStore() {
+        @Override
+        public SecurityInfo getByEndpoint(String endpoint) {
+            lookups.incrementAndGet();
+            return super.getByEndpoint(endpoint);
+        }
+    };
+    private CachingAuthorizer authorizer;
+    private UpdateRequest update;
+
+    @Before
+    public void setUp() throws NonUniqueSecurityInfoException {
+        store.add(SecurityInfo.newPreSharedKeyInfo(ENDPOINT, "client-identity", new byte[] { 1, 2, 3 }));
+        authorizer = new CachingAuthorizer(store);
+        update = new UpdateRequest("reg-id", null, null, null, null, null);
+    }
+
+    @Test
+    public void granted_decision_is_cached() {
+        assertTrue(isAuthorized(Identity.psk(address(1000), "client-identity")));
+        // the client address changed (e.g. NAT) but not its credentials
+        assertTrue(isAuthorized(Identity.psk(address(2000), "client-identity")));
+
+        assertEquals(1, lookups.get());
+        assertEquals(1, authorizer.getCacheSize());
+    }
+
+    @Test
+    public void other_credentials_are_checked() {
+        assertTrue(isAuthorized(Identity.psk(address(1000), "client-identity")));
+
+        assertFalse(isAuthorized(Identity.psk(address(1000), "other-identity")));
+        assertFalse(isAuthorized(Identity.unsecure(address(1000))));
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void refused_decision_is_not_cached() {
+        assertFalse(isAuthorized(Identity.psk(address(1000), "other-identity")));
+        assertFalse(isAuthorized(Identity.psk(address(1000), "other-identity")));
+
+        assertEquals(2, lookups.get());
+        assertEquals(0, authorizer.getCacheSize());
+    }
+
+    @Test
+    public void store_change_invalidates_decision() throws NonUniqueSecurityInfoException {
+        assertTrue(isAuthorized(Identity.psk(address(1000), "client-identity")));
+
+        store.add(SecurityInfo.newPreSharedKeyInfo(ENDPOINT, "new-identity", new byte[] { 1, 2, 3 }));
+        assertEquals(0, authorizer.getCacheSize());
+        assertFalse(isAuthorized(Identity.psk(address(1000), "client-identity")));
+        assertTrue(isAuthorized(Identity.psk(address(1000), "new-identity")));
+
+        store.remove(ENDPOINT);
+        assertFalse(isAuthorized(Identity.psk(address(1000), "new-identity")));
+    }
+
+    private boolean isAuthorized(Identity identity) {
+        Registration registration = new Registration.Builder("reg-id", ENDPOINT, identity, new InetSocketAddress(5684))
+                .build();
+        return authorizer.isAuthorized(update, registration, identity) != null;
+    }
+
+    private static InetSocketAddress address(int port) {
+        return new InetSocketAddress(Inet4Address.getLoopbackAddress(), port);
+    }
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.server.impl.InMemorySecurityStore;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingSecurityStoreTest {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final InMemorySecurityStore store = new InMemorySecurityStore() {
+        @Override
+        public SecurityInfo getByIdentity(String identity) {
+            lookups.incrementAndGet();
+            return super.getByIdentity(identity);
+        }
+
+        @Override
+        public SecurityInfo getByEndpoint(String endpoint) {
+            lookups.incrementAndGet();
+            return super.getByEndpoint(endpoint);
+        }
+    };
+    private CachingSecurityStore cache;
+
+    @Before
+    public void setUp() throws NonUniqueSecurityInfoException {
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1", new byte[] { 1 }));
+        cache = new CachingSecurityStore(store);
+    }
+
+    @Test
+    public void known_and_unknown_identities_are_cached() {
+        assertEquals("ep1", cache.getByIdentity("id1").getEndpoint());
+        assertEquals("ep1", cache.getByIdentity("id1").getEndpoint());
+        assertNull(cache.getByIdentity("unknown"));
+        assertNull(cache.getByIdentity("unknown"));
+        assertEquals("id1", cache.getByEndpoint("ep1").getIdentity());
+
+        assertEquals(3, lookups.get());
+        assertEquals(3, cache.getCacheSize());
+        assertEquals(2, cache.getMetrics().getHits());
+        assertEquals(1, cache.getMetrics().getNegativeHits());
+        assertEquals(3, cache.getMetrics().getMisses());
+    }
+
+    @Test
+    public void store_changes_invalidate_cache() throws NonUniqueSecurityInfoException {
+        assertNull(cache.getByIdentity("id2"));
+        cache.getByIdentity("id1");
+        cache.getByEndpoint("ep1");
+
+        // the unknown identity is now used and the identity of ep1 changed
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep2", "id2", new byte[] { 2 }));
+        store.add(SecurityInfo.newPreSharedKeyInfo("ep1", "id1bis", new byte[] { 3 }));
+
+        assertEquals("ep2", cache.getByIdentity("id2").getEndpoint());
+        assertNull(cache.getByIdentity("id1"));
+        assertEquals("id1bis", cache.getByEndpoint("ep1").getIdentity());
+
+        store.remove("ep2");
+        assertNull(cache.getByIdentity("id2"));
+    }
+
+    @Test
+    public void entries_expire() throws InterruptedException {
+        cache = new CachingSecurityStore(store, 20, 0, 10);
+        cache.getByIdentity("id1");
+        assertNull(cache.getByIdentity("unknown"));
+        assertNull(cache.getByIdentity("unknown"));
+        // unknown identities are not cached
+        assertEquals(3, lookups.get());
+
+        Thread.sleep(50);
+        cache.getByIdentity("id1");
+        assertEquals(4, lookups.get());
+    }
+
+    @Test
+    public void cache_is_bounded() {
+        cache = new CachingSecurityStore(store, 60000, 60000, 2);
+        cache.getByIdentity("id1");
+        cache.getByIdentity("unknown1");
+        cache.getByIdentity("unknown2");
+        assertEquals(2, cache.getCacheSize());
+        // an entry was evicted to cache the last one
+        cache.getByIdentity("unknown2");
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void expired_entries_are_evicted_first() throws InterruptedException {
+        cache = new CachingSecurityStore(store, 60000, 20, 2);
+        cache.getByIdentity("id1");
+        cache.getByIdentity("unknown1");
+        Thread.sleep(50);
+        cache.getByIdentity("unknown2");
+        assertEquals(2, cache.getCacheSize());
+
+        cache.getByIdentity("id1");
+        cache.getByIdentity("unknown2");
+        assertEquals(3, lookups.get());
+    }
+}
@@ -66,10 +66,12 @@ import org.eclipse.leshan.server.demo.servlet.ObjectSpecServlet;
 import org.eclipse.leshan.server.demo.servlet.SecurityServlet;
 import org.eclipse.leshan.server.demo.utils.MagicLwM2mValueConverter;
 import org.eclipse.leshan.server.impl.FileSecurityStore;
+import org.eclipse.leshan.server.model.DirectoryModelProvider;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.VersionedModelProvider;
 import org.eclipse.leshan.server.redis.RedisRegistrationStore;
 import org.eclipse.leshan.server.redis.RedisSecurityStore;
+import org.eclipse.leshan.server.security.CachingAuthorizer;
 import org.eclipse.leshan.server.security.EditableSecurityStore;
 import org.eclipse.leshan.util.SecurityUtil;
 import org.slf4j.Logger;
@@ -358,10 +360,13 @@ public class LeshanServerDemo {
         // Define model provider
         List<ObjectModel> models = ObjectLoader.loadDefault();
         models.addAll(ObjectLoader.loadDdfResources("/models/", modelPaths));
+        LwM2mModelProvider modelProvider;
         if (modelsFolderPath != null) {
-            models.addAll(ObjectLoader.loadObjectsFromDir(new File(modelsFolderPath)));
+            // models of the folder are reloaded when it changes, the server starts and stops the watching
+            modelProvider = new DirectoryModelProvider(new File(modelsFolderPath), models);
+        } else {
+            modelProvider = new VersionedModelProvider(models);
         }
-        LwM2mModelProvider modelProvider = new VersionedModelProvider(models);
         builder.setObjectModelProvider(modelProvider);
 
         // Set securityStore & registrationStore
@@ -369,6 +374,8 @@ public class LeshanServerDemo {
         if (jedis == null) {
             // use file persistence
             securityStore = new FileSecurityStore();
+            // the store is only modified by this server, so authorization decisions can be cached
+            builder.setAuthorizer(new CachingAuthorizer(securityStore));
         } else {
             // use Redis Store
             securityStore = new RedisSecurityStore(jedis);
@@ -402,6 +409,7 @@ public class LeshanServerDemo {
         root.addServlet(eventServletHolder, "/event/*");
 
         ServletHolder clientServletHolder = new ServletHolder(new ClientServlet(lwServer));
+        clientServletHolder.setAsyncSupported(true);
         root.addServlet(clientServletHolder, "/api/clients/*");
 
         ServletHolder securityServletHolder = new ServletHolder(new SecurityServlet(securityStore, serverCertificate));
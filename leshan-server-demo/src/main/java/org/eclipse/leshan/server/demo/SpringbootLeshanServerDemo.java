@@ -430,6 +430,7 @@ public class SpringbootLeshanServerDemo {
         root.addServlet(eventServletHolder, "/event/*");
 
         ServletHolder clientServletHolder = new ServletHolder(new ClientServlet(_lwServer));
+        clientServletHolder.setAsyncSupported(true);
         root.addServlet(clientServletHolder, "/api/clients/*");
 
         ServletHolder securityServletHolder = new ServletHolder(new SecurityServlet(_securityStore, _serverCertificate));
@@ -40,6 +40,7 @@ public class WebConfig {
     public ServletRegistrationBean<HttpServlet> clientServlet() {
         ServletRegistrationBean<HttpServlet> servRegBean = new ServletRegistrationBean<>();
         servRegBean.setServlet(new ClientServlet(lwServer));
+        servRegBean.setAsyncSupported(true);
         servRegBean.addUrlMappings("/api/clients/*");
         servRegBean.setLoadOnStartup(1);
         return servRegBean;
@@ -21,6 +21,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -37,6 +40,7 @@ import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.request.CreateRequest;
 import org.eclipse.leshan.core.request.DeleteRequest;
 import org.eclipse.leshan.core.request.DiscoverRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.ExecuteRequest;
 import org.eclipse.leshan.core.request.ObserveRequest;
 import org.eclipse.leshan.core.request.ReadRequest;
@@ -48,15 +52,11 @@ import org.eclipse.leshan.core.request.exception.InvalidRequestException;
 import org.eclipse.leshan.core.request.exception.InvalidResponseException;
 import org.eclipse.leshan.core.request.exception.RequestCanceledException;
 import org.eclipse.leshan.core.request.exception.RequestRejectedException;
-import org.eclipse.leshan.core.response.CreateResponse;
-import org.eclipse.leshan.core.response.DeleteResponse;
-import org.eclipse.leshan.core.response.DiscoverResponse;
-import org.eclipse.leshan.core.response.ExecuteResponse;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
-import org.eclipse.leshan.core.response.ObserveResponse;
-import org.eclipse.leshan.core.response.ReadResponse;
-import org.eclipse.leshan.core.response.WriteResponse;
-import org.eclipse.leshan.core.response.WriteAttributesResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.ResponseFuture;
 
 import org.eclipse.leshan.server.LwM2mServer;
 import org.eclipse.leshan.server.demo.servlet.json.LwM2mNodeDeserializer;
@@ -82,6 +82,9 @@ public class ClientServlet extends HttpServlet {
 
     private static final long TIMEOUT = 5000; // ms
 
+    // the LWM2M timeout should expire first, this is a safety net to free the HTTP request
+    private static final long ASYNC_TIMEOUT = 2 * TIMEOUT; // ms
+
     private static final long serialVersionUID = 1L;
 
     private final LwM2mServer server;
@@ -151,13 +154,12 @@ public class ClientServlet extends HttpServlet {
                 if (registration != null) {
                     // create & process request
                     DiscoverRequest request = new DiscoverRequest(target);
-                    DiscoverResponse cResponse = server.send(registration, request, TIMEOUT);
-                    processDeviceResponse(req, resp, cResponse);
+                    sendAsync(req, resp, registration, request);
                 } else {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     resp.getWriter().format("No registered client with id '%s'", clientEndpoint).flush();
                 }
-            } catch (RuntimeException | InterruptedException e) {
+            } catch (RuntimeException e) {
                 handleException(e, resp);
             }
             return;
@@ -176,17 +178,71 @@ public class ClientServlet extends HttpServlet {
 
                 // create & process request
                 ReadRequest request = new ReadRequest(contentFormat, target);
-                ReadResponse cResponse = server.send(registration, request, TIMEOUT);
-                processDeviceResponse(req, resp, cResponse);
+                sendAsync(req, resp, registration, request);
             } else {
                 resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 resp.getWriter().format("No registered client with id '%s'", clientEndpoint).flush();
             }
-        } catch (RuntimeException | InterruptedException e) {
+        } catch (RuntimeException e) {
             handleException(e, resp);
         }
     }
 
+    /**
+     * Send the request without blocking the servlet thread: the HTTP response is written from the callbacks once the
+     * LWM2M response is received. If the HTTP request times out first, the LWM2M request is cancelled.
+     */
+    private <T extends LwM2mResponse> void sendAsync(final HttpServletRequest req, final HttpServletResponse resp,
+            Registration registration, DownlinkRequest<T> request) {
+        final ResponseFuture<T> future = server.sendAsync(registration, request, TIMEOUT);
+
+        final AsyncContext async = req.startAsync();
+        async.setTimeout(ASYNC_TIMEOUT);
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                future.cancel(false);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                future.cancel(false);
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+        });
+
+        future.addCallbacks(new ResponseCallback<T>() {
+            @Override
+            public void onResponse(T response) {
+                try {
+                    processDeviceResponse(req, resp, response);
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Unable to write response of {}{}", req.getServletPath(), req.getPathInfo(), e);
+                } finally {
+                    async.complete();
+                }
+            }
+        }, new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                try {
+                    handleException(e, resp);
+                } catch (IOException | RuntimeException ex) {
+                    LOG.warn("Unable to write error of {}{}", req.getServletPath(), req.getPathInfo(), ex);
+                } finally {
+                    async.complete();
+                }
+            }
+        });
+    }
+
     private void handleException(Exception e, HttpServletResponse resp) throws IOException {
         if (e instanceof InvalidRequestException || e instanceof CodecException
                 || e instanceof ClientSleepingException) {
@@ -201,6 +257,10 @@ public class ClientServlet extends HttpServlet {
             LOG.warn("Request cancelled", e);
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             resp.getWriter().append("Request cancelled:").append(e.getMessage()).flush();
+        } else if (e instanceof TimeoutException) {
+            LOG.warn("Request timeout", e);
+            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            resp.getWriter().append("Request timeout").flush();
         } else if (e instanceof InvalidResponseException) {
             LOG.warn("Invalid response", e);
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -239,8 +299,7 @@ public class ClientServlet extends HttpServlet {
                     target = StringUtils.removeEnd(target, path[path.length - 1]);
                     AttributeSet attributes = AttributeSet.parse(req.getQueryString());
                     WriteAttributesRequest request = new WriteAttributesRequest(target, attributes);
-                    WriteAttributesResponse cResponse = server.send(registration, request, TIMEOUT);
-                    processDeviceResponse(req, resp, cResponse);
+                    sendAsync(req, resp, registration, request);
                 } else {
                     // get content format
                     String contentFormatParam = req.getParameter(FORMAT_PARAM);
@@ -250,14 +309,13 @@ public class ClientServlet extends HttpServlet {
                     // create & process request
                     LwM2mNode node = extractLwM2mNode(target, req);
                     WriteRequest request = new WriteRequest(Mode.REPLACE, contentFormat, target, node);
-                    WriteResponse cResponse = server.send(registration, request, TIMEOUT);
-                    processDeviceResponse(req, resp, cResponse);
+                    sendAsync(req, resp, registration, request);
                 }
             } else {
                 resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 resp.getWriter().format("No registered client with id '%s'", clientEndpoint).flush();
             }
-        } catch (RuntimeException | InterruptedException e) {
+        } catch (RuntimeException e) {
             handleException(e, resp);
         }
     }
@@ -284,13 +342,12 @@ public class ClientServlet extends HttpServlet {
 
                     // create & process request
                     ObserveRequest request = new ObserveRequest(contentFormat, target);
-                    ObserveResponse cResponse = server.send(registration, request, TIMEOUT);
-                    processDeviceResponse(req, resp, cResponse);
+                    sendAsync(req, resp, registration, request);
                 } else {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     resp.getWriter().format("no registered client with id '%s'", clientEndpoint).flush();
                 }
-            } catch (RuntimeException | InterruptedException e) {
+            } catch (RuntimeException e) {
                 handleException(e, resp);
             }
             return;
@@ -304,13 +361,12 @@ public class ClientServlet extends HttpServlet {
                 Registration registration = server.getRegistrationService().getByEndpoint(clientEndpoint);
                 if (registration != null) {
                     ExecuteRequest request = new ExecuteRequest(target, IOUtils.toString(req.getInputStream()));
-                    ExecuteResponse cResponse = server.send(registration, request, TIMEOUT);
-                    processDeviceResponse(req, resp, cResponse);
+                    sendAsync(req, resp, registration, request);
                 } else {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     resp.getWriter().format("no registered client with id '%s'", clientEndpoint).flush();
                 }
-            } catch (RuntimeException | InterruptedException e) {
+            } catch (RuntimeException e) {
                 handleException(e, resp);
             }
             return;
@@ -331,8 +387,7 @@ public class ClientServlet extends HttpServlet {
                     LwM2mNode node = extractLwM2mNode(target, req);
                     if (node instanceof LwM2mObjectInstance) {
                         CreateRequest request = new CreateRequest(contentFormat, target, (LwM2mObjectInstance) node);
-                        CreateResponse cResponse = server.send(registration, request, TIMEOUT);
-                        processDeviceResponse(req, resp, cResponse);
+                        sendAsync(req, resp, registration, request);
                     } else {
                         throw new IllegalArgumentException("payload must contain an object instance");
                     }
@@ -340,7 +395,7 @@ public class ClientServlet extends HttpServlet {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     resp.getWriter().format("no registered client with id '%s'", clientEndpoint).flush();
                 }
-            } catch (RuntimeException | InterruptedException e) {
+            } catch (RuntimeException e) {
                 handleException(e, resp);
             }
             return;
@@ -376,13 +431,12 @@ public class ClientServlet extends HttpServlet {
             Registration registration = server.getRegistrationService().getByEndpoint(clientEndpoint);
             if (registration != null) {
                 DeleteRequest request = new DeleteRequest(target);
-                DeleteResponse cResponse = server.send(registration, request, TIMEOUT);
-                processDeviceResponse(req, resp, cResponse);
+                sendAsync(req, resp, registration, request);
             } else {
                 resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 resp.getWriter().format("no registered client with id '%s'", clientEndpoint).flush();
             }
-        } catch (RuntimeException | InterruptedException e) {
+        } catch (RuntimeException e) {
             handleException(e, resp);
         }
     }
@@ -15,12 +15,15 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.demo.servlet;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -32,6 +35,7 @@ import org.eclipse.leshan.server.demo.servlet.json.PublicKeySerDes;
 import org.eclipse.leshan.server.demo.servlet.json.SecurityDeserializer;
 import org.eclipse.leshan.server.demo.servlet.json.SecuritySerializer;
 import org.eclipse.leshan.server.demo.servlet.json.X509CertificateSerDes;
+import org.eclipse.leshan.server.security.BulkEditableSecurityStore;
 import org.eclipse.leshan.server.security.EditableSecurityStore;
 import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
 import org.eclipse.leshan.server.security.SecurityInfo;
@@ -42,6 +46,8 @@ import com.eclipsesource.json.JsonObject;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
 
 /**
  * Service HTTP REST API calls for security information.
@@ -121,6 +127,63 @@ public class SecurityServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Bulk import of a JSON array of security infos on <code>/clients</code>. The body is parsed as a stream and all
+     * the security infos are sent to the store at once when it is a {@link BulkEditableSecurityStore}, so the store
+     * persists them once and a rejected import does not change it.
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String[] path = StringUtils.split(req.getPathInfo(), '/');
+
+        if (path.length != 1 || !"clients".equals(path[0])) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        List<SecurityInfo> infos = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(req.getInputStream(), StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                infos.add(gsonDes.<SecurityInfo> fromJson(reader, SecurityInfo.class));
+            }
+            reader.endArray();
+        } catch (JsonParseException | MalformedJsonException | EOFException | IllegalStateException e) {
+            // the JSON reader throws EOFException on a truncated body and IllegalStateException on an unexpected token
+            LOG.warn("Could not parse request body", e);
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().append("Invalid request body").flush();
+            return;
+        }
+
+        try {
+            if (store instanceof BulkEditableSecurityStore) {
+                ((BulkEditableSecurityStore) store).addAll(infos);
+            } else {
+                for (SecurityInfo info : infos) {
+                    store.add(info);
+                }
+            }
+        } catch (NonUniqueSecurityInfoException e) {
+            LOG.warn("Non unique security info: " + e.getMessage());
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().append(e.getMessage()).flush();
+            return;
+        } catch (RuntimeException e) {
+            LOG.warn("Could not store security infos", e);
+            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            resp.getWriter().append("Could not store security infos").flush();
+            return;
+        }
+        LOG.debug("{} security infos imported", infos.size());
+
+        JsonObject result = new JsonObject();
+        result.add("imported", infos.size());
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType("application/json");
+        resp.getOutputStream().write(result.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfigSerDes;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfigStoreListener;
+import org.eclipse.leshan.server.bootstrap.BootstrapSession;
+import org.eclipse.leshan.server.bootstrap.ConfigurationChecker;
+import org.eclipse.leshan.server.bootstrap.EditableBootstrapConfigStore;
+import org.eclipse.leshan.server.bootstrap.InvalidConfigurationException;
+import org.eclipse.leshan.util.Validate;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.util.Pool;
+
+/**
+ * A {@link EditableBootstrapConfigStore} implementation based on Redis, so several bootstrap servers can share the
+ * same configurations.
+ * <p>
+ * Configurations are stored using the endpoint as primary key and a secondary index is created for the PSK identities
+ * of the bootstrap server security entries (see {@link RedisBootstrapSecurityStore}).
+ * <p>
+ * Configurations read from Redis are cached locally during a short time (including the endpoints without
+ * configuration), so a changed configuration could be used by the other servers only after this delay. Changes done
+ * through this instance are visible immediately.
+ * <p>
+ * {@link BootstrapConfigStoreListener}s are only notified of the changes done through this instance, not of the ones
+ * done by other processes sharing the same Redis database.
+ */
+public class RedisBootstrapConfigStore implements EditableBootstrapConfigStore {
+
+    /**
+     * Default time in milliseconds during which a configuration is cached locally.
+     */
+    public static final long DEFAULT_CACHE_TTL = 10000;
+
+    /**
+     * Default maximum number of endpoints cached locally.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 100000;
+
+    // number of cached configurations examined to make room for a new one
+    private static final int EVICTION_SAMPLES = 16;
+
+    private static final String BSCFG_EP = "BSCFG:EP:"; // (Endpoint => Bootstrap config)
+    private static final String BSCFG_PSKID_IDX = "BSCFG:PSKID"; // hash (PSK identity => Endpoint)
+    private static final String LOCK_BSCFG_EP = "LOCK:BSCFG:EP:";
+
+    protected final ConfigurationChecker configChecker = new ConfigurationChecker();
+
+    private final Pool<Jedis> pool;
+    private final long cacheTtl;
+    private final int cacheSize;
+    private final ConcurrentMap<String, CachedConfig> cache = new ConcurrentHashMap<>();
+    // incremented on each local change, so a configuration read before a change is not cached after it
+    private final AtomicLong changes = new AtomicLong();
+
+    private final List<BootstrapConfigStoreListener> listeners = new CopyOnWriteArrayList<>();
+
+    public RedisBootstrapConfigStore(Pool<Jedis> pool) {
+        this(pool, DEFAULT_CACHE_TTL, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param pool the Redis connection pool.
+     * @param cacheTtl time in milliseconds during which a configuration is cached locally, 0 to disable the cache.
+     * @param cacheSize the maximum number of endpoints cached locally.
+     */
+    public RedisBootstrapConfigStore(Pool<Jedis> pool, long cacheTtl, int cacheSize) {
+        Validate.notNull(pool);
+        Validate.isTrue(cacheTtl >= 0, "cache TTL must be positive");
+        Validate.isTrue(cacheSize >= 0, "cache size must be positive");
+        this.pool = pool;
+        this.cacheTtl = cacheTtl;
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    public BootstrapConfig get(String endpoint, Identity deviceIdentity, BootstrapSession session) {
+        long now = System.currentTimeMillis();
+        CachedConfig cached = cache.get(endpoint);
+        if (cached != null && cached.expiration > now) {
+            return cached.config;
+        }
+
+        long changesBefore = changes.get();
+        BootstrapConfig config;
+        try (Jedis j = pool.getResource()) {
+            byte[] data = j.get(toKey(BSCFG_EP, endpoint));
+            config = data == null ? null : deserialize(data);
+        }
+
+        if (cacheTtl > 0 && changesBefore == changes.get()) {
+            if (cached != null) {
+                cache.replace(endpoint, cached, new CachedConfig(config, now + cacheTtl));
+            } else if (cacheSize > 0) {
+                if (cache.size() >= cacheSize) {
+                    evict(now);
+                }
+                cache.putIfAbsent(endpoint, new CachedConfig(config, now + cacheTtl));
+            }
+        }
+        return config;
+    }
+
+    /**
+     * @return the endpoint which uses this PSK identity in a bootstrap server security entry or <code>null</code> if
+     *         there is none.
+     */
+    public String getEndpointByPskIdentity(String identity) {
+        try (Jedis j = pool.getResource()) {
+            return j.hget(BSCFG_PSKID_IDX, identity);
+        }
+    }
+
+    @Override
+    public Map<String, BootstrapConfig> getAll() {
+        try (Jedis j = pool.getResource()) {
+            ScanParams params = new ScanParams().match(BSCFG_EP + "*").count(100);
+            Map<String, BootstrapConfig> configs = new HashMap<>();
+            String cursor = "0";
+            do {
+                ScanResult<byte[]> res = j.scan(cursor.getBytes(), params);
+                for (byte[] key : res.getResult()) {
+                    byte[] element = j.get(key);
+                    if (element != null) {
+                        configs.put(new String(key, UTF_8).substring(BSCFG_EP.length()), deserialize(element));
+                    }
+                }
+                cursor = res.getStringCursor();
+            } while (!"0".equals(cursor));
+            return Collections.unmodifiableMap(configs);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws InvalidConfigurationException if the configuration is not valid or if a PSK identity of a bootstrap
+     *         server security entry is already used by an other endpoint.
+     */
+    @Override
+    public void add(String endpoint, BootstrapConfig config) throws InvalidConfigurationException {
+        configChecker.verify(config);
+        byte[] data = serialize(config);
+        Set<String> identities = getPskIdentities(config);
+
+        BootstrapConfig previous;
+        try (Jedis j = pool.getResource()) {
+            byte[] lockValue = null;
+            byte[] lockKey = toKey(LOCK_BSCFG_EP, endpoint);
+            try {
+                lockValue = RedisLock.acquire(j, lockKey);
+
+                claimPskIdentities(j, endpoint, identities);
+
+                byte[] previousData = j.getSet(toKey(BSCFG_EP, endpoint), data);
+                previous = previousData == null ? null : deserialize(previousData);
+                if (previous != null) {
+                    Set<String> removedIdentities = getPskIdentities(previous);
+                    removedIdentities.removeAll(identities);
+                    removeIndex(j, endpoint, removedIdentities);
+                }
+            } finally {
+                RedisLock.release(j, lockKey, lockValue);
+            }
+        }
+        changes.incrementAndGet();
+        cache.remove(endpoint);
+        notifyListeners(endpoint, previous, config);
+    }
+
+    @Override
+    public BootstrapConfig remove(String endpoint) {
+        BootstrapConfig removed = null;
+        try (Jedis j = pool.getResource()) {
+            byte[] lockValue = null;
+            byte[] lockKey = toKey(LOCK_BSCFG_EP, endpoint);
+            try {
+                lockValue = RedisLock.acquire(j, lockKey);
+
+                byte[] key = toKey(BSCFG_EP, endpoint);
+                byte[] data = j.get(key);
+                if (data != null) {
+                    removed = deserialize(data);
+                    j.del(key);
+                    removeIndex(j, endpoint, getPskIdentities(removed));
+                }
+            } finally {
+                RedisLock.release(j, lockKey, lockValue);
+            }
+        }
+        changes.incrementAndGet();
+        cache.remove(endpoint);
+        if (removed != null) {
+            notifyListeners(endpoint, removed, null);
+        }
+        return removed;
+    }
+
+    /**
+     * Bind the PSK identities to the endpoint in the index. Each identity is claimed atomically (HSETNX), so two
+     * endpoints added concurrently by different servers can not get the same identity. Must be called with the lock of
+     * the endpoint.
+     *
+     * @throws InvalidConfigurationException if an identity is already used by an other endpoint, in this case the
+     *         identities claimed by this call are released.
+     */
+    private void claimPskIdentities(Jedis j, String endpoint, Set<String> identities)
+            throws InvalidConfigurationException {
+        List<String> claimed = new ArrayList<>();
+        for (String identity : identities) {
+            String owner = null;
+            while (j.hsetnx(BSCFG_PSKID_IDX, identity, endpoint) == 0) {
+                owner = j.hget(BSCFG_PSKID_IDX, identity);
+                // null if the identity was released in the meantime, try again
+                if (owner != null)
+                    break;
+            }
+            if (owner == null) {
+                claimed.add(identity);
+            } else if (!owner.equals(endpoint)) {
+                // identities claimed by this call point to this endpoint, which is locked
+                if (!claimed.isEmpty()) {
+                    j.hdel(BSCFG_PSKID_IDX, claimed.toArray(new String[claimed.size()]));
+                }
+                throw new InvalidConfigurationException("PSK identity %s is already used by %s", identity, owner);
+            }
+        }
+    }
+
+    // remove the index entries only if they still point to this endpoint: entries of an endpoint are only removed with
+    // its lock and other endpoints only claim free identities
+    private void removeIndex(Jedis j, String endpoint, Set<String> identities) {
+        for (String identity : identities) {
+            if (endpoint.equals(j.hget(BSCFG_PSKID_IDX, identity))) {
+                j.hdel(BSCFG_PSKID_IDX, identity);
+            }
+        }
+    }
+
+    private static Set<String> getPskIdentities(BootstrapConfig config) {
+        Set<String> identities = new HashSet<>();
+        if (config.security != null) {
+            for (ServerSecurity security : config.security.values()) {
+                if (security.bootstrapServer && security.securityMode == SecurityMode.PSK) {
+                    identities.add(new String(security.publicKeyOrId, UTF_8));
+                }
+            }
+        }
+        return identities;
+    }
+
+    // remove the expired configurations among a few ones, or else the one expiring first
+    private void evict(long now) {
+        Map.Entry<String, CachedConfig> first = null;
+        boolean removed = false;
+        Iterator<Map.Entry<String, CachedConfig>> it = cache.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLES && it.hasNext(); i++) {
+            Map.Entry<String, CachedConfig> sample = it.next();
+            if (sample.getValue().expiration <= now) {
+                it.remove();
+                removed = true;
+            } else if (first == null || sample.getValue().expiration < first.getValue().expiration) {
+                first = sample;
+            }
+        }
+        if (!removed && first != null) {
+            cache.remove(first.getKey(), first.getValue());
+        }
+    }
+
+    /**
+     * Removes all the configurations cached locally, e.g. after a bulk update done by an other process.
+     */
+    public void clearCache() {
+        changes.incrementAndGet();
+        cache.clear();
+    }
+
+    @Override
+    public void addListener(BootstrapConfigStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(BootstrapConfigStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(String endpoint, BootstrapConfig previous, BootstrapConfig current) {
+        for (BootstrapConfigStoreListener listener : listeners) {
+            listener.configChanged(endpoint, previous, current);
+        }
+    }
+
+    private static byte[] toKey(String prefix, String endpoint) {
+        return (prefix + endpoint).getBytes(UTF_8);
+    }
+
+    private byte[] serialize(BootstrapConfig config) {
+        return BootstrapConfigSerDes.serialize(config);
+    }
+
+    private BootstrapConfig deserialize(byte[] data) {
+        return BootstrapConfigSerDes.deserialize(data);
+    }
+
+    private static class CachedConfig {
+        // null if the endpoint has no configuration
+        private final BootstrapConfig config;
+        private final long expiration;
+
+        private CachedConfig(BootstrapConfig config, long expiration) {
+            this.config = config;
+            this.expiration = expiration;
+        }
+    }
+}
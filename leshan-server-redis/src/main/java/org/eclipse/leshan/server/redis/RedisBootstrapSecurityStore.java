@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.leshan.SecurityMode;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.bootstrap.BootstrapUtil;
+import org.eclipse.leshan.server.security.BootstrapSecurityStore;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BootstrapSecurityStore} providing the credentials of the bootstrap server security entries of the
+ * configurations stored in a {@link RedisBootstrapConfigStore}.
+ */
+public class RedisBootstrapSecurityStore implements BootstrapSecurityStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RedisBootstrapSecurityStore.class);
+
+    private final RedisBootstrapConfigStore configStore;
+
+    public RedisBootstrapSecurityStore(RedisBootstrapConfigStore configStore) {
+        this.configStore = configStore;
+    }
+
+    @Override
+    public List<SecurityInfo> getAllByEndpoint(String endpoint) {
+        BootstrapConfig config = configStore.get(endpoint, null, null);
+        if (config == null || config.security == null) {
+            return null;
+        }
+
+        // only the first bootstrap server security entry is used
+        for (ServerSecurity security : config.security.values()) {
+            if (security.bootstrapServer) {
+                SecurityInfo info = toSecurityInfo(endpoint, security);
+                if (info != null) {
+                    return Collections.singletonList(info);
+                }
+                if (security.securityMode == SecurityMode.RPK) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public SecurityInfo getByIdentity(String pskIdentity) {
+        String endpoint = configStore.getEndpointByPskIdentity(pskIdentity);
+        if (endpoint == null) {
+            return null;
+        }
+        BootstrapConfig config = configStore.get(endpoint, null, null);
+        if (config == null || config.security == null) {
+            return null;
+        }
+
+        for (ServerSecurity security : config.security.values()) {
+            if (security.bootstrapServer && security.securityMode == SecurityMode.PSK
+                    && pskIdentity.equals(new String(security.publicKeyOrId, UTF_8))) {
+                return toSecurityInfo(endpoint, security);
+            }
+        }
+        return null;
+    }
+
+    private static SecurityInfo toSecurityInfo(String endpoint, ServerSecurity security) {
+        try {
+            return BootstrapUtil.toSecurityInfo(endpoint, security);
+        } catch (IllegalArgumentException e) {
+            LOG.error("Unable to decode Client public key for {}", endpoint, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.SecureRandom;
+
+import org.eclipse.leshan.server.bootstrap.BootstrapSession;
+import org.eclipse.leshan.server.bootstrap.BootstrapSessionRegistry;
+import org.eclipse.leshan.util.Hex;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+/**
+ * A {@link BootstrapSessionRegistry} based on Redis, so several bootstrap servers behind a load balancer do not run
+ * two sessions at the same time for the same endpoint.
+ * <p>
+ * A session is stored with its lifetime as Redis expiration, so a session which is never removed (e.g. because its
+ * server crashed) does not block the endpoint forever.
+ */
+public class RedisBootstrapSessionRegistry implements BootstrapSessionRegistry {
+
+    private static final byte[] NX_OPTION = "NX".getBytes(UTF_8); // set the key if it does not already exist
+    private static final byte[] PX_OPTION = "PX".getBytes(UTF_8); // expire time in millisecond
+
+    // delete the key only if it still has the given value, atomically
+    private static final byte[] COMPARE_AND_DELETE = ("if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "return redis.call('del', KEYS[1]) else return 0 end").getBytes(UTF_8);
+
+    private static final String BSSESSION_EP = "BSSESSION:EP:"; // (Endpoint => Session token)
+
+    private final Pool<Jedis> pool;
+    // identifies the sessions of this instance
+    private final String instanceId;
+
+    public RedisBootstrapSessionRegistry(Pool<Jedis> pool) {
+        this.pool = pool;
+        byte[] random = new byte[8];
+        new SecureRandom().nextBytes(random);
+        this.instanceId = Hex.encodeHexString(random);
+    }
+
+    @Override
+    public boolean add(BootstrapSession session, long lifetime) {
+        try (Jedis j = pool.getResource()) {
+            return "OK".equals(j.set(toKey(session), toToken(session), NX_OPTION, PX_OPTION, lifetime));
+        }
+    }
+
+    @Override
+    public boolean remove(BootstrapSession session) {
+        try (Jedis j = pool.getResource()) {
+            // do not remove the session which replaced this one after its expiration
+            Object deleted = j.eval(COMPARE_AND_DELETE, 1, toKey(session), toToken(session));
+            return Long.valueOf(1).equals(deleted);
+        }
+    }
+
+    private static byte[] toKey(BootstrapSession session) {
+        return (BSSESSION_EP + session.getEndpoint()).getBytes(UTF_8);
+    }
+
+    private byte[] toToken(BootstrapSession session) {
+        return (instanceId + ":" + session.getCreationTime() + ":" + System.identityHashCode(session)).getBytes(UTF_8);
+    }
+}
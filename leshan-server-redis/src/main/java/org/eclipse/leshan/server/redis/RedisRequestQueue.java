@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.queue.QueuedRequest;
+import org.eclipse.leshan.server.queue.RequestQueue;
+import org.eclipse.leshan.server.redis.serialization.DownlinkRequestSerDes;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+/**
+ * A {@link RequestQueue} which stores queued requests in Redis, so they survive a server restart and can be drained by
+ * any server of a cluster.
+ * <p>
+ * Callbacks can not be persisted: they are only kept in memory by the server which queued the request. When a request
+ * is drained by another server or after a restart, it is still sent but its response is only logged.
+ */
+public class RedisRequestQueue implements RequestQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RedisRequestQueue.class);
+
+    /** Default maximum number of requests queued per endpoint. */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private static final String QUEUE_EP = "QUEUE:EP:"; // (Endpoint => list of queued requests)
+    private static final byte[] QUEUE_SIZE = "QUEUE:SIZE".getBytes(UTF_8); // total number of queued requests
+    private static final String LOCK_QUEUE = "LOCK:QUEUE:";
+
+    private final Pool<Jedis> pool;
+    private final int capacity;
+
+    // (Endpoint => (Request id => Queued request)) for requests queued by this server
+    private final ConcurrentMap<String, Map<String, QueuedRequest<?>>> localRequests = new ConcurrentHashMap<>();
+
+    public RedisRequestQueue(Pool<Jedis> pool) {
+        this(pool, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param pool     the Redis connection pool
+     * @param capacity the maximum number of requests queued per endpoint.
+     */
+    public RedisRequestQueue(Pool<Jedis> pool, int capacity) {
+        Validate.notNull(pool);
+        Validate.isTrue(capacity > 0, "capacity must be positive");
+        this.pool = pool;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(String endpoint, QueuedRequest<?> request) {
+        byte[] data = serialize(request);
+        try (Jedis j = pool.getResource()) {
+            byte[] lockValue = null;
+            byte[] lockKey = toLockKey(endpoint);
+            try {
+                lockValue = RedisLock.acquire(j, lockKey);
+
+                byte[] k = toQueueKey(endpoint);
+                if (j.llen(k) >= capacity) {
+                    return false;
+                }
+                j.rpush(k, data);
+                j.incr(QUEUE_SIZE);
+                addLocalRequest(endpoint, request);
+                return true;
+            } finally {
+                RedisLock.release(j, lockKey, lockValue);
+            }
+        }
+    }
+
+    @Override
+    public List<QueuedRequest<?>> drain(String endpoint) {
+        List<byte[]> data;
+        Map<String, QueuedRequest<?>> local;
+        try (Jedis j = pool.getResource()) {
+            byte[] lockValue = null;
+            byte[] lockKey = toLockKey(endpoint);
+            try {
+                lockValue = RedisLock.acquire(j, lockKey);
+
+                byte[] k = toQueueKey(endpoint);
+                data = j.lrange(k, 0, -1);
+                if (!data.isEmpty()) {
+                    j.del(k);
+                    j.decrBy(QUEUE_SIZE, data.size());
+                }
+                local = localRequests.remove(endpoint);
+            } finally {
+                RedisLock.release(j, lockKey, lockValue);
+            }
+        }
+
+        if (data.isEmpty() && local == null)
+            return Collections.emptyList();
+
+        List<QueuedRequest<?>> requests = new ArrayList<>(data.size());
+        for (byte[] d : data) {
+            JsonObject o = (JsonObject) Json.parse(new String(d, UTF_8));
+            QueuedRequest<?> request = local == null ? null : local.remove(o.getString("id", null));
+            if (request == null) {
+                request = deserialize(o);
+            }
+            requests.add(request);
+        }
+
+        // remaining local requests were drained by another server
+        if (local != null) {
+            for (QueuedRequest<?> request : local.values()) {
+                request.getErrorCallback().onError(new RequestCanceledException(
+                        "Queued request %s was sent to %s by another server", request.getRequest(), endpoint));
+            }
+        }
+        return requests;
+    }
+
+    @Override
+    public int size(String endpoint) {
+        try (Jedis j = pool.getResource()) {
+            return j.llen(toQueueKey(endpoint)).intValue();
+        }
+    }
+
+    @Override
+    public int size() {
+        try (Jedis j = pool.getResource()) {
+            byte[] size = j.get(QUEUE_SIZE);
+            return size == null ? 0 : Integer.parseInt(new String(size, UTF_8));
+        }
+    }
+
+    @Override
+    public long getOldestQueuedTime(String endpoint) {
+        try (Jedis j = pool.getResource()) {
+            byte[] oldest = j.lindex(toQueueKey(endpoint), 0);
+            if (oldest == null)
+                return -1;
+            return ((JsonObject) Json.parse(new String(oldest, UTF_8))).getLong("queuedTime", -1);
+        }
+    }
+
+    private void addLocalRequest(String endpoint, QueuedRequest<?> request) {
+        Map<String, QueuedRequest<?>> requests = localRequests.get(endpoint);
+        if (requests == null) {
+            requests = new ConcurrentHashMap<>();
+            Map<String, QueuedRequest<?>> previous = localRequests.putIfAbsent(endpoint, requests);
+            if (previous != null) {
+                requests = previous;
+            }
+        }
+        requests.put(request.getId(), request);
+    }
+
+    /* *************** Redis Key utility function **************** */
+
+    private byte[] toQueueKey(String endpoint) {
+        return (QUEUE_EP + endpoint).getBytes(UTF_8);
+    }
+
+    private byte[] toLockKey(String endpoint) {
+        return (LOCK_QUEUE + endpoint).getBytes(UTF_8);
+    }
+
+    /* *************** Queued request serialization **************** */
+
+    private byte[] serialize(QueuedRequest<?> request) {
+        JsonObject o = Json.object();
+        o.add("id", request.getId());
+        o.add("queuedTime", request.getQueuedTime());
+        o.add("timeout", request.getTimeout());
+        o.add("request", DownlinkRequestSerDes.jSerialize(request.getRequest()));
+        return o.toString().getBytes(UTF_8);
+    }
+
+    private QueuedRequest<?> deserialize(JsonObject o) {
+        DownlinkRequest<?> request = DownlinkRequestSerDes.deserialize(o.get("request").asObject());
+        return newLoggingRequest(o.getString("id", null), request, o.getLong("timeout", 0),
+                o.getLong("queuedTime", 0));
+    }
+
+    private <T extends LwM2mResponse> QueuedRequest<T> newLoggingRequest(final String id,
+            final DownlinkRequest<T> request, long timeout, long queuedTime) {
+        return new QueuedRequest<>(id, request, timeout, queuedTime, new ResponseCallback<T>() {
+            @Override
+            public void onResponse(T response) {
+                LOG.info("Response to queued request {} {}: {}", id, request, response);
+            }
+        }, new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                LOG.warn("Unable to send queued request {} {}", id, request, e);
+            }
+        });
+    }
+}
@@ -15,16 +15,24 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.redis;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.leshan.server.redis.serialization.SecurityInfoSerDes;
-import org.eclipse.leshan.server.security.EditableSecurityStore;
+import org.eclipse.leshan.server.security.BulkEditableSecurityStore;
 import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.ObservableSecurityStore;
 import org.eclipse.leshan.server.security.SecurityInfo;
+import org.eclipse.leshan.server.security.SecurityInfoBatch;
 import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.server.security.SecurityStoreListener;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.util.Pool;
@@ -33,8 +41,11 @@ import redis.clients.util.Pool;
  * A {@link SecurityStore} implementation based on Redis.
  * <p>
  * Security info are stored using the endpoint as primary key and a secondary index is created for psk-identity lookup.
+ * <p>
+ * {@link SecurityStoreListener}s are only notified of the changes done through this instance, not of the ones done by
+ * other processes sharing the same Redis database.
  */
-public class RedisSecurityStore implements EditableSecurityStore {
+public class RedisSecurityStore implements ObservableSecurityStore, BulkEditableSecurityStore {
 
     private static final String SEC_EP = "SEC#EP#";
 
@@ -42,6 +53,8 @@ public class RedisSecurityStore implements EditableSecurityStore {
 
     private final Pool<Jedis> pool;
 
+    private final List<SecurityStoreListener> listeners = new CopyOnWriteArrayList<>();
+
     public RedisSecurityStore(Pool<Jedis> pool) {
         this.pool = pool;
     }
@@ -96,6 +109,7 @@ public class RedisSecurityStore implements EditableSecurityStore {
     @Override
     public SecurityInfo add(SecurityInfo info) throws NonUniqueSecurityInfoException {
         byte[] data = serialize(info);
+        SecurityInfo previous;
         try (Jedis j = pool.getResource()) {
             if (info.getIdentity() != null) {
                 // populate the secondary index (security info by PSK id)
@@ -107,31 +121,142 @@ public class RedisSecurityStore implements EditableSecurityStore {
             }
 
             byte[] previousData = j.getSet((SEC_EP + info.getEndpoint()).getBytes(), data);
-            SecurityInfo previous = previousData == null ? null : deserialize(previousData);
+            previous = previousData == null ? null : deserialize(previousData);
             String previousIdentity = previous == null ? null : previous.getIdentity();
             if (previousIdentity != null && !previousIdentity.equals(info.getIdentity())) {
                 j.hdel(PSKID_SEC, previousIdentity);
             }
+        }
+        notifyListeners(info.getEndpoint(), previous, info);
+        return previous;
+    }
 
-            return previous;
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Commands are pipelined, so the whole batch costs three round trips to Redis whatever its size. Like
+     * {@link #add(SecurityInfo)}, the batch is not atomic: a concurrent writer of another process could still use one
+     * of the PSK identities between the check and the write.
+     */
+    @Override
+    public List<SecurityInfo> addAll(Collection<SecurityInfo> infos) throws NonUniqueSecurityInfoException {
+        Collection<SecurityInfo> batch = SecurityInfoBatch.lastByEndpoint(infos);
+        List<SecurityInfo> previousInfos = new ArrayList<>(batch.size());
+        List<SecurityInfo> previousByInfo = new ArrayList<>(batch.size());
+        try (Jedis j = pool.getResource()) {
+            // check the secondary index (security info by PSK id) for the whole batch
+            Pipeline p = j.pipelined();
+            List<Response<String>> oldEndpoints = new ArrayList<>(batch.size());
+            for (SecurityInfo info : batch) {
+                oldEndpoints.add(info.getIdentity() == null ? null : p.hget(PSKID_SEC, info.getIdentity()));
+            }
+            p.sync();
+            int i = 0;
+            for (SecurityInfo info : batch) {
+                Response<String> oldEndpoint = oldEndpoints.get(i++);
+                if (oldEndpoint != null && oldEndpoint.get() != null && !oldEndpoint.get().equals(info.getEndpoint())) {
+                    throw new NonUniqueSecurityInfoException("PSK Identity " + info.getIdentity() + " is already used");
+                }
+            }
+
+            p = j.pipelined();
+            List<Response<byte[]>> previousData = new ArrayList<>(batch.size());
+            for (SecurityInfo info : batch) {
+                if (info.getIdentity() != null) {
+                    p.hset(PSKID_SEC.getBytes(), info.getIdentity().getBytes(), info.getEndpoint().getBytes());
+                }
+                previousData.add(p.getSet((SEC_EP + info.getEndpoint()).getBytes(), serialize(info)));
+            }
+            p.sync();
+
+            // clean the identities which are not used anymore
+            p = j.pipelined();
+            i = 0;
+            for (SecurityInfo info : batch) {
+                byte[] data = previousData.get(i++).get();
+                SecurityInfo previous = data == null ? null : deserialize(data);
+                previousByInfo.add(previous);
+                if (previous != null) {
+                    previousInfos.add(previous);
+                    String previousIdentity = previous.getIdentity();
+                    if (previousIdentity != null && !previousIdentity.equals(info.getIdentity())) {
+                        p.hdel(PSKID_SEC, previousIdentity);
+                    }
+                }
+            }
+            p.sync();
         }
+        int i = 0;
+        for (SecurityInfo info : batch) {
+            notifyListeners(info.getEndpoint(), previousByInfo.get(i++), info);
+        }
+        return previousInfos;
     }
 
     @Override
     public SecurityInfo remove(String endpoint) {
+        SecurityInfo info = null;
         try (Jedis j = pool.getResource()) {
             byte[] data = j.get((SEC_EP + endpoint).getBytes());
 
             if (data != null) {
-                SecurityInfo info = deserialize(data);
+                info = deserialize(data);
                 if (info.getIdentity() != null) {
                     j.hdel(PSKID_SEC.getBytes(), info.getIdentity().getBytes());
                 }
                 j.del((SEC_EP + endpoint).getBytes());
-                return info;
             }
         }
-        return null;
+        if (info != null) {
+            notifyListeners(endpoint, info, null);
+        }
+        return info;
+    }
+
+    @Override
+    public List<SecurityInfo> removeAll(Collection<String> endpoints) {
+        List<SecurityInfo> infos = new ArrayList<>();
+        try (Jedis j = pool.getResource()) {
+            Pipeline p = j.pipelined();
+            List<Response<byte[]>> data = new ArrayList<>(endpoints.size());
+            for (String endpoint : endpoints) {
+                data.add(p.get((SEC_EP + endpoint).getBytes()));
+            }
+            p.sync();
+
+            p = j.pipelined();
+            for (Response<byte[]> response : data) {
+                if (response.get() != null) {
+                    SecurityInfo info = deserialize(response.get());
+                    if (info.getIdentity() != null) {
+                        p.hdel(PSKID_SEC.getBytes(), info.getIdentity().getBytes());
+                    }
+                    p.del((SEC_EP + info.getEndpoint()).getBytes());
+                    infos.add(info);
+                }
+            }
+            p.sync();
+        }
+        for (SecurityInfo info : infos) {
+            notifyListeners(info.getEndpoint(), info, null);
+        }
+        return infos;
+    }
+
+    @Override
+    public void addListener(SecurityStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(SecurityStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(String endpoint, SecurityInfo previous, SecurityInfo current) {
+        for (SecurityStoreListener listener : listeners) {
+            listener.securityInfoChanged(endpoint, previous, current);
+        }
     }
 
     private byte[] serialize(SecurityInfo secInfo) {
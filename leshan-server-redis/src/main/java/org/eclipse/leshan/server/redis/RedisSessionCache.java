@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
+import org.eclipse.californium.scandium.dtls.DTLSSession;
+import org.eclipse.californium.scandium.dtls.SessionCache;
+import org.eclipse.californium.scandium.dtls.SessionId;
+import org.eclipse.californium.scandium.dtls.SessionTicket;
+import org.eclipse.leshan.server.californium.impl.InMemorySessionCache;
+import org.eclipse.leshan.util.Hex;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+/**
+ * A DTLS {@link SessionCache} storing the tickets of the resumable sessions in Redis, so a client can resume its
+ * session with an abbreviated handshake on any server of a cluster, e.g. after the load balancer sent it to an other
+ * server.
+ * <p>
+ * Tickets are also kept in a bounded local cache during a short time, so most resumptions do not need a Redis lookup.
+ * Because of this local cache, a session removed by an other server can still be resumed on this one until the local
+ * entry expires.
+ * <p>
+ * Redis errors are logged and handled as cache misses: the client then does a full handshake.
+ */
+public class RedisSessionCache implements SessionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RedisSessionCache.class);
+
+    /** Default time in milliseconds during which a session can be resumed. */
+    public static final long DEFAULT_TTL = InMemorySessionCache.DEFAULT_TTL;
+    /** Default maximum number of session tickets cached locally. */
+    public static final int DEFAULT_LOCAL_CAPACITY = 10000;
+    /** Default time in milliseconds during which a session ticket is cached locally. */
+    public static final long DEFAULT_LOCAL_TTL = 60000;
+
+    private static final String DTLS_SESSION = "DTLS:SESSION:"; // (Session id => Session ticket)
+
+    private final Pool<Jedis> pool;
+    private final long ttl;
+    private final InMemorySessionCache localCache;
+
+    public RedisSessionCache(Pool<Jedis> pool) {
+        this(pool, DEFAULT_TTL, DEFAULT_LOCAL_CAPACITY, DEFAULT_LOCAL_TTL);
+    }
+
+    /**
+     * @param pool the Redis connection pool.
+     * @param ttl time in milliseconds during which a session can be resumed.
+     * @param localCapacity the maximum number of session tickets cached locally.
+     * @param localTtl time in milliseconds during which a session ticket is cached locally.
+     */
+    public RedisSessionCache(Pool<Jedis> pool, long ttl, int localCapacity, long localTtl) {
+        Validate.notNull(pool);
+        Validate.isTrue(ttl > 0, "TTL must be greater than 0");
+        this.pool = pool;
+        this.ttl = ttl;
+        this.localCache = new InMemorySessionCache(localCapacity, Math.min(ttl, localTtl));
+    }
+
+    @Override
+    public void put(DTLSSession session) {
+        SessionId id = session.getSessionIdentifier();
+        if (id == null || id.getBytes().length == 0) {
+            return;
+        }
+        SessionTicket ticket = session.getSessionTicket();
+        localCache.put(id, ticket);
+
+        DatagramWriter writer = new DatagramWriter();
+        ticket.encode(writer);
+        try (Jedis j = pool.getResource()) {
+            j.psetex(toKey(id), ttl, writer.toByteArray());
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to store DTLS session {} in Redis", id, e);
+        }
+    }
+
+    @Override
+    public SessionTicket get(SessionId id) {
+        SessionTicket ticket = localCache.get(id);
+        if (ticket != null) {
+            return ticket;
+        }
+
+        byte[] data;
+        try (Jedis j = pool.getResource()) {
+            data = j.get(toKey(id));
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to get DTLS session {} from Redis", id, e);
+            return null;
+        }
+        if (data == null) {
+            return null;
+        }
+        try {
+            ticket = SessionTicket.decode(new DatagramReader(data));
+        } catch (RuntimeException e) {
+            LOG.warn("Invalid DTLS session {} in Redis", id, e);
+            return null;
+        }
+        if (ticket != null) {
+            localCache.put(id, ticket);
+        }
+        return ticket;
+    }
+
+    @Override
+    public void remove(SessionId id) {
+        localCache.remove(id);
+        try (Jedis j = pool.getResource()) {
+            j.del(toKey(id));
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to remove DTLS session {} from Redis", id, e);
+        }
+    }
+
+    private static byte[] toKey(SessionId id) {
+        return (DTLS_SESSION + Hex.encodeHexString(id.getBytes())).getBytes(UTF_8);
+    }
+}
@@ -13,10 +13,13 @@
  * Contributors:
  *     Sierra Wireless - initial API and implementation
  *******************************************************************************/
-package org.eclipse.leshan.server.cluster.serialization;
+package org.eclipse.leshan.server.redis.serialization;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.leshan.core.attributes.AttributeSet;
 import org.eclipse.leshan.core.node.LwM2mNode;
@@ -39,6 +42,7 @@ import org.eclipse.leshan.core.request.WriteRequest.Mode;
 import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonObject.Member;
 import com.eclipsesource.json.JsonValue;
 
 /**
@@ -56,6 +60,13 @@ public class DownlinkRequestSerDes {
                 o.add("kind", "observe");
                 if (request.getContentFormat() != null)
                     o.add("contentFormat", request.getContentFormat().getCode());
+                if (!request.getContext().isEmpty()) {
+                    JsonObject context = Json.object();
+                    for (Entry<String, String> e : request.getContext().entrySet()) {
+                        context.add(e.getKey(), e.getValue());
+                    }
+                    o.add("context", context);
+                }
             }
 
             @Override
@@ -85,7 +96,8 @@ public class DownlinkRequestSerDes {
             @Override
             public void visit(ExecuteRequest request) {
                 o.add("kind", "execute");
-                o.add("parameters", request.getParameters());
+                if (request.getParameters() != null)
+                    o.add("parameters", request.getParameters());
             }
 
             @Override
@@ -125,13 +137,23 @@ public class DownlinkRequestSerDes {
         return jSerialize(r).toString().getBytes();
     }
 
+    public static DownlinkRequest<?> deserialize(byte[] data) {
+        return deserialize((JsonObject) Json.parse(new String(data)));
+    }
+
     public static DownlinkRequest<?> deserialize(JsonObject o) {
         String kind = o.getString("kind", null);
         String path = o.getString("path", null);
         switch (kind) {
             case "observe": {
-                int format = o.getInt("contentFormat", ContentFormat.TLV.getCode());
-                return new ObserveRequest(ContentFormat.fromCode(format), path);
+                Map<String, String> context = new HashMap<>();
+                JsonValue jContext = o.get("context");
+                if (jContext != null) {
+                    for (Member e : jContext.asObject()) {
+                        context.put(e.getName(), e.getValue().asString());
+                    }
+                }
+                return new ObserveRequest(getContentFormat(o), path, context);
             }
             case "delete":
                 return new DeleteRequest(path);
@@ -164,12 +186,17 @@ public class DownlinkRequestSerDes {
                 return new WriteRequest(mode, ContentFormat.fromCode(format), path, node);
             }
             case "read": {
-                int format = o.getInt("contentFormat", ContentFormat.TLV.getCode());
-                return new ReadRequest(ContentFormat.fromCode(format), path);
+                return new ReadRequest(getContentFormat(o), path);
             }
             default:
                 throw new IllegalStateException("Invalid request missing kind attribute");
         }
     }
 
+    // the content format is optional for read and observe requests
+    private static ContentFormat getContentFormat(JsonObject o) {
+        JsonValue format = o.get("contentFormat");
+        return format == null ? null : ContentFormat.fromCode(format.asInt());
+    }
+
 }
@@ -13,7 +13,7 @@
  * Contributors:
  *     Sierra Wireless - initial API and implementation
  *******************************************************************************/
-package org.eclipse.leshan.server.cluster.serialization;
+package org.eclipse.leshan.server.redis.serialization;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -30,10 +30,8 @@ import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.node.LwM2mSingleResource;
 
 import com.eclipsesource.json.Json;
-import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonObject.Member;
-import com.eclipsesource.json.JsonValue;
 
 /**
  * Functions for serialize and deserialize a LWM2M node in JSON.
@@ -90,9 +88,9 @@ public class LwM2mNodeSerDes {
         switch (kind) {
             case "object": {
                 Collection<LwM2mObjectInstance> instances = new ArrayList<>();
-                JsonArray jInstances = (JsonArray) o.get("instances");
-                for (JsonValue jInstance : jInstances) {
-                    LwM2mObjectInstance instance = (LwM2mObjectInstance) deserialize((JsonObject) jInstance);
+                JsonObject jInstances = (JsonObject) o.get("instances");
+                for (Member jInstance : jInstances) {
+                    LwM2mObjectInstance instance = (LwM2mObjectInstance) deserialize((JsonObject) jInstance.getValue());
                     instances.add(instance);
                 }
                 return new LwM2mObject(id, instances);
@@ -13,11 +13,12 @@
  * Contributors:
  *     Sierra Wireless - initial API and implementation
  *******************************************************************************/
-package org.eclipse.leshan.server.cluster.serialization;
+package org.eclipse.leshan.server.redis.serialization;
 
 import java.util.Date;
 
 import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.node.ObjectLink;
 import org.eclipse.leshan.util.Base64;
 
 import com.eclipsesource.json.Json;
@@ -42,6 +43,9 @@ public class ValueSerDes {
                 return Json.value((String) value);
             case TIME:
                 return Json.value(((Date) value).getTime());
+            case OBJLNK:
+                ObjectLink link = (ObjectLink) value;
+                return Json.value(link.getObjectId() + ":" + link.getObjectInstanceId());
             default:
                 throw new IllegalArgumentException(String.format("Type %s is not supported", type.name()));
         }
@@ -69,6 +73,9 @@ public class ValueSerDes {
                 return v.asString();
             case TIME:
                 return new Date(v.asLong());
+            case OBJLNK:
+                String[] link = v.asString().split(":");
+                return new ObjectLink(Integer.parseInt(link[0]), Integer.parseInt(link[1]));
             default:
                 throw new IllegalArgumentException(String.format("Type %s is not supported", type.name()));
         }
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.attributes.Attribute;
+import org.eclipse.leshan.core.attributes.AttributeSet;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.CreateRequest;
+import org.eclipse.leshan.core.request.DeleteRequest;
+import org.eclipse.leshan.core.request.DiscoverRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ExecuteRequest;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.WriteAttributesRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.request.WriteRequest.Mode;
+import org.junit.Test;
+
+import com.eclipsesource.json.JsonObject;
+
+public class DownlinkRequestSerDesTest {
+
+    @Test
+    public void read_request_ser_des() {
+        ReadRequest request = (ReadRequest) serDes(new ReadRequest(ContentFormat.JSON, 3, 0, 1));
+
+        assertEquals(new ReadRequest(3, 0, 1).getPath(), request.getPath());
+        assertEquals(ContentFormat.JSON, request.getContentFormat());
+    }
+
+    @Test
+    public void write_request_ser_des() {
+        Map<Integer, Long> values = new HashMap<>();
+        values.put(0, 10L);
+        values.put(3, 30L);
+        LwM2mObjectInstance instance = new LwM2mObjectInstance(0, LwM2mSingleResource.newStringResource(0, "a"),
+                LwM2mSingleResource.newBooleanResource(1, true), LwM2mSingleResource.newFloatResource(2, 1.5d),
+                LwM2mSingleResource.newDateResource(3, new Date(1500000000000L)),
+                LwM2mSingleResource.newBinaryResource(4, new byte[] { 1, 2, 3 }),
+                LwM2mSingleResource.newObjectLinkResource(5, new ObjectLink(3, 0)),
+                LwM2mMultipleResource.newIntegerResource(6, values));
+
+        WriteRequest request = (WriteRequest) serDes(
+                new WriteRequest(Mode.UPDATE, ContentFormat.TLV, "/1000/0", instance));
+
+        assertTrue(request.isPartialUpdateRequest());
+        assertEquals(ContentFormat.TLV, request.getContentFormat());
+        assertEquals(instance, request.getNode());
+    }
+
+    @Test
+    public void create_request_ser_des() {
+        CreateRequest request = (CreateRequest) serDes(
+                new CreateRequest(1000, new LwM2mObjectInstance(2, LwM2mSingleResource.newIntegerResource(0, 42))));
+
+        assertEquals(Integer.valueOf(2), request.getInstanceId());
+        assertEquals(LwM2mSingleResource.newIntegerResource(0, 42), request.getResources().get(0));
+    }
+
+    @Test
+    public void other_requests_ser_des() {
+        ExecuteRequest execute = (ExecuteRequest) serDes(new ExecuteRequest(3, 0, 4, "param"));
+        assertEquals("param", execute.getParameters());
+
+        Map<String, String> context = new HashMap<>();
+        context.put("app", "demo");
+        ObserveRequest observe = (ObserveRequest) serDes(new ObserveRequest(null, "/3/0/9", context));
+        assertEquals(context, observe.getContext());
+
+        AttributeSet attributes = AttributeSet.parse("pmin=10&pmax=60");
+        WriteAttributesRequest writeAttributes = (WriteAttributesRequest) serDes(
+                new WriteAttributesRequest("/3/0/9", attributes));
+        assertEquals(attributes, writeAttributes.getAttributes());
+    }
+
+    @Test
+    public void ser_and_des_requests_are_equals() {
+        ser_and_des_are_equals(new ReadRequest(ContentFormat.TLV, 3, 0, 1));
+        ser_and_des_are_equals(new ReadRequest(3, 0, 1));
+        ser_and_des_are_equals(new ExecuteRequest(3, 0, 1, "params"));
+        ser_and_des_are_equals(new ExecuteRequest(3, 0, 1));
+        ser_and_des_are_equals(new DeleteRequest(3, 0));
+        ser_and_des_are_equals(new DiscoverRequest(3, 0, 1));
+        ser_and_des_are_equals(new ObserveRequest(ContentFormat.TLV, 3, 0, 1));
+        ser_and_des_are_equals(new WriteRequest(Mode.REPLACE, ContentFormat.TLV, 3, 0,
+                new LwM2mResource[] { LwM2mSingleResource.newStringResource(1, "value") }));
+        ser_and_des_are_equals(new CreateRequest(ContentFormat.TLV, 3,
+                new LwM2mResource[] { LwM2mSingleResource.newStringResource(1, "value") }));
+        AttributeSet attributes = new AttributeSet(new Attribute(Attribute.MINIMUM_PERIOD, 10L),
+                new Attribute(Attribute.MAXIMUM_PERIOD, 60L));
+        ser_and_des_are_equals(new WriteAttributesRequest(3, 0, 1, attributes));
+    }
+
+    @Test
+    public void ser_and_des_read_request_then_compare_to_observe_request() {
+        ReadRequest readRequest = new ReadRequest(ContentFormat.TLV, 3, 0, 1);
+
+        JsonObject ser = DownlinkRequestSerDes.jSerialize(readRequest);
+        DownlinkRequest<?> r2 = DownlinkRequestSerDes.deserialize(ser);
+        assertNotEquals(r2, new ObserveRequest(ContentFormat.TLV, 3, 0, 1));
+    }
+
+    private void ser_and_des_are_equals(DownlinkRequest<?> request) {
+        JsonObject ser = DownlinkRequestSerDes.jSerialize(request);
+        DownlinkRequest<?> r2 = DownlinkRequestSerDes.deserialize(ser);
+        assertEquals(request, r2);
+    }
+
+    private DownlinkRequest<?> serDes(DownlinkRequest<?> request) {
+        DownlinkRequest<?> result = DownlinkRequestSerDes.deserialize(DownlinkRequestSerDes.bSerialize(request));
+        assertEquals(request.getClass(), result.getClass());
+        assertEquals(request.getPath(), result.getPath());
+        return result;
+    }
+}